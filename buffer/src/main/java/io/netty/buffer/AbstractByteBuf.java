@@ -1261,6 +1261,12 @@ public abstract class AbstractByteBuf extends ByteBuf {
     }
 
     private int forEachByteAsc0(int start, int end, ByteProcessor processor) throws Exception {
+        if (end - start >= ByteBufUtil.SWAR_MIN_LENGTH) {
+            int value = ByteBufUtil.searchedByte(processor);
+            if (value >= 0) {
+                return ByteBufUtil.firstIndexOfSwar(this, start, end, (byte) value);
+            }
+        }
         for (; start < end; ++start) {
             if (!processor.process(_getByte(start))) {
                 return start;
@@ -59,6 +59,10 @@ public final class ByteBufUtil {
     };
 
     private static final byte WRITE_UTF_UNKNOWN = (byte) '?';
+    // Searches which are shorter than this are not worth to be done a word at a time.
+    static final int SWAR_MIN_LENGTH = 16;
+    private static final long SWAR_ONES = 0x0101010101010101L;
+    private static final long SWAR_LOW_BITS = 0x7F7F7F7F7F7F7F7FL;
     private static final int MAX_CHAR_BUFFER_SIZE;
     private static final int THREAD_LOCAL_BUFFER_SIZE;
     private static final int MAX_BYTES_PER_CHAR_UTF8 =
@@ -373,9 +377,68 @@ public final class ByteBufUtil {
             return -1;
         }
 
+        if (toIndex - fromIndex >= SWAR_MIN_LENGTH && buffer instanceof AbstractByteBuf) {
+            AbstractByteBuf buf = (AbstractByteBuf) buffer;
+            buf.checkIndex(fromIndex, toIndex - fromIndex);
+            return firstIndexOfSwar(buf, fromIndex, toIndex, value);
+        }
         return buffer.forEachByte(fromIndex, toIndex - fromIndex, new ByteProcessor.IndexOfProcessor(value));
     }
 
+    /**
+     * Searches 8 bytes at a time by reading a big-endian {@code long} and checking all of its bytes for the value
+     * at once (SWAR, SIMD within a register).
+     */
+    static int firstIndexOfSwar(AbstractByteBuf buffer, int fromIndex, int toIndex, byte value) {
+        final long pattern = (value & 0xFFL) * SWAR_ONES;
+        int i = fromIndex;
+        for (final int end = toIndex - 7; i < end; i += 8) {
+            int byteIndex = firstMatchingByte(buffer._getLong(i), pattern);
+            if (byteIndex < Long.SIZE / Byte.SIZE) {
+                return i + byteIndex;
+            }
+        }
+        for (; i < toIndex; i ++) {
+            if (buffer._getByte(i) == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the byte searched by the given {@link ByteProcessor} if it is one of the {@link ByteProcessor}
+     * constants which search for a single byte, or {@code -1} otherwise.
+     */
+    static int searchedByte(ByteProcessor processor) {
+        if (processor == ByteProcessor.FIND_LF) {
+            return '\n';
+        }
+        if (processor == ByteProcessor.FIND_CR) {
+            return '\r';
+        }
+        if (processor == ByteProcessor.FIND_NUL) {
+            return 0;
+        }
+        if (processor == ByteProcessor.FIND_SEMI_COLON) {
+            return ';';
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the index of the first byte of the big-endian {@code word} which is equal to the byte repeated in
+     * {@code pattern}, or {@code 8} if there is none.
+     */
+    private static int firstMatchingByte(long word, long pattern) {
+        // Bytes which are equal to the value become zero, and only zero bytes get their highest bit set in tmp.
+        // Unlike the well known (x - 0x01..) & ~x & 0x80.. trick this has no false positives after the first match.
+        long input = word ^ pattern;
+        long tmp = (input & SWAR_LOW_BITS) + SWAR_LOW_BITS;
+        tmp = ~(tmp | input | SWAR_LOW_BITS);
+        return Long.numberOfLeadingZeros(tmp) >>> 3;
+    }
+
     private static int lastIndexOf(ByteBuf buffer, int fromIndex, int toIndex, byte value) {
         fromIndex = Math.min(fromIndex, buffer.capacity());
         if (fromIndex < 0 || buffer.capacity() == 0) {
@@ -26,12 +26,12 @@ import java.nio.channels.FileChannel;
 import java.nio.channels.GatheringByteChannel;
 import java.nio.channels.ScatteringByteChannel;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.List;
-import java.util.ListIterator;
 import java.util.NoSuchElementException;
 
 import static io.netty.util.internal.ObjectUtil.checkNotNull;
@@ -48,9 +48,19 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
     private final ByteBufAllocator alloc;
     private final boolean direct;
-    private final List<Component> components;
     private final int maxNumComponents;
 
+    // The components live in buffers[head, head + componentCount). The component at index i spans
+    // [offsets[head + i], offsets[head + i + 1]) relative to offsets[head], so discarding read components only needs
+    // to advance head and appending a component never touches the offsets of the components before it. The absolute
+    // values may overflow over the lifetime of the buffer, only the differences between them are meaningful.
+    private ByteBuf[] buffers;
+    private int[] offsets;
+    private int head;
+    private int componentCount;
+    // The component which was found by the last lookup. Most accesses are sequential, so this saves the binary search.
+    private int lastAccessed;
+
     private boolean freed;
 
     public CompositeByteBuf(ByteBufAllocator alloc, boolean direct, int maxNumComponents) {
@@ -61,7 +71,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         this.alloc = alloc;
         this.direct = direct;
         this.maxNumComponents = maxNumComponents;
-        components = newList(maxNumComponents);
+        initComponents(Math.min(AbstractByteBufAllocator.DEFAULT_MAX_COMPONENTS, maxNumComponents));
     }
 
     public CompositeByteBuf(ByteBufAllocator alloc, boolean direct, int maxNumComponents, ByteBuf... buffers) {
@@ -82,7 +92,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         this.alloc = alloc;
         this.direct = direct;
         this.maxNumComponents = maxNumComponents;
-        components = newList(maxNumComponents);
+        initComponents(Math.min(AbstractByteBufAllocator.DEFAULT_MAX_COMPONENTS, maxNumComponents));
 
         addComponents0(false, 0, buffers, offset, len);
         consolidateIfNeeded();
@@ -103,15 +113,16 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         this.alloc = alloc;
         this.direct = direct;
         this.maxNumComponents = maxNumComponents;
-        components = newList(maxNumComponents);
+        initComponents(Math.min(AbstractByteBufAllocator.DEFAULT_MAX_COMPONENTS, maxNumComponents));
 
         addComponents0(false, 0, buffers);
         consolidateIfNeeded();
         setIndex(0, capacity());
     }
 
-    private static List<Component> newList(int maxNumComponents) {
-        return new ArrayList<Component>(Math.min(AbstractByteBufAllocator.DEFAULT_MAX_COMPONENTS, maxNumComponents));
+    private void initComponents(int initialCapacity) {
+        buffers = new ByteBuf[initialCapacity];
+        offsets = new int[initialCapacity + 1];
     }
 
     // Special constructor used by WrappedCompositeByteBuf
@@ -120,7 +131,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         this.alloc = alloc;
         direct = false;
         maxNumComponents = 0;
-        components = Collections.emptyList();
+        initComponents(0);
     }
 
     /**
@@ -192,7 +203,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
      */
     public CompositeByteBuf addComponent(boolean increaseWriterIndex, ByteBuf buffer) {
         checkNotNull(buffer, "buffer");
-        addComponent0(increaseWriterIndex, components.size(), buffer);
+        addComponent0(increaseWriterIndex, componentCount, buffer);
         consolidateIfNeeded();
         return this;
     }
@@ -207,7 +218,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
      * ownership of all {@link ByteBuf} objects is transfered to this {@link CompositeByteBuf}.
      */
     public CompositeByteBuf addComponents(boolean increaseWriterIndex, ByteBuf... buffers) {
-        addComponents0(increaseWriterIndex, components.size(), buffers, 0, buffers.length);
+        addComponents0(increaseWriterIndex, componentCount, buffers, 0, buffers.length);
         consolidateIfNeeded();
         return this;
     }
@@ -222,7 +233,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
      * ownership of all {@link ByteBuf} objects is transfered to this {@link CompositeByteBuf}.
      */
     public CompositeByteBuf addComponents(boolean increaseWriterIndex, Iterable<ByteBuf> buffers) {
-        addComponents0(increaseWriterIndex, components.size(), buffers);
+        addComponents0(increaseWriterIndex, componentCount, buffers);
         consolidateIfNeeded();
         return this;
     }
@@ -254,27 +265,13 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
             int readableBytes = buffer.readableBytes();
 
-            // No need to consolidate - just add a component to the list.
+            // No need to consolidate - just add a component to the array.
             @SuppressWarnings("deprecation")
-            Component c = new Component(buffer.order(ByteOrder.BIG_ENDIAN).slice());
-            if (cIndex == components.size()) {
-                wasAdded = components.add(c);
-                if (cIndex == 0) {
-                    c.endOffset = readableBytes;
-                } else {
-                    Component prev = components.get(cIndex - 1);
-                    c.offset = prev.endOffset;
-                    c.endOffset = c.offset + readableBytes;
-                }
-            } else {
-                components.add(cIndex, c);
-                wasAdded = true;
-                if (readableBytes != 0) {
-                    updateComponentOffsets(cIndex);
-                }
-            }
+            ByteBuf slice = buffer.order(ByteOrder.BIG_ENDIAN).slice();
+            insertComponent(cIndex, slice, readableBytes);
+            wasAdded = true;
             if (increaseWriterIndex) {
-                writerIndex(writerIndex() + buffer.readableBytes());
+                writerIndex(writerIndex() + readableBytes);
             }
             return cIndex;
         } finally {
@@ -319,7 +316,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
                     break;
                 }
                 cIndex = addComponent0(increaseWriterIndex, cIndex, b) + 1;
-                int size = components.size();
+                int size = componentCount;
                 if (cIndex > size) {
                     cIndex = size;
                 }
@@ -398,64 +395,135 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
     private void consolidateIfNeeded() {
         // Consolidate if the number of components will exceed the allowed maximum by the current
         // operation.
-        final int numComponents = components.size();
+        final int numComponents = componentCount;
         if (numComponents > maxNumComponents) {
-            final int capacity = components.get(numComponents - 1).endOffset;
+            final int capacity = capacity();
 
             ByteBuf consolidated = allocBuffer(capacity);
 
-            // We're not using foreach to avoid creating an iterator.
             for (int i = 0; i < numComponents; i ++) {
-                Component c = components.get(i);
-                ByteBuf b = c.buf;
+                ByteBuf b = componentBuf(i);
                 consolidated.writeBytes(b);
-                c.freeIfNecessary();
+                b.release();
             }
-            Component c = new Component(consolidated);
-            c.endOffset = c.length;
-            components.clear();
-            components.add(c);
+            clearComponents();
+            insertComponent(0, consolidated, capacity);
         }
     }
 
     private void checkComponentIndex(int cIndex) {
         ensureAccessible();
-        if (cIndex < 0 || cIndex > components.size()) {
+        if (cIndex < 0 || cIndex > componentCount) {
             throw new IndexOutOfBoundsException(String.format(
                     "cIndex: %d (expected: >= 0 && <= numComponents(%d))",
-                    cIndex, components.size()));
+                    cIndex, componentCount));
         }
     }
 
     private void checkComponentIndex(int cIndex, int numComponents) {
         ensureAccessible();
-        if (cIndex < 0 || cIndex + numComponents > components.size()) {
+        if (cIndex < 0 || cIndex + numComponents > componentCount) {
             throw new IndexOutOfBoundsException(String.format(
                     "cIndex: %d, numComponents: %d " +
                     "(expected: cIndex >= 0 && cIndex + numComponents <= totalNumComponents(%d))",
-                    cIndex, numComponents, components.size()));
+                    cIndex, numComponents, componentCount));
         }
     }
 
-    private void updateComponentOffsets(int cIndex) {
-        int size = components.size();
-        if (size <= cIndex) {
-            return;
+    private ByteBuf componentBuf(int cIndex) {
+        return buffers[head + cIndex];
+    }
+
+    private int componentOffset(int cIndex) {
+        return offsets[head + cIndex] - offsets[head];
+    }
+
+    private int componentEndOffset(int cIndex) {
+        return offsets[head + cIndex + 1] - offsets[head];
+    }
+
+    private int componentLength(int cIndex) {
+        return offsets[head + cIndex + 1] - offsets[head + cIndex];
+    }
+
+    /**
+     * Inserts {@code buf} at {@code cIndex} and shifts the offsets of all following components by {@code length},
+     * which is free when appending.
+     */
+    private void insertComponent(int cIndex, ByteBuf buf, int length) {
+        ensureComponentCapacity(componentCount + 1);
+        final int i = head + cIndex;
+        final int end = head + componentCount;
+        System.arraycopy(buffers, i, buffers, i + 1, end - i);
+        System.arraycopy(offsets, i + 1, offsets, i + 2, end - i);
+        buffers[i] = buf;
+        offsets[i + 1] = offsets[i] + length;
+        if (length != 0) {
+            for (int j = i + 2; j <= end + 1; j ++) {
+                offsets[j] += length;
+            }
         }
+        componentCount ++;
+    }
 
-        Component c = components.get(cIndex);
+    /**
+     * Removes the given range of components without releasing them. Removing from the start of the array only
+     * advances {@code head}, as the offsets are relative to the first component.
+     */
+    private void removeComponents0(int cIndex, int numComponents) {
         if (cIndex == 0) {
-            c.offset = 0;
-            c.endOffset = c.length;
-            cIndex ++;
+            Arrays.fill(buffers, head, head + numComponents, null);
+            head += numComponents;
+        } else {
+            final int i = head + cIndex;
+            final int end = head + componentCount;
+            final int removedBytes = offsets[i + numComponents] - offsets[i];
+            final int tail = end - i - numComponents;
+            System.arraycopy(buffers, i + numComponents, buffers, i, tail);
+            System.arraycopy(offsets, i + numComponents + 1, offsets, i + 1, tail);
+            if (removedBytes != 0) {
+                for (int j = i + 1; j <= i + tail; j ++) {
+                    offsets[j] -= removedBytes;
+                }
+            }
+            Arrays.fill(buffers, end - numComponents, end, null);
         }
+        componentCount -= numComponents;
+        lastAccessed = 0;
+    }
+
+    /**
+     * Removes all components without releasing them.
+     */
+    private void clearComponents() {
+        Arrays.fill(buffers, head, head + componentCount, null);
+        head = 0;
+        componentCount = 0;
+        offsets[0] = 0;
+        lastAccessed = 0;
+    }
 
-        for (int i = cIndex; i < size; i ++) {
-            Component prev = components.get(i - 1);
-            Component cur = components.get(i);
-            cur.offset = prev.endOffset;
-            cur.endOffset = cur.offset + cur.length;
+    private void ensureComponentCapacity(int minCapacity) {
+        final int length = buffers.length;
+        if (head + minCapacity <= length) {
+            return;
         }
+        if (minCapacity <= length >>> 1) {
+            // At least half of the array was freed by discarding read components, so just move the components to the
+            // start of the array. This happens at most once every length / 2 discarded components.
+            System.arraycopy(buffers, head, buffers, 0, componentCount);
+            System.arraycopy(offsets, head, offsets, 0, componentCount + 1);
+            Arrays.fill(buffers, componentCount, head + componentCount, null);
+        } else {
+            int newLength = Math.max(minCapacity, length + (length >>> 1));
+            ByteBuf[] newBuffers = new ByteBuf[newLength];
+            int[] newOffsets = new int[newLength + 1];
+            System.arraycopy(buffers, head, newBuffers, 0, componentCount);
+            System.arraycopy(offsets, head, newOffsets, 0, componentCount + 1);
+            buffers = newBuffers;
+            offsets = newOffsets;
+        }
+        head = 0;
     }
 
     /**
@@ -464,13 +532,10 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
      * @param cIndex the index on from which the {@link ByteBuf} will be remove
      */
     public CompositeByteBuf removeComponent(int cIndex) {
-        checkComponentIndex(cIndex);
-        Component comp = components.remove(cIndex);
-        comp.freeIfNecessary();
-        if (comp.length > 0) {
-            // Only need to call updateComponentOffsets if the length was > 0
-            updateComponentOffsets(cIndex);
-        }
+        checkComponentIndex(cIndex, 1);
+        ByteBuf buf = componentBuf(cIndex);
+        removeComponents0(cIndex, 1);
+        buf.release();
         return this;
     }
 
@@ -486,27 +551,18 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         if (numComponents == 0) {
             return this;
         }
-        List<Component> toRemove = components.subList(cIndex, cIndex + numComponents);
-        boolean needsUpdate = false;
-        for (Component c: toRemove) {
-            if (c.length > 0) {
-                needsUpdate = true;
-            }
-            c.freeIfNecessary();
-        }
-        toRemove.clear();
-
-        if (needsUpdate) {
-            // Only need to call updateComponentOffsets if the length was > 0
-            updateComponentOffsets(cIndex);
+        final int endCIndex = cIndex + numComponents;
+        for (int i = cIndex; i < endCIndex; i ++) {
+            componentBuf(i).release();
         }
+        removeComponents0(cIndex, numComponents);
         return this;
     }
 
     @Override
     public Iterator<ByteBuf> iterator() {
         ensureAccessible();
-        if (components.isEmpty()) {
+        if (componentCount == 0) {
             return EMPTY_ITERATOR;
         }
         return new CompositeByteBufIterator();
@@ -522,12 +578,11 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         }
 
         int componentId = toComponentIndex(offset);
-        List<ByteBuf> slice = new ArrayList<ByteBuf>(components.size());
+        List<ByteBuf> slice = new ArrayList<ByteBuf>(componentCount);
 
         // The first component
-        Component firstC = components.get(componentId);
-        ByteBuf first = firstC.buf.duplicate();
-        first.readerIndex(offset - firstC.offset);
+        ByteBuf first = componentBuf(componentId).duplicate();
+        first.readerIndex(offset - componentOffset(componentId));
 
         ByteBuf buf = first;
         int bytesToSlice = length;
@@ -545,7 +600,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
                 componentId ++;
 
                 // Fetch the next component.
-                buf = components.get(componentId).buf.duplicate();
+                buf = componentBuf(componentId).duplicate();
             }
         } while (bytesToSlice > 0);
 
@@ -559,12 +614,12 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
     @Override
     public boolean isDirect() {
-        int size = components.size();
+        int size = componentCount;
         if (size == 0) {
             return false;
         }
         for (int i = 0; i < size; i++) {
-           if (!components.get(i).buf.isDirect()) {
+           if (!componentBuf(i).isDirect()) {
                return false;
            }
         }
@@ -573,11 +628,11 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
     @Override
     public boolean hasArray() {
-        switch (components.size()) {
+        switch (componentCount) {
         case 0:
             return true;
         case 1:
-            return components.get(0).buf.hasArray();
+            return componentBuf(0).hasArray();
         default:
             return false;
         }
@@ -585,11 +640,11 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
     @Override
     public byte[] array() {
-        switch (components.size()) {
+        switch (componentCount) {
         case 0:
             return EmptyArrays.EMPTY_BYTES;
         case 1:
-            return components.get(0).buf.array();
+            return componentBuf(0).array();
         default:
             throw new UnsupportedOperationException();
         }
@@ -597,11 +652,11 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
     @Override
     public int arrayOffset() {
-        switch (components.size()) {
+        switch (componentCount) {
         case 0:
             return 0;
         case 1:
-            return components.get(0).buf.arrayOffset();
+            return componentBuf(0).arrayOffset();
         default:
             throw new UnsupportedOperationException();
         }
@@ -609,11 +664,11 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
     @Override
     public boolean hasMemoryAddress() {
-        switch (components.size()) {
+        switch (componentCount) {
         case 0:
             return Unpooled.EMPTY_BUFFER.hasMemoryAddress();
         case 1:
-            return components.get(0).buf.hasMemoryAddress();
+            return componentBuf(0).hasMemoryAddress();
         default:
             return false;
         }
@@ -621,11 +676,11 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
     @Override
     public long memoryAddress() {
-        switch (components.size()) {
+        switch (componentCount) {
         case 0:
             return Unpooled.EMPTY_BUFFER.memoryAddress();
         case 1:
-            return components.get(0).buf.memoryAddress();
+            return componentBuf(0).memoryAddress();
         default:
             throw new UnsupportedOperationException();
         }
@@ -633,11 +688,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
     @Override
     public int capacity() {
-        final int numComponents = components.size();
-        if (numComponents == 0) {
-            return 0;
-        }
-        return components.get(numComponents - 1).endOffset;
+        return offsets[head + componentCount] - offsets[head];
     }
 
     @Override
@@ -651,36 +702,36 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         if (newCapacity > oldCapacity) {
             final int paddingLength = newCapacity - oldCapacity;
             ByteBuf padding;
-            int nComponents = components.size();
+            int nComponents = componentCount;
             if (nComponents < maxNumComponents) {
                 padding = allocBuffer(paddingLength);
                 padding.setIndex(0, paddingLength);
-                addComponent0(false, components.size(), padding);
+                addComponent0(false, componentCount, padding);
             } else {
                 padding = allocBuffer(paddingLength);
                 padding.setIndex(0, paddingLength);
                 // FIXME: No need to create a padding buffer and consolidate.
                 // Just create a big single buffer and put the current content there.
-                addComponent0(false, components.size(), padding);
+                addComponent0(false, componentCount, padding);
                 consolidateIfNeeded();
             }
         } else if (newCapacity < oldCapacity) {
             int bytesToTrim = oldCapacity - newCapacity;
-            for (ListIterator<Component> i = components.listIterator(components.size()); i.hasPrevious();) {
-                Component c = i.previous();
-                if (bytesToTrim >= c.length) {
-                    bytesToTrim -= c.length;
-                    i.remove();
+            for (int i = componentCount - 1; i >= 0; i --) {
+                int length = componentLength(i);
+                if (bytesToTrim >= length) {
+                    bytesToTrim -= length;
+                    buffers[head + i] = null;
+                    componentCount --;
                     continue;
                 }
 
                 // Replace the last component with the trimmed slice.
-                Component newC = new Component(c.buf.slice(0, c.length - bytesToTrim));
-                newC.offset = c.offset;
-                newC.endOffset = newC.offset + newC.length;
-                i.set(newC);
+                buffers[head + i] = componentBuf(i).slice(0, length - bytesToTrim);
+                offsets[head + i + 1] -= bytesToTrim;
                 break;
             }
+            lastAccessed = 0;
 
             if (readerIndex() > newCapacity) {
                 setIndex(newCapacity, newCapacity);
@@ -705,7 +756,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
      * Return the current number of {@link ByteBuf}'s that are composed in this instance
      */
     public int numComponents() {
-        return components.size();
+        return componentCount;
     }
 
     /**
@@ -719,26 +770,12 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
      * Return the index for the given offset
      */
     public int toComponentIndex(int offset) {
-        checkIndex(offset);
-
-        for (int low = 0, high = components.size(); low <= high;) {
-            int mid = low + high >>> 1;
-            Component c = components.get(mid);
-            if (offset >= c.endOffset) {
-                low = mid + 1;
-            } else if (offset < c.offset) {
-                high = mid - 1;
-            } else {
-                return mid;
-            }
-        }
-
-        throw new Error("should not reach here");
+        return findComponentIndex(offset);
     }
 
     public int toByteIndex(int cIndex) {
         checkComponentIndex(cIndex);
-        return components.get(cIndex).offset;
+        return componentOffset(cIndex);
     }
 
     @Override
@@ -748,15 +785,15 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
     @Override
     protected byte _getByte(int index) {
-        Component c = findComponent(index);
-        return c.buf.getByte(index - c.offset);
+        int cIndex = findComponentIndex(index);
+        return componentBuf(cIndex).getByte(index - componentOffset(cIndex));
     }
 
     @Override
     protected short _getShort(int index) {
-        Component c = findComponent(index);
-        if (index + 2 <= c.endOffset) {
-            return c.buf.getShort(index - c.offset);
+        int cIndex = findComponentIndex(index);
+        if (index + 2 <= componentEndOffset(cIndex)) {
+            return componentBuf(cIndex).getShort(index - componentOffset(cIndex));
         } else if (order() == ByteOrder.BIG_ENDIAN) {
             return (short) ((_getByte(index) & 0xff) << 8 | _getByte(index + 1) & 0xff);
         } else {
@@ -766,9 +803,9 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
     @Override
     protected short _getShortLE(int index) {
-        Component c = findComponent(index);
-        if (index + 2 <= c.endOffset) {
-            return c.buf.getShortLE(index - c.offset);
+        int cIndex = findComponentIndex(index);
+        if (index + 2 <= componentEndOffset(cIndex)) {
+            return componentBuf(cIndex).getShortLE(index - componentOffset(cIndex));
         } else if (order() == ByteOrder.BIG_ENDIAN) {
             return (short) (_getByte(index) & 0xff | (_getByte(index + 1) & 0xff) << 8);
         } else {
@@ -778,9 +815,9 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
     @Override
     protected int _getUnsignedMedium(int index) {
-        Component c = findComponent(index);
-        if (index + 3 <= c.endOffset) {
-            return c.buf.getUnsignedMedium(index - c.offset);
+        int cIndex = findComponentIndex(index);
+        if (index + 3 <= componentEndOffset(cIndex)) {
+            return componentBuf(cIndex).getUnsignedMedium(index - componentOffset(cIndex));
         } else if (order() == ByteOrder.BIG_ENDIAN) {
             return (_getShort(index) & 0xffff) << 8 | _getByte(index + 2) & 0xff;
         } else {
@@ -790,9 +827,9 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
     @Override
     protected int _getUnsignedMediumLE(int index) {
-        Component c = findComponent(index);
-        if (index + 3 <= c.endOffset) {
-            return c.buf.getUnsignedMediumLE(index - c.offset);
+        int cIndex = findComponentIndex(index);
+        if (index + 3 <= componentEndOffset(cIndex)) {
+            return componentBuf(cIndex).getUnsignedMediumLE(index - componentOffset(cIndex));
         } else if (order() == ByteOrder.BIG_ENDIAN) {
             return _getShortLE(index) & 0xffff | (_getByte(index + 2) & 0xff) << 16;
         } else {
@@ -802,9 +839,9 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
     @Override
     protected int _getInt(int index) {
-        Component c = findComponent(index);
-        if (index + 4 <= c.endOffset) {
-            return c.buf.getInt(index - c.offset);
+        int cIndex = findComponentIndex(index);
+        if (index + 4 <= componentEndOffset(cIndex)) {
+            return componentBuf(cIndex).getInt(index - componentOffset(cIndex));
         } else if (order() == ByteOrder.BIG_ENDIAN) {
             return (_getShort(index) & 0xffff) << 16 | _getShort(index + 2) & 0xffff;
         } else {
@@ -814,9 +851,9 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
     @Override
     protected int _getIntLE(int index) {
-        Component c = findComponent(index);
-        if (index + 4 <= c.endOffset) {
-            return c.buf.getIntLE(index - c.offset);
+        int cIndex = findComponentIndex(index);
+        if (index + 4 <= componentEndOffset(cIndex)) {
+            return componentBuf(cIndex).getIntLE(index - componentOffset(cIndex));
         } else if (order() == ByteOrder.BIG_ENDIAN) {
             return _getShortLE(index) & 0xffff | (_getShortLE(index + 2) & 0xffff) << 16;
         } else {
@@ -826,9 +863,9 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
     @Override
     protected long _getLong(int index) {
-        Component c = findComponent(index);
-        if (index + 8 <= c.endOffset) {
-            return c.buf.getLong(index - c.offset);
+        int cIndex = findComponentIndex(index);
+        if (index + 8 <= componentEndOffset(cIndex)) {
+            return componentBuf(cIndex).getLong(index - componentOffset(cIndex));
         } else if (order() == ByteOrder.BIG_ENDIAN) {
             return (_getInt(index) & 0xffffffffL) << 32 | _getInt(index + 4) & 0xffffffffL;
         } else {
@@ -838,9 +875,9 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
     @Override
     protected long _getLongLE(int index) {
-        Component c = findComponent(index);
-        if (index + 8 <= c.endOffset) {
-            return c.buf.getLongLE(index - c.offset);
+        int cIndex = findComponentIndex(index);
+        if (index + 8 <= componentEndOffset(cIndex)) {
+            return componentBuf(cIndex).getLongLE(index - componentOffset(cIndex));
         } else if (order() == ByteOrder.BIG_ENDIAN) {
             return _getIntLE(index) & 0xffffffffL | (_getIntLE(index + 4) & 0xffffffffL) << 32;
         } else {
@@ -857,9 +894,8 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
         int i = toComponentIndex(index);
         while (length > 0) {
-            Component c = components.get(i);
-            ByteBuf s = c.buf;
-            int adjustment = c.offset;
+            ByteBuf s = componentBuf(i);
+            int adjustment = componentOffset(i);
             int localLength = Math.min(length, s.capacity() - (index - adjustment));
             s.getBytes(index - adjustment, dst, dstIndex, localLength);
             index += localLength;
@@ -883,9 +919,8 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         int i = toComponentIndex(index);
         try {
             while (length > 0) {
-                Component c = components.get(i);
-                ByteBuf s = c.buf;
-                int adjustment = c.offset;
+                ByteBuf s = componentBuf(i);
+                int adjustment = componentOffset(i);
                 int localLength = Math.min(length, s.capacity() - (index - adjustment));
                 dst.limit(dst.position() + localLength);
                 s.getBytes(index - adjustment, dst);
@@ -908,9 +943,8 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
         int i = toComponentIndex(index);
         while (length > 0) {
-            Component c = components.get(i);
-            ByteBuf s = c.buf;
-            int adjustment = c.offset;
+            ByteBuf s = componentBuf(i);
+            int adjustment = componentOffset(i);
             int localLength = Math.min(length, s.capacity() - (index - adjustment));
             s.getBytes(index - adjustment, dst, dstIndex, localLength);
             index += localLength;
@@ -964,9 +998,8 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
         int i = toComponentIndex(index);
         while (length > 0) {
-            Component c = components.get(i);
-            ByteBuf s = c.buf;
-            int adjustment = c.offset;
+            ByteBuf s = componentBuf(i);
+            int adjustment = componentOffset(i);
             int localLength = Math.min(length, s.capacity() - (index - adjustment));
             s.getBytes(index - adjustment, out, localLength);
             index += localLength;
@@ -978,8 +1011,8 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
     @Override
     public CompositeByteBuf setByte(int index, int value) {
-        Component c = findComponent(index);
-        c.buf.setByte(index - c.offset, value);
+        int cIndex = findComponentIndex(index);
+        componentBuf(cIndex).setByte(index - componentOffset(cIndex), value);
         return this;
     }
 
@@ -995,9 +1028,9 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
     @Override
     protected void _setShort(int index, int value) {
-        Component c = findComponent(index);
-        if (index + 2 <= c.endOffset) {
-            c.buf.setShort(index - c.offset, value);
+        int cIndex = findComponentIndex(index);
+        if (index + 2 <= componentEndOffset(cIndex)) {
+            componentBuf(cIndex).setShort(index - componentOffset(cIndex), value);
         } else if (order() == ByteOrder.BIG_ENDIAN) {
             _setByte(index, (byte) (value >>> 8));
             _setByte(index + 1, (byte) value);
@@ -1009,9 +1042,9 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
     @Override
     protected void _setShortLE(int index, int value) {
-        Component c = findComponent(index);
-        if (index + 2 <= c.endOffset) {
-            c.buf.setShortLE(index - c.offset, value);
+        int cIndex = findComponentIndex(index);
+        if (index + 2 <= componentEndOffset(cIndex)) {
+            componentBuf(cIndex).setShortLE(index - componentOffset(cIndex), value);
         } else if (order() == ByteOrder.BIG_ENDIAN) {
             _setByte(index, (byte) value);
             _setByte(index + 1, (byte) (value >>> 8));
@@ -1028,9 +1061,9 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
     @Override
     protected void _setMedium(int index, int value) {
-        Component c = findComponent(index);
-        if (index + 3 <= c.endOffset) {
-            c.buf.setMedium(index - c.offset, value);
+        int cIndex = findComponentIndex(index);
+        if (index + 3 <= componentEndOffset(cIndex)) {
+            componentBuf(cIndex).setMedium(index - componentOffset(cIndex), value);
         } else if (order() == ByteOrder.BIG_ENDIAN) {
             _setShort(index, (short) (value >> 8));
             _setByte(index + 2, (byte) value);
@@ -1042,9 +1075,9 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
     @Override
     protected void _setMediumLE(int index, int value) {
-        Component c = findComponent(index);
-        if (index + 3 <= c.endOffset) {
-            c.buf.setMediumLE(index - c.offset, value);
+        int cIndex = findComponentIndex(index);
+        if (index + 3 <= componentEndOffset(cIndex)) {
+            componentBuf(cIndex).setMediumLE(index - componentOffset(cIndex), value);
         } else if (order() == ByteOrder.BIG_ENDIAN) {
             _setShortLE(index, (short) value);
             _setByte(index + 2, (byte) (value >>> 16));
@@ -1061,9 +1094,9 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
     @Override
     protected void _setInt(int index, int value) {
-        Component c = findComponent(index);
-        if (index + 4 <= c.endOffset) {
-            c.buf.setInt(index - c.offset, value);
+        int cIndex = findComponentIndex(index);
+        if (index + 4 <= componentEndOffset(cIndex)) {
+            componentBuf(cIndex).setInt(index - componentOffset(cIndex), value);
         } else if (order() == ByteOrder.BIG_ENDIAN) {
             _setShort(index, (short) (value >>> 16));
             _setShort(index + 2, (short) value);
@@ -1075,9 +1108,9 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
     @Override
     protected void _setIntLE(int index, int value) {
-        Component c = findComponent(index);
-        if (index + 4 <= c.endOffset) {
-            c.buf.setIntLE(index - c.offset, value);
+        int cIndex = findComponentIndex(index);
+        if (index + 4 <= componentEndOffset(cIndex)) {
+            componentBuf(cIndex).setIntLE(index - componentOffset(cIndex), value);
         } else if (order() == ByteOrder.BIG_ENDIAN) {
             _setShortLE(index, (short) value);
             _setShortLE(index + 2, (short) (value >>> 16));
@@ -1094,9 +1127,9 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
     @Override
     protected void _setLong(int index, long value) {
-        Component c = findComponent(index);
-        if (index + 8 <= c.endOffset) {
-            c.buf.setLong(index - c.offset, value);
+        int cIndex = findComponentIndex(index);
+        if (index + 8 <= componentEndOffset(cIndex)) {
+            componentBuf(cIndex).setLong(index - componentOffset(cIndex), value);
         } else if (order() == ByteOrder.BIG_ENDIAN) {
             _setInt(index, (int) (value >>> 32));
             _setInt(index + 4, (int) value);
@@ -1108,9 +1141,9 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
     @Override
     protected void _setLongLE(int index, long value) {
-        Component c = findComponent(index);
-        if (index + 8 <= c.endOffset) {
-            c.buf.setLongLE(index - c.offset, value);
+        int cIndex = findComponentIndex(index);
+        if (index + 8 <= componentEndOffset(cIndex)) {
+            componentBuf(cIndex).setLongLE(index - componentOffset(cIndex), value);
         } else if (order() == ByteOrder.BIG_ENDIAN) {
             _setIntLE(index, (int) value);
             _setIntLE(index + 4, (int) (value >>> 32));
@@ -1129,9 +1162,8 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
         int i = toComponentIndex(index);
         while (length > 0) {
-            Component c = components.get(i);
-            ByteBuf s = c.buf;
-            int adjustment = c.offset;
+            ByteBuf s = componentBuf(i);
+            int adjustment = componentOffset(i);
             int localLength = Math.min(length, s.capacity() - (index - adjustment));
             s.setBytes(index - adjustment, src, srcIndex, localLength);
             index += localLength;
@@ -1155,9 +1187,8 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         int i = toComponentIndex(index);
         try {
             while (length > 0) {
-                Component c = components.get(i);
-                ByteBuf s = c.buf;
-                int adjustment = c.offset;
+                ByteBuf s = componentBuf(i);
+                int adjustment = componentOffset(i);
                 int localLength = Math.min(length, s.capacity() - (index - adjustment));
                 src.limit(src.position() + localLength);
                 s.setBytes(index - adjustment, src);
@@ -1180,9 +1211,8 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
         int i = toComponentIndex(index);
         while (length > 0) {
-            Component c = components.get(i);
-            ByteBuf s = c.buf;
-            int adjustment = c.offset;
+            ByteBuf s = componentBuf(i);
+            int adjustment = componentOffset(i);
             int localLength = Math.min(length, s.capacity() - (index - adjustment));
             s.setBytes(index - adjustment, src, srcIndex, localLength);
             index += localLength;
@@ -1204,9 +1234,8 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         int readBytes = 0;
 
         do {
-            Component c = components.get(i);
-            ByteBuf s = c.buf;
-            int adjustment = c.offset;
+            ByteBuf s = componentBuf(i);
+            int adjustment = componentOffset(i);
             int localLength = Math.min(length, s.capacity() - (index - adjustment));
             if (localLength == 0) {
                 // Skip empty buffer
@@ -1247,9 +1276,8 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         int i = toComponentIndex(index);
         int readBytes = 0;
         do {
-            Component c = components.get(i);
-            ByteBuf s = c.buf;
-            int adjustment = c.offset;
+            ByteBuf s = componentBuf(i);
+            int adjustment = componentOffset(i);
             int localLength = Math.min(length, s.capacity() - (index - adjustment));
             if (localLength == 0) {
                 // Skip empty buffer
@@ -1295,9 +1323,8 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         int i = toComponentIndex(index);
         int readBytes = 0;
         do {
-            Component c = components.get(i);
-            ByteBuf s = c.buf;
-            int adjustment = c.offset;
+            ByteBuf s = componentBuf(i);
+            int adjustment = componentOffset(i);
             int localLength = Math.min(length, s.capacity() - (index - adjustment));
             if (localLength == 0) {
                 // Skip empty buffer
@@ -1348,9 +1375,8 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         int i = componentId;
 
         while (length > 0) {
-            Component c = components.get(i);
-            ByteBuf s = c.buf;
-            int adjustment = c.offset;
+            ByteBuf s = componentBuf(i);
+            int adjustment = componentOffset(i);
             int localLength = Math.min(length, s.capacity() - (index - adjustment));
             s.getBytes(index - adjustment, dst, dstIndex, localLength);
             index += localLength;
@@ -1389,8 +1415,8 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
      * @param cIndex the index for which the {@link ByteBuf} should be returned
      */
     public ByteBuf internalComponent(int cIndex) {
-        checkComponentIndex(cIndex);
-        return components.get(cIndex).buf;
+        checkComponentIndex(cIndex, 1);
+        return componentBuf(cIndex);
     }
 
     /**
@@ -1400,22 +1426,37 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
      * @param offset the offset for which the {@link ByteBuf} should be returned
      */
     public ByteBuf internalComponentAtOffset(int offset) {
-        return findComponent(offset).buf;
+        return componentBuf(findComponentIndex(offset));
     }
 
-    private Component findComponent(int offset) {
+    private int findComponentIndex(int offset) {
         checkIndex(offset);
 
-        for (int low = 0, high = components.size(); low <= high;) {
+        final int[] offsets = this.offsets;
+        final int head = this.head;
+        final int base = offsets[head];
+        int last = lastAccessed;
+        if (last < componentCount && offset >= offsets[head + last] - base) {
+            if (offset < offsets[head + last + 1] - base) {
+                return last;
+            }
+            // Sequential access moves on to the next non-empty component.
+            if (++ last < componentCount && offset < offsets[head + last + 1] - base &&
+                offset >= offsets[head + last] - base) {
+                lastAccessed = last;
+                return last;
+            }
+        }
+
+        for (int low = 0, high = componentCount - 1; low <= high;) {
             int mid = low + high >>> 1;
-            Component c = components.get(mid);
-            if (offset >= c.endOffset) {
+            if (offset >= offsets[head + mid + 1] - base) {
                 low = mid + 1;
-            } else if (offset < c.offset) {
+            } else if (offset < offsets[head + mid] - base) {
                 high = mid - 1;
             } else {
-                assert c.length != 0;
-                return c;
+                lastAccessed = mid;
+                return mid;
             }
         }
 
@@ -1424,17 +1465,16 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
     @Override
     public int nioBufferCount() {
-        switch (components.size()) {
+        switch (componentCount) {
         case 0:
             return 1;
         case 1:
-            return components.get(0).buf.nioBufferCount();
+            return componentBuf(0).nioBufferCount();
         default:
             int count = 0;
-            int componentsCount = components.size();
+            int componentsCount = componentCount;
             for (int i = 0; i < componentsCount; i++) {
-                Component c = components.get(i);
-                count += c.buf.nioBufferCount();
+                count += componentBuf(i).nioBufferCount();
             }
             return count;
         }
@@ -1442,11 +1482,11 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
     @Override
     public ByteBuffer internalNioBuffer(int index, int length) {
-        switch (components.size()) {
+        switch (componentCount) {
         case 0:
             return EMPTY_NIO_BUFFER;
         case 1:
-            return components.get(0).buf.internalNioBuffer(index, length);
+            return componentBuf(0).internalNioBuffer(index, length);
         default:
             throw new UnsupportedOperationException();
         }
@@ -1456,13 +1496,13 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
     public ByteBuffer nioBuffer(int index, int length) {
         checkIndex(index, length);
 
-        switch (components.size()) {
+        switch (componentCount) {
         case 0:
             return EMPTY_NIO_BUFFER;
         case 1:
-            ByteBuf buf = components.get(0).buf;
+            ByteBuf buf = componentBuf(0);
             if (buf.nioBufferCount() == 1) {
-                return components.get(0).buf.nioBuffer(index, length);
+                return componentBuf(0).nioBuffer(index, length);
             }
         }
 
@@ -1484,12 +1524,11 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
             return new ByteBuffer[] { EMPTY_NIO_BUFFER };
         }
 
-        List<ByteBuffer> buffers = new ArrayList<ByteBuffer>(components.size());
+        List<ByteBuffer> buffers = new ArrayList<ByteBuffer>(componentCount);
         int i = toComponentIndex(index);
         while (length > 0) {
-            Component c = components.get(i);
-            ByteBuf s = c.buf;
-            int adjustment = c.offset;
+            ByteBuf s = componentBuf(i);
+            int adjustment = componentOffset(i);
             int localLength = Math.min(length, s.capacity() - (index - adjustment));
             switch (s.nioBufferCount()) {
                 case 0:
@@ -1519,20 +1558,17 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
             return this;
         }
 
-        final Component last = components.get(numComponents - 1);
-        final int capacity = last.endOffset;
+        final int capacity = capacity();
         final ByteBuf consolidated = allocBuffer(capacity);
 
         for (int i = 0; i < numComponents; i ++) {
-            Component c = components.get(i);
-            ByteBuf b = c.buf;
+            ByteBuf b = componentBuf(i);
             consolidated.writeBytes(b);
-            c.freeIfNecessary();
+            b.release();
         }
 
-        components.clear();
-        components.add(new Component(consolidated));
-        updateComponentOffsets(0);
+        clearComponents();
+        insertComponent(0, consolidated, capacity);
         return this;
     }
 
@@ -1549,20 +1585,24 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         }
 
         final int endCIndex = cIndex + numComponents;
-        final Component last = components.get(endCIndex - 1);
-        final int capacity = last.endOffset - components.get(cIndex).offset;
+        final int capacity = componentEndOffset(endCIndex - 1) - componentOffset(cIndex);
         final ByteBuf consolidated = allocBuffer(capacity);
 
         for (int i = cIndex; i < endCIndex; i ++) {
-            Component c = components.get(i);
-            ByteBuf b = c.buf;
+            ByteBuf b = componentBuf(i);
             consolidated.writeBytes(b);
-            c.freeIfNecessary();
-        }
-
-        components.subList(cIndex + 1, endCIndex).clear();
-        components.set(cIndex, new Component(consolidated));
-        updateComponentOffsets(cIndex);
+            b.release();
+        }
+
+        // The consolidated buffer spans exactly the same bytes, so only the array entries need to be moved.
+        final int i = head + cIndex;
+        final int end = head + componentCount;
+        buffers[i] = consolidated;
+        System.arraycopy(buffers, i + numComponents, buffers, i + 1, end - i - numComponents);
+        System.arraycopy(offsets, i + numComponents, offsets, i + 1, end - i - numComponents + 1);
+        Arrays.fill(buffers, end - numComponents + 1, end, null);
+        componentCount -= numComponents - 1;
+        lastAccessed = 0;
         return this;
     }
 
@@ -1579,10 +1619,10 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         // Discard everything if (readerIndex = writerIndex = capacity).
         int writerIndex = writerIndex();
         if (readerIndex == writerIndex && writerIndex == capacity()) {
-            for (Component c: components) {
-                c.freeIfNecessary();
+            for (int i = 0; i < componentCount; i ++) {
+                componentBuf(i).release();
             }
-            components.clear();
+            clearComponents();
             setIndex(0, 0);
             adjustMarkers(readerIndex);
             return this;
@@ -1590,15 +1630,14 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
         // Remove read components.
         int firstComponentId = toComponentIndex(readerIndex);
+        int offset = componentOffset(firstComponentId);
         for (int i = 0; i < firstComponentId; i ++) {
-            components.get(i).freeIfNecessary();
+            componentBuf(i).release();
         }
-        components.subList(0, firstComponentId).clear();
+        // No need to update the offsets of the remaining components as they are relative to the first one.
+        removeComponents0(0, firstComponentId);
 
         // Update indexes and markers.
-        Component first = components.get(0);
-        int offset = first.offset;
-        updateComponentOffsets(0);
         setIndex(readerIndex - offset, writerIndex - offset);
         adjustMarkers(offset);
         return this;
@@ -1615,10 +1654,10 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         // Discard everything if (readerIndex = writerIndex = capacity).
         int writerIndex = writerIndex();
         if (readerIndex == writerIndex && writerIndex == capacity()) {
-            for (Component c: components) {
-                c.freeIfNecessary();
+            for (int i = 0; i < componentCount; i ++) {
+                componentBuf(i).release();
             }
-            components.clear();
+            clearComponents();
             setIndex(0, 0);
             adjustMarkers(readerIndex);
             return this;
@@ -1626,24 +1665,24 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
         // Remove read components.
         int firstComponentId = toComponentIndex(readerIndex);
+        int adjustment = readerIndex - componentOffset(firstComponentId);
         for (int i = 0; i < firstComponentId; i ++) {
-            components.get(i).freeIfNecessary();
+            componentBuf(i).release();
         }
-        components.subList(0, firstComponentId).clear();
+        removeComponents0(0, firstComponentId);
 
         // Remove or replace the first readable component with a new slice.
-        Component c = components.get(0);
-        int adjustment = readerIndex - c.offset;
-        if (adjustment == c.length) {
+        int length = componentLength(0);
+        if (adjustment == length) {
             // new slice would be empty, so remove instead
-            components.remove(0);
+            removeComponents0(0, 1);
         } else {
-            Component newC = new Component(c.buf.slice(adjustment, c.length - adjustment));
-            components.set(0, newC);
+            buffers[head] = componentBuf(0).slice(adjustment, length - adjustment);
+            // Moving the start of the first component rebases all the other offsets as well.
+            offsets[head] += adjustment;
         }
 
         // Update indexes and markers.
-        updateComponentOffsets(0);
         setIndex(0, writerIndex - readerIndex);
         adjustMarkers(readerIndex);
         return this;
@@ -1657,23 +1696,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
     public String toString() {
         String result = super.toString();
         result = result.substring(0, result.length() - 1);
-        return result + ", components=" + components.size() + ')';
-    }
-
-    private static final class Component {
-        final ByteBuf buf;
-        final int length;
-        int offset;
-        int endOffset;
-
-        Component(ByteBuf buf) {
-            this.buf = buf;
-            length = buf.readableBytes();
-        }
-
-        void freeIfNecessary() {
-            buf.release(); // We should not get a NPE here. If so, it must be a bug.
-        }
+        return result + ", components=" + componentCount + ')';
     }
 
     @Override
@@ -1933,11 +1956,11 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         }
 
         freed = true;
-        int size = components.size();
+        int size = componentCount;
         // We're not using foreach to avoid creating an iterator.
         // see https://github.com/netty/netty/issues/2642
         for (int i = 0; i < size; i++) {
-            components.get(i).freeIfNecessary();
+            componentBuf(i).release();
         }
     }
 
@@ -1947,7 +1970,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
     }
 
     private final class CompositeByteBufIterator implements Iterator<ByteBuf> {
-        private final int size = components.size();
+        private final int size = componentCount;
         private int index;
 
         @Override
@@ -1957,17 +1980,13 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
         @Override
         public ByteBuf next() {
-            if (size != components.size()) {
+            if (size != componentCount) {
                 throw new ConcurrentModificationException();
             }
             if (!hasNext()) {
                 throw new NoSuchElementException();
             }
-            try {
-                return components.get(index++).buf;
-            } catch (IndexOutOfBoundsException e) {
-                throw new ConcurrentModificationException();
-            }
+            return componentBuf(index++);
         }
 
         @Override
@@ -0,0 +1,333 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.buffer;
+
+import io.netty.util.internal.LongCounter;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.StringUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * {@link ByteBufAllocator} whose direct buffers are backed by memory-mapped temporary files instead of direct memory.
+ * <p>
+ * The operating system can write the pages of such a buffer back to its file and evict them from memory under memory
+ * pressure, so very large buffers (for example the body of a multi-gigabyte upload) neither exhaust the heap nor the
+ * direct memory of the JVM. As the buffers are still direct {@link ByteBuffer}s they can be written to a channel
+ * without an extra copy.
+ * <p>
+ * Small buffers are carved out of shared mapped chunks which are unmapped once all of their buffers were released,
+ * while buffers of at least half the chunk size get a mapping of their own. Buffers are never pooled, so this
+ * allocator is meant for big and long-lived buffers, not as a general replacement of {@link PooledByteBufAllocator}.
+ * Heap buffers are allocated like {@link UnpooledByteBufAllocator} does. The temporary files are deleted right after
+ * they were mapped where the operating system allows it, and on exit of the JVM otherwise.
+ */
+public final class MappedByteBufAllocator extends AbstractByteBufAllocator implements ByteBufAllocatorMetricProvider {
+
+    static final int DEFAULT_CHUNK_SIZE = 16 * 1024 * 1024;
+    // Keeps the buffers inside a chunk aligned for the wide accesses of the unsafe buffer implementations.
+    private static final int ALIGNMENT = 8;
+
+    private final File directory;
+    private final int chunkSize;
+    private final MappedByteBufAllocatorMetric metric = new MappedByteBufAllocatorMetric();
+    private MappedChunk current;
+
+    /**
+     * Create a new instance which maps chunks of {@value #DEFAULT_CHUNK_SIZE} bytes.
+     *
+     * @param directory the directory in which the temporary files are created, or {@code null} to use the default
+     *                  temporary-file directory
+     */
+    public MappedByteBufAllocator(File directory) {
+        this(directory, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param directory the directory in which the temporary files are created, or {@code null} to use the default
+     *                  temporary-file directory
+     * @param chunkSize the size of the mappings which are shared by small buffers
+     */
+    public MappedByteBufAllocator(File directory, int chunkSize) {
+        super(true);
+        if (chunkSize < ALIGNMENT) {
+            throw new IllegalArgumentException("chunkSize: " + chunkSize + " (expected: >= " + ALIGNMENT + ')');
+        }
+        if (directory != null && !directory.isDirectory()) {
+            throw new IllegalArgumentException("directory: " + directory + " (expected: an existing directory)");
+        }
+        this.directory = directory;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    protected ByteBuf newHeapBuffer(int initialCapacity, int maxCapacity) {
+        return PlatformDependent.hasUnsafe() ?
+                new UnpooledUnsafeHeapByteBuf(this, initialCapacity, maxCapacity) :
+                new UnpooledHeapByteBuf(this, initialCapacity, maxCapacity);
+    }
+
+    @Override
+    protected ByteBuf newDirectBuffer(int initialCapacity, int maxCapacity) {
+        final ByteBuf buf = PlatformDependent.hasUnsafe() ?
+                new MappedUnsafeDirectByteBuf(this, initialCapacity, maxCapacity) :
+                new MappedDirectByteBuf(this, initialCapacity, maxCapacity);
+        return toLeakAwareBuffer(buf);
+    }
+
+    @Override
+    public boolean isDirectBufferPooled() {
+        return false;
+    }
+
+    @Override
+    public MappedByteBufAllocatorMetric metric() {
+        return metric;
+    }
+
+    /**
+     * Returns the size of the mappings which are shared by small buffers.
+     */
+    public int chunkSize() {
+        return chunkSize;
+    }
+
+    MappedRegion allocate(int capacity) {
+        if (capacity >= chunkSize >>> 1) {
+            MappedChunk chunk = new MappedChunk(this, capacity);
+            MappedRegion region = chunk.allocate(capacity);
+            // The chunk is not shared, so it is unmapped as soon as the region is freed.
+            chunk.release();
+            return region;
+        }
+
+        MappedChunk oldChunk = null;
+        MappedRegion region;
+        synchronized (this) {
+            if (current == null || current.remaining() < align(capacity)) {
+                oldChunk = current;
+                current = new MappedChunk(this, chunkSize);
+            }
+            region = current.allocate(capacity);
+        }
+        if (oldChunk != null) {
+            // Drop the reference of the allocator, so the chunk is unmapped once its buffers are released.
+            oldChunk.release();
+        }
+        return region;
+    }
+
+    private static int align(int capacity) {
+        return capacity + ALIGNMENT - 1 & -ALIGNMENT;
+    }
+
+    ByteBuffer map(int size) {
+        File file = null;
+        try {
+            file = File.createTempFile("netty-mapped-", ".tmp", directory);
+            RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            try {
+                raf.setLength(size);
+                return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            } finally {
+                raf.close();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("failed to map a file of " + size + " bytes", e);
+        } finally {
+            // The mapping stays valid after the file was deleted, except on platforms which do not allow deleting
+            // a mapped file at all.
+            if (file != null && !file.delete()) {
+                file.deleteOnExit();
+            }
+        }
+    }
+
+    void unmap(ByteBuffer buffer) {
+        PlatformDependent.freeDirectBuffer(buffer);
+    }
+
+    /**
+     * A mapping which is shared by the {@link MappedRegion}s that were carved out of it. It is unmapped once it was
+     * released by the allocator and all of its regions.
+     */
+    private static final class MappedChunk {
+        private final MappedByteBufAllocator allocator;
+        private final ByteBuffer memory;
+        private int offset;
+        // The number of allocated regions plus one for the allocator.
+        private int refCnt = 1;
+
+        MappedChunk(MappedByteBufAllocator allocator, int size) {
+            this.allocator = allocator;
+            memory = allocator.map(size);
+            allocator.metric.mappedCounter.add(size);
+        }
+
+        synchronized int remaining() {
+            return memory.capacity() - offset;
+        }
+
+        synchronized MappedRegion allocate(int capacity) {
+            ByteBuffer buffer = memory.duplicate();
+            buffer.limit(offset + capacity).position(offset);
+            offset = Math.min(offset + align(capacity), memory.capacity());
+            refCnt ++;
+            return new MappedRegion(this, buffer.slice());
+        }
+
+        void release() {
+            synchronized (this) {
+                if (-- refCnt > 1) {
+                    return;
+                }
+                if (refCnt == 1) {
+                    // Only the allocator uses this chunk anymore, so start over with an empty chunk.
+                    offset = 0;
+                    return;
+                }
+            }
+            allocator.metric.mappedCounter.add(-memory.capacity());
+            allocator.unmap(memory);
+        }
+    }
+
+    /**
+     * The part of a {@link MappedChunk} which is used by a single buffer.
+     */
+    private static final class MappedRegion {
+        final MappedChunk chunk;
+        final ByteBuffer buffer;
+
+        MappedRegion(MappedChunk chunk, ByteBuffer buffer) {
+            this.chunk = chunk;
+            this.buffer = buffer;
+        }
+    }
+
+    /**
+     * Keeps track of the {@link MappedRegion}s of a buffer. While the capacity of the buffer changes the new region is
+     * allocated before the old one is freed, so up to two regions are in use at the same time.
+     */
+    private static final class MappedRegions {
+        private final MappedByteBufAllocator allocator;
+        private MappedRegion current;
+        private MappedRegion previous;
+
+        MappedRegions(MappedByteBufAllocator allocator) {
+            this.allocator = allocator;
+        }
+
+        ByteBuffer allocate(int capacity) {
+            MappedRegion region = allocator.allocate(capacity);
+            previous = current;
+            current = region;
+            return region.buffer;
+        }
+
+        void free(ByteBuffer buffer) {
+            if (previous != null && previous.buffer == buffer) {
+                previous.chunk.release();
+                previous = null;
+            } else {
+                assert current.buffer == buffer;
+                current.chunk.release();
+                current = null;
+            }
+        }
+    }
+
+    private static final class MappedUnsafeDirectByteBuf extends UnpooledUnsafeDirectByteBuf {
+        private MappedRegions regions;
+
+        MappedUnsafeDirectByteBuf(MappedByteBufAllocator alloc, int initialCapacity, int maxCapacity) {
+            super(alloc, initialCapacity, maxCapacity);
+        }
+
+        @Override
+        protected ByteBuffer allocateDirect(int initialCapacity) {
+            if (regions == null) {
+                // Called by the super constructor, so the field can not be initialized before.
+                regions = new MappedRegions((MappedByteBufAllocator) alloc());
+            }
+            return regions.allocate(initialCapacity);
+        }
+
+        @Override
+        protected void freeDirect(ByteBuffer buffer) {
+            regions.free(buffer);
+        }
+    }
+
+    private static final class MappedDirectByteBuf extends UnpooledDirectByteBuf {
+        private MappedRegions regions;
+
+        MappedDirectByteBuf(MappedByteBufAllocator alloc, int initialCapacity, int maxCapacity) {
+            super(alloc, initialCapacity, maxCapacity);
+        }
+
+        @Override
+        protected ByteBuffer allocateDirect(int initialCapacity) {
+            if (regions == null) {
+                // Called by the super constructor, so the field can not be initialized before.
+                regions = new MappedRegions((MappedByteBufAllocator) alloc());
+            }
+            return regions.allocate(initialCapacity);
+        }
+
+        @Override
+        protected void freeDirect(ByteBuffer buffer) {
+            regions.free(buffer);
+        }
+    }
+
+    /**
+     * Exposed metric for {@link MappedByteBufAllocator}.
+     */
+    public static final class MappedByteBufAllocatorMetric implements ByteBufAllocatorMetric {
+        final LongCounter mappedCounter = PlatformDependent.newLongCounter();
+
+        MappedByteBufAllocatorMetric() { }
+
+        /**
+         * Returns {@code -1} as heap buffers are not tracked.
+         */
+        @Override
+        public long usedHeapMemory() {
+            return -1;
+        }
+
+        /**
+         * Returns the number of bytes which are currently mapped. This memory is backed by files and does not count
+         * against the direct memory limit of the JVM.
+         */
+        @Override
+        public long usedDirectMemory() {
+            return mappedCounter.value();
+        }
+
+        @Override
+        public String toString() {
+            return StringUtil.simpleClassName(this) + "(usedDirectMemory: " + usedDirectMemory() + ')';
+        }
+    }
+}
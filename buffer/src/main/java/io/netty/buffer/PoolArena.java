@@ -16,21 +16,34 @@
 
 package io.netty.buffer;
 
+import io.netty.util.Recycler;
+import io.netty.util.Recycler.Handle;
+import io.netty.util.concurrent.EventExecutor;
 import io.netty.util.internal.LongCounter;
 import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.StringUtil;
+import io.netty.util.internal.ThreadExecutorMap;
 
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 import static java.lang.Math.max;
 
 abstract class PoolArena<T> implements PoolArenaMetric {
     static final boolean HAS_UNSAFE = PlatformDependent.hasUnsafe();
 
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<PoolArena, Thread> OWNER_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(PoolArena.class, Thread.class, "owner");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<PoolArena, DeferredFree> DEFERRED_FREES_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(PoolArena.class, DeferredFree.class, "deferredFrees");
+
     enum SizeClass {
         Tiny,
         Small,
@@ -47,6 +60,8 @@ abstract class PoolArena<T> implements PoolArenaMetric {
     final int chunkSize;
     final int subpageOverflowMask;
     final int numSmallSubpagePools;
+    // null if allocations of 512 bytes and more are rounded up to the next power of two.
+    final SizeClasses sizeClasses;
     private final PoolSubpage<T>[] tinySubpagePools;
     private final PoolSubpage<T>[] smallSubpagePools;
 
@@ -59,29 +74,67 @@ abstract class PoolArena<T> implements PoolArenaMetric {
 
     private final List<PoolChunkListMetric> chunkListMetrics;
 
-    // Metrics for allocations and deallocations
-    private long allocationsNormal;
-    // We need to use the LongCounter here as this is not guarded via synchronized block.
+    // Metrics for allocations and deallocations. We use LongCounters for all of them so the metrics can be read
+    // without acquiring the lock of the arena.
     private final LongCounter allocationsTiny = PlatformDependent.newLongCounter();
     private final LongCounter allocationsSmall = PlatformDependent.newLongCounter();
+    private final LongCounter allocationsNormal = PlatformDependent.newLongCounter();
     private final LongCounter allocationsHuge = PlatformDependent.newLongCounter();
     private final LongCounter activeBytesHuge = PlatformDependent.newLongCounter();
+    private final LongCounter activeBytesPooled = PlatformDependent.newLongCounter();
 
-    private long deallocationsTiny;
-    private long deallocationsSmall;
-    private long deallocationsNormal;
-
-    // We need to use the LongCounter here as this is not guarded via synchronized block.
+    private final LongCounter deallocationsTiny = PlatformDependent.newLongCounter();
+    private final LongCounter deallocationsSmall = PlatformDependent.newLongCounter();
+    private final LongCounter deallocationsNormal = PlatformDependent.newLongCounter();
     private final LongCounter deallocationsHuge = PlatformDependent.newLongCounter();
 
+    // Allocations that could or could not be served by a thread cache.
+    final LongCounter threadCacheHits = PlatformDependent.newLongCounter();
+    final LongCounter threadCacheMisses = PlatformDependent.newLongCounter();
+
+    // Decisions of the thread caches backed by this arena when they were trimmed.
+    final LongCounter threadCacheGrows = PlatformDependent.newLongCounter();
+    final LongCounter threadCacheShrinks = PlatformDependent.newLongCounter();
+    final LongCounter threadCacheIdleTrims = PlatformDependent.newLongCounter();
+    final LongCounter threadCacheTrimmedBuffers = PlatformDependent.newLongCounter();
+
+    // Advanced once per trim interval by PooledByteBufAllocator, which makes the thread caches trim themselves on
+    // their next allocation. Only written by a single thread.
+    volatile int cacheTrimEpoch;
+
     // Number of thread caches backed by this arena.
     final AtomicInteger numThreadCaches = new AtomicInteger();
 
+    // The thread this arena is pinned to, or null if the arena is shared. Only used when
+    // PooledByteBufAllocator pins arenas to event loops.
+    private volatile Thread owner;
+
+    // The executor of the owner, or null if the owner does not belong to an EventExecutor. Used to drain the deferred
+    // frees even if the owner stops allocating.
+    private volatile EventExecutor ownerExecutor;
+
+    // Lock-free stack of frees issued by non-owner threads while the arena is pinned. These are drained by the owner
+    // so that it is the only thread that needs to acquire the arena and subpage locks.
+    //
+    // The owner still acquires the locks, as a pinned arena is shared by other threads once all arenas are pinned,
+    // and unused chunks are released by a background task. Without other threads the locks are uncontended, which
+    // makes them cheap compared to the work done by PoolChunk.free(...).
+    private volatile DeferredFree deferredFrees;
+
+    private final Runnable drainDeferredFreesTask = new Runnable() {
+        @Override
+        public void run() {
+            drainDeferredFrees();
+        }
+    };
+
     // TODO: Test if adding padding helps under contention
     //private long pad0, pad1, pad2, pad3, pad4, pad5, pad6, pad7;
 
-    protected PoolArena(PooledByteBufAllocator parent, int pageSize, int maxOrder, int pageShifts, int chunkSize) {
+    protected PoolArena(PooledByteBufAllocator parent, int pageSize, int maxOrder, int pageShifts, int chunkSize,
+                        SizeClasses sizeClasses) {
         this.parent = parent;
+        this.sizeClasses = sizeClasses;
         this.pageSize = pageSize;
         this.maxOrder = maxOrder;
         this.pageShifts = pageShifts;
@@ -92,7 +145,7 @@ abstract class PoolArena<T> implements PoolArenaMetric {
             tinySubpagePools[i] = newSubpagePoolHead(pageSize);
         }
 
-        numSmallSubpagePools = pageShifts - 9;
+        numSmallSubpagePools = sizeClasses != null ? sizeClasses.numSmallSizeClasses() : pageShifts - 9;
         smallSubpagePools = newSubpagePoolArray(numSmallSubpagePools);
         for (int i = 0; i < smallSubpagePools.length; i ++) {
             smallSubpagePools[i] = newSubpagePoolHead(pageSize);
@@ -146,7 +199,10 @@ abstract class PoolArena<T> implements PoolArenaMetric {
         return normCapacity >>> 4;
     }
 
-    static int smallIdx(int normCapacity) {
+    int smallIdx(int normCapacity) {
+        if (sizeClasses != null) {
+            return sizeClasses.smallIdx(normCapacity);
+        }
         int tableIdx = 0;
         int i = normCapacity >>> 10;
         while (i != 0) {
@@ -156,8 +212,39 @@ abstract class PoolArena<T> implements PoolArenaMetric {
         return tableIdx;
     }
 
-    // capacity < pageSize
+    int normalIdx(int normCapacity) {
+        if (sizeClasses != null) {
+            return sizeClasses.normalIdx(normCapacity);
+        }
+        return log2(normCapacity >> pageShifts);
+    }
+
+    /**
+     * Returns the number of normal size classes a {@link PoolThreadCache} needs to cache buffers up to the
+     * given capacity.
+     */
+    int numNormalCaches(int maxCachedBufferCapacity) {
+        int max = Math.min(chunkSize, maxCachedBufferCapacity);
+        if (sizeClasses != null) {
+            return sizeClasses.numNormalSizeClasses(max);
+        }
+        return Math.max(1, log2(max / pageSize) + 1);
+    }
+
+    private static int log2(int val) {
+        int res = 0;
+        while (val > 1) {
+            val >>= 1;
+            res++;
+        }
+        return res;
+    }
+
+    // capacity < pageSize, or capacity < pageSize * 4 if size classes are used
     boolean isTinyOrSmall(int normCapacity) {
+        if (sizeClasses != null) {
+            return sizeClasses.isSmall(normCapacity);
+        }
         return (normCapacity & subpageOverflowMask) == 0;
     }
 
@@ -167,6 +254,9 @@ abstract class PoolArena<T> implements PoolArenaMetric {
     }
 
     private void allocate(PoolThreadCache cache, PooledByteBuf<T> buf, final int reqCapacity) {
+        if (deferredFrees != null && owner == Thread.currentThread()) {
+            drainDeferredFrees();
+        }
         final int normCapacity = normalizeCapacity(reqCapacity);
         if (isTinyOrSmall(normCapacity)) { // capacity < pageSize
             int tableIdx;
@@ -229,14 +319,15 @@ abstract class PoolArena<T> implements PoolArenaMetric {
         if (q050.allocate(buf, reqCapacity, normCapacity) || q025.allocate(buf, reqCapacity, normCapacity) ||
             q000.allocate(buf, reqCapacity, normCapacity) || qInit.allocate(buf, reqCapacity, normCapacity) ||
             q075.allocate(buf, reqCapacity, normCapacity)) {
-            ++allocationsNormal;
+            allocationsNormal.increment();
             return;
         }
 
         // Add a new chunk.
         PoolChunk<T> c = newChunk(pageSize, maxOrder, pageShifts, chunkSize);
+        activeBytesPooled.add(c.chunkSize());
         long handle = c.allocate(normCapacity);
-        ++allocationsNormal;
+        allocationsNormal.increment();
         assert handle > 0;
         c.initBuf(buf, handle, reqCapacity);
         qInit.add(c);
@@ -274,17 +365,38 @@ abstract class PoolArena<T> implements PoolArenaMetric {
     }
 
     void freeChunk(PoolChunk<T> chunk, long handle, SizeClass sizeClass) {
+        Thread owner = this.owner;
+        if (owner != null && owner != Thread.currentThread()) {
+            DeferredFree deferred = DeferredFree.newInstance(chunk, handle, sizeClass);
+            DeferredFree head;
+            do {
+                head = deferredFrees;
+                deferred.next = head;
+            } while (!DEFERRED_FREES_UPDATER.compareAndSet(this, head, deferred));
+            if (this.owner == null) {
+                // The owner released the arena concurrently, so nobody else may drain the queue.
+                drainDeferredFrees();
+            } else if (head == null) {
+                // Make sure the memory is returned even if the owner does not allocate anymore.
+                scheduleDrainDeferredFrees();
+            }
+            return;
+        }
+        freeChunk0(chunk, handle, sizeClass);
+    }
+
+    private void freeChunk0(PoolChunk<T> chunk, long handle, SizeClass sizeClass) {
         final boolean destroyChunk;
         synchronized (this) {
             switch (sizeClass) {
             case Normal:
-                ++deallocationsNormal;
+                deallocationsNormal.increment();
                 break;
             case Small:
-                ++deallocationsSmall;
+                deallocationsSmall.increment();
                 break;
             case Tiny:
-                ++deallocationsTiny;
+                deallocationsTiny.increment();
                 break;
             default:
                 throw new Error();
@@ -292,11 +404,103 @@ abstract class PoolArena<T> implements PoolArenaMetric {
             destroyChunk = !chunk.parent.free(chunk, handle);
         }
         if (destroyChunk) {
+            activeBytesPooled.add(-chunk.chunkSize());
             // destroyChunk not need to be called while holding the synchronized lock.
             destroyChunk(chunk);
         }
     }
 
+    private void scheduleDrainDeferredFrees() {
+        EventExecutor executor = ownerExecutor;
+        if (executor == null) {
+            // The owner drains the frees on its next allocation or trim.
+            return;
+        }
+        try {
+            executor.execute(drainDeferredFreesTask);
+        } catch (RejectedExecutionException e) {
+            // The executor is shutting down, so drain the frees ourselves.
+            drainDeferredFrees();
+        }
+    }
+
+    /**
+     * Pin this arena to the calling thread. Returns {@code true} if the arena was not pinned before.
+     */
+    boolean pin() {
+        if (OWNER_UPDATER.compareAndSet(this, null, Thread.currentThread())) {
+            ownerExecutor = ThreadExecutorMap.currentExecutor();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Release the arena if it is pinned to the given {@link Thread} and free everything that was deferred.
+     */
+    void unpin(Thread thread) {
+        if (owner == thread) {
+            ownerExecutor = null;
+        }
+        if (OWNER_UPDATER.compareAndSet(this, thread, null)) {
+            drainDeferredFrees();
+        }
+    }
+
+    boolean isPinned() {
+        return owner != null;
+    }
+
+    /**
+     * Return {@code true} if there are frees which are waiting to be processed by the owner of the arena.
+     */
+    boolean hasDeferredFrees() {
+        return deferredFrees != null;
+    }
+
+    /**
+     * Free everything that was deferred by non-owner threads. Safe to call from any thread as the whole stack is
+     * detached atomically.
+     */
+    @SuppressWarnings("unchecked")
+    void drainDeferredFrees() {
+        DeferredFree deferred = DEFERRED_FREES_UPDATER.getAndSet(this, null);
+        while (deferred != null) {
+            DeferredFree next = deferred.next;
+            PoolChunk<T> chunk = (PoolChunk<T>) deferred.chunk;
+            long handle = deferred.handle;
+            SizeClass sizeClass = deferred.sizeClass;
+            deferred.recycle();
+            freeChunk0(chunk, handle, sizeClass);
+            deferred = next;
+        }
+    }
+
+    /**
+     * Destroys all {@link PoolChunk}s which are not used since at least {@code unusedNanos} nanoseconds.
+     *
+     * @return the number of bytes that were released
+     */
+    long releaseUnusedChunks(long unusedNanos) {
+        // Frees deferred by non-owner threads may make chunks unused.
+        drainDeferredFrees();
+        // Chunks that become unused in any other list than qInit are destroyed immediately, so only qInit can
+        // contain unused chunks.
+        List<PoolChunk<T>> unused = new ArrayList<PoolChunk<T>>();
+        synchronized (this) {
+            qInit.removeUnused(System.nanoTime() - unusedNanos, unused);
+        }
+        long released = 0;
+        for (int i = 0; i < unused.size(); i ++) {
+            PoolChunk<T> chunk = unused.get(i);
+            released += chunk.chunkSize();
+            activeBytesPooled.add(-chunk.chunkSize());
+            // destroyChunk not need to be called while holding the synchronized lock.
+            destroyChunk(chunk);
+        }
+        return released;
+    }
+
     PoolSubpage<T> findSubpagePoolHead(int elemSize) {
         int tableIdx;
         PoolSubpage<T>[] table;
@@ -304,12 +508,7 @@ abstract class PoolArena<T> implements PoolArenaMetric {
             tableIdx = elemSize >>> 4;
             table = tinySubpagePools;
         } else {
-            tableIdx = 0;
-            elemSize >>>= 10;
-            while (elemSize != 0) {
-                elemSize >>>= 1;
-                tableIdx ++;
-            }
+            tableIdx = smallIdx(elemSize);
             table = smallSubpagePools;
         }
 
@@ -325,6 +524,10 @@ abstract class PoolArena<T> implements PoolArenaMetric {
         }
 
         if (!isTiny(reqCapacity)) { // >= 512
+            if (sizeClasses != null) {
+                return sizeClasses.normalize(reqCapacity);
+            }
+
             // Doubled
 
             int normalizedCapacity = reqCapacity;
@@ -450,11 +653,8 @@ abstract class PoolArena<T> implements PoolArenaMetric {
 
     @Override
     public long numAllocations() {
-        final long allocsNormal;
-        synchronized (this) {
-            allocsNormal = allocationsNormal;
-        }
-        return allocationsTiny.value() + allocationsSmall.value() + allocsNormal + allocationsHuge.value();
+        return allocationsTiny.value() + allocationsSmall.value() + allocationsNormal.value() +
+                allocationsHuge.value();
     }
 
     @Override
@@ -468,32 +668,29 @@ abstract class PoolArena<T> implements PoolArenaMetric {
     }
 
     @Override
-    public synchronized long numNormalAllocations() {
-        return allocationsNormal;
+    public long numNormalAllocations() {
+        return allocationsNormal.value();
     }
 
     @Override
     public long numDeallocations() {
-        final long deallocs;
-        synchronized (this) {
-            deallocs = deallocationsTiny + deallocationsSmall + deallocationsNormal;
-        }
-        return deallocs + deallocationsHuge.value();
+        return deallocationsTiny.value() + deallocationsSmall.value() + deallocationsNormal.value() +
+                deallocationsHuge.value();
     }
 
     @Override
-    public synchronized long numTinyDeallocations() {
-        return deallocationsTiny;
+    public long numTinyDeallocations() {
+        return deallocationsTiny.value();
     }
 
     @Override
-    public synchronized long numSmallDeallocations() {
-        return deallocationsSmall;
+    public long numSmallDeallocations() {
+        return deallocationsSmall.value();
     }
 
     @Override
-    public synchronized long numNormalDeallocations() {
-        return deallocationsNormal;
+    public long numNormalDeallocations() {
+        return deallocationsNormal.value();
     }
 
     @Override
@@ -508,12 +705,7 @@ abstract class PoolArena<T> implements PoolArenaMetric {
 
     @Override
     public  long numActiveAllocations() {
-        long val = allocationsTiny.value() + allocationsSmall.value() + allocationsHuge.value()
-                - deallocationsHuge.value();
-        synchronized (this) {
-            val += allocationsNormal - (deallocationsTiny + deallocationsSmall + deallocationsNormal);
-        }
-        return max(val, 0);
+        return max(numAllocations() - numDeallocations(), 0);
     }
 
     @Override
@@ -528,11 +720,7 @@ abstract class PoolArena<T> implements PoolArenaMetric {
 
     @Override
     public long numActiveNormalAllocations() {
-        final long val;
-        synchronized (this) {
-            val = allocationsNormal - deallocationsNormal;
-        }
-        return max(val, 0);
+        return max(numNormalAllocations() - numNormalDeallocations(), 0);
     }
 
     @Override
@@ -542,15 +730,15 @@ abstract class PoolArena<T> implements PoolArenaMetric {
 
     @Override
     public long numActiveBytes() {
-        long val = activeBytesHuge.value();
-        synchronized (this) {
-            for (int i = 0; i < chunkListMetrics.size(); i++) {
-                for (PoolChunkMetric m: chunkListMetrics.get(i)) {
-                    val += m.chunkSize();
-                }
-            }
-        }
-        return max(0, val);
+        return max(0, activeBytesHuge.value() + activeBytesPooled.value());
+    }
+
+    /**
+     * Return the number of {@link PoolChunk}s that are currently allocated by this arena, not counting the ones
+     * which are used for huge allocations.
+     */
+    long numPooledChunks() {
+        return max(0, activeBytesPooled.value()) / chunkSize;
     }
 
     protected abstract PoolChunk<T> newChunk(int pageSize, int maxOrder, int pageShifts, int chunkSize);
@@ -624,6 +812,7 @@ abstract class PoolArena<T> implements PoolArenaMetric {
         } finally {
             destroyPoolSubPages(smallSubpagePools);
             destroyPoolSubPages(tinySubpagePools);
+            drainDeferredFrees();
             destroyPoolChunkLists(qInit, q000, q025, q050, q075, q100);
         }
     }
@@ -640,10 +829,50 @@ abstract class PoolArena<T> implements PoolArenaMetric {
         }
     }
 
+    private static final class DeferredFree {
+        private static final Recycler<DeferredFree> RECYCLER = new Recycler<DeferredFree>() {
+            @Override
+            protected DeferredFree newObject(Handle<DeferredFree> handle) {
+                return new DeferredFree(handle);
+            }
+        };
+
+        static DeferredFree newInstance(PoolChunk<?> chunk, long handle, SizeClass sizeClass) {
+            DeferredFree deferred = RECYCLER.get();
+            deferred.chunk = chunk;
+            deferred.handle = handle;
+            deferred.sizeClass = sizeClass;
+            return deferred;
+        }
+
+        private final Handle<DeferredFree> recyclerHandle;
+        PoolChunk<?> chunk;
+        long handle = -1;
+        SizeClass sizeClass;
+        DeferredFree next;
+
+        private DeferredFree(Handle<DeferredFree> recyclerHandle) {
+            this.recyclerHandle = recyclerHandle;
+        }
+
+        void recycle() {
+            chunk = null;
+            handle = -1;
+            sizeClass = null;
+            next = null;
+            recyclerHandle.recycle(this);
+        }
+    }
+
     static final class HeapArena extends PoolArena<byte[]> {
 
         HeapArena(PooledByteBufAllocator parent, int pageSize, int maxOrder, int pageShifts, int chunkSize) {
-            super(parent, pageSize, maxOrder, pageShifts, chunkSize);
+            this(parent, pageSize, maxOrder, pageShifts, chunkSize, null);
+        }
+
+        HeapArena(PooledByteBufAllocator parent, int pageSize, int maxOrder, int pageShifts, int chunkSize,
+                  SizeClasses sizeClasses) {
+            super(parent, pageSize, maxOrder, pageShifts, chunkSize, sizeClasses);
         }
 
         @Override
@@ -685,7 +914,12 @@ abstract class PoolArena<T> implements PoolArenaMetric {
     static final class DirectArena extends PoolArena<ByteBuffer> {
 
         DirectArena(PooledByteBufAllocator parent, int pageSize, int maxOrder, int pageShifts, int chunkSize) {
-            super(parent, pageSize, maxOrder, pageShifts, chunkSize);
+            this(parent, pageSize, maxOrder, pageShifts, chunkSize, null);
+        }
+
+        DirectArena(PooledByteBufAllocator parent, int pageSize, int maxOrder, int pageShifts, int chunkSize,
+                    SizeClasses sizeClasses) {
+            super(parent, pageSize, maxOrder, pageShifts, chunkSize, sizeClasses);
         }
 
         @Override
@@ -99,6 +99,15 @@ package io.netty.buffer;
  * memoryMap[id]= (depth_of_id, x)
  * where as per convention defined above
  * the second value (i.e, x) indicates that the first node which is free to be allocated is at depth x (from root)
+ *
+ * Page runs:
+ * ----------
+ * If the {@link PoolArena} uses {@link SizeClasses} the chunk does not use the buddy tree at all, as size classes
+ * are not restricted to powers of two. Instead runs of any number of pages are carved out of the runs of free
+ * pages, which are indexed by the log2 of their length. A request is served by the lowest free run of its own
+ * group that is big enough, or else by the lowest run of the next non-empty group. Freed runs are merged with
+ * adjacent free runs. The handle of a run uses the same encoding as the leaves of the tree
+ * (i.e. 2^maxOrder + index of the first page), and the number of pages in the run is stored in runPages.
  */
 final class PoolChunk<T> implements PoolChunkMetric {
 
@@ -110,9 +119,17 @@ final class PoolChunk<T> implements PoolChunkMetric {
 
     private final byte[] memoryMap;
     private final byte[] depthMap;
+    /** Number of pages of the used run starting at the given page, only used if the arena uses size classes. */
+    private final int[] runPages;
+    /** Number of pages of the free run starting at the given page, only used if the arena uses size classes. */
+    private final int[] freeRunPages;
+    /** First page of the free run ending at the given page, only used if the arena uses size classes. */
+    private final int[] freeRunStart;
+    /** Bitmaps of the first pages of free runs, indexed by the log2 of the run length. */
+    private final long[][] freeRuns;
+    /** Number of free runs in each of the freeRuns bitmaps. */
+    private final int[] numFreeRuns;
     private final PoolSubpage<T>[] subpages;
-    /** Used to determine if the requested capacity is equal to or greater than pageSize. */
-    private final int subpageOverflowMask;
     private final int pageSize;
     private final int pageShifts;
     private final int maxOrder;
@@ -123,6 +140,8 @@ final class PoolChunk<T> implements PoolChunkMetric {
     private final byte unusable;
 
     private int freeBytes;
+    // The value of System.nanoTime() when the chunk became completely unused the last time.
+    long unusedSinceNanos;
 
     PoolChunkList<T> parent;
     PoolChunk<T> prev;
@@ -141,12 +160,30 @@ final class PoolChunk<T> implements PoolChunkMetric {
         this.chunkSize = chunkSize;
         unusable = (byte) (maxOrder + 1);
         log2ChunkSize = log2(chunkSize);
-        subpageOverflowMask = ~(pageSize - 1);
         freeBytes = chunkSize;
 
         assert maxOrder < 30 : "maxOrder should be < 30, but is: " + maxOrder;
         maxSubpageAllocs = 1 << maxOrder;
 
+        subpages = newSubpageArray(maxSubpageAllocs);
+
+        if (arena.sizeClasses != null) {
+            memoryMap = null;
+            depthMap = null;
+            runPages = new int[maxSubpageAllocs];
+            freeRunPages = new int[maxSubpageAllocs];
+            freeRunStart = new int[maxSubpageAllocs];
+            freeRuns = new long[maxOrder + 1][(maxSubpageAllocs + 63) >>> 6];
+            numFreeRuns = new int[maxOrder + 1];
+            addFreeRun(0, maxSubpageAllocs);
+            return;
+        }
+        runPages = null;
+        freeRunPages = null;
+        freeRunStart = null;
+        freeRuns = null;
+        numFreeRuns = null;
+
         // Generate the memory map.
         memoryMap = new byte[maxSubpageAllocs << 1];
         depthMap = new byte[memoryMap.length];
@@ -160,8 +197,6 @@ final class PoolChunk<T> implements PoolChunkMetric {
                 memoryMapIndex ++;
             }
         }
-
-        subpages = newSubpageArray(maxSubpageAllocs);
     }
 
     /** Creates a special chunk that is not pooled. */
@@ -171,8 +206,12 @@ final class PoolChunk<T> implements PoolChunkMetric {
         this.memory = memory;
         memoryMap = null;
         depthMap = null;
+        runPages = null;
+        freeRunPages = null;
+        freeRunStart = null;
+        freeRuns = null;
+        numFreeRuns = null;
         subpages = null;
-        subpageOverflowMask = 0;
         pageSize = 0;
         pageShifts = 0;
         maxOrder = 0;
@@ -202,10 +241,10 @@ final class PoolChunk<T> implements PoolChunkMetric {
     }
 
     long allocate(int normCapacity) {
-        if ((normCapacity & subpageOverflowMask) != 0) { // >= pageSize
-            return allocateRun(normCapacity);
-        } else {
+        if (arena.isTinyOrSmall(normCapacity)) {
             return allocateSubpage(normCapacity);
+        } else {
+            return allocateRun(normCapacity);
         }
     }
 
@@ -291,6 +330,14 @@ final class PoolChunk<T> implements PoolChunkMetric {
      * @return index in memoryMap
      */
     private long allocateRun(int normCapacity) {
+        if (runPages != null) {
+            int id = allocatePages(arena.sizeClasses.normalPages(normCapacity));
+            if (id < 0) {
+                return id;
+            }
+            freeBytes -= runLength(id);
+            return id;
+        }
         int d = maxOrder - (log2(normCapacity) - pageShifts);
         int id = allocateNode(d);
         if (id < 0) {
@@ -312,21 +359,27 @@ final class PoolChunk<T> implements PoolChunkMetric {
         // This is need as we may add it back and so alter the linked-list structure.
         PoolSubpage<T> head = arena.findSubpagePoolHead(normCapacity);
         synchronized (head) {
-            int d = maxOrder; // subpages are only be allocated from pages i.e., leaves
-            int id = allocateNode(d);
+            int id;
+            if (runPages != null) {
+                // tiny subpages use a single page, small ones a run that is a multiple of the element size.
+                id = allocatePages(PoolArena.isTiny(normCapacity) ? 1 : arena.sizeClasses.runPages(normCapacity));
+            } else {
+                int d = maxOrder; // subpages are only be allocated from pages i.e., leaves
+                id = allocateNode(d);
+            }
             if (id < 0) {
                 return id;
             }
 
             final PoolSubpage<T>[] subpages = this.subpages;
-            final int pageSize = this.pageSize;
+            final int runLength = runLength(id);
 
-            freeBytes -= pageSize;
+            freeBytes -= runLength;
 
             int subpageIdx = subpageIdx(id);
             PoolSubpage<T> subpage = subpages[subpageIdx];
-            if (subpage == null) {
-                subpage = new PoolSubpage<T>(head, this, id, runOffset(id), pageSize, normCapacity);
+            if (subpage == null || subpage.pageSize() != runLength) {
+                subpage = new PoolSubpage<T>(head, this, id, runOffset(id), runLength, normCapacity);
                 subpages[subpageIdx] = subpage;
             } else {
                 subpage.init(head, normCapacity);
@@ -361,16 +414,112 @@ final class PoolChunk<T> implements PoolChunkMetric {
             }
         }
         freeBytes += runLength(memoryMapIdx);
+        if (freeBytes == chunkSize) {
+            unusedSinceNanos = System.nanoTime();
+        }
+        if (runPages != null) {
+            freePages(memoryMapIdx);
+            return;
+        }
         setValue(memoryMapIdx, depth(memoryMapIdx));
         updateParentsFree(memoryMapIdx);
     }
 
+    /**
+     * Allocate a run of the given number of pages from the lowest free run of the same log2 group that is big
+     * enough, or else from the lowest free run of the next non-empty group.
+     *
+     * @return the handle of the run or {@code -1} if no such run exists
+     */
+    private int allocatePages(int numPages) {
+        if (numPages << pageShifts > freeBytes) {
+            return -1;
+        }
+        int group = log2(numPages);
+        if (numFreeRuns[group] != 0) {
+            // Runs of the same group may still be too small.
+            final long[] bitmap = freeRuns[group];
+            for (int i = 0; i < bitmap.length; i ++) {
+                long bits = bitmap[i];
+                while (bits != 0) {
+                    int page = (i << 6) + Long.numberOfTrailingZeros(bits);
+                    if (freeRunPages[page] >= numPages) {
+                        return splitFreeRun(page, numPages);
+                    }
+                    bits &= bits - 1;
+                }
+            }
+        }
+        // Every run of a higher group is big enough.
+        for (group ++; group < numFreeRuns.length; group ++) {
+            if (numFreeRuns[group] != 0) {
+                final long[] bitmap = freeRuns[group];
+                for (int i = 0;; i ++) {
+                    long bits = bitmap[i];
+                    if (bits != 0) {
+                        return splitFreeRun((i << 6) + Long.numberOfTrailingZeros(bits), numPages);
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+
+    private int splitFreeRun(int runStart, int numPages) {
+        int freePages = freeRunPages[runStart];
+        removeFreeRun(runStart, freePages);
+        if (freePages > numPages) {
+            addFreeRun(runStart + numPages, freePages - numPages);
+        }
+        runPages[runStart] = numPages;
+        return maxSubpageAllocs | runStart;
+    }
+
+    private void freePages(int id) {
+        int runStart = subpageIdx(id);
+        int numPages = runPages[runStart];
+        runPages[runStart] = 0;
+
+        // Merge with the adjacent free runs.
+        int next = runStart + numPages;
+        if (next < maxSubpageAllocs && freeRunPages[next] != 0) {
+            int nextPages = freeRunPages[next];
+            removeFreeRun(next, nextPages);
+            numPages += nextPages;
+        }
+        if (runStart > 0) {
+            int prev = freeRunStart[runStart - 1];
+            int prevPages = freeRunPages[prev];
+            // freeRunStart may be stale, so verify that the free run really ends right before this run.
+            if (prevPages != 0 && prev + prevPages == runStart) {
+                removeFreeRun(prev, prevPages);
+                runStart = prev;
+                numPages += prevPages;
+            }
+        }
+        addFreeRun(runStart, numPages);
+    }
+
+    private void addFreeRun(int runStart, int numPages) {
+        freeRunPages[runStart] = numPages;
+        freeRunStart[runStart + numPages - 1] = runStart;
+        int group = log2(numPages);
+        freeRuns[group][runStart >>> 6] |= 1L << runStart;
+        numFreeRuns[group] ++;
+    }
+
+    private void removeFreeRun(int runStart, int numPages) {
+        freeRunPages[runStart] = 0;
+        int group = log2(numPages);
+        freeRuns[group][runStart >>> 6] &= ~(1L << runStart);
+        numFreeRuns[group] --;
+    }
+
     void initBuf(PooledByteBuf<T> buf, long handle, int reqCapacity) {
         int memoryMapIdx = memoryMapIdx(handle);
         int bitmapIdx = bitmapIdx(handle);
         if (bitmapIdx == 0) {
-            byte val = value(memoryMapIdx);
-            assert val == unusable : String.valueOf(val);
+            assert runPages != null || value(memoryMapIdx) == unusable : String.valueOf(value(memoryMapIdx));
             buf.init(this, handle, runOffset(memoryMapIdx), reqCapacity, runLength(memoryMapIdx),
                      arena.parent.threadCache());
         } else {
@@ -415,11 +564,17 @@ final class PoolChunk<T> implements PoolChunkMetric {
     }
 
     private int runLength(int id) {
+        if (runPages != null) {
+            return runPages[subpageIdx(id)] << pageShifts;
+        }
         // represents the size in #bytes supported by node 'id' in the tree
         return 1 << log2ChunkSize - depth(id);
     }
 
     private int runOffset(int id) {
+        if (runPages != null) {
+            return subpageIdx(id) << pageShifts;
+        }
         // represents the 0-based offset in #bytes from start of the byte-array chunk
         int shift = id ^ 1 << depth(id);
         return shift * runLength(id);
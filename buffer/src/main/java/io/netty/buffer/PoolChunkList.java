@@ -159,6 +159,22 @@ final class PoolChunkList<T> implements PoolChunkListMetric {
         }
     }
 
+    /**
+     * Removes all {@link PoolChunk}s that are completely unused since {@code unusedSinceNanos} or earlier and adds
+     * them to {@code unused}.
+     */
+    void removeUnused(long unusedSinceNanos, List<PoolChunk<T>> unused) {
+        PoolChunk<T> cur = head;
+        while (cur != null) {
+            PoolChunk<T> next = cur.next;
+            if (cur.freeBytes() == cur.chunkSize() && cur.unusedSinceNanos - unusedSinceNanos <= 0) {
+                remove(cur);
+                unused.add(cur);
+            }
+            cur = next;
+        }
+    }
+
     private void remove(PoolChunk<T> cur) {
         if (cur == head) {
             head = cur.next;
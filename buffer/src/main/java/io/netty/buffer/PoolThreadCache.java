@@ -50,15 +50,17 @@ final class PoolThreadCache {
     private final MemoryRegionCache<byte[]>[] normalHeapCaches;
     private final MemoryRegionCache<ByteBuffer>[] normalDirectCaches;
 
-    // Used for bitshifting when calculate the index of normal caches later
-    private final int numShiftsNormalDirect;
-    private final int numShiftsNormalHeap;
     private final int freeSweepAllocationThreshold;
+    private final boolean adaptive;
 
     private final Thread deathWatchThread;
     private final Runnable freeTask;
 
+    private volatile boolean freed;
+
     private int allocations;
+    // The value of PoolArena.cacheTrimEpoch when this cache was trimmed the last time.
+    private int trimEpoch;
 
     // TODO: Test if adding padding helps under contention
     //private long pad0, pad1, pad2, pad3, pad4, pad5, pad6, pad7;
@@ -66,6 +68,13 @@ final class PoolThreadCache {
     PoolThreadCache(PoolArena<byte[]> heapArena, PoolArena<ByteBuffer> directArena,
                     int tinyCacheSize, int smallCacheSize, int normalCacheSize,
                     int maxCachedBufferCapacity, int freeSweepAllocationThreshold) {
+        this(heapArena, directArena, tinyCacheSize, smallCacheSize, normalCacheSize, maxCachedBufferCapacity,
+                freeSweepAllocationThreshold, false);
+    }
+
+    PoolThreadCache(PoolArena<byte[]> heapArena, PoolArena<ByteBuffer> directArena,
+                    int tinyCacheSize, int smallCacheSize, int normalCacheSize,
+                    int maxCachedBufferCapacity, int freeSweepAllocationThreshold, boolean adaptive) {
         if (maxCachedBufferCapacity < 0) {
             throw new IllegalArgumentException("maxCachedBufferCapacity: "
                     + maxCachedBufferCapacity + " (expected: >= 0)");
@@ -75,17 +84,17 @@ final class PoolThreadCache {
                     + freeSweepAllocationThreshold + " (expected: > 0)");
         }
         this.freeSweepAllocationThreshold = freeSweepAllocationThreshold;
+        this.adaptive = adaptive;
         this.heapArena = heapArena;
         this.directArena = directArena;
         if (directArena != null) {
             tinySubPageDirectCaches = createSubPageCaches(
-                    tinyCacheSize, PoolArena.numTinySubpagePools, SizeClass.Tiny);
+                    tinyCacheSize, PoolArena.numTinySubpagePools, SizeClass.Tiny, adaptive);
             smallSubPageDirectCaches = createSubPageCaches(
-                    smallCacheSize, directArena.numSmallSubpagePools, SizeClass.Small);
+                    smallCacheSize, directArena.numSmallSubpagePools, SizeClass.Small, adaptive);
 
-            numShiftsNormalDirect = log2(directArena.pageSize);
             normalDirectCaches = createNormalCaches(
-                    normalCacheSize, maxCachedBufferCapacity, directArena);
+                    normalCacheSize, maxCachedBufferCapacity, directArena, adaptive);
 
             directArena.numThreadCaches.getAndIncrement();
         } else {
@@ -93,18 +102,16 @@ final class PoolThreadCache {
             tinySubPageDirectCaches = null;
             smallSubPageDirectCaches = null;
             normalDirectCaches = null;
-            numShiftsNormalDirect = -1;
         }
         if (heapArena != null) {
             // Create the caches for the heap allocations
             tinySubPageHeapCaches = createSubPageCaches(
-                    tinyCacheSize, PoolArena.numTinySubpagePools, SizeClass.Tiny);
+                    tinyCacheSize, PoolArena.numTinySubpagePools, SizeClass.Tiny, adaptive);
             smallSubPageHeapCaches = createSubPageCaches(
-                    smallCacheSize, heapArena.numSmallSubpagePools, SizeClass.Small);
+                    smallCacheSize, heapArena.numSmallSubpagePools, SizeClass.Small, adaptive);
 
-            numShiftsNormalHeap = log2(heapArena.pageSize);
             normalHeapCaches = createNormalCaches(
-                    normalCacheSize, maxCachedBufferCapacity, heapArena);
+                    normalCacheSize, maxCachedBufferCapacity, heapArena, adaptive);
 
             heapArena.numThreadCaches.getAndIncrement();
         } else {
@@ -112,12 +119,12 @@ final class PoolThreadCache {
             tinySubPageHeapCaches = null;
             smallSubPageHeapCaches = null;
             normalHeapCaches = null;
-            numShiftsNormalHeap = -1;
         }
 
-        // We only need to watch the thread when any cache is used.
+        // We only need to watch the thread when any cache is used or an arena is pinned to it.
         if (tinySubPageDirectCaches != null || smallSubPageDirectCaches != null || normalDirectCaches != null
-                || tinySubPageHeapCaches != null || smallSubPageHeapCaches != null || normalHeapCaches != null) {
+                || tinySubPageHeapCaches != null || smallSubPageHeapCaches != null || normalHeapCaches != null
+                || heapArena != null && heapArena.isPinned() || directArena != null && directArena.isPinned()) {
             freeTask = new Runnable() {
                 @Override
                 public void run() {
@@ -137,13 +144,13 @@ final class PoolThreadCache {
     }
 
     private static <T> MemoryRegionCache<T>[] createSubPageCaches(
-            int cacheSize, int numCaches, SizeClass sizeClass) {
+            int cacheSize, int numCaches, SizeClass sizeClass, boolean adaptive) {
         if (cacheSize > 0) {
             @SuppressWarnings("unchecked")
             MemoryRegionCache<T>[] cache = new MemoryRegionCache[numCaches];
             for (int i = 0; i < cache.length; i++) {
                 // TODO: maybe use cacheSize / cache.length
-                cache[i] = new SubPageMemoryRegionCache<T>(cacheSize, sizeClass);
+                cache[i] = new SubPageMemoryRegionCache<T>(cacheSize, sizeClass, adaptive);
             }
             return cache;
         } else {
@@ -152,15 +159,13 @@ final class PoolThreadCache {
     }
 
     private static <T> MemoryRegionCache<T>[] createNormalCaches(
-            int cacheSize, int maxCachedBufferCapacity, PoolArena<T> area) {
-        if (cacheSize > 0) {
-            int max = Math.min(area.chunkSize, maxCachedBufferCapacity);
-            int arraySize = Math.max(1, log2(max / area.pageSize) + 1);
-
+            int cacheSize, int maxCachedBufferCapacity, PoolArena<T> area, boolean adaptive) {
+        int arraySize = area.numNormalCaches(maxCachedBufferCapacity);
+        if (cacheSize > 0 && arraySize > 0) {
             @SuppressWarnings("unchecked")
             MemoryRegionCache<T>[] cache = new MemoryRegionCache[arraySize];
             for (int i = 0; i < cache.length; i++) {
-                cache[i] = new NormalMemoryRegionCache<T>(cacheSize);
+                cache[i] = new NormalMemoryRegionCache<T>(cacheSize, adaptive);
             }
             return cache;
         } else {
@@ -168,45 +173,45 @@ final class PoolThreadCache {
         }
     }
 
-    private static int log2(int val) {
-        int res = 0;
-        while (val > 1) {
-            val >>= 1;
-            res++;
-        }
-        return res;
-    }
-
     /**
      * Try to allocate a tiny buffer out of the cache. Returns {@code true} if successful {@code false} otherwise
      */
     boolean allocateTiny(PoolArena<?> area, PooledByteBuf<?> buf, int reqCapacity, int normCapacity) {
-        return allocate(cacheForTiny(area, normCapacity), buf, reqCapacity);
+        return allocate(area, cacheForTiny(area, normCapacity), buf, reqCapacity);
     }
 
     /**
      * Try to allocate a small buffer out of the cache. Returns {@code true} if successful {@code false} otherwise
      */
     boolean allocateSmall(PoolArena<?> area, PooledByteBuf<?> buf, int reqCapacity, int normCapacity) {
-        return allocate(cacheForSmall(area, normCapacity), buf, reqCapacity);
+        return allocate(area, cacheForSmall(area, normCapacity), buf, reqCapacity);
     }
 
     /**
      * Try to allocate a small buffer out of the cache. Returns {@code true} if successful {@code false} otherwise
      */
     boolean allocateNormal(PoolArena<?> area, PooledByteBuf<?> buf, int reqCapacity, int normCapacity) {
-        return allocate(cacheForNormal(area, normCapacity), buf, reqCapacity);
+        return allocate(area, cacheForNormal(area, normCapacity), buf, reqCapacity);
     }
 
     @SuppressWarnings({ "unchecked", "rawtypes" })
-    private boolean allocate(MemoryRegionCache<?> cache, PooledByteBuf buf, int reqCapacity) {
+    private boolean allocate(PoolArena<?> area, MemoryRegionCache<?> cache, PooledByteBuf buf, int reqCapacity) {
         if (cache == null) {
             // no cache found so just return false here
             return false;
         }
         boolean allocated = cache.allocate(buf, reqCapacity);
+        if (allocated) {
+            area.threadCacheHits.increment();
+        } else {
+            area.threadCacheMisses.increment();
+        }
         if (++ allocations >= freeSweepAllocationThreshold) {
-            allocations = 0;
+            trim();
+        } else if (trimEpoch != area.cacheTrimEpoch) {
+            // At least one trim interval passed since the last trim, either because this thread allocates only
+            // rarely or because it was idle for a while. Either way the cached buffers are likely stale.
+            area.threadCacheIdleTrims.increment();
             trim();
         }
         return allocated;
@@ -242,6 +247,7 @@ final class PoolThreadCache {
      *  Should be called if the Thread that uses this cache is about to exist to release resources out of the cache
      */
     void free() {
+        freed = true;
         if (freeTask != null) {
             assert deathWatchThread != null;
             ThreadDeathWatcher.unwatch(deathWatchThread, freeTask);
@@ -263,10 +269,16 @@ final class PoolThreadCache {
 
         if (directArena != null) {
             directArena.numThreadCaches.getAndDecrement();
+            if (deathWatchThread != null) {
+                directArena.unpin(deathWatchThread);
+            }
         }
 
         if (heapArena != null) {
             heapArena.numThreadCaches.getAndDecrement();
+            if (deathWatchThread != null) {
+                heapArena.unpin(deathWatchThread);
+            }
         }
     }
 
@@ -290,28 +302,60 @@ final class PoolThreadCache {
     }
 
     void trim() {
-        trim(tinySubPageDirectCaches);
-        trim(smallSubPageDirectCaches);
-        trim(normalDirectCaches);
-        trim(tinySubPageHeapCaches);
-        trim(smallSubPageHeapCaches);
-        trim(normalHeapCaches);
+        allocations = 0;
+        if (directArena != null) {
+            trimEpoch = directArena.cacheTrimEpoch;
+        } else if (heapArena != null) {
+            trimEpoch = heapArena.cacheTrimEpoch;
+        }
+        trim(tinySubPageDirectCaches, directArena);
+        trim(smallSubPageDirectCaches, directArena);
+        trim(normalDirectCaches, directArena);
+        trim(tinySubPageHeapCaches, heapArena);
+        trim(smallSubPageHeapCaches, heapArena);
+        trim(normalHeapCaches, heapArena);
+
+        // Return the memory freed by other threads as well, which is only done on allocation otherwise.
+        drainDeferredFrees(directArena);
+        drainDeferredFrees(heapArena);
     }
 
-    private static void trim(MemoryRegionCache<?>[] caches) {
+    private static void drainDeferredFrees(PoolArena<?> arena) {
+        if (arena != null && arena.hasDeferredFrees()) {
+            arena.drainDeferredFrees();
+        }
+    }
+
+    /**
+     * Trims the cache because the trim interval elapsed, which must be called by the thread that uses this cache.
+     * Returns {@code false} if the cache was freed already.
+     */
+    boolean trimIdle() {
+        if (freed) {
+            return false;
+        }
+        PoolArena<?> arena = directArena != null ? directArena : heapArena;
+        if (arena != null) {
+            arena.threadCacheIdleTrims.increment();
+        }
+        trim();
+        return true;
+    }
+
+    private static void trim(MemoryRegionCache<?>[] caches, PoolArena<?> arena) {
         if (caches == null) {
             return;
         }
         for (MemoryRegionCache<?> c: caches) {
-            trim(c);
+            trim(c, arena);
         }
     }
 
-    private static void trim(MemoryRegionCache<?> cache) {
+    private static void trim(MemoryRegionCache<?> cache, PoolArena<?> arena) {
         if (cache == null) {
             return;
         }
-        cache.trim();
+        cache.trim(arena);
     }
 
     private MemoryRegionCache<?> cacheForTiny(PoolArena<?> area, int normCapacity) {
@@ -323,7 +367,7 @@ final class PoolThreadCache {
     }
 
     private MemoryRegionCache<?> cacheForSmall(PoolArena<?> area, int normCapacity) {
-        int idx = PoolArena.smallIdx(normCapacity);
+        int idx = area.smallIdx(normCapacity);
         if (area.isDirect()) {
             return cache(smallSubPageDirectCaches, idx);
         }
@@ -331,11 +375,10 @@ final class PoolThreadCache {
     }
 
     private MemoryRegionCache<?> cacheForNormal(PoolArena<?> area, int normCapacity) {
+        int idx = area.normalIdx(normCapacity);
         if (area.isDirect()) {
-            int idx = log2(normCapacity >> numShiftsNormalDirect);
             return cache(normalDirectCaches, idx);
         }
-        int idx = log2(normCapacity >> numShiftsNormalHeap);
         return cache(normalHeapCaches, idx);
     }
 
@@ -350,8 +393,8 @@ final class PoolThreadCache {
      * Cache used for buffers which are backed by TINY or SMALL size.
      */
     private static final class SubPageMemoryRegionCache<T> extends MemoryRegionCache<T> {
-        SubPageMemoryRegionCache(int size, SizeClass sizeClass) {
-            super(size, sizeClass);
+        SubPageMemoryRegionCache(int size, SizeClass sizeClass, boolean adaptive) {
+            super(size, sizeClass, adaptive);
         }
 
         @Override
@@ -365,8 +408,8 @@ final class PoolThreadCache {
      * Cache used for buffers which are backed by NORMAL size.
      */
     private static final class NormalMemoryRegionCache<T> extends MemoryRegionCache<T> {
-        NormalMemoryRegionCache(int size) {
-            super(size, SizeClass.Normal);
+        NormalMemoryRegionCache(int size, boolean adaptive) {
+            super(size, SizeClass.Normal, adaptive);
         }
 
         @Override
@@ -376,16 +419,31 @@ final class PoolThreadCache {
         }
     }
 
+    /**
+     * Caches the buffers of a single size class. If the cache is adaptive its queue is created with room for
+     * {@link #ADAPTIVE_MAX_GROWTH} times the configured size, and only a part of it given by {@link #limit} is used.
+     * On every trim the limit is doubled if allocations could not be served because the cache ran empty, and halved
+     * if the cache was not used at all since the last trim.
+     */
     private abstract static class MemoryRegionCache<T> {
-        private final int size;
+        private static final int ADAPTIVE_MAX_GROWTH = 4;
+
+        private final int maxSize;
         private final Queue<Entry<T>> queue;
         private final SizeClass sizeClass;
+        private final boolean adaptive;
+        // Only changed by the owning thread. Other threads read it in add(...) and may see a stale value for a
+        // short time, which is fine as the limit is only a hint.
+        private int limit;
         private int allocations;
+        private int misses;
 
-        MemoryRegionCache(int size, SizeClass sizeClass) {
-            this.size = MathUtil.safeFindNextPositivePowerOfTwo(size);
-            queue = PlatformDependent.newFixedMpscQueue(this.size);
+        MemoryRegionCache(int size, SizeClass sizeClass, boolean adaptive) {
+            limit = MathUtil.safeFindNextPositivePowerOfTwo(size);
+            maxSize = adaptive ? (int) Math.min(1 << 30, (long) limit * ADAPTIVE_MAX_GROWTH) : limit;
+            queue = PlatformDependent.newFixedMpscQueue(maxSize);
             this.sizeClass = sizeClass;
+            this.adaptive = adaptive;
         }
 
         /**
@@ -399,6 +457,9 @@ final class PoolThreadCache {
          */
         @SuppressWarnings("unchecked")
         public final boolean add(PoolChunk<T> chunk, long handle) {
+            if (adaptive && queue.size() >= limit) {
+                return false;
+            }
             Entry<T> entry = newEntry(chunk, handle);
             boolean queued = queue.offer(entry);
             if (!queued) {
@@ -415,6 +476,7 @@ final class PoolThreadCache {
         public final boolean allocate(PooledByteBuf<T> buf, int reqCapacity) {
             Entry<T> entry = queue.poll();
             if (entry == null) {
+                ++ misses;
                 return false;
             }
             initBuf(entry.chunk, entry.handle, buf, reqCapacity);
@@ -447,15 +509,35 @@ final class PoolThreadCache {
         }
 
         /**
-         * Free up cached {@link PoolChunk}s if not allocated frequently enough.
+         * Free up cached {@link PoolChunk}s if not allocated frequently enough, and adapt the limit of an adaptive
+         * cache to the allocations since the last trim.
          */
-        public final void trim() {
-            int free = size - allocations;
+        public final void trim(PoolArena<?> arena) {
+            int free = limit - allocations;
+            if (adaptive) {
+                if (misses > 0 && allocations + misses > limit) {
+                    // The cache ran empty although more allocations of this size were made than it can hold.
+                    if (limit < maxSize) {
+                        limit <<= 1;
+                        arena.threadCacheGrows.increment();
+                    }
+                } else if (allocations == 0 && misses == 0) {
+                    // Not used at all since the last trim, so let the cache give up its buffers and shrink.
+                    if (limit > 1) {
+                        limit >>>= 1;
+                        arena.threadCacheShrinks.increment();
+                    }
+                }
+            }
             allocations = 0;
+            misses = 0;
 
             // We not even allocated all the number that are
             if (free > 0) {
-                free(free);
+                int freed = free(free);
+                if (freed > 0) {
+                    arena.threadCacheTrimmedBuffers.add(freed);
+                }
             }
         }
 
@@ -16,20 +16,29 @@
 
 package io.netty.buffer;
 
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.EventExecutor;
 import io.netty.util.concurrent.FastThreadLocal;
 import io.netty.util.concurrent.FastThreadLocalThread;
 import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.StringUtil;
 import io.netty.util.internal.SystemPropertyUtil;
+import io.netty.util.internal.ThreadExecutorMap;
+import io.netty.util.internal.UnstableApi;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
 
+import java.lang.ref.WeakReference;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
-public class PooledByteBufAllocator extends AbstractByteBufAllocator {
+public class PooledByteBufAllocator extends AbstractByteBufAllocator implements ByteBufAllocatorMetricProvider {
 
     private static final InternalLogger logger = InternalLoggerFactory.getInstance(PooledByteBufAllocator.class);
     private static final int DEFAULT_NUM_HEAP_ARENA;
@@ -43,6 +52,11 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
     private static final int DEFAULT_MAX_CACHED_BUFFER_CAPACITY;
     private static final int DEFAULT_CACHE_TRIM_INTERVAL;
     private static final boolean DEFAULT_USE_CACHE_FOR_ALL_THREADS;
+    private static final boolean DEFAULT_PIN_ARENAS_TO_EVENT_LOOPS;
+    private static final boolean DEFAULT_USE_SIZE_CLASSES;
+    private static final long DEFAULT_CHUNK_RELEASE_DELAY_MILLIS;
+    private static final boolean DEFAULT_ADAPTIVE_THREAD_CACHE;
+    private static final long DEFAULT_CACHE_TRIM_INTERVAL_MILLIS;
 
     private static final int MIN_PAGE_SIZE = 4096;
     private static final int MAX_CHUNK_SIZE = (int) (((long) Integer.MAX_VALUE + 1) / 2);
@@ -108,6 +122,24 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
         DEFAULT_USE_CACHE_FOR_ALL_THREADS = SystemPropertyUtil.getBoolean(
                 "io.netty.allocator.useCacheForAllThreads", true);
 
+        DEFAULT_PIN_ARENAS_TO_EVENT_LOOPS = SystemPropertyUtil.getBoolean(
+                "io.netty.allocator.pinArenasToEventLoops", false);
+
+        // Size classes need a chunk of at least 8 pages, so ignore the property for smaller chunks.
+        DEFAULT_USE_SIZE_CLASSES = SystemPropertyUtil.getBoolean(
+                "io.netty.allocator.useSizeClasses", false) && DEFAULT_MAX_ORDER >= SizeClasses.MIN_MAX_ORDER;
+
+        // 0 means chunks are never released once they are allocated and their usage never exceeded 25%.
+        DEFAULT_CHUNK_RELEASE_DELAY_MILLIS = Math.max(0, SystemPropertyUtil.getLong(
+                "io.netty.allocator.chunkReleaseDelayMillis", 0));
+
+        DEFAULT_ADAPTIVE_THREAD_CACHE = SystemPropertyUtil.getBoolean(
+                "io.netty.allocator.adaptiveThreadCache", false);
+
+        // 0 means the thread caches are only trimmed after cacheTrimInterval allocations.
+        DEFAULT_CACHE_TRIM_INTERVAL_MILLIS = Math.max(0, SystemPropertyUtil.getLong(
+                "io.netty.allocator.cacheTrimIntervalMillis", 0));
+
         if (logger.isDebugEnabled()) {
             logger.debug("-Dio.netty.allocator.numHeapArenas: {}", DEFAULT_NUM_HEAP_ARENA);
             logger.debug("-Dio.netty.allocator.numDirectArenas: {}", DEFAULT_NUM_DIRECT_ARENA);
@@ -128,6 +160,11 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
             logger.debug("-Dio.netty.allocator.maxCachedBufferCapacity: {}", DEFAULT_MAX_CACHED_BUFFER_CAPACITY);
             logger.debug("-Dio.netty.allocator.cacheTrimInterval: {}", DEFAULT_CACHE_TRIM_INTERVAL);
             logger.debug("-Dio.netty.allocator.useCacheForAllThreads: {}", DEFAULT_USE_CACHE_FOR_ALL_THREADS);
+            logger.debug("-Dio.netty.allocator.pinArenasToEventLoops: {}", DEFAULT_PIN_ARENAS_TO_EVENT_LOOPS);
+            logger.debug("-Dio.netty.allocator.useSizeClasses: {}", DEFAULT_USE_SIZE_CLASSES);
+            logger.debug("-Dio.netty.allocator.chunkReleaseDelayMillis: {}", DEFAULT_CHUNK_RELEASE_DELAY_MILLIS);
+            logger.debug("-Dio.netty.allocator.adaptiveThreadCache: {}", DEFAULT_ADAPTIVE_THREAD_CACHE);
+            logger.debug("-Dio.netty.allocator.cacheTrimIntervalMillis: {}", DEFAULT_CACHE_TRIM_INTERVAL_MILLIS);
         }
     }
 
@@ -142,6 +179,13 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
     private final List<PoolArenaMetric> heapArenaMetrics;
     private final List<PoolArenaMetric> directArenaMetrics;
     private final PoolThreadLocalCache threadCache;
+    private final boolean pinArenasToEventLoops;
+    private final boolean useSizeClasses;
+    private final long chunkReleaseDelayMillis;
+    private final boolean adaptiveThreadCache;
+    private final long cacheTrimIntervalMillis;
+    final int chunkSize;
+    private final PooledByteBufAllocatorMetric metric;
 
     public PooledByteBufAllocator() {
         this(false);
@@ -181,12 +225,33 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
     public PooledByteBufAllocator(boolean preferDirect, int nHeapArena, int nDirectArena, int pageSize, int maxOrder,
                                   int tinyCacheSize, int smallCacheSize, int normalCacheSize,
                                   boolean useCacheForAllThreads) {
+        this(preferDirect, nHeapArena, nDirectArena, pageSize, maxOrder, tinyCacheSize, smallCacheSize,
+                normalCacheSize, useCacheForAllThreads, new PooledByteBufAllocatorOptions());
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param options the optional settings of the allocator, see {@link PooledByteBufAllocatorOptions}.
+     */
+    @UnstableApi
+    public PooledByteBufAllocator(boolean preferDirect, int nHeapArena, int nDirectArena, int pageSize, int maxOrder,
+                                  int tinyCacheSize, int smallCacheSize, int normalCacheSize,
+                                  boolean useCacheForAllThreads, PooledByteBufAllocatorOptions options) {
         super(preferDirect);
+        if (options == null) {
+            throw new NullPointerException("options");
+        }
         threadCache = new PoolThreadLocalCache(useCacheForAllThreads);
+        pinArenasToEventLoops = options.pinArenasToEventLoops();
+        useSizeClasses = options.useSizeClasses();
+        chunkReleaseDelayMillis = options.chunkReleaseDelayMillis();
+        adaptiveThreadCache = options.adaptiveThreadCache();
+        cacheTrimIntervalMillis = options.cacheTrimIntervalMillis();
         this.tinyCacheSize = tinyCacheSize;
         this.smallCacheSize = smallCacheSize;
         this.normalCacheSize = normalCacheSize;
-        final int chunkSize = validateAndCalculateChunkSize(pageSize, maxOrder);
+        chunkSize = validateAndCalculateChunkSize(pageSize, maxOrder);
 
         if (nHeapArena < 0) {
             throw new IllegalArgumentException("nHeapArena: " + nHeapArena + " (expected: >= 0)");
@@ -197,11 +262,23 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
 
         int pageShifts = validateAndCalculatePageShifts(pageSize);
 
+        final SizeClasses sizeClasses;
+        if (useSizeClasses) {
+            if (maxOrder < SizeClasses.MIN_MAX_ORDER) {
+                throw new IllegalArgumentException("maxOrder: " + maxOrder + " (expected: " +
+                        SizeClasses.MIN_MAX_ORDER + "-14 when using size classes)");
+            }
+            sizeClasses = new SizeClasses(pageSize, pageShifts, chunkSize);
+        } else {
+            sizeClasses = null;
+        }
+
         if (nHeapArena > 0) {
             heapArenas = newArenaArray(nHeapArena);
             List<PoolArenaMetric> metrics = new ArrayList<PoolArenaMetric>(heapArenas.length);
             for (int i = 0; i < heapArenas.length; i ++) {
-                PoolArena.HeapArena arena = new PoolArena.HeapArena(this, pageSize, maxOrder, pageShifts, chunkSize);
+                PoolArena.HeapArena arena = new PoolArena.HeapArena(
+                        this, pageSize, maxOrder, pageShifts, chunkSize, sizeClasses);
                 heapArenas[i] = arena;
                 metrics.add(arena);
             }
@@ -216,7 +293,7 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
             List<PoolArenaMetric> metrics = new ArrayList<PoolArenaMetric>(directArenas.length);
             for (int i = 0; i < directArenas.length; i ++) {
                 PoolArena.DirectArena arena = new PoolArena.DirectArena(
-                        this, pageSize, maxOrder, pageShifts, chunkSize);
+                        this, pageSize, maxOrder, pageShifts, chunkSize, sizeClasses);
                 directArenas[i] = arena;
                 metrics.add(arena);
             }
@@ -225,6 +302,15 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
             directArenas = null;
             directArenaMetrics = Collections.emptyList();
         }
+
+        metric = new PooledByteBufAllocatorMetric(this);
+
+        if (chunkReleaseDelayMillis > 0) {
+            ChunkReleaseTask.schedule(this, chunkReleaseDelayMillis);
+        }
+        if (cacheTrimIntervalMillis > 0) {
+            CacheTrimTask.schedule(this, cacheTrimIntervalMillis);
+        }
     }
 
     @SuppressWarnings("unchecked")
@@ -345,6 +431,43 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
         return DEFAULT_NORMAL_CACHE_SIZE;
     }
 
+    /**
+     * Default arena pinning - System Property: io.netty.allocator.pinArenasToEventLoops - default false
+     */
+    public static boolean defaultPinArenasToEventLoops() {
+        return DEFAULT_PIN_ARENAS_TO_EVENT_LOOPS;
+    }
+
+    /**
+     * Default use of size classes - System Property: io.netty.allocator.useSizeClasses - default false
+     */
+    public static boolean defaultUseSizeClasses() {
+        return DEFAULT_USE_SIZE_CLASSES;
+    }
+
+    /**
+     * Default delay after which unused chunks are released - System Property:
+     * io.netty.allocator.chunkReleaseDelayMillis - default 0 (disabled)
+     */
+    public static long defaultChunkReleaseDelayMillis() {
+        return DEFAULT_CHUNK_RELEASE_DELAY_MILLIS;
+    }
+
+    /**
+     * Default use of adaptive thread caches - System Property: io.netty.allocator.adaptiveThreadCache - default false
+     */
+    public static boolean defaultAdaptiveThreadCache() {
+        return DEFAULT_ADAPTIVE_THREAD_CACHE;
+    }
+
+    /**
+     * Default interval after which the thread caches are trimmed - System Property:
+     * io.netty.allocator.cacheTrimIntervalMillis - default 0 (disabled)
+     */
+    public static long defaultCacheTrimIntervalMillis() {
+        return DEFAULT_CACHE_TRIM_INTERVAL_MILLIS;
+    }
+
     @Override
     public boolean isDirectBufferPooled() {
         return directArenas != null;
@@ -367,6 +490,83 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
         threadCache.remove();
     }
 
+    /**
+     * Trim the thread local cache of the calling {@link Thread} so the memory of the buffers which were not used
+     * since the last trim can be released. Returns {@code true} if a cache existed for the calling {@link Thread}.
+     */
+    public boolean trimCurrentThreadCache() {
+        if (!threadCache.isSet()) {
+            return false;
+        }
+        threadCache.get().trim();
+        return true;
+    }
+
+    /**
+     * Release the memory of all chunks which are not used at all at the moment. Be aware that buffers which are
+     * kept by the thread local caches are still in use from the point of view of the chunks, see
+     * {@link #trimCurrentThreadCache()}.
+     *
+     * @return the number of bytes that were released
+     */
+    public long releaseUnusedChunks() {
+        return releaseUnusedChunks(0);
+    }
+
+    private long releaseUnusedChunks(long unusedNanos) {
+        return releaseUnusedChunks(heapArenas, unusedNanos) + releaseUnusedChunks(directArenas, unusedNanos);
+    }
+
+    private static long releaseUnusedChunks(PoolArena<?>[] arenas, long unusedNanos) {
+        if (arenas == null) {
+            return 0;
+        }
+        long released = 0;
+        for (PoolArena<?> arena: arenas) {
+            released += arena.releaseUnusedChunks(unusedNanos);
+        }
+        return released;
+    }
+
+    /**
+     * Return the number of milliseconds after which unused chunks are released, or {@code 0} if they are only
+     * released by {@link #releaseUnusedChunks()}.
+     */
+    public long chunkReleaseDelayMillis() {
+        return chunkReleaseDelayMillis;
+    }
+
+    /**
+     * Return {@code true} if the thread caches adapt the number of cached buffers per size class to the allocations
+     * of their thread.
+     */
+    public boolean isAdaptiveThreadCache() {
+        return adaptiveThreadCache;
+    }
+
+    /**
+     * Return the number of milliseconds after which the thread caches are trimmed, or {@code 0} if they are only
+     * trimmed based on the number of allocations. The caches of {@link EventExecutor} threads are trimmed by a task
+     * on their executor, the caches of other threads on their next allocation.
+     */
+    public long cacheTrimIntervalMillis() {
+        return cacheTrimIntervalMillis;
+    }
+
+    private void advanceCacheTrimEpoch() {
+        advanceCacheTrimEpoch(heapArenas);
+        advanceCacheTrimEpoch(directArenas);
+    }
+
+    private static void advanceCacheTrimEpoch(PoolArena<?>[] arenas) {
+        if (arenas == null) {
+            return;
+        }
+        for (PoolArena<?> arena: arenas) {
+            arena.cacheTrimEpoch ++;
+        }
+    }
+
     final class PoolThreadLocalCache extends FastThreadLocal<PoolThreadCache> {
         private final boolean useCacheForAllThreads;
 
@@ -376,13 +576,29 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
 
         @Override
         protected synchronized PoolThreadCache initialValue() {
-            final PoolArena<byte[]> heapArena = leastUsedArena(heapArenas);
-            final PoolArena<ByteBuffer> directArena = leastUsedArena(directArenas);
+            final boolean fastThreadLocalThread = Thread.currentThread() instanceof FastThreadLocalThread;
+            final PoolArena<byte[]> heapArena;
+            final PoolArena<ByteBuffer> directArena;
+            if (pinArenasToEventLoops && fastThreadLocalThread) {
+                heapArena = pinUnusedArena(heapArenas);
+                directArena = pinUnusedArena(directArenas);
+            } else {
+                heapArena = leastUsedArena(heapArenas);
+                directArena = leastUsedArena(directArenas);
+            }
 
-            if (useCacheForAllThreads || Thread.currentThread() instanceof FastThreadLocalThread) {
-                return new PoolThreadCache(
+            if (useCacheForAllThreads || fastThreadLocalThread) {
+                PoolThreadCache cache = new PoolThreadCache(
                         heapArena, directArena, tinyCacheSize, smallCacheSize, normalCacheSize,
-                        DEFAULT_MAX_CACHED_BUFFER_CAPACITY, DEFAULT_CACHE_TRIM_INTERVAL);
+                        DEFAULT_MAX_CACHED_BUFFER_CAPACITY, DEFAULT_CACHE_TRIM_INTERVAL, adaptiveThreadCache);
+                if (cacheTrimIntervalMillis > 0) {
+                    EventExecutor executor = ThreadExecutorMap.currentExecutor();
+                    if (executor != null) {
+                        // Trim the cache on its thread even if the thread stops allocating.
+                        ThreadCacheTrimTask.schedule(cache, executor, cacheTrimIntervalMillis);
+                    }
+                }
+                return cache;
             }
             // No caching for non FastThreadLocalThreads.
             return new PoolThreadCache(heapArena, directArena, 0, 0, 0, 0, 0);
@@ -393,54 +609,211 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
             threadCache.free();
         }
 
+        private <T> PoolArena<T> pinUnusedArena(PoolArena<T>[] arenas) {
+            if (arenas == null || arenas.length == 0) {
+                return null;
+            }
+
+            for (PoolArena<T> arena: arenas) {
+                if (arena.numThreadCaches.get() == 0 && arena.pin()) {
+                    return arena;
+                }
+            }
+
+            // All arenas are in use already, fallback to share one.
+            return leastUsedArena(arenas);
+        }
+
         private <T> PoolArena<T> leastUsedArena(PoolArena<T>[] arenas) {
             if (arenas == null || arenas.length == 0) {
                 return null;
             }
 
-            PoolArena<T> minArena = arenas[0];
-            for (int i = 1; i < arenas.length; i++) {
+            PoolArena<T> minArena = null;
+            for (int i = 0; i < arenas.length; i++) {
                 PoolArena<T> arena = arenas[i];
-                if (arena.numThreadCaches.get() < minArena.numThreadCaches.get()) {
+                if (minArena == null || compareUsage(arena, minArena) < 0) {
                     minArena = arena;
                 }
             }
 
             return minArena;
         }
+
+        // Prefer arenas that are not pinned to an event loop, as sharing a pinned arena brings back the lock
+        // contention that pinning is meant to remove.
+        private int compareUsage(PoolArena<?> a, PoolArena<?> b) {
+            if (pinArenasToEventLoops && a.isPinned() != b.isPinned()) {
+                return a.isPinned() ? 1 : -1;
+            }
+            return a.numThreadCaches.get() - b.numThreadCaches.get();
+        }
+    }
+
+    /**
+     * Task which is periodically run for a {@link PooledByteBufAllocator} on a shared background thread. Only holds
+     * a weak reference to the allocator, so it does not prevent it from being garbage collected.
+     */
+    private abstract static class AllocatorTask implements Runnable {
+        private static final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+                new DefaultThreadFactory("pooledByteBufAllocatorTasks", true, Thread.MIN_PRIORITY, null));
+
+        private final WeakReference<PooledByteBufAllocator> allocator;
+        private volatile ScheduledFuture<?> future;
+
+        AllocatorTask(PooledByteBufAllocator allocator) {
+            this.allocator = new WeakReference<PooledByteBufAllocator>(allocator);
+        }
+
+        final void schedule(long periodNanos) {
+            future = executor.scheduleWithFixedDelay(this, periodNanos, periodNanos, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public final void run() {
+            PooledByteBufAllocator allocator = this.allocator.get();
+            if (allocator == null) {
+                ScheduledFuture<?> future = this.future;
+                if (future != null) {
+                    future.cancel(false);
+                }
+                return;
+            }
+            run(allocator);
+        }
+
+        protected abstract void run(PooledByteBufAllocator allocator);
+    }
+
+    /**
+     * Periodically releases the chunks of a {@link PooledByteBufAllocator} which are unused for at least the
+     * configured delay.
+     */
+    private static final class ChunkReleaseTask extends AllocatorTask {
+        private final long delayNanos;
+
+        private ChunkReleaseTask(PooledByteBufAllocator allocator, long delayNanos) {
+            super(allocator);
+            this.delayNanos = delayNanos;
+        }
+
+        static void schedule(PooledByteBufAllocator allocator, long delayMillis) {
+            long delayNanos = TimeUnit.MILLISECONDS.toNanos(delayMillis);
+            // Check twice per delay so a chunk is released at most 1.5 times the delay after it became unused.
+            new ChunkReleaseTask(allocator, delayNanos).schedule(Math.max(1, delayNanos / 2));
+        }
+
+        @Override
+        protected void run(PooledByteBufAllocator allocator) {
+            try {
+                long released = allocator.releaseUnusedChunks(delayNanos);
+                if (released > 0 && logger.isDebugEnabled()) {
+                    logger.debug("Released {} bytes of unused chunks", released);
+                }
+            } catch (Throwable t) {
+                logger.warn("Failed to release unused chunks", t);
+            }
+        }
+    }
+
+    /**
+     * Periodically asks the thread caches of a {@link PooledByteBufAllocator} to trim themselves. The caches can only
+     * be trimmed by the thread that owns them, so this only advances an epoch which is checked by the caches on
+     * their next allocation.
+     */
+    private static final class CacheTrimTask extends AllocatorTask {
+        private CacheTrimTask(PooledByteBufAllocator allocator) {
+            super(allocator);
+        }
+
+        static void schedule(PooledByteBufAllocator allocator, long intervalMillis) {
+            new CacheTrimTask(allocator).schedule(TimeUnit.MILLISECONDS.toNanos(intervalMillis));
+        }
+
+        @Override
+        protected void run(PooledByteBufAllocator allocator) {
+            allocator.advanceCacheTrimEpoch();
+        }
+    }
+
+    /**
+     * Trims the cache of a thread that belongs to an {@link EventExecutor} periodically on that thread. Threads which
+     * do not belong to an {@link EventExecutor} only trim their caches on their next allocation after the trim interval
+     * elapsed, see {@link CacheTrimTask}.
+     */
+    private static final class ThreadCacheTrimTask implements Runnable {
+        private final PoolThreadCache cache;
+        private ScheduledFuture<?> future;
+
+        private ThreadCacheTrimTask(PoolThreadCache cache) {
+            this.cache = cache;
+        }
+
+        static void schedule(PoolThreadCache cache, EventExecutor executor, long intervalMillis) {
+            ThreadCacheTrimTask task = new ThreadCacheTrimTask(cache);
+            // Called from the executor thread, so the task can not run before future is set.
+            task.future = executor.scheduleAtFixedRate(task, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public void run() {
+            if (!cache.trimIdle()) {
+                future.cancel(false);
+            }
+        }
+    }
+
+    @Override
+    public PooledByteBufAllocatorMetric metric() {
+        return metric;
     }
 
     /**
      * Return the number of heap arenas.
+     *
+     * @deprecated use {@link PooledByteBufAllocatorMetric#numHeapArenas()}.
      */
+    @Deprecated
     public int numHeapArenas() {
         return heapArenaMetrics.size();
     }
 
     /**
      * Return the number of direct arenas.
+     *
+     * @deprecated use {@link PooledByteBufAllocatorMetric#numDirectArenas()}.
      */
+    @Deprecated
     public int numDirectArenas() {
         return directArenaMetrics.size();
     }
 
     /**
      * Return a {@link List} of all heap {@link PoolArenaMetric}s that are provided by this pool.
+     *
+     * @deprecated use {@link PooledByteBufAllocatorMetric#heapArenas()}.
      */
+    @Deprecated
     public List<PoolArenaMetric> heapArenas() {
         return heapArenaMetrics;
     }
 
     /**
      * Return a {@link List} of all direct {@link PoolArenaMetric}s that are provided by this pool.
+     *
+     * @deprecated use {@link PooledByteBufAllocatorMetric#directArenas()}.
      */
+    @Deprecated
     public List<PoolArenaMetric> directArenas() {
         return directArenaMetrics;
     }
 
     /**
      * Return the number of thread local caches used by this {@link PooledByteBufAllocator}.
+     *
+     * @deprecated use {@link PooledByteBufAllocatorMetric#numThreadLocalCaches()}.
      */
+    @Deprecated
     public int numThreadLocalCaches() {
         PoolArena<?>[] arenas = heapArenas != null ? heapArenas : directArenas;
         if (arenas == null) {
@@ -455,23 +828,46 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
         return total;
     }
 
+    /**
+     * Return {@code true} if arenas are pinned to {@link FastThreadLocalThread}s.
+     */
+    public boolean isPinArenasToEventLoops() {
+        return pinArenasToEventLoops;
+    }
+
+    /**
+     * Return {@code true} if allocations are rounded up to size classes instead of powers of two.
+     */
+    public boolean isUseSizeClasses() {
+        return useSizeClasses;
+    }
+
     /**
      * Return the size of the tiny cache.
+     *
+     * @deprecated use {@link PooledByteBufAllocatorMetric#tinyCacheSize()}.
      */
+    @Deprecated
     public int tinyCacheSize() {
         return tinyCacheSize;
     }
 
     /**
      * Return the size of the small cache.
+     *
+     * @deprecated use {@link PooledByteBufAllocatorMetric#smallCacheSize()}.
      */
+    @Deprecated
     public int smallCacheSize() {
         return smallCacheSize;
     }
 
     /**
      * Return the size of the normal cache.
+     *
+     * @deprecated use {@link PooledByteBufAllocatorMetric#normalCacheSize()}.
      */
+    @Deprecated
     public int normalCacheSize() {
         return normalCacheSize;
     }
@@ -0,0 +1,258 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.buffer;
+
+import io.netty.util.internal.StringUtil;
+
+import java.util.List;
+
+/**
+ * Exposed metric for {@link PooledByteBufAllocator}. All values are read from counters which are updated when
+ * buffers are allocated and released, so no lock of any arena needs to be acquired.
+ */
+@SuppressWarnings("deprecation")
+public final class PooledByteBufAllocatorMetric implements ByteBufAllocatorMetric {
+
+    private final PooledByteBufAllocator allocator;
+
+    PooledByteBufAllocatorMetric(PooledByteBufAllocator allocator) {
+        this.allocator = allocator;
+    }
+
+    /**
+     * Return the number of heap arenas.
+     */
+    public int numHeapArenas() {
+        return allocator.numHeapArenas();
+    }
+
+    /**
+     * Return the number of direct arenas.
+     */
+    public int numDirectArenas() {
+        return allocator.numDirectArenas();
+    }
+
+    /**
+     * Return a {@link List} of all heap {@link PoolArenaMetric}s that are provided by this pool.
+     */
+    public List<PoolArenaMetric> heapArenas() {
+        return allocator.heapArenas();
+    }
+
+    /**
+     * Return a {@link List} of all direct {@link PoolArenaMetric}s that are provided by this pool.
+     */
+    public List<PoolArenaMetric> directArenas() {
+        return allocator.directArenas();
+    }
+
+    /**
+     * Return the number of thread local caches used by this {@link PooledByteBufAllocator}.
+     */
+    public int numThreadLocalCaches() {
+        return allocator.numThreadLocalCaches();
+    }
+
+    /**
+     * Return the size of the tiny cache.
+     */
+    public int tinyCacheSize() {
+        return allocator.tinyCacheSize();
+    }
+
+    /**
+     * Return the size of the small cache.
+     */
+    public int smallCacheSize() {
+        return allocator.smallCacheSize();
+    }
+
+    /**
+     * Return the size of the normal cache.
+     */
+    public int normalCacheSize() {
+        return allocator.normalCacheSize();
+    }
+
+    /**
+     * Return the chunk size for an arena.
+     */
+    public int chunkSize() {
+        return allocator.chunkSize;
+    }
+
+    /**
+     * Return the number of pooled chunks which are currently allocated by all heap arenas.
+     */
+    public long numHeapChunks() {
+        return numPooledChunks(allocator.heapArenas());
+    }
+
+    /**
+     * Return the number of pooled chunks which are currently allocated by all direct arenas.
+     */
+    public long numDirectChunks() {
+        return numPooledChunks(allocator.directArenas());
+    }
+
+    /**
+     * Return the number of allocations which were served by a thread local cache.
+     */
+    public long numThreadCacheHits() {
+        return numThreadCacheHits(allocator.heapArenas()) + numThreadCacheHits(allocator.directArenas());
+    }
+
+    /**
+     * Return the number of allocations which could not be served by a thread local cache, even though a cache
+     * exists for the requested size.
+     */
+    public long numThreadCacheMisses() {
+        return numThreadCacheMisses(allocator.heapArenas()) + numThreadCacheMisses(allocator.directArenas());
+    }
+
+    /**
+     * Return the number of times a thread local cache of a size class was allowed to hold more buffers because it
+     * ran empty. Only adaptive thread caches grow, see {@link PooledByteBufAllocator#isAdaptiveThreadCache()}.
+     */
+    public long numThreadCacheGrows() {
+        return numThreadCacheGrows(allocator.heapArenas()) + numThreadCacheGrows(allocator.directArenas());
+    }
+
+    /**
+     * Return the number of times a thread local cache of a size class was made smaller because it was not used
+     * since it was trimmed the last time. Only adaptive thread caches shrink, see
+     * {@link PooledByteBufAllocator#isAdaptiveThreadCache()}.
+     */
+    public long numThreadCacheShrinks() {
+        return numThreadCacheShrinks(allocator.heapArenas()) + numThreadCacheShrinks(allocator.directArenas());
+    }
+
+    /**
+     * Return the number of times a thread local cache was trimmed because the trim interval elapsed, see
+     * {@link PooledByteBufAllocator#cacheTrimIntervalMillis()}.
+     */
+    public long numThreadCacheIdleTrims() {
+        return numThreadCacheIdleTrims(allocator.heapArenas()) + numThreadCacheIdleTrims(allocator.directArenas());
+    }
+
+    /**
+     * Return the number of cached buffers which were given back to the arenas when the thread local caches were
+     * trimmed.
+     */
+    public long numThreadCacheTrimmedBuffers() {
+        return numThreadCacheTrimmedBuffers(allocator.heapArenas()) +
+                numThreadCacheTrimmedBuffers(allocator.directArenas());
+    }
+
+    @Override
+    public long usedHeapMemory() {
+        return usedMemory(allocator.heapArenas());
+    }
+
+    @Override
+    public long usedDirectMemory() {
+        return usedMemory(allocator.directArenas());
+    }
+
+    private static long usedMemory(List<PoolArenaMetric> arenas) {
+        long used = 0;
+        for (int i = 0; i < arenas.size(); i++) {
+            used += arenas.get(i).numActiveBytes();
+        }
+        return used;
+    }
+
+    private static long numPooledChunks(List<PoolArenaMetric> arenas) {
+        long chunks = 0;
+        for (int i = 0; i < arenas.size(); i++) {
+            chunks += ((PoolArena<?>) arenas.get(i)).numPooledChunks();
+        }
+        return chunks;
+    }
+
+    private static long numThreadCacheHits(List<PoolArenaMetric> arenas) {
+        long hits = 0;
+        for (int i = 0; i < arenas.size(); i++) {
+            hits += ((PoolArena<?>) arenas.get(i)).threadCacheHits.value();
+        }
+        return hits;
+    }
+
+    private static long numThreadCacheMisses(List<PoolArenaMetric> arenas) {
+        long misses = 0;
+        for (int i = 0; i < arenas.size(); i++) {
+            misses += ((PoolArena<?>) arenas.get(i)).threadCacheMisses.value();
+        }
+        return misses;
+    }
+
+    private static long numThreadCacheGrows(List<PoolArenaMetric> arenas) {
+        long grows = 0;
+        for (int i = 0; i < arenas.size(); i++) {
+            grows += ((PoolArena<?>) arenas.get(i)).threadCacheGrows.value();
+        }
+        return grows;
+    }
+
+    private static long numThreadCacheShrinks(List<PoolArenaMetric> arenas) {
+        long shrinks = 0;
+        for (int i = 0; i < arenas.size(); i++) {
+            shrinks += ((PoolArena<?>) arenas.get(i)).threadCacheShrinks.value();
+        }
+        return shrinks;
+    }
+
+    private static long numThreadCacheIdleTrims(List<PoolArenaMetric> arenas) {
+        long trims = 0;
+        for (int i = 0; i < arenas.size(); i++) {
+            trims += ((PoolArena<?>) arenas.get(i)).threadCacheIdleTrims.value();
+        }
+        return trims;
+    }
+
+    private static long numThreadCacheTrimmedBuffers(List<PoolArenaMetric> arenas) {
+        long buffers = 0;
+        for (int i = 0; i < arenas.size(); i++) {
+            buffers += ((PoolArena<?>) arenas.get(i)).threadCacheTrimmedBuffers.value();
+        }
+        return buffers;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(256);
+        sb.append(StringUtil.simpleClassName(this))
+                .append("(usedHeapMemory: ").append(usedHeapMemory())
+                .append("; usedDirectMemory: ").append(usedDirectMemory())
+                .append("; numHeapArenas: ").append(numHeapArenas())
+                .append("; numDirectArenas: ").append(numDirectArenas())
+                .append("; numHeapChunks: ").append(numHeapChunks())
+                .append("; numDirectChunks: ").append(numDirectChunks())
+                .append("; numThreadLocalCaches: ").append(numThreadLocalCaches())
+                .append("; numThreadCacheHits: ").append(numThreadCacheHits())
+                .append("; numThreadCacheMisses: ").append(numThreadCacheMisses())
+                .append("; numThreadCacheGrows: ").append(numThreadCacheGrows())
+                .append("; numThreadCacheShrinks: ").append(numThreadCacheShrinks())
+                .append("; numThreadCacheIdleTrims: ").append(numThreadCacheIdleTrims())
+                .append("; numThreadCacheTrimmedBuffers: ").append(numThreadCacheTrimmedBuffers())
+                .append("; tinyCacheSize: ").append(tinyCacheSize())
+                .append("; smallCacheSize: ").append(smallCacheSize())
+                .append("; normalCacheSize: ").append(normalCacheSize())
+                .append("; chunkSize: ").append(chunkSize()).append(')');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.buffer;
+
+import io.netty.util.concurrent.FastThreadLocalThread;
+import io.netty.util.internal.StringUtil;
+import io.netty.util.internal.UnstableApi;
+
+/**
+ * Optional settings of a {@link PooledByteBufAllocator} that are not part of its constructors.
+ * A new instance starts with the defaults that are configured via system properties.
+ */
+@UnstableApi
+public final class PooledByteBufAllocatorOptions {
+
+    private boolean pinArenasToEventLoops = PooledByteBufAllocator.defaultPinArenasToEventLoops();
+    private boolean useSizeClasses = PooledByteBufAllocator.defaultUseSizeClasses();
+    private long chunkReleaseDelayMillis = PooledByteBufAllocator.defaultChunkReleaseDelayMillis();
+    private boolean adaptiveThreadCache = PooledByteBufAllocator.defaultAdaptiveThreadCache();
+    private long cacheTrimIntervalMillis = PooledByteBufAllocator.defaultCacheTrimIntervalMillis();
+
+    public boolean pinArenasToEventLoops() {
+        return pinArenasToEventLoops;
+    }
+
+    /**
+     * {@code true} if every {@link FastThreadLocalThread} (which is what the {@code EventLoop}s use) should be
+     * given an arena of its own as long as there are unused arenas left. Buffers that are released by other threads
+     * are handed back to the owning thread via a lock-free queue, so the owner is the only thread that ever needs to
+     * acquire the arena locks.
+     */
+    public PooledByteBufAllocatorOptions pinArenasToEventLoops(boolean pinArenasToEventLoops) {
+        this.pinArenasToEventLoops = pinArenasToEventLoops;
+        return this;
+    }
+
+    public boolean useSizeClasses() {
+        return useSizeClasses;
+    }
+
+    /**
+     * {@code true} if allocations of at least 512 bytes should be rounded up to one of four size classes per power
+     * of two instead of the next power of two, which reduces the memory wasted by internal fragmentation. Requires a
+     * {@code maxOrder} of at least {@code 3}.
+     */
+    public PooledByteBufAllocatorOptions useSizeClasses(boolean useSizeClasses) {
+        this.useSizeClasses = useSizeClasses;
+        return this;
+    }
+
+    public long chunkReleaseDelayMillis() {
+        return chunkReleaseDelayMillis;
+    }
+
+    /**
+     * The number of milliseconds after which a chunk that is not used at all is released by a background task, or
+     * {@code 0} to keep unused chunks until {@link PooledByteBufAllocator#releaseUnusedChunks()} is called.
+     */
+    public PooledByteBufAllocatorOptions chunkReleaseDelayMillis(long chunkReleaseDelayMillis) {
+        if (chunkReleaseDelayMillis < 0) {
+            throw new IllegalArgumentException(
+                    "chunkReleaseDelayMillis: " + chunkReleaseDelayMillis + " (expected: >= 0)");
+        }
+        this.chunkReleaseDelayMillis = chunkReleaseDelayMillis;
+        return this;
+    }
+
+    public boolean adaptiveThreadCache() {
+        return adaptiveThreadCache;
+    }
+
+    /**
+     * {@code true} if the thread caches should adapt the number of buffers they keep per size class to the
+     * allocations of their thread. Caches of sizes that could not be served from the cache are allowed to grow up
+     * to four times the configured cache size, while caches of sizes that are not used anymore shrink.
+     */
+    public PooledByteBufAllocatorOptions adaptiveThreadCache(boolean adaptiveThreadCache) {
+        this.adaptiveThreadCache = adaptiveThreadCache;
+        return this;
+    }
+
+    public long cacheTrimIntervalMillis() {
+        return cacheTrimIntervalMillis;
+    }
+
+    /**
+     * The number of milliseconds after which the thread caches are trimmed, even if less than
+     * {@code cacheTrimInterval} allocations were made, or {@code 0} to only trim them based on the number of
+     * allocations.
+     */
+    public PooledByteBufAllocatorOptions cacheTrimIntervalMillis(long cacheTrimIntervalMillis) {
+        if (cacheTrimIntervalMillis < 0) {
+            throw new IllegalArgumentException(
+                    "cacheTrimIntervalMillis: " + cacheTrimIntervalMillis + " (expected: >= 0)");
+        }
+        this.cacheTrimIntervalMillis = cacheTrimIntervalMillis;
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return StringUtil.simpleClassName(this) +
+                "(pinArenasToEventLoops: " + pinArenasToEventLoops +
+                ", useSizeClasses: " + useSizeClasses +
+                ", chunkReleaseDelayMillis: " + chunkReleaseDelayMillis +
+                ", adaptiveThreadCache: " + adaptiveThreadCache +
+                ", cacheTrimIntervalMillis: " + cacheTrimIntervalMillis + ')';
+    }
+}
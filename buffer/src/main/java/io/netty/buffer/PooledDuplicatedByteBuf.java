@@ -30,12 +30,13 @@ import java.nio.channels.ScatteringByteChannel;
 
 final class PooledDuplicatedByteBuf extends AbstractPooledDerivedByteBuf {
 
-    private static final Recycler<PooledDuplicatedByteBuf> RECYCLER = new Recycler<PooledDuplicatedByteBuf>() {
-        @Override
-        protected PooledDuplicatedByteBuf newObject(Handle<PooledDuplicatedByteBuf> handle) {
-            return new PooledDuplicatedByteBuf(handle);
-        }
-    };
+    private static final Recycler<PooledDuplicatedByteBuf> RECYCLER =
+            new Recycler<PooledDuplicatedByteBuf>("pooledDerivedByteBuf") {
+                @Override
+                protected PooledDuplicatedByteBuf newObject(Handle<PooledDuplicatedByteBuf> handle) {
+                    return new PooledDuplicatedByteBuf(handle);
+                }
+            };
 
     static PooledDuplicatedByteBuf newInstance(AbstractByteBuf unwrapped, ByteBuf wrapped,
                                                int readerIndex, int writerIndex) {
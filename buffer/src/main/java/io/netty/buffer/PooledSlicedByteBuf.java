@@ -32,12 +32,13 @@ import static io.netty.buffer.AbstractUnpooledSlicedByteBuf.checkSliceOutOfBound
 
 final class PooledSlicedByteBuf extends AbstractPooledDerivedByteBuf {
 
-    private static final Recycler<PooledSlicedByteBuf> RECYCLER = new Recycler<PooledSlicedByteBuf>() {
-        @Override
-        protected PooledSlicedByteBuf newObject(Handle<PooledSlicedByteBuf> handle) {
-            return new PooledSlicedByteBuf(handle);
-        }
-    };
+    private static final Recycler<PooledSlicedByteBuf> RECYCLER =
+            new Recycler<PooledSlicedByteBuf>("pooledDerivedByteBuf") {
+                @Override
+                protected PooledSlicedByteBuf newObject(Handle<PooledSlicedByteBuf> handle) {
+                    return new PooledSlicedByteBuf(handle);
+                }
+            };
 
     static PooledSlicedByteBuf newInstance(AbstractByteBuf unwrapped, ByteBuf wrapped,
                                            int index, int length) {
@@ -21,12 +21,13 @@ import io.netty.util.internal.PlatformDependent;
 
 final class PooledUnsafeHeapByteBuf extends PooledHeapByteBuf {
 
-    private static final Recycler<PooledUnsafeHeapByteBuf> RECYCLER = new Recycler<PooledUnsafeHeapByteBuf>() {
-        @Override
-        protected PooledUnsafeHeapByteBuf newObject(Handle<PooledUnsafeHeapByteBuf> handle) {
-            return new PooledUnsafeHeapByteBuf(handle, 0);
-        }
-    };
+    private static final Recycler<PooledUnsafeHeapByteBuf> RECYCLER =
+            new Recycler<PooledUnsafeHeapByteBuf>("pooledByteBuf") {
+                @Override
+                protected PooledUnsafeHeapByteBuf newObject(Handle<PooledUnsafeHeapByteBuf> handle) {
+                    return new PooledUnsafeHeapByteBuf(handle, 0);
+                }
+            };
 
     static PooledUnsafeHeapByteBuf newUnsafeInstance(int maxCapacity) {
         PooledUnsafeHeapByteBuf buf = RECYCLER.get();
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.buffer;
+
+/**
+ * Size class table modeled after jemalloc 4 which is used by a {@link PoolArena} as an alternative to rounding every
+ * allocation of at least 512 bytes up to the next power of two.
+ *
+ * Every doubling is split into {@code 4} size classes, which limits the internal fragmentation to at most 20%
+ * (for example a 9KiB request is served from the 10KiB size class instead of a 16KiB run):
+ *
+ * <pre>
+ *   512, 640, 768, 896, 1KiB, 1.25KiB, 1.5KiB, 1.75KiB, 2KiB, ... , pageSize * 4, pageSize * 5, ... , chunkSize
+ * </pre>
+ *
+ * Size classes smaller than {@code pageSize * 4} ("small") are served from subpages. Each subpage spans the smallest
+ * run of pages that can be divided evenly by the element size, so no memory is wasted at the end of the run.
+ * All bigger size classes ("normal") are a multiple of {@code pageSize} and so are served directly from a run of
+ * pages. Allocations below 512 bytes keep using the 16 byte quantum spaced tiny subpages.
+ */
+final class SizeClasses {
+
+    private static final int LOG2_QUANTUM = 4;
+    private static final int LOG2_SIZE_CLASS_GROUP = 2;
+    private static final int SIZE_CLASS_GROUP = 1 << LOG2_SIZE_CLASS_GROUP;
+    // The first group is quantum spaced and so does not follow the log2 spacing of the other groups.
+    private static final int LOG2_FIRST_GROUP_END = LOG2_QUANTUM + LOG2_SIZE_CLASS_GROUP;
+
+    static final int MIN_SMALL_SIZE = 512;
+    // A subpage run spans at most 7 pages, so the chunk must hold at least 8 pages.
+    static final int MIN_MAX_ORDER = 3;
+    private static final int MIN_SMALL_SIZE_IDX = sizeIdx0(MIN_SMALL_SIZE);
+
+    private final int pageShifts;
+    private final int chunkSize;
+    private final int minNormalSize;
+    private final int minNormalSizeIdx;
+    private final int[] smallRunPages;
+
+    SizeClasses(int pageSize, int pageShifts, int chunkSize) {
+        this.pageShifts = pageShifts;
+        this.chunkSize = chunkSize;
+        minNormalSize = pageSize << LOG2_SIZE_CLASS_GROUP;
+        assert minNormalSize <= chunkSize;
+        minNormalSizeIdx = sizeIdx0(minNormalSize);
+
+        smallRunPages = new int[minNormalSizeIdx - MIN_SMALL_SIZE_IDX];
+        for (int i = 0; i < smallRunPages.length; i ++) {
+            int elemSize = sizeOf0(MIN_SMALL_SIZE_IDX + i);
+            // pageSize is a power of two so the gcd is determined by the lowest set bit of the element size.
+            int gcd = Math.min(pageSize, Integer.lowestOneBit(elemSize));
+            smallRunPages[i] = elemSize / gcd;
+        }
+    }
+
+    /**
+     * Returns the size class of the given capacity, which must be at least {@link #MIN_SMALL_SIZE} and smaller than
+     * {@code chunkSize}.
+     */
+    int normalize(int reqCapacity) {
+        assert reqCapacity <= chunkSize;
+        int normCapacity = sizeOf0(sizeIdx0(reqCapacity));
+        return normCapacity < MIN_SMALL_SIZE ? MIN_SMALL_SIZE : normCapacity;
+    }
+
+    /**
+     * Returns {@code true} if the given size class is served from subpages.
+     */
+    boolean isSmall(int normCapacity) {
+        return normCapacity < minNormalSize;
+    }
+
+    int numSmallSizeClasses() {
+        return smallRunPages.length;
+    }
+
+    /**
+     * Index of the given small size class, starting from {@code 0} for {@link #MIN_SMALL_SIZE}.
+     */
+    int smallIdx(int normCapacity) {
+        return sizeIdx0(normCapacity) - MIN_SMALL_SIZE_IDX;
+    }
+
+    /**
+     * Index of the given normal size class, starting from {@code 0} for the first size class that is not small.
+     */
+    int normalIdx(int normCapacity) {
+        return sizeIdx0(normCapacity) - minNormalSizeIdx;
+    }
+
+    /**
+     * Returns the number of normal size classes which are not bigger than the given capacity.
+     */
+    int numNormalSizeClasses(int maxCapacity) {
+        if (maxCapacity < minNormalSize) {
+            return 0;
+        }
+        int idx = sizeIdx0(maxCapacity);
+        if (sizeOf0(idx) > maxCapacity) {
+            idx --;
+        }
+        return idx - minNormalSizeIdx + 1;
+    }
+
+    /**
+     * Returns the number of pages of the run that backs a subpage of the given small size class.
+     */
+    int runPages(int normCapacity) {
+        return smallRunPages[smallIdx(normCapacity)];
+    }
+
+    /**
+     * Returns the number of pages needed for the given normal size class.
+     */
+    int normalPages(int normCapacity) {
+        assert !isSmall(normCapacity);
+        return normCapacity >>> pageShifts;
+    }
+
+    /**
+     * Returns the index of the smallest size class that is not smaller than {@code size}.
+     */
+    static int sizeIdx0(int size) {
+        if (size <= 1 << LOG2_FIRST_GROUP_END) {
+            return size == 0 ? 0 : size - 1 >>> LOG2_QUANTUM;
+        }
+        // log2 of the power of two that is not smaller than size.
+        int log2Size = Integer.SIZE - Integer.numberOfLeadingZeros(size - 1);
+        int log2Delta = log2Size - 1 - LOG2_SIZE_CLASS_GROUP;
+        int group = log2Size - 1 - LOG2_FIRST_GROUP_END;
+        int mod = (size - (1 << log2Size - 1) - 1) >>> log2Delta;
+        return SIZE_CLASS_GROUP + (group << LOG2_SIZE_CLASS_GROUP) + mod;
+    }
+
+    /**
+     * Returns the size of the size class with the given index.
+     */
+    static int sizeOf0(int sizeIdx) {
+        if (sizeIdx < SIZE_CLASS_GROUP) {
+            return sizeIdx + 1 << LOG2_QUANTUM;
+        }
+        int group = sizeIdx - SIZE_CLASS_GROUP >>> LOG2_SIZE_CLASS_GROUP;
+        int mod = sizeIdx - SIZE_CLASS_GROUP & SIZE_CLASS_GROUP - 1;
+        int log2Base = LOG2_FIRST_GROUP_END + group;
+        return (1 << log2Base) + (mod + 1 << log2Base - LOG2_SIZE_CLASS_GROUP);
+    }
+}
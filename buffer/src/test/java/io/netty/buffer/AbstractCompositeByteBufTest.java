@@ -962,6 +962,98 @@ public abstract class AbstractCompositeByteBufTest extends AbstractByteBufTest {
         cbuf.release();
     }
 
+    @Test
+    public void testDiscardReadComponentsWithManyComponents() {
+        CompositeByteBuf cbuf = compositeBuffer(Integer.MAX_VALUE);
+        List<ByteBuf> added = new ArrayList<ByteBuf>();
+        int expected = 0;
+        for (int i = 0; i < 1000; i ++) {
+            ByteBuf buf = buffer(2).writeShort(i);
+            added.add(buf);
+            cbuf.addComponent(true, buf);
+            if (i % 10 == 9) {
+                for (int j = 0; j < 7; j ++) {
+                    assertEquals(expected ++, cbuf.readShort());
+                }
+                cbuf.discardReadComponents();
+                assertEquals(0, cbuf.readerIndex());
+                assertEquals(0, cbuf.toByteIndex(0));
+            }
+        }
+        assertEquals(300, cbuf.numComponents());
+        assertEquals(600, cbuf.capacity());
+        for (int i = 0; i < 300; i ++) {
+            assertEquals(i * 2, cbuf.toByteIndex(i));
+            assertEquals(i, cbuf.toComponentIndex(i * 2 + 1));
+        }
+        // Random access must not depend on the position of the last access.
+        for (int i = 299; i >= 0; i -= 7) {
+            assertEquals(expected + i, cbuf.getShort(i * 2));
+        }
+        for (int i = 0; i < 300; i ++) {
+            assertEquals(expected ++, cbuf.readShort());
+        }
+        for (int i = 0; i < added.size(); i ++) {
+            assertEquals(i < 700 ? 0 : 1, added.get(i).refCnt());
+        }
+        cbuf.release();
+    }
+
+    @Test
+    public void testDiscardReadBytesWithManyComponents() {
+        CompositeByteBuf cbuf = compositeBuffer(Integer.MAX_VALUE);
+        for (int i = 0; i < 100; i ++) {
+            cbuf.addComponent(true, buffer(4).writeInt(i));
+        }
+        cbuf.readerIndex(4 * 50 + 1);
+        cbuf.discardReadBytes();
+        assertEquals(0, cbuf.readerIndex());
+        assertEquals(4 * 50 - 1, cbuf.writerIndex());
+        assertEquals(50, cbuf.numComponents());
+        assertEquals(3, cbuf.internalComponent(0).capacity());
+        assertEquals(3, cbuf.toByteIndex(1));
+        assertEquals(50, cbuf.getUnsignedMedium(0));
+        for (int i = 51; i < 100; i ++) {
+            assertEquals(i, cbuf.getInt(cbuf.toByteIndex(i - 50)));
+        }
+        cbuf.release();
+    }
+
+    @Test
+    public void testRemoveAndConsolidateComponentsInMiddle() {
+        CompositeByteBuf cbuf = compositeBuffer(Integer.MAX_VALUE);
+        for (int i = 0; i < 6; i ++) {
+            cbuf.addComponent(true, buffer(2).writeShort(i));
+        }
+        cbuf.removeComponent(2);
+        cbuf.writerIndex(10);
+        assertEquals(5, cbuf.numComponents());
+        assertEquals(10, cbuf.capacity());
+        assertEquals(4, cbuf.toByteIndex(2));
+        assertEquals(3, cbuf.getShort(4));
+
+        cbuf.consolidate(1, 3);
+        assertEquals(3, cbuf.numComponents());
+        assertEquals(2, cbuf.toByteIndex(1));
+        assertEquals(8, cbuf.toByteIndex(2));
+        assertEquals(6, cbuf.internalComponent(1).capacity());
+        assertEquals(4, cbuf.getShort(6));
+        assertEquals(5, cbuf.getShort(8));
+
+        cbuf.addComponent(1, buffer(1).writeByte(42));
+        cbuf.writerIndex(11);
+        assertEquals(42, cbuf.getByte(2));
+        assertEquals(3, cbuf.toByteIndex(2));
+        assertEquals(5, cbuf.getShort(9));
+
+        cbuf.removeComponents(1, 2);
+        assertEquals(2, cbuf.numComponents());
+        assertEquals(4, cbuf.capacity());
+        assertEquals(0, cbuf.getShort(0));
+        assertEquals(5, cbuf.getShort(2));
+        cbuf.release();
+    }
+
     @Test
     public void testAddEmptyBufferRelease() {
         CompositeByteBuf cbuf = compositeBuffer();
@@ -16,6 +16,7 @@
 package io.netty.buffer;
 
 import io.netty.util.AsciiString;
+import io.netty.util.ByteProcessor;
 import io.netty.util.CharsetUtil;
 import org.junit.Test;
 
@@ -95,6 +96,58 @@ public class ByteBufUtilTest {
                 -1));
     }
 
+    @Test
+    public void testIndexOf() {
+        byte[] bytes = new byte[67];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) (0x80 | i);
+        }
+        ByteBuf[] buffers = {
+                Unpooled.wrappedBuffer(bytes),
+                Unpooled.directBuffer(bytes.length).writeBytes(bytes),
+                Unpooled.wrappedBuffer(Unpooled.wrappedBuffer(bytes, 0, 30), Unpooled.wrappedBuffer(bytes, 30, 37))
+        };
+        for (ByteBuf buffer : buffers) {
+            for (int i = 0; i < bytes.length; i++) {
+                byte value = bytes[i];
+                for (int from = 0; from <= i; from++) {
+                    assertEquals(i, ByteBufUtil.indexOf(buffer, from, bytes.length, value));
+                }
+                assertEquals(-1, ByteBufUtil.indexOf(buffer, i + 1, bytes.length, value));
+                assertEquals(-1, ByteBufUtil.indexOf(buffer, 0, i, value));
+            }
+            // Bytes which only differ in the highest bit must not match.
+            assertEquals(-1, ByteBufUtil.indexOf(buffer, 0, bytes.length, (byte) 0x01));
+            buffer.release();
+        }
+    }
+
+    @Test
+    public void testIndexOfRepeatedValue() {
+        ByteBuf buffer = Unpooled.buffer(64);
+        buffer.writeZero(40);
+        buffer.writeByte('\n');
+        buffer.writeByte('\n');
+        buffer.writeZero(22);
+        assertEquals(40, buffer.indexOf(0, 64, (byte) '\n'));
+        assertEquals(40, buffer.forEachByte(ByteProcessor.FIND_LF));
+        assertEquals(41, buffer.forEachByte(41, 23, ByteProcessor.FIND_LF));
+        assertEquals(-1, buffer.forEachByte(42, 22, ByteProcessor.FIND_LF));
+        assertEquals(0, buffer.forEachByte(ByteProcessor.FIND_NUL));
+        assertEquals(42, buffer.forEachByte(41, 23, ByteProcessor.FIND_NUL));
+        buffer.release();
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testIndexOfOutOfBounds() {
+        ByteBuf buffer = Unpooled.buffer(32).writeZero(32);
+        try {
+            ByteBufUtil.indexOf(buffer, 0, 33, (byte) 1);
+        } finally {
+            buffer.release();
+        }
+    }
+
     @Test
     public void testWriteUsAscii() {
         String usAscii = "NettyRocks";
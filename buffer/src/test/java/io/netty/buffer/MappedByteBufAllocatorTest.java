@@ -0,0 +1,121 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.buffer;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MappedByteBufAllocatorTest {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    @Test
+    public void testSmallBuffersShareChunk() {
+        MappedByteBufAllocator allocator = new MappedByteBufAllocator(null, CHUNK_SIZE);
+        ByteBufAllocatorMetric metric = allocator.metric();
+        assertEquals(0, metric.usedDirectMemory());
+
+        ByteBuf first = allocator.directBuffer(1000);
+        ByteBuf second = allocator.directBuffer(1000);
+        assertTrue(first.isDirect());
+        assertEquals(CHUNK_SIZE, metric.usedDirectMemory());
+
+        first.writeLong(1).writeLong(2);
+        second.writeLong(3);
+        assertEquals(1, first.readLong());
+        assertEquals(2, first.readLong());
+        assertEquals(3, second.readLong());
+
+        assertTrue(first.release());
+        assertTrue(second.release());
+        // The current chunk stays mapped and is reused.
+        assertEquals(CHUNK_SIZE, metric.usedDirectMemory());
+
+        ByteBuf third = allocator.directBuffer(CHUNK_SIZE / 4);
+        assertEquals(CHUNK_SIZE, metric.usedDirectMemory());
+        assertTrue(third.release());
+    }
+
+    @Test
+    public void testFullChunkIsUnmappedOnRelease() {
+        MappedByteBufAllocator allocator = new MappedByteBufAllocator(null, CHUNK_SIZE);
+        ByteBufAllocatorMetric metric = allocator.metric();
+
+        ByteBuf first = allocator.directBuffer(CHUNK_SIZE / 2 - 8);
+        ByteBuf second = allocator.directBuffer(CHUNK_SIZE / 2 - 8);
+        assertEquals(CHUNK_SIZE, metric.usedDirectMemory());
+
+        // Does not fit into the first chunk anymore.
+        ByteBuf third = allocator.directBuffer(1024);
+        assertEquals(2 * CHUNK_SIZE, metric.usedDirectMemory());
+
+        assertTrue(first.release());
+        assertEquals(2 * CHUNK_SIZE, metric.usedDirectMemory());
+        assertTrue(second.release());
+        assertEquals(CHUNK_SIZE, metric.usedDirectMemory());
+        assertTrue(third.release());
+    }
+
+    @Test
+    public void testLargeBufferHasOwnMapping() {
+        MappedByteBufAllocator allocator = new MappedByteBufAllocator(null, CHUNK_SIZE);
+        ByteBufAllocatorMetric metric = allocator.metric();
+
+        ByteBuf buffer = allocator.directBuffer(CHUNK_SIZE * 4);
+        assertEquals(CHUNK_SIZE * 4, metric.usedDirectMemory());
+        buffer.setLong(CHUNK_SIZE * 4 - 8, 42);
+        assertEquals(42, buffer.getLong(CHUNK_SIZE * 4 - 8));
+
+        assertTrue(buffer.release());
+        assertEquals(0, metric.usedDirectMemory());
+    }
+
+    @Test
+    public void testCapacityIncrease() {
+        MappedByteBufAllocator allocator = new MappedByteBufAllocator(null, CHUNK_SIZE);
+        ByteBufAllocatorMetric metric = allocator.metric();
+
+        ByteBuf buffer = allocator.directBuffer(16);
+        for (int i = 0; i < CHUNK_SIZE; i ++) {
+            buffer.writeInt(i);
+        }
+        assertEquals(CHUNK_SIZE * 4, buffer.readableBytes());
+        for (int i = 0; i < CHUNK_SIZE; i ++) {
+            assertEquals(i, buffer.readInt());
+        }
+
+        ByteBuffer nioBuffer = buffer.nioBuffer(0, 4);
+        assertTrue(nioBuffer.isDirect());
+        assertEquals(0, nioBuffer.getInt());
+
+        assertTrue(buffer.release());
+        // Only the shared chunk is still mapped.
+        assertEquals(CHUNK_SIZE, metric.usedDirectMemory());
+    }
+
+    @Test
+    public void testHeapBuffer() {
+        MappedByteBufAllocator allocator = new MappedByteBufAllocator(null, CHUNK_SIZE);
+        ByteBuf buffer = allocator.heapBuffer(16);
+        assertTrue(buffer.hasArray());
+        assertEquals(0, allocator.metric().usedDirectMemory());
+        assertTrue(buffer.release());
+    }
+}
@@ -32,4 +32,40 @@ public class PoolArenaTest {
             Assert.assertEquals(expectedResult[i], arena.normalizeCapacity(reqCapacities[i]));
         }
     }
+
+    @Test
+    public void testNormalizeCapacityWithSizeClasses() throws Exception {
+        SizeClasses sizeClasses = new SizeClasses(8192, 13, 8192 << 11);
+        PoolArena<ByteBuffer> arena = new PoolArena.DirectArena(null, 8192, 11, 13, 8192 << 11, sizeClasses);
+        int[] reqCapacities = {0, 15, 510, 512, 513, 1000, 1025, 9 * 1024, 12 * 1024, 17 * 1024, 33 * 1024,
+                               (8192 << 11) - 1, 8192 << 11};
+        int[] expectedResult = {0, 16, 512, 512, 640, 1024, 1280, 10 * 1024, 12 * 1024, 20 * 1024, 40 * 1024,
+                                8192 << 11, 8192 << 11};
+        for (int i = 0; i < reqCapacities.length; i ++) {
+            Assert.assertEquals(expectedResult[i], arena.normalizeCapacity(reqCapacities[i]));
+        }
+    }
+
+    @Test
+    public void testSizeClassIndices() {
+        SizeClasses sizeClasses = new SizeClasses(8192, 13, 8192 << 11);
+        // 512 ... 28KiB are served from subpages.
+        Assert.assertEquals(24, sizeClasses.numSmallSizeClasses());
+        Assert.assertEquals(0, sizeClasses.smallIdx(512));
+        Assert.assertEquals(23, sizeClasses.smallIdx(28 * 1024));
+        Assert.assertTrue(sizeClasses.isSmall(28 * 1024));
+        Assert.assertFalse(sizeClasses.isSmall(32 * 1024));
+        Assert.assertEquals(0, sizeClasses.normalIdx(32 * 1024));
+        Assert.assertEquals(1, sizeClasses.normalIdx(40 * 1024));
+
+        // The runs must be divisible by the element size.
+        Assert.assertEquals(1, sizeClasses.runPages(512));
+        Assert.assertEquals(5, sizeClasses.runPages(10 * 1024));
+        Assert.assertEquals(3, sizeClasses.runPages(12 * 1024));
+        Assert.assertEquals(7, sizeClasses.runPages(28 * 1024));
+
+        Assert.assertEquals(0, sizeClasses.numNormalSizeClasses(16 * 1024));
+        Assert.assertEquals(1, sizeClasses.numNormalSizeClasses(32 * 1024));
+        Assert.assertEquals(2, sizeClasses.numNormalSizeClasses(47 * 1024));
+    }
 }
@@ -16,6 +16,8 @@
 
 package io.netty.buffer;
 
+import io.netty.util.concurrent.DefaultEventExecutor;
+import io.netty.util.concurrent.EventExecutor;
 import io.netty.util.concurrent.FastThreadLocal;
 import io.netty.util.concurrent.FastThreadLocalThread;
 import io.netty.util.internal.SystemPropertyUtil;
@@ -24,6 +26,8 @@ import org.junit.Test;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -247,6 +251,394 @@ public class PooledByteBufAllocatorTest {
         assertEquals(0, allocator.directArenas().get(1).numThreadCaches());
     }
 
+    @Test(timeout = 3000)
+    public void testPinArenasToEventLoops() throws InterruptedException {
+        int numArenas = 2;
+        final PooledByteBufAllocator allocator = new PooledByteBufAllocator(
+                false, numArenas, numArenas, 8192, 11, 0, 0, 0, true,
+                new PooledByteBufAllocatorOptions().pinArenasToEventLoops(true));
+
+        ThreadCache tcache0 = createNewThreadCache(allocator);
+        ThreadCache tcache1 = createNewThreadCache(allocator);
+        for (int i = 0; i < numArenas; i++) {
+            assertEquals(1, allocator.heapArenas().get(i).numThreadCaches());
+            assertEquals(1, allocator.directArenas().get(i).numThreadCaches());
+            assertTrue(((PoolArena<?>) allocator.heapArenas().get(i)).isPinned());
+            assertTrue(((PoolArena<?>) allocator.directArenas().get(i)).isPinned());
+        }
+
+        tcache0.destroy();
+        tcache1.destroy();
+        for (int i = 0; i < numArenas; i++) {
+            assertEquals(0, allocator.heapArenas().get(i).numThreadCaches());
+            assertFalse(((PoolArena<?>) allocator.heapArenas().get(i)).isPinned());
+        }
+    }
+
+    @Test(timeout = 3000)
+    public void testFreeFromOtherThreadIsDeferredToOwner() throws Throwable {
+        final PooledByteBufAllocator allocator = new PooledByteBufAllocator(
+                false, 1, 0, 8192, 11, 0, 0, 0, true,
+                new PooledByteBufAllocatorOptions().pinArenasToEventLoops(true));
+        final PoolArena<?> arena = (PoolArena<?>) allocator.heapArenas().get(0);
+        final Queue<ByteBuf> buffers = new ConcurrentLinkedQueue<ByteBuf>();
+        final CountDownLatch allocated = new CountDownLatch(1);
+        final CountDownLatch released = new CountDownLatch(1);
+        final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+
+        Thread owner = new FastThreadLocalThread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    buffers.add(allocator.heapBuffer(1024));
+                    allocated.countDown();
+                    released.await();
+
+                    // The next allocation must process the pending free.
+                    allocator.heapBuffer(1024).release();
+                    assertFalse(arena.hasDeferredFrees());
+                } catch (Throwable cause) {
+                    error.set(cause);
+                } finally {
+                    FastThreadLocal.removeAll();
+                }
+            }
+        });
+        owner.start();
+        allocated.await();
+
+        assertTrue(buffers.poll().release());
+        assertTrue(arena.hasDeferredFrees());
+        assertEquals(1, arena.numActiveAllocations());
+        released.countDown();
+        owner.join();
+
+        Throwable cause = error.get();
+        if (cause != null) {
+            throw cause;
+        }
+        assertEquals(0, arena.numActiveAllocations());
+        assertFalse(arena.isPinned());
+    }
+
+    @Test(timeout = 10000)
+    public void testDeferredFreesAreDrainedOnIdleOwnerExecutor() throws Exception {
+        final PooledByteBufAllocator allocator = new PooledByteBufAllocator(
+                false, 1, 0, 8192, 11, 0, 0, 0, true,
+                new PooledByteBufAllocatorOptions().pinArenasToEventLoops(true));
+        final PoolArena<?> arena = (PoolArena<?>) allocator.heapArenas().get(0);
+        EventExecutor executor = new DefaultEventExecutor();
+        try {
+            ByteBuf buffer = executor.submit(new Callable<ByteBuf>() {
+                @Override
+                public ByteBuf call() {
+                    return allocator.heapBuffer(1024);
+                }
+            }).sync().getNow();
+            assertTrue(arena.isPinned());
+
+            // The executor does not allocate anymore, so only the scheduled drain can process the free.
+            assertTrue(buffer.release());
+            while (arena.hasDeferredFrees()) {
+                Thread.sleep(10);
+            }
+            assertEquals(0, arena.numActiveAllocations());
+        } finally {
+            executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    allocator.freeThreadLocalCache();
+                }
+            }).sync();
+            executor.shutdownGracefully(0, 0, MILLISECONDS).sync();
+        }
+    }
+
+    @Test(timeout = 3000)
+    public void testReleaseUnusedChunksDrainsDeferredFrees() throws Throwable {
+        final PooledByteBufAllocator allocator = new PooledByteBufAllocator(
+                false, 1, 0, 8192, 11, 0, 0, 0, true,
+                new PooledByteBufAllocatorOptions().pinArenasToEventLoops(true));
+        final PoolArena<?> arena = (PoolArena<?>) allocator.heapArenas().get(0);
+        final Queue<ByteBuf> buffers = new ConcurrentLinkedQueue<ByteBuf>();
+        final CountDownLatch allocated = new CountDownLatch(1);
+        final CountDownLatch released = new CountDownLatch(1);
+
+        // The owner does not belong to an executor and does not allocate again, so nobody drains the free.
+        Thread owner = new FastThreadLocalThread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    buffers.add(allocator.heapBuffer(8192));
+                    allocated.countDown();
+                    released.await();
+                } catch (InterruptedException ignore) {
+                    // Just exit.
+                } finally {
+                    FastThreadLocal.removeAll();
+                }
+            }
+        });
+        owner.start();
+        allocated.await();
+        try {
+            assertTrue(buffers.poll().release());
+            assertTrue(arena.hasDeferredFrees());
+            assertTrue(arena.isPinned());
+
+            assertEquals(allocator.metric().chunkSize(), allocator.releaseUnusedChunks());
+            assertFalse(arena.hasDeferredFrees());
+            assertEquals(0, arena.numActiveAllocations());
+        } finally {
+            released.countDown();
+            owner.join();
+        }
+    }
+
+    @Test
+    public void testSizeClasses() {
+        testSizeClasses(0);
+        testSizeClasses(64);
+    }
+
+    private static void testSizeClasses(int cacheSize) {
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(
+                true, 1, 1, 8192, 11, cacheSize, cacheSize, cacheSize, true,
+                new PooledByteBufAllocatorOptions().useSizeClasses(true));
+        Random random = new Random(42);
+        List<ByteBuf> buffers = new ArrayList<ByteBuf>();
+        for (int i = 0; i < 2000; i++) {
+            int size = random.nextInt(64 * 1024) + 1;
+            ByteBuf buf = i % 2 == 0 ? allocator.heapBuffer(size) : allocator.directBuffer(size);
+            assertTrue(buf.capacity() >= size);
+            for (int j = 0; j < size; j++) {
+                buf.writeByte((byte) j);
+            }
+            buffers.add(buf);
+
+            // Release some of the buffers early to mix allocations with frees.
+            if (random.nextBoolean()) {
+                checkAndRelease(buffers.remove(random.nextInt(buffers.size())));
+            }
+        }
+        for (ByteBuf buf: buffers) {
+            checkAndRelease(buf);
+        }
+
+        // 9KiB should only waste 1KiB.
+        ByteBuf buf = allocator.directBuffer(9 * 1024, 9 * 1024);
+        assertEquals(10 * 1024, ((PooledByteBuf<?>) buf).maxLength);
+        buf.release();
+
+        if (cacheSize == 0) {
+            assertEquals(0, allocator.directArenas().get(0).numActiveAllocations());
+            assertEquals(0, allocator.heapArenas().get(0).numActiveAllocations());
+        }
+        allocator.freeThreadLocalCache();
+    }
+
+    private static void checkAndRelease(ByteBuf buf) {
+        for (int i = 0; i < buf.readableBytes(); i++) {
+            assertEquals((byte) i, buf.getByte(i));
+        }
+        assertTrue(buf.release());
+    }
+
+    @Test
+    public void testReleaseUnusedChunks() {
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(
+                true, 1, 1, 8192, 11, 0, 0, 0, true);
+        int chunkSize = 8192 << 11;
+
+        ByteBuf buf = allocator.directBuffer(8192);
+        ByteBuf buf2 = allocator.heapBuffer(8192);
+        assertEquals(0, allocator.releaseUnusedChunks());
+        assertTrue(buf.release());
+        assertTrue(buf2.release());
+
+        // The chunks never exceeded 25% usage, so they stay in qInit even if they are unused.
+        assertEquals(chunkSize, allocator.directArenas().get(0).numActiveBytes());
+        assertEquals(2L * chunkSize, allocator.releaseUnusedChunks());
+        assertEquals(0, allocator.directArenas().get(0).numActiveBytes());
+        assertEquals(0, allocator.heapArenas().get(0).numActiveBytes());
+        assertEquals(0, allocator.releaseUnusedChunks());
+
+        // The memory is allocated again when needed.
+        buf = allocator.directBuffer(8192);
+        assertEquals(chunkSize, allocator.directArenas().get(0).numActiveBytes());
+        assertTrue(buf.release());
+    }
+
+    @Test(timeout = 3000)
+    public void testReleaseUnusedChunksAfterDelay() {
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(
+                true, 0, 1, 8192, 11, 0, 0, 0, true,
+                new PooledByteBufAllocatorOptions().chunkReleaseDelayMillis(100));
+        ByteBuf buf = allocator.directBuffer(8192);
+        assertTrue(buf.release());
+
+        while (allocator.directArenas().get(0).numActiveBytes() > 0) {
+            LockSupport.parkNanos(MILLISECONDS.toNanos(10));
+        }
+    }
+
+    @Test
+    public void testTrimCurrentThreadCache() {
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(
+                true, 0, 1, 8192, 11, 64, 64, 64, true);
+        assertFalse(allocator.trimCurrentThreadCache());
+
+        ByteBuf buf = allocator.directBuffer(8192);
+        assertTrue(buf.release());
+
+        // The buffer is kept in the thread local cache and so the chunk is still in use.
+        assertEquals(0, allocator.releaseUnusedChunks());
+        assertTrue(allocator.trimCurrentThreadCache());
+        assertEquals(8192 << 11, allocator.releaseUnusedChunks());
+        allocator.freeThreadLocalCache();
+    }
+
+    @Test
+    public void testUsedMemory() {
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(
+                true, 1, 1, 8192, 11, 0, 0, 0, true);
+        PooledByteBufAllocatorMetric metric = allocator.metric();
+        assertEquals(0, metric.usedHeapMemory());
+        assertEquals(0, metric.usedDirectMemory());
+
+        ByteBuf buffer = allocator.directBuffer(1024);
+        assertEquals(metric.chunkSize(), metric.usedDirectMemory());
+        assertEquals(1, metric.numDirectChunks());
+        assertEquals(0, metric.usedHeapMemory());
+        assertTrue(buffer.release());
+        assertEquals(metric.chunkSize(), metric.usedDirectMemory());
+
+        // Huge allocations are not pooled and so are accounted with their real size.
+        ByteBuf huge = allocator.heapBuffer(metric.chunkSize() + 1);
+        assertEquals(metric.chunkSize() + 1, metric.usedHeapMemory());
+        assertTrue(huge.release());
+        assertEquals(0, metric.usedHeapMemory());
+    }
+
+    @Test
+    public void testThreadCacheHitsAndMisses() {
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(
+                true, 0, 1, 8192, 11, 64, 64, 64, true);
+        PooledByteBufAllocatorMetric metric = allocator.metric();
+
+        assertTrue(allocator.directBuffer(1024).release());
+        assertEquals(0, metric.numThreadCacheHits());
+        assertEquals(1, metric.numThreadCacheMisses());
+
+        assertTrue(allocator.directBuffer(1024).release());
+        assertEquals(1, metric.numThreadCacheHits());
+        assertEquals(1, metric.numThreadCacheMisses());
+        allocator.freeThreadLocalCache();
+    }
+
+    @Test
+    public void testAdaptiveThreadCacheGrows() {
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(
+                true, 0, 1, 8192, 11, 0, 0, 2, true,
+                new PooledByteBufAllocatorOptions().adaptiveThreadCache(true));
+        PooledByteBufAllocatorMetric metric = allocator.metric();
+        try {
+            // Only two of the eight buffers fit into the cache, so all allocations of the next round miss.
+            allocateAndRelease(allocator, 8);
+            allocator.trimCurrentThreadCache();
+            assertEquals(1, metric.numThreadCacheGrows());
+
+            allocateAndRelease(allocator, 8);
+            long hits = metric.numThreadCacheHits();
+            allocateAndRelease(allocator, 8);
+            assertEquals(4, metric.numThreadCacheHits() - hits);
+        } finally {
+            allocator.freeThreadLocalCache();
+        }
+    }
+
+    @Test
+    public void testAdaptiveThreadCacheShrinks() {
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(
+                true, 0, 1, 8192, 11, 0, 0, 4, true,
+                new PooledByteBufAllocatorOptions().adaptiveThreadCache(true));
+        PooledByteBufAllocatorMetric metric = allocator.metric();
+        try {
+            allocateAndRelease(allocator, 4);
+            allocator.trimCurrentThreadCache();
+            // The cache was not used since the last trim, so it shrinks and gives back its buffers.
+            allocator.trimCurrentThreadCache();
+            assertTrue(metric.numThreadCacheShrinks() > 0);
+            assertEquals(4, metric.numThreadCacheTrimmedBuffers());
+
+            long hits = metric.numThreadCacheHits();
+            allocateAndRelease(allocator, 4);
+            allocateAndRelease(allocator, 4);
+            assertEquals(2, metric.numThreadCacheHits() - hits);
+        } finally {
+            allocator.freeThreadLocalCache();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testThreadCacheTrimInterval() throws Exception {
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(
+                true, 0, 1, 8192, 11, 0, 0, 4, true,
+                new PooledByteBufAllocatorOptions().cacheTrimIntervalMillis(10));
+        PooledByteBufAllocatorMetric metric = allocator.metric();
+        try {
+            allocateAndRelease(allocator, 1);
+            while (metric.numThreadCacheIdleTrims() == 0) {
+                Thread.sleep(20);
+                assertTrue(allocator.directBuffer(8 * 1024).release());
+            }
+            assertTrue(metric.numThreadCacheTrimmedBuffers() > 0);
+        } finally {
+            allocator.freeThreadLocalCache();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testIdleEventExecutorThreadCacheIsTrimmed() throws Exception {
+        final PooledByteBufAllocator allocator = new PooledByteBufAllocator(
+                true, 0, 1, 8192, 11, 0, 0, 4, true,
+                new PooledByteBufAllocatorOptions().cacheTrimIntervalMillis(10));
+        PooledByteBufAllocatorMetric metric = allocator.metric();
+        EventExecutor executor = new DefaultEventExecutor();
+        try {
+            executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    allocateAndRelease(allocator, 1);
+                }
+            }).sync();
+
+            // The executor does not allocate anymore, so only its scheduled trim can release the cached buffer.
+            while (metric.numThreadCacheTrimmedBuffers() == 0) {
+                Thread.sleep(10);
+            }
+            assertTrue(metric.numThreadCacheIdleTrims() > 0);
+        } finally {
+            executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    allocator.freeThreadLocalCache();
+                }
+            }).sync();
+            executor.shutdownGracefully(0, 0, MILLISECONDS).sync();
+        }
+    }
+
+    private static void allocateAndRelease(PooledByteBufAllocator allocator, int numBuffers) {
+        ByteBuf[] buffers = new ByteBuf[numBuffers];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = allocator.directBuffer(16 * 1024);
+        }
+        for (ByteBuf buffer: buffers) {
+            assertTrue(buffer.release());
+        }
+    }
+
     private static ThreadCache createNewThreadCache(final PooledByteBufAllocator allocator)
             throws InterruptedException {
         final CountDownLatch latch = new CountDownLatch(1);
@@ -789,12 +789,20 @@ public abstract class HttpObjectDecoder extends ByteToMessageDecoder {
         public AppendableCharSequence parse(ByteBuf buffer) {
             final int oldSize = size;
             seq.reset();
-            int i = buffer.forEachByte(this);
-            if (i == -1) {
-                size = oldSize;
+            final int readerIndex = buffer.readerIndex();
+            final int lfIndex = buffer.indexOf(readerIndex, buffer.writerIndex(), HttpConstants.LF);
+            if (lfIndex == -1) {
+                // The line is not complete yet, so only check that it is not too long already instead of
+                // copying it again for every read.
+                if (oldSize + buffer.readableBytes() > maxLength) {
+                    buffer.forEachByte(this);
+                    size = oldSize;
+                    seq.reset();
+                }
                 return null;
             }
-            buffer.readerIndex(i + 1);
+            buffer.forEachByte(readerIndex, lfIndex - readerIndex, this);
+            buffer.readerIndex(lfIndex + 1);
             return seq;
         }
 
@@ -313,7 +313,13 @@ public class DelimiterBasedFrameDecoder extends ByteToMessageDecoder {
      * found in the haystack.
      */
     private static int indexOf(ByteBuf haystack, ByteBuf needle) {
+        final byte firstByte = needle.getByte(0);
         for (int i = haystack.readerIndex(); i < haystack.writerIndex(); i ++) {
+            // Skip directly to the next candidate, which is found much faster than comparing byte by byte.
+            i = haystack.indexOf(i, haystack.writerIndex(), firstByte);
+            if (i == -1) {
+                return -1;
+            }
             int haystackIndex = i;
             int needleIndex;
             for (needleIndex = 0; needleIndex < needle.capacity(); needleIndex ++) {
@@ -22,6 +22,8 @@ import io.netty.util.internal.logging.InternalLoggerFactory;
 
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.CountDownLatch;
@@ -105,6 +107,11 @@ public class HashedWheelTimer implements Timer {
 
     private volatile long startTime;
 
+    // Only written by the worker thread.
+    private volatile long expiredTimeouts;
+    private volatile long totalLatenessNanos;
+    private volatile long maxLatenessNanos;
+
     /**
      * Creates a new timer with the default thread factory
      * ({@link Executors#defaultThreadFactory()}), default tick duration, and
@@ -376,14 +383,12 @@ public class HashedWheelTimer implements Timer {
         if (unit == null) {
             throw new NullPointerException("unit");
         }
-        if (shouldLimitTimeouts()) {
-            long pendingTimeoutsCount = pendingTimeouts.incrementAndGet();
-            if (pendingTimeoutsCount > maxPendingTimeouts) {
-                pendingTimeouts.decrementAndGet();
-                throw new RejectedExecutionException("Number of pending timeouts ("
-                    + pendingTimeoutsCount + ") is greater than or equal to maximum allowed pending "
-                    + "timeouts (" + maxPendingTimeouts + ")");
-            }
+        long pendingTimeoutsCount = pendingTimeouts.incrementAndGet();
+        if (shouldLimitTimeouts() && pendingTimeoutsCount > maxPendingTimeouts) {
+            pendingTimeouts.decrementAndGet();
+            throw new RejectedExecutionException("Number of pending timeouts ("
+                + pendingTimeoutsCount + ") is greater than or equal to maximum allowed pending "
+                + "timeouts (" + maxPendingTimeouts + ")");
         }
 
         start();
@@ -400,6 +405,93 @@ public class HashedWheelTimer implements Timer {
         return maxPendingTimeouts > 0;
     }
 
+    /**
+     * Returns the number of pending timeouts of this {@link Timer}.
+     */
+    public long pendingTimeouts() {
+        return pendingTimeouts.get();
+    }
+
+    /**
+     * Cancels all of the given {@link Timeout}s. The {@link Timeout}s of a {@link HashedWheelTimer} are handed to
+     * the worker thread of their timer in one batch per timer instead of one by one, other {@link Timeout}s are
+     * cancelled via {@link Timeout#cancel()}.
+     *
+     * @return the number of {@link Timeout}s which were cancelled by this call
+     */
+    static int cancel(Iterable<? extends Timeout> timeouts) {
+        int cancelled = 0;
+        // Most batches only contain timeouts of a few timers, so keep the last one at hand.
+        HashedWheelTimer lastTimer = null;
+        HashedWheelTimeout lastHead = null;
+        Map<HashedWheelTimer, HashedWheelTimeout> heads = null;
+        for (Timeout timeout: timeouts) {
+            if (!(timeout instanceof HashedWheelTimeout)) {
+                if (timeout.cancel()) {
+                    cancelled ++;
+                }
+                continue;
+            }
+            HashedWheelTimeout t = (HashedWheelTimeout) timeout;
+            if (!t.compareAndSetState(HashedWheelTimeout.ST_INIT, HashedWheelTimeout.ST_CANCELLED)) {
+                continue;
+            }
+            cancelled ++;
+            if (t.timer != lastTimer) {
+                if (lastTimer != null) {
+                    if (heads == null) {
+                        heads = new IdentityHashMap<HashedWheelTimer, HashedWheelTimeout>();
+                    }
+                    heads.put(lastTimer, lastHead);
+                    lastHead = heads.remove(t.timer);
+                }
+                lastTimer = t.timer;
+            }
+            // Link the timeouts of a timer, so they are added to the cancelledTimeouts queue at once.
+            t.nextCancelled = lastHead;
+            lastHead = t;
+        }
+        if (lastTimer != null) {
+            lastTimer.cancelledTimeouts.add(lastHead);
+        }
+        if (heads != null) {
+            for (Map.Entry<HashedWheelTimer, HashedWheelTimeout> e: heads.entrySet()) {
+                e.getKey().cancelledTimeouts.add(e.getValue());
+            }
+        }
+        return cancelled;
+    }
+
+    /**
+     * Returns the number of timeouts which expired so far.
+     */
+    long expiredTimeouts() {
+        return expiredTimeouts;
+    }
+
+    /**
+     * Returns the sum of the times by which the expired timeouts were run after their deadline.
+     */
+    long totalLatenessNanos() {
+        return totalLatenessNanos;
+    }
+
+    /**
+     * Returns the longest time by which an expired timeout was run after its deadline.
+     */
+    long maxLatenessNanos() {
+        return maxLatenessNanos;
+    }
+
+    // Must only be called by the worker thread.
+    private void recordExpiry(long latenessNanos) {
+        expiredTimeouts ++;
+        totalLatenessNanos += latenessNanos;
+        if (latenessNanos > maxLatenessNanos) {
+            maxLatenessNanos = latenessNanos;
+        }
+    }
+
     private final class Worker implements Runnable {
         private final Set<Timeout> unprocessedTimeouts = new HashSet<Timeout>();
 
@@ -478,13 +570,19 @@ public class HashedWheelTimer implements Timer {
                     // all processed
                     break;
                 }
-                try {
-                    timeout.remove();
-                } catch (Throwable t) {
-                    if (logger.isWarnEnabled()) {
-                        logger.warn("An exception was thrown while process a cancellation task", t);
+                // Timeouts which were cancelled in a batch are linked to each other.
+                do {
+                    HashedWheelTimeout next = timeout.nextCancelled;
+                    timeout.nextCancelled = null;
+                    try {
+                        timeout.remove();
+                    } catch (Throwable t) {
+                        if (logger.isWarnEnabled()) {
+                            logger.warn("An exception was thrown while process a cancellation task", t);
+                        }
                     }
-                }
+                    timeout = next;
+                } while (timeout != null);
             }
         }
 
@@ -557,6 +655,9 @@ public class HashedWheelTimer implements Timer {
         HashedWheelTimeout next;
         HashedWheelTimeout prev;
 
+        // The next timeout which was cancelled in the same batch, see HashedWheelTimer.cancel(Iterable).
+        HashedWheelTimeout nextCancelled;
+
         // The bucket to which the timeout was added
         HashedWheelBucket bucket;
 
@@ -593,9 +694,9 @@ public class HashedWheelTimer implements Timer {
             HashedWheelBucket bucket = this.bucket;
             if (bucket != null) {
                 bucket.remove(this);
-            } else if (timer.shouldLimitTimeouts()) {
-                timer.pendingTimeouts.decrementAndGet();
             }
+            // Every cancelled timeout is removed exactly once, even if it was dropped from its bucket already.
+            timer.pendingTimeouts.decrementAndGet();
         }
 
         public boolean compareAndSetState(int expected, int state) {
@@ -620,6 +721,8 @@ public class HashedWheelTimer implements Timer {
             if (!compareAndSetState(ST_INIT, ST_EXPIRED)) {
                 return;
             }
+            timer.pendingTimeouts.decrementAndGet();
+            timer.recordExpiry(Math.max(0, System.nanoTime() - timer.startTime - deadline));
 
             try {
                 task.run(this);
@@ -738,9 +841,6 @@ public class HashedWheelTimer implements Timer {
             timeout.prev = null;
             timeout.next = null;
             timeout.bucket = null;
-            if (timeout.timer.shouldLimitTimeouts()) {
-                timeout.timer.pendingTimeouts.decrementAndGet();
-            }
             return next;
         }
 
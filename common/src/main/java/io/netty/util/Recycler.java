@@ -17,15 +17,18 @@
 package io.netty.util;
 
 import io.netty.util.concurrent.FastThreadLocal;
+import io.netty.util.internal.LongCounter;
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.SystemPropertyUtil;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
 
-import java.lang.ref.WeakReference;
 import java.util.Arrays;
-import java.util.Map;
-import java.util.WeakHashMap;
+import java.util.Queue;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 import static io.netty.util.internal.MathUtil.safeFindNextPositivePowerOfTwo;
 import static java.lang.Math.max;
@@ -33,6 +36,10 @@ import static java.lang.Math.min;
 
 /**
  * Light-weight object pool based on a thread-local stack.
+ * <p>
+ * An object which is recycled by another thread than the one which created it is returned through a bounded
+ * lock-free queue of the creating thread, from where that thread takes it once its stack is empty. If the queue is
+ * full the object is dropped.
  *
  * @param <T> the type of the pooled object
  */
@@ -49,6 +56,7 @@ public abstract class Recycler<T> {
     };
     private static final AtomicInteger ID_GENERATOR = new AtomicInteger(Integer.MIN_VALUE);
     private static final int OWN_THREAD_ID = ID_GENERATOR.getAndIncrement();
+    private static final int OTHER_THREAD_ID = ID_GENERATOR.getAndIncrement();
     private static final int DEFAULT_INITIAL_MAX_CAPACITY_PER_THREAD = 32768; // Use 32k instances as default.
     private static final int DEFAULT_MAX_CAPACITY_PER_THREAD;
     private static final int INITIAL_CAPACITY;
@@ -56,11 +64,9 @@ public abstract class Recycler<T> {
     private static final int MAX_DELAYED_QUEUES_PER_THREAD;
     private static final int LINK_CAPACITY;
     private static final int RATIO;
+    private static final boolean COLLECT_METRICS;
 
     static {
-        // In the future, we might have different maxCapacity for different object types.
-        // e.g. io.netty.recycler.maxCapacity.writeTask
-        //      io.netty.recycler.maxCapacity.outboundBuffer
         int maxCapacityPerThread = SystemPropertyUtil.getInt("io.netty.recycler.maxCapacityPerThread",
                 SystemPropertyUtil.getInt("io.netty.recycler.maxCapacity", DEFAULT_INITIAL_MAX_CAPACITY_PER_THREAD));
         if (maxCapacityPerThread < 0) {
@@ -73,11 +79,13 @@ public abstract class Recycler<T> {
                 SystemPropertyUtil.getInt("io.netty.recycler.maxSharedCapacityFactor",
                         2));
 
+        // Only 0 is special now, which disables the recycling by other threads than the one which created the object.
         MAX_DELAYED_QUEUES_PER_THREAD = max(0,
                 SystemPropertyUtil.getInt("io.netty.recycler.maxDelayedQueuesPerThread",
                         // We use the same value as default EventLoop number
                         Runtime.getRuntime().availableProcessors() * 2));
 
+        // The queue through which other threads return objects grows by chunks of this size.
         LINK_CAPACITY = safeFindNextPositivePowerOfTwo(
                 max(SystemPropertyUtil.getInt("io.netty.recycler.linkCapacity", 16), 16));
 
@@ -86,6 +94,8 @@ public abstract class Recycler<T> {
         // bursts.
         RATIO = safeFindNextPositivePowerOfTwo(SystemPropertyUtil.getInt("io.netty.recycler.ratio", 8));
 
+        COLLECT_METRICS = SystemPropertyUtil.getBoolean("io.netty.recycler.metrics", false);
+
         if (logger.isDebugEnabled()) {
             if (DEFAULT_MAX_CAPACITY_PER_THREAD == 0) {
                 logger.debug("-Dio.netty.recycler.maxCapacityPerThread: disabled");
@@ -98,6 +108,7 @@ public abstract class Recycler<T> {
                 logger.debug("-Dio.netty.recycler.linkCapacity: {}", LINK_CAPACITY);
                 logger.debug("-Dio.netty.recycler.ratio: {}", RATIO);
             }
+            logger.debug("-Dio.netty.recycler.metrics: {}", COLLECT_METRICS);
         }
 
         INITIAL_CAPACITY = min(DEFAULT_MAX_CAPACITY_PER_THREAD, 256);
@@ -107,6 +118,9 @@ public abstract class Recycler<T> {
     private final int maxSharedCapacityFactor;
     private final int ratioMask;
     private final int maxDelayedQueuesPerThread;
+    private final LongCounter hits;
+    private final LongCounter misses;
+    private final LongCounter drops;
 
     private final FastThreadLocal<Stack<T>> threadLocal = new FastThreadLocal<Stack<T>>() {
         @Override
@@ -120,6 +134,18 @@ public abstract class Recycler<T> {
         this(DEFAULT_MAX_CAPACITY_PER_THREAD);
     }
 
+    /**
+     * Creates a new instance whose maximum capacity per thread is configured by the
+     * {@code io.netty.recycler.maxCapacityPerThread.<type>} system property, or is the default one of all
+     * {@link Recycler}s if the property is not set. This allows to tune the recycling of the object types which
+     * matter most for an application.
+     *
+     * @param type  the name of the object type, which is shared by all {@link Recycler}s of similar objects
+     */
+    protected Recycler(String type) {
+        this(maxCapacityPerThread(type));
+    }
+
     protected Recycler(int maxCapacityPerThread) {
         this(maxCapacityPerThread, MAX_SHARED_CAPACITY_FACTOR);
     }
@@ -128,8 +154,26 @@ public abstract class Recycler<T> {
         this(maxCapacityPerThread, maxSharedCapacityFactor, RATIO, MAX_DELAYED_QUEUES_PER_THREAD);
     }
 
+    /**
+     * Creates a new instance.
+     *
+     * @param maxCapacityPerThread      the maximum number of objects which are pooled per thread, or {@code 0} to
+     *                                  disable pooling
+     * @param maxSharedCapacityFactor   the maximum number of objects which may be returned by other threads at once
+     *                                  is {@code maxCapacityPerThread / maxSharedCapacityFactor}
+     * @param ratio                     only every {@code ratio}th object which was never pooled before is pooled
+     * @param maxDelayedQueuesPerThread {@code 0} to drop all objects which are recycled by another thread than the
+     *                                  one which created them, otherwise it is ignored
+     */
     protected Recycler(int maxCapacityPerThread, int maxSharedCapacityFactor,
                        int ratio, int maxDelayedQueuesPerThread) {
+        if (COLLECT_METRICS) {
+            hits = PlatformDependent.newLongCounter();
+            misses = PlatformDependent.newLongCounter();
+            drops = PlatformDependent.newLongCounter();
+        } else {
+            hits = misses = drops = null;
+        }
         ratioMask = safeFindNextPositivePowerOfTwo(ratio) - 1;
         if (maxCapacityPerThread <= 0) {
             this.maxCapacityPerThread = 0;
@@ -150,12 +194,61 @@ public abstract class Recycler<T> {
         Stack<T> stack = threadLocal.get();
         DefaultHandle<T> handle = stack.pop();
         if (handle == null) {
+            if (misses != null) {
+                misses.increment();
+            }
             handle = stack.newHandle();
             handle.value = newObject(handle);
+        } else if (hits != null) {
+            hits.increment();
         }
         return (T) handle.value;
     }
 
+    /**
+     * Returns the number of times {@link #get()} returned a pooled object, or {@code -1} if the
+     * {@code io.netty.recycler.metrics} system property is not {@code true}.
+     */
+    public final long numHits() {
+        return hits == null ? -1 : hits.value();
+    }
+
+    /**
+     * Returns the number of times {@link #get()} had to create a new object, or {@code -1} if the
+     * {@code io.netty.recycler.metrics} system property is not {@code true}.
+     */
+    public final long numMisses() {
+        return misses == null ? -1 : misses.value();
+    }
+
+    /**
+     * Returns the number of recycled objects which were not pooled, because the pool of their thread or the queue
+     * through which they are returned from another thread was full, or because of the ratio at which new objects
+     * are pooled. Returns {@code -1} if the {@code io.netty.recycler.metrics} system property is not {@code true}.
+     */
+    public final long numDrops() {
+        return drops == null ? -1 : drops.value();
+    }
+
+    private void recordDrop() {
+        if (drops != null) {
+            drops.increment();
+        }
+    }
+
+    private static int maxCapacityPerThread(String type) {
+        ObjectUtil.checkNotNull(type, "type");
+        String key = "io.netty.recycler.maxCapacityPerThread." + type;
+        int maxCapacityPerThread = SystemPropertyUtil.getInt(key, DEFAULT_MAX_CAPACITY_PER_THREAD);
+        if (maxCapacityPerThread < 0) {
+            maxCapacityPerThread = DEFAULT_MAX_CAPACITY_PER_THREAD;
+        }
+        if (maxCapacityPerThread != DEFAULT_MAX_CAPACITY_PER_THREAD) {
+            logger.debug("-D{}: {}", key, maxCapacityPerThread);
+        }
+        return maxCapacityPerThread;
+    }
+
     /**
      * @deprecated use {@link Handle#recycle(Object)}.
      */
@@ -189,7 +282,12 @@ public abstract class Recycler<T> {
     }
 
     static final class DefaultHandle<T> implements Handle<T> {
-        private int lastRecycledId;
+        @SuppressWarnings("rawtypes")
+        private static final AtomicIntegerFieldUpdater<DefaultHandle> LAST_RECYCLED_ID_UPDATER =
+                AtomicIntegerFieldUpdater.newUpdater(DefaultHandle.class, "lastRecycledId");
+
+        // Set by the thread which recycles the handle, which may be another thread than the one of its stack.
+        private volatile int lastRecycledId;
         private int recycleId;
 
         boolean hasBeenRecycled;
@@ -208,241 +306,44 @@ public abstract class Recycler<T> {
             }
             stack.push(this);
         }
-    }
-
-    private static final FastThreadLocal<Map<Stack<?>, WeakOrderQueue>> DELAYED_RECYCLED =
-            new FastThreadLocal<Map<Stack<?>, WeakOrderQueue>>() {
-        @Override
-        protected Map<Stack<?>, WeakOrderQueue> initialValue() {
-            return new WeakHashMap<Stack<?>, WeakOrderQueue>();
-        }
-    };
-
-    // a queue that makes only moderate guarantees about visibility: items are seen in the correct order,
-    // but we aren't absolutely guaranteed to ever see anything at all, thereby keeping the queue cheap to maintain
-    private static final class WeakOrderQueue {
-
-        static final WeakOrderQueue DUMMY = new WeakOrderQueue();
-
-        // Let Link extend AtomicInteger for intrinsics. The Link itself will be used as writerIndex.
-        @SuppressWarnings("serial")
-        private static final class Link extends AtomicInteger {
-            private final DefaultHandle<?>[] elements = new DefaultHandle[LINK_CAPACITY];
-
-            private int readIndex;
-            private Link next;
-        }
 
-        // chain of data items
-        private Link head, tail;
-        // pointer to another queue of delayed items for the same stack
-        private WeakOrderQueue next;
-        private final WeakReference<Thread> owner;
-        private final int id = ID_GENERATOR.getAndIncrement();
-        private final AtomicInteger availableSharedCapacity;
-
-        private WeakOrderQueue() {
-            owner = null;
-            availableSharedCapacity = null;
+        boolean compareAndSetLastRecycledId(int expect, int update) {
+            return LAST_RECYCLED_ID_UPDATER.compareAndSet(this, expect, update);
         }
 
-        private WeakOrderQueue(Stack<?> stack, Thread thread) {
-            head = tail = new Link();
-            owner = new WeakReference<Thread>(thread);
-
-            // Its important that we not store the Stack itself in the WeakOrderQueue as the Stack also is used in
-            // the WeakHashMap as key. So just store the enclosed AtomicInteger which should allow to have the
-            // Stack itself GCed.
-            availableSharedCapacity = stack.availableSharedCapacity;
-        }
-
-        static WeakOrderQueue newQueue(Stack<?> stack, Thread thread) {
-            WeakOrderQueue queue = new WeakOrderQueue(stack, thread);
-            // Done outside of the constructor to ensure WeakOrderQueue.this does not escape the constructor and so
-            // may be accessed while its still constructed.
-            stack.setHead(queue);
-            return queue;
-        }
-
-        private void setNext(WeakOrderQueue next) {
-            assert next != this;
-            this.next = next;
-        }
-
-        /**
-         * Allocate a new {@link WeakOrderQueue} or return {@code null} if not possible.
-         */
-        static WeakOrderQueue allocate(Stack<?> stack, Thread thread) {
-            // We allocated a Link so reserve the space
-            return reserveSpace(stack.availableSharedCapacity, LINK_CAPACITY)
-                    ? WeakOrderQueue.newQueue(stack, thread) : null;
-        }
-
-        private static boolean reserveSpace(AtomicInteger availableSharedCapacity, int space) {
-            assert space >= 0;
-            for (;;) {
-                int available = availableSharedCapacity.get();
-                if (available < space) {
-                    return false;
-                }
-                if (availableSharedCapacity.compareAndSet(available, available - space)) {
-                    return true;
-                }
-            }
-        }
-
-        private void reclaimSpace(int space) {
-            assert space >= 0;
-            availableSharedCapacity.addAndGet(space);
-        }
-
-        void add(DefaultHandle<?> handle) {
-            handle.lastRecycledId = id;
-
-            Link tail = this.tail;
-            int writeIndex;
-            if ((writeIndex = tail.get()) == LINK_CAPACITY) {
-                if (!reserveSpace(availableSharedCapacity, LINK_CAPACITY)) {
-                    // Drop it.
-                    return;
-                }
-                // We allocate a Link so reserve the space
-                this.tail = tail = tail.next = new Link();
-
-                writeIndex = tail.get();
-            }
-            tail.elements[writeIndex] = handle;
-            handle.stack = null;
-            // we lazy set to ensure that setting stack to null appears before we unnull it in the owning thread;
-            // this also means we guarantee visibility of an element in the queue if we see the index updated
-            tail.lazySet(writeIndex + 1);
-        }
-
-        boolean hasFinalData() {
-            return tail.readIndex != tail.get();
-        }
-
-        // transfer as many items as we can from this queue to the stack, returning true if any were transferred
-        @SuppressWarnings("rawtypes")
-        boolean transfer(Stack<?> dst) {
-            Link head = this.head;
-            if (head == null) {
-                return false;
-            }
-
-            if (head.readIndex == LINK_CAPACITY) {
-                if (head.next == null) {
-                    return false;
-                }
-                this.head = head = head.next;
-            }
-
-            final int srcStart = head.readIndex;
-            int srcEnd = head.get();
-            final int srcSize = srcEnd - srcStart;
-            if (srcSize == 0) {
-                return false;
-            }
-
-            final int dstSize = dst.size;
-            final int expectedCapacity = dstSize + srcSize;
-
-            if (expectedCapacity > dst.elements.length) {
-                final int actualCapacity = dst.increaseCapacity(expectedCapacity);
-                srcEnd = min(srcStart + actualCapacity - dstSize, srcEnd);
-            }
-
-            if (srcStart != srcEnd) {
-                final DefaultHandle[] srcElems = head.elements;
-                final DefaultHandle[] dstElems = dst.elements;
-                int newDstSize = dstSize;
-                for (int i = srcStart; i < srcEnd; i++) {
-                    DefaultHandle element = srcElems[i];
-                    if (element.recycleId == 0) {
-                        element.recycleId = element.lastRecycledId;
-                    } else if (element.recycleId != element.lastRecycledId) {
-                        throw new IllegalStateException("recycled already");
-                    }
-                    srcElems[i] = null;
-
-                    if (dst.dropHandle(element)) {
-                        // Drop the object.
-                        continue;
-                    }
-                    element.stack = dst;
-                    dstElems[newDstSize ++] = element;
-                }
-
-                if (srcEnd == LINK_CAPACITY && head.next != null) {
-                    // Add capacity back as the Link is GCed.
-                    reclaimSpace(LINK_CAPACITY);
-
-                    this.head = head.next;
-                }
-
-                head.readIndex = srcEnd;
-                if (dst.size == newDstSize) {
-                    return false;
-                }
-                dst.size = newDstSize;
-                return true;
-            } else {
-                // The destination stack is full already.
-                return false;
-            }
-        }
-
-        @Override
-        protected void finalize() throws Throwable {
-            try {
-                super.finalize();
-            } finally {
-                // We need to reclaim all space that was reserved by this WeakOrderQueue so we not run out of space in
-                // the stack. This is needed as we not have a good life-time control over the queue as it is used in a
-                // WeakHashMap which will drop it at any time.
-                Link link = head;
-                while (link != null) {
-                    reclaimSpace(LINK_CAPACITY);
-                    link = link.next;
-                }
-            }
+        void lazySetLastRecycledId(int lastRecycledId) {
+            LAST_RECYCLED_ID_UPDATER.lazySet(this, lastRecycledId);
         }
     }
 
     static final class Stack<T> {
 
-        // we keep a queue of per-thread queues, which is appended to once only, each time a new thread other
-        // than the stack owner recycles: when we run out of items in our stack we iterate this collection
-        // to scavenge those that can be reused. this permits us to incur minimal thread synchronisation whilst
-        // still recycling all items.
+        @SuppressWarnings("rawtypes")
+        private static final AtomicReferenceFieldUpdater<Stack, Queue> RETURN_QUEUE_UPDATER =
+                AtomicReferenceFieldUpdater.newUpdater(Stack.class, Queue.class, "returnQueue");
+
         final Recycler<T> parent;
         final Thread thread;
-        final AtomicInteger availableSharedCapacity;
-        final int maxDelayedQueues;
 
         private final int maxCapacity;
+        private final int maxReturnedCapacity;
         private final int ratioMask;
+        private final boolean returnsFromOtherThreads;
         private DefaultHandle<?>[] elements;
         private int size;
         private int handleRecycleCount = -1; // Start with -1 so the first one will be recycled.
-        private WeakOrderQueue cursor, prev;
-        private volatile WeakOrderQueue head;
+        // The handles which were recycled by other threads, which is only created once the first one is.
+        private volatile Queue<DefaultHandle<?>> returnQueue;
 
         Stack(Recycler<T> parent, Thread thread, int maxCapacity, int maxSharedCapacityFactor,
               int ratioMask, int maxDelayedQueues) {
             this.parent = parent;
             this.thread = thread;
             this.maxCapacity = maxCapacity;
-            availableSharedCapacity = new AtomicInteger(max(maxCapacity / maxSharedCapacityFactor, LINK_CAPACITY));
+            maxReturnedCapacity = max(maxCapacity / maxSharedCapacityFactor, LINK_CAPACITY);
             elements = new DefaultHandle[min(INITIAL_CAPACITY, maxCapacity)];
             this.ratioMask = ratioMask;
-            this.maxDelayedQueues = maxDelayedQueues;
-        }
-
-        // Marked as synchronized to ensure this is serialized.
-        synchronized void setHead(WeakOrderQueue queue) {
-            queue.setNext(head);
-            head = queue;
+            returnsFromOtherThreads = maxDelayedQueues > 0;
         }
 
         int increaseCapacity(int expectedCapacity) {
@@ -476,71 +377,45 @@ public abstract class Recycler<T> {
                 throw new IllegalStateException("recycled multiple times");
             }
             ret.recycleId = 0;
-            ret.lastRecycledId = 0;
+            ret.lazySetLastRecycledId(0);
             this.size = size;
             return ret;
         }
 
+        /**
+         * Moves the handles which were recycled by other threads to the empty stack, returning {@code true} if any
+         * were moved.
+         */
         boolean scavenge() {
-            // continue an existing scavenge, if any
-            if (scavengeSome()) {
-                return true;
+            Queue<DefaultHandle<?>> returnQueue = this.returnQueue;
+            if (returnQueue == null) {
+                return false;
             }
-
-            // reset our scavenge cursor
-            prev = null;
-            cursor = head;
-            return false;
-        }
-
-        boolean scavengeSome() {
-            WeakOrderQueue prev;
-            WeakOrderQueue cursor = this.cursor;
-            if (cursor == null) {
-                prev = null;
-                cursor = head;
-                if (cursor == null) {
-                    return false;
+            int size = this.size;
+            for (;;) {
+                if (size == elements.length && (size == maxCapacity || increaseCapacity(size + 1) == size)) {
+                    // The stack is full, so leave the remaining handles in the queue.
+                    break;
                 }
-            } else {
-                prev = this.prev;
-            }
-
-            boolean success = false;
-            do {
-                if (cursor.transfer(this)) {
-                    success = true;
+                DefaultHandle<?> handle = returnQueue.poll();
+                if (handle == null) {
                     break;
                 }
-                WeakOrderQueue next = cursor.next;
-                if (cursor.owner.get() == null) {
-                    // If the thread associated with the queue is gone, unlink it, after
-                    // performing a volatile read to confirm there is no data left to collect.
-                    // We never unlink the first queue, as we don't want to synchronize on updating the head.
-                    if (cursor.hasFinalData()) {
-                        for (;;) {
-                            if (cursor.transfer(this)) {
-                                success = true;
-                            } else {
-                                break;
-                            }
-                        }
-                    }
-
-                    if (prev != null) {
-                        prev.setNext(next);
-                    }
-                } else {
-                    prev = cursor;
+                if (handle.recycleId != 0) {
+                    throw new IllegalStateException("recycled already");
                 }
-
-                cursor = next;
-
-            } while (cursor != null && !success);
-
-            this.prev = prev;
-            this.cursor = cursor;
-            return success;
+                handle.recycleId = handle.lastRecycledId;
+                if (dropHandle(handle)) {
+                    parent.recordDrop();
+                    continue;
+                }
+                elements[size ++] = handle;
+            }
+            if (this.size == size) {
+                return false;
+            }
+            this.size = size;
+            return true;
         }
 
         void push(DefaultHandle<?> item) {
@@ -551,7 +426,7 @@ public abstract class Recycler<T> {
             } else {
                 // The current Thread is not the one that belongs to the Stack, we need to signal that the push
                 // happens later.
-                pushLater(item, currentThread);
+                pushLater(item);
             }
         }
 
@@ -559,11 +434,13 @@ public abstract class Recycler<T> {
             if ((item.recycleId | item.lastRecycledId) != 0) {
                 throw new IllegalStateException("recycled already");
             }
-            item.recycleId = item.lastRecycledId = OWN_THREAD_ID;
+            item.recycleId = OWN_THREAD_ID;
+            item.lazySetLastRecycledId(OWN_THREAD_ID);
 
             int size = this.size;
             if (size >= maxCapacity || dropHandle(item)) {
                 // Hit the maximum capacity or should drop - drop the possibly youngest object.
+                parent.recordDrop();
                 return;
             }
             if (size == elements.length) {
@@ -574,30 +451,32 @@ public abstract class Recycler<T> {
             this.size = size + 1;
         }
 
-        private void pushLater(DefaultHandle<?> item, Thread thread) {
-            // we don't want to have a ref to the queue as the value in our weak map
-            // so we null it out; to ensure there are no races with restoring it later
-            // we impose a memory ordering here (no-op on x86)
-            Map<Stack<?>, WeakOrderQueue> delayedRecycled = DELAYED_RECYCLED.get();
-            WeakOrderQueue queue = delayedRecycled.get(this);
-            if (queue == null) {
-                if (delayedRecycled.size() >= maxDelayedQueues) {
-                    // Add a dummy queue so we know we should drop the object
-                    delayedRecycled.put(this, WeakOrderQueue.DUMMY);
-                    return;
-                }
-                // Check if we already reached the maximum number of delayed queues and if we can allocate at all.
-                if ((queue = WeakOrderQueue.allocate(this, thread)) == null) {
-                    // drop object
-                    return;
-                }
-                delayedRecycled.put(this, queue);
-            } else if (queue == WeakOrderQueue.DUMMY) {
-                // drop object
+        private void pushLater(DefaultHandle<?> item) {
+            // Other threads may recycle the same handle concurrently, so only one of them may win.
+            if (!item.compareAndSetLastRecycledId(0, OTHER_THREAD_ID)) {
+                throw new IllegalStateException("recycled already");
+            }
+            if (!returnsFromOtherThreads) {
+                parent.recordDrop();
                 return;
             }
+            Queue<DefaultHandle<?>> returnQueue = this.returnQueue;
+            if (returnQueue == null) {
+                returnQueue = newReturnQueue();
+            }
+            if (!returnQueue.offer(item)) {
+                // The owner did not take the returned handles for a while, so drop it.
+                parent.recordDrop();
+            }
+        }
 
-            queue.add(item);
+        @SuppressWarnings("unchecked")
+        private Queue<DefaultHandle<?>> newReturnQueue() {
+            Queue<DefaultHandle<?>> returnQueue = PlatformDependent.newMpscQueue(LINK_CAPACITY, maxReturnedCapacity);
+            if (RETURN_QUEUE_UPDATER.compareAndSet(this, null, returnQueue)) {
+                return returnQueue;
+            }
+            return this.returnQueue;
         }
 
         boolean dropHandle(DefaultHandle<?> handle) {
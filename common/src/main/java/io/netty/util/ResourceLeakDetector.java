@@ -25,9 +25,15 @@ import io.netty.util.internal.logging.InternalLoggerFactory;
 import java.lang.ref.PhantomReference;
 import java.lang.ref.ReferenceQueue;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Deque;
+import java.util.List;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 
 import static io.netty.util.internal.StringUtil.EMPTY_STRING;
 import static io.netty.util.internal.StringUtil.NEWLINE;
@@ -43,6 +49,14 @@ public class ResourceLeakDetector<T> {
     private static final int DEFAULT_MAX_RECORDS = 4;
     private static final int MAX_RECORDS;
 
+    private static final String PROP_COMPACT_RECORDS = "io.netty.leakDetection.compactRecords";
+    private static final String PROP_MAX_SITE_FRAMES = "io.netty.leakDetection.maxSiteFrames";
+    private static final int DEFAULT_MAX_SITE_FRAMES = 16;
+    private static final int MAX_SITE_FRAMES;
+    private static final String PROP_MAX_SITES = "io.netty.leakDetection.maxSites";
+    private static final int DEFAULT_MAX_SITES = 1024;
+    private static final int MAX_SITES;
+
     /**
      * Represents the level of resource leak detection.
      */
@@ -85,6 +99,7 @@ public class ResourceLeakDetector<T> {
     }
 
     private static Level level;
+    private static boolean compactRecords;
 
     private static final InternalLogger logger = InternalLoggerFactory.getInstance(ResourceLeakDetector.class);
 
@@ -110,11 +125,17 @@ public class ResourceLeakDetector<T> {
         Level level = Level.parseLevel(levelStr);
 
         MAX_RECORDS = SystemPropertyUtil.getInt(PROP_MAX_RECORDS, DEFAULT_MAX_RECORDS);
+        MAX_SITE_FRAMES = Math.max(1, SystemPropertyUtil.getInt(PROP_MAX_SITE_FRAMES, DEFAULT_MAX_SITE_FRAMES));
+        MAX_SITES = Math.max(0, SystemPropertyUtil.getInt(PROP_MAX_SITES, DEFAULT_MAX_SITES));
 
         ResourceLeakDetector.level = level;
+        compactRecords = SystemPropertyUtil.getBoolean(PROP_COMPACT_RECORDS, false);
         if (logger.isDebugEnabled()) {
             logger.debug("-D{}: {}", PROP_LEVEL, level.name().toLowerCase());
             logger.debug("-D{}: {}", PROP_MAX_RECORDS, MAX_RECORDS);
+            logger.debug("-D{}: {}", PROP_COMPACT_RECORDS, compactRecords);
+            logger.debug("-D{}: {}", PROP_MAX_SITE_FRAMES, MAX_SITE_FRAMES);
+            logger.debug("-D{}: {}", PROP_MAX_SITES, MAX_SITES);
         }
     }
 
@@ -153,11 +174,39 @@ public class ResourceLeakDetector<T> {
         return level;
     }
 
+    /**
+     * Sets whether the access records of {@link Level#ADVANCED} and {@link Level#PARANOID} are kept as compact
+     * {@link LeakSite}s instead of full stack trace strings.
+     * <p>
+     * A compact record only keeps the top {@code io.netty.leakDetection.maxSiteFrames} frames of the stack trace and
+     * ignores the hint, and equal records are shared by all tracked objects. This keeps the overhead of
+     * {@link ResourceLeakTracker#record()} low enough to run {@link Level#ADVANCED} in production. The leaks are
+     * still logged, and are also counted per site, see {@link #leakSites()}.
+     * <p>
+     * Each {@link ResourceLeakDetector} interns at most {@code io.netty.leakDetection.maxSites} (default: 1024)
+     * distinct sites. Once this limit is reached, new sites are still kept as access records of the tracked objects,
+     * but they are no longer shared and the leaks at these sites are not counted.
+     */
+    public static void setCompactRecords(boolean compactRecords) {
+        ResourceLeakDetector.compactRecords = compactRecords;
+    }
+
+    /**
+     * Returns {@code true} if access records are kept as compact {@link LeakSite}s.
+     *
+     * @see #setCompactRecords(boolean)
+     */
+    public static boolean isCompactRecords() {
+        return compactRecords;
+    }
+
     /** the collection of active resources */
     private final ConcurrentMap<DefaultResourceLeak, LeakEntry> allLeaks = PlatformDependent.newConcurrentHashMap();
 
     private final ReferenceQueue<Object> refQueue = new ReferenceQueue<Object>();
     private final ConcurrentMap<String, Boolean> reportedLeaks = PlatformDependent.newConcurrentHashMap();
+    /** the interned compact records, limited to {@link #MAX_SITES} entries */
+    private final ConcurrentMap<LeakSite, LeakSite> leakSites = PlatformDependent.newConcurrentHashMap();
 
     private final String resourceType;
     private final int samplingInterval;
@@ -248,6 +297,23 @@ public class ResourceLeakDetector<T> {
         }
     }
 
+    /**
+     * Returns the sites at which leaked objects were created or accessed for the last time, ordered by the number of
+     * leaks. Only leaks of objects which were tracked with {@linkplain #setCompactRecords(boolean) compact records}
+     * are counted, and only at the first {@code io.netty.leakDetection.maxSites} distinct sites, see
+     * {@link #setCompactRecords(boolean)}.
+     */
+    public List<LeakSite> leakSites() {
+        List<LeakSite> sites = new ArrayList<LeakSite>();
+        for (LeakSite site: leakSites.values()) {
+            if (site.leakCount() > 0 || site.lastAccessCount() > 0) {
+                sites.add(site);
+            }
+        }
+        Collections.sort(sites, LEAK_SITE_COMPARATOR);
+        return sites;
+    }
+
     private void reportLeak(Level level) {
         if (!logger.isErrorEnabled()) {
             for (;;) {
@@ -256,7 +322,9 @@ public class ResourceLeakDetector<T> {
                 if (ref == null) {
                     break;
                 }
-                ref.close();
+                if (ref.close()) {
+                    ref.countLeak();
+                }
             }
             return;
         }
@@ -280,6 +348,7 @@ public class ResourceLeakDetector<T> {
             if (!ref.close()) {
                 continue;
             }
+            ref.countLeak();
 
             String records = ref.toString();
             if (reportedLeaks.putIfAbsent(records, Boolean.TRUE) == null) {
@@ -330,9 +399,14 @@ public class ResourceLeakDetector<T> {
     private final class DefaultResourceLeak extends PhantomReference<Object> implements ResourceLeakTracker<T>,
             ResourceLeak {
         private final String creationRecord;
-        private final Deque<String> lastRecords = new ArrayDeque<String>();
+        private final Deque<String> lastRecords;
+        private final LeakSite creationSite;
+        // Ring buffer of the last compact records, lastSites[nextSite - 1] is the most recent one.
+        private final LeakSite[] lastSites;
         private final int trackedHash;
 
+        private int nextSite;
+        private int numSites;
         private int removedRecords;
 
         DefaultResourceLeak(Object referent) {
@@ -346,10 +420,21 @@ public class ResourceLeakDetector<T> {
             trackedHash = System.identityHashCode(referent);
 
             Level level = getLevel();
-            if (level.ordinal() >= Level.ADVANCED.ordinal()) {
-                creationRecord = newRecord(null, 3);
-            } else {
+            if (level.ordinal() < Level.ADVANCED.ordinal()) {
+                creationRecord = null;
+                lastRecords = null;
+                creationSite = null;
+                lastSites = null;
+            } else if (compactRecords) {
                 creationRecord = null;
+                lastRecords = null;
+                creationSite = newSite(3);
+                lastSites = new LeakSite[Math.max(1, MAX_RECORDS)];
+            } else {
+                creationRecord = newRecord(null, 3);
+                lastRecords = new ArrayDeque<String>();
+                creationSite = null;
+                lastSites = null;
             }
             allLeaks.put(this, LeakEntry.INSTANCE);
         }
@@ -378,7 +463,38 @@ public class ResourceLeakDetector<T> {
                         ++removedRecords;
                     }
                 }
+            } else if (creationSite != null) {
+                LeakSite site = newSite(recordsToSkip);
+
+                synchronized (lastSites) {
+                    // Sites are interned, so consecutive equal records are usually detected by identity already.
+                    if (numSites == 0 || !lastSites[(nextSite == 0 ? lastSites.length : nextSite) - 1].equals(site)) {
+                        lastSites[nextSite] = site;
+                        nextSite = nextSite + 1 == lastSites.length ? 0 : nextSite + 1;
+                        if (numSites < lastSites.length) {
+                            numSites ++;
+                        } else {
+                            ++removedRecords;
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * Counts the leak of the tracked object at its creation site and at the site of its last access.
+         */
+        void countLeak() {
+            if (creationSite == null) {
+                return;
             }
+            creationSite.incrementLeakCount();
+            LeakSite lastSite;
+            synchronized (lastSites) {
+                lastSite = numSites == 0 ? creationSite
+                                         : lastSites[(nextSite == 0 ? lastSites.length : nextSite) - 1];
+            }
+            lastSite.incrementLastAccessCount();
         }
 
         @Override
@@ -401,15 +517,27 @@ public class ResourceLeakDetector<T> {
 
         @Override
         public String toString() {
-            if (creationRecord == null) {
-                return EMPTY_STRING;
-            }
-
+            final Object creationRecord;
             final Object[] array;
             final int removedRecords;
-            synchronized (lastRecords) {
-                array = lastRecords.toArray();
-                removedRecords = this.removedRecords;
+            if (this.creationRecord != null) {
+                creationRecord = this.creationRecord;
+                synchronized (lastRecords) {
+                    array = lastRecords.toArray();
+                    removedRecords = this.removedRecords;
+                }
+            } else if (creationSite != null) {
+                creationRecord = creationSite;
+                synchronized (lastSites) {
+                    // Oldest record first, like the records of the Deque.
+                    array = new Object[numSites];
+                    for (int i = 0, j = nextSite - numSites; i < numSites; i ++, j ++) {
+                        array[i] = lastSites[j < 0 ? j + lastSites.length : j];
+                    }
+                    removedRecords = this.removedRecords;
+                }
+            } else {
+                return EMPTY_STRING;
             }
 
             StringBuilder buf = new StringBuilder(16384).append(NEWLINE);
@@ -453,6 +581,70 @@ public class ResourceLeakDetector<T> {
             "io.netty.buffer.AdvancedLeakAwareByteBuf.recordLeakNonRefCountingOperation("
     };
 
+    private static final String[] EXCLUDED_CLASS_NAMES = new String[STACK_TRACE_ELEMENT_EXCLUSIONS.length];
+    private static final String[] EXCLUDED_METHOD_NAMES = new String[STACK_TRACE_ELEMENT_EXCLUSIONS.length];
+
+    static {
+        for (int i = 0; i < STACK_TRACE_ELEMENT_EXCLUSIONS.length; i ++) {
+            String exclusion = STACK_TRACE_ELEMENT_EXCLUSIONS[i];
+            int methodStart = exclusion.lastIndexOf('.');
+            EXCLUDED_CLASS_NAMES[i] = exclusion.substring(0, methodStart);
+            EXCLUDED_METHOD_NAMES[i] = exclusion.substring(methodStart + 1, exclusion.length() - 1);
+        }
+    }
+
+    /**
+     * Returns the interned {@link LeakSite} of the current stack trace. Unlike {@link #newRecord(Object, int)} this
+     * does not convert any of the {@link StackTraceElement}s to a {@link String}.
+     */
+    LeakSite newSite(int recordsToSkip) {
+        StackTraceElement[] array = new Throwable().getStackTrace();
+        StackTraceElement[] frames = new StackTraceElement[Math.min(MAX_SITE_FRAMES, array.length)];
+        int numFrames = 0;
+        for (int i = recordsToSkip; i < array.length && numFrames < frames.length; i ++) {
+            StackTraceElement e = array[i];
+            if (!isExcluded(e)) {
+                frames[numFrames ++] = e;
+            }
+        }
+        if (numFrames < frames.length) {
+            frames = Arrays.copyOf(frames, numFrames);
+        }
+
+        return internSite(new LeakSite(frames));
+    }
+
+    /**
+     * Returns the interned instance of the given {@link LeakSite}, or the given instance itself if it was not
+     * interned before and {@link #MAX_SITES} sites are interned already.
+     */
+    LeakSite internSite(LeakSite site) {
+        // Most sites already exist, so try the lock-free lookup first.
+        LeakSite old = leakSites.get(site);
+        if (old == null) {
+            // Concurrent calls may exceed the limit by a few sites, which is fine as it only needs to be bounded.
+            if (leakSites.size() >= MAX_SITES) {
+                return site;
+            }
+            old = leakSites.putIfAbsent(site, site);
+        }
+        return old != null ? old : site;
+    }
+
+    int numInternedSites() {
+        return leakSites.size();
+    }
+
+    private static boolean isExcluded(StackTraceElement e) {
+        String methodName = e.getMethodName();
+        for (int i = 0; i < EXCLUDED_METHOD_NAMES.length; i ++) {
+            if (EXCLUDED_METHOD_NAMES[i].equals(methodName) && EXCLUDED_CLASS_NAMES[i].equals(e.getClassName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     static String newRecord(Object hint, int recordsToSkip) {
         StringBuilder buf = new StringBuilder(4096);
 
@@ -496,6 +688,98 @@ public class ResourceLeakDetector<T> {
         return buf.toString();
     }
 
+    private static final Comparator<LeakSite> LEAK_SITE_COMPARATOR = new Comparator<LeakSite>() {
+        @Override
+        public int compare(LeakSite o1, LeakSite o2) {
+            long leaks1 = o1.leakCount() + o1.lastAccessCount();
+            long leaks2 = o2.leakCount() + o2.lastAccessCount();
+            return leaks1 < leaks2 ? 1 : leaks1 > leaks2 ? -1 : 0;
+        }
+    };
+
+    /**
+     * A compact access record which identifies the code location at which a tracked object was created or accessed.
+     * Each distinct location is only stored once per {@link ResourceLeakDetector}, together with the number of leaked
+     * objects that were created or accessed for the last time there.
+     *
+     * @see ResourceLeakDetector#setCompactRecords(boolean)
+     */
+    public static final class LeakSite {
+        private static final AtomicLongFieldUpdater<LeakSite> LEAK_COUNT_UPDATER =
+                AtomicLongFieldUpdater.newUpdater(LeakSite.class, "leakCount");
+        private static final AtomicLongFieldUpdater<LeakSite> LAST_ACCESS_COUNT_UPDATER =
+                AtomicLongFieldUpdater.newUpdater(LeakSite.class, "lastAccessCount");
+
+        private final StackTraceElement[] frames;
+        private final int hash;
+
+        // Leaks are rare, so there is no need for anything fancier than an atomic update.
+        private volatile long leakCount;
+        private volatile long lastAccessCount;
+
+        LeakSite(StackTraceElement[] frames) {
+            this.frames = frames;
+            hash = Arrays.hashCode(frames);
+        }
+
+        /**
+         * Returns the top frames of the stack trace of this site.
+         */
+        public StackTraceElement[] stackTrace() {
+            return frames.clone();
+        }
+
+        /**
+         * Returns the number of leaked objects which were created at this site.
+         */
+        public long leakCount() {
+            return leakCount;
+        }
+
+        /**
+         * Returns the number of leaked objects which were accessed for the last time at this site.
+         */
+        public long lastAccessCount() {
+            return lastAccessCount;
+        }
+
+        void incrementLeakCount() {
+            LEAK_COUNT_UPDATER.incrementAndGet(this);
+        }
+
+        void incrementLastAccessCount() {
+            LAST_ACCESS_COUNT_UPDATER.incrementAndGet(this);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (!(obj instanceof LeakSite)) {
+                return false;
+            }
+            LeakSite that = (LeakSite) obj;
+            return hash == that.hash && Arrays.equals(frames, that.frames);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder buf = new StringBuilder(frames.length * 64);
+            for (StackTraceElement e: frames) {
+                buf.append('\t');
+                buf.append(e);
+                buf.append(NEWLINE);
+            }
+            return buf.toString();
+        }
+    }
+
     private static final class LeakEntry {
         static final LeakEntry INSTANCE = new LeakEntry();
         private static final int HASH = System.identityHashCode(INSTANCE);
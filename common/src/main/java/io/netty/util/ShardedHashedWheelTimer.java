@@ -0,0 +1,178 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util;
+
+import io.netty.util.internal.ThreadLocalRandom;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link Timer} which spreads its timeouts over several {@link HashedWheelTimer}s, each with a worker thread of its
+ * own.
+ * <p>
+ * A single {@link HashedWheelTimer} expires all of its timeouts on one thread and all threads which create a timeout
+ * add it to the same queue, which limits the throughput when a lot of timeouts are created and cancelled by many
+ * threads. This timer picks a random wheel for every timeout, so even the timeouts of a single thread are spread
+ * evenly over the wheels. Timeouts of different wheels expire independently of each other, so a slow
+ * {@link TimerTask} only delays the timeouts of its own wheel.
+ * <p>
+ * {@link Timeout#timer()} returns the wheel a timeout was added to and not this timer.
+ */
+public class ShardedHashedWheelTimer implements Timer {
+
+    private final HashedWheelTimer[] shards;
+
+    /**
+     * Creates a new timer with one wheel per available processor, the default thread factory
+     * ({@link Executors#defaultThreadFactory()}), default tick duration, and default number of ticks per wheel.
+     */
+    public ShardedHashedWheelTimer() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a new timer with the default thread factory ({@link Executors#defaultThreadFactory()}), default tick
+     * duration, and default number of ticks per wheel.
+     *
+     * @param numShards the number of wheels and worker threads
+     */
+    public ShardedHashedWheelTimer(int numShards) {
+        this(Executors.defaultThreadFactory(), 100, TimeUnit.MILLISECONDS, 512, numShards);
+    }
+
+    /**
+     * Creates a new timer.
+     *
+     * @param threadFactory a {@link ThreadFactory} that creates the background {@link Thread} of every wheel
+     * @param tickDuration  the duration between tick
+     * @param unit          the time unit of the {@code tickDuration}
+     * @param ticksPerWheel the size of every wheel
+     * @param numShards     the number of wheels and worker threads
+     * @throws NullPointerException     if either of {@code threadFactory} and {@code unit} is {@code null}
+     * @throws IllegalArgumentException if either of {@code tickDuration}, {@code ticksPerWheel} and
+     *                                  {@code numShards} is &lt;= 0
+     */
+    public ShardedHashedWheelTimer(
+            ThreadFactory threadFactory, long tickDuration, TimeUnit unit, int ticksPerWheel, int numShards) {
+        if (numShards <= 0) {
+            throw new IllegalArgumentException("numShards must be greater than 0: " + numShards);
+        }
+        shards = new HashedWheelTimer[numShards];
+        for (int i = 0; i < shards.length; i ++) {
+            shards[i] = new HashedWheelTimer(threadFactory, tickDuration, unit, ticksPerWheel);
+        }
+    }
+
+    @Override
+    public Timeout newTimeout(TimerTask task, long delay, TimeUnit unit) {
+        return shard().newTimeout(task, delay, unit);
+    }
+
+    private HashedWheelTimer shard() {
+        HashedWheelTimer[] shards = this.shards;
+        if (shards.length == 1) {
+            return shards[0];
+        }
+        // A random shard does not need any shared state, unlike a round-robin counter.
+        return shards[ThreadLocalRandom.current().nextInt(shards.length)];
+    }
+
+    /**
+     * Cancels all of the given {@link Timeout}s, which may belong to any {@link Timer}. The {@link Timeout}s are
+     * grouped by their wheel and handed to the worker thread of every wheel in one batch, instead of enqueuing every
+     * cancellation on its own.
+     *
+     * @return the number of {@link Timeout}s which were cancelled by this call
+     */
+    public int cancel(Iterable<? extends Timeout> timeouts) {
+        return HashedWheelTimer.cancel(timeouts);
+    }
+
+    @Override
+    public Set<Timeout> stop() {
+        Set<Timeout> unprocessed = null;
+        for (HashedWheelTimer shard: shards) {
+            Set<Timeout> timeouts = shard.stop();
+            if (!timeouts.isEmpty()) {
+                if (unprocessed == null) {
+                    unprocessed = new HashSet<Timeout>();
+                }
+                unprocessed.addAll(timeouts);
+            }
+        }
+        return unprocessed == null ? Collections.<Timeout>emptySet() : Collections.unmodifiableSet(unprocessed);
+    }
+
+    /**
+     * Returns the number of wheels and worker threads.
+     */
+    public int numShards() {
+        return shards.length;
+    }
+
+    /**
+     * Returns the number of timeouts which are neither expired nor cancelled yet.
+     */
+    public long pendingTimeouts() {
+        long pending = 0;
+        for (HashedWheelTimer shard: shards) {
+            pending += shard.pendingTimeouts();
+        }
+        return pending;
+    }
+
+    /**
+     * Returns the number of timeouts which expired so far.
+     */
+    public long expiredTimeouts() {
+        long expired = 0;
+        for (HashedWheelTimer shard: shards) {
+            expired += shard.expiredTimeouts();
+        }
+        return expired;
+    }
+
+    /**
+     * Returns the average time in nanoseconds by which the expired timeouts were run after their deadline. This
+     * includes the tick duration, as a timeout is only expired on the tick after its deadline, and the time spent
+     * by the {@link TimerTask}s which were run before it on the same wheel.
+     */
+    public long averageLatenessNanos() {
+        long expired = 0;
+        long lateness = 0;
+        for (HashedWheelTimer shard: shards) {
+            expired += shard.expiredTimeouts();
+            lateness += shard.totalLatenessNanos();
+        }
+        return expired == 0 ? 0 : lateness / expired;
+    }
+
+    /**
+     * Returns the longest time in nanoseconds by which an expired timeout was run after its deadline.
+     */
+    public long maxLatenessNanos() {
+        long max = 0;
+        for (HashedWheelTimer shard: shards) {
+            max = Math.max(max, shard.maxLatenessNanos());
+        }
+        return max;
+    }
+}
@@ -16,6 +16,9 @@
 package io.netty.util.concurrent;
 
 import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.SystemPropertyUtil;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
 
 import java.util.PriorityQueue;
 import java.util.Queue;
@@ -28,6 +31,18 @@ import java.util.concurrent.TimeUnit;
  */
 public abstract class AbstractScheduledEventExecutor extends AbstractEventExecutor {
 
+    private static final InternalLogger logger =
+            InternalLoggerFactory.getInstance(AbstractScheduledEventExecutor.class);
+
+    private static final boolean USE_TIMER_WHEEL =
+            SystemPropertyUtil.getBoolean("io.netty.eventexecutor.useTimerWheel", false);
+
+    static {
+        if (logger.isDebugEnabled()) {
+            logger.debug("-Dio.netty.eventexecutor.useTimerWheel: {}", USE_TIMER_WHEEL);
+        }
+    }
+
     Queue<ScheduledFutureTask<?>> scheduledTaskQueue;
 
     protected AbstractScheduledEventExecutor() {
@@ -43,7 +58,10 @@ public abstract class AbstractScheduledEventExecutor extends AbstractEventExecut
 
     Queue<ScheduledFutureTask<?>> scheduledTaskQueue() {
         if (scheduledTaskQueue == null) {
-            scheduledTaskQueue = new PriorityQueue<ScheduledFutureTask<?>>();
+            // The timer wheel makes scheduling and cancelling a task a constant time operation, which pays off when
+            // many timeouts are scheduled and cancelled again before they expire, like the ones of idle handlers.
+            scheduledTaskQueue = USE_TIMER_WHEEL ?
+                    new ScheduledTaskWheel() : new PriorityQueue<ScheduledFutureTask<?>>();
         }
         return scheduledTaskQueue;
     }
@@ -89,6 +107,9 @@ public abstract class AbstractScheduledEventExecutor extends AbstractEventExecut
         assert inEventLoop();
 
         Queue<ScheduledFutureTask<?>> scheduledTaskQueue = this.scheduledTaskQueue;
+        if (scheduledTaskQueue instanceof ScheduledTaskWheel) {
+            return ((ScheduledTaskWheel) scheduledTaskQueue).pollDue(nanoTime);
+        }
         ScheduledFutureTask<?> scheduledTask = scheduledTaskQueue == null ? null : scheduledTaskQueue.peek();
         if (scheduledTask == null) {
             return null;
@@ -105,29 +126,37 @@ public abstract class AbstractScheduledEventExecutor extends AbstractEventExecut
      * Return the nanoseconds when the next scheduled task is ready to be run or {@code -1} if no task is scheduled.
      */
     protected final long nextScheduledTaskNano() {
-        Queue<ScheduledFutureTask<?>> scheduledTaskQueue = this.scheduledTaskQueue;
-        ScheduledFutureTask<?> scheduledTask = scheduledTaskQueue == null ? null : scheduledTaskQueue.peek();
-        if (scheduledTask == null) {
-            return -1;
-        }
-        return Math.max(0, scheduledTask.deadlineNanos() - nanoTime());
+        return nextScheduledTaskNano(nanoTime());
     }
 
-    final ScheduledFutureTask<?> peekScheduledTask() {
+    /**
+     * Return the nanoseconds from the given {@code nanoTime} until the next scheduled task is ready to be run or
+     * {@code -1} if no task is scheduled. When the timer wheel is used the returned value may be a bit shorter than
+     * the delay of the next task, but it is only {@code 0} if a task is ready to be run.
+     */
+    final long nextScheduledTaskNano(long nanoTime) {
         Queue<ScheduledFutureTask<?>> scheduledTaskQueue = this.scheduledTaskQueue;
-        if (scheduledTaskQueue == null) {
-            return null;
+        if (isNullOrEmpty(scheduledTaskQueue)) {
+            return -1;
+        }
+        long deadlineNanos;
+        if (scheduledTaskQueue instanceof ScheduledTaskWheel) {
+            deadlineNanos = ((ScheduledTaskWheel) scheduledTaskQueue).nextDeadlineNanos(nanoTime);
+        } else {
+            ScheduledFutureTask<?> scheduledTask = scheduledTaskQueue.peek();
+            if (scheduledTask == null) {
+                return -1;
+            }
+            deadlineNanos = scheduledTask.deadlineNanos();
         }
-        return scheduledTaskQueue.peek();
+        return Math.max(0, deadlineNanos - nanoTime);
     }
 
     /**
      * Returns {@code true} if a scheduled task is ready for processing.
      */
     protected final boolean hasScheduledTasks() {
-        Queue<ScheduledFutureTask<?>> scheduledTaskQueue = this.scheduledTaskQueue;
-        ScheduledFutureTask<?> scheduledTask = scheduledTaskQueue == null ? null : scheduledTaskQueue.peek();
-        return scheduledTask != null && scheduledTask.deadlineNanos() <= nanoTime();
+        return nextScheduledTaskNano() == 0;
     }
 
     @Override
@@ -26,6 +26,7 @@ import io.netty.util.internal.logging.InternalLoggerFactory;
 
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 import static io.netty.util.internal.ObjectUtil.checkNotNull;
@@ -40,6 +41,12 @@ public class DefaultPromise<V> extends AbstractFuture<V> implements Promise<V> {
     @SuppressWarnings("rawtypes")
     private static final AtomicReferenceFieldUpdater<DefaultPromise, Object> RESULT_UPDATER =
             AtomicReferenceFieldUpdater.newUpdater(DefaultPromise.class, Object.class, "result");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<DefaultPromise, Object> LISTENERS_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(DefaultPromise.class, Object.class, "listeners");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<DefaultPromise> NOTIFYING_LISTENERS_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(DefaultPromise.class, "notifyingListeners");
     private static final Signal SUCCESS = Signal.valueOf(DefaultPromise.class, "SUCCESS");
     private static final Signal UNCANCELLABLE = Signal.valueOf(DefaultPromise.class, "UNCANCELLABLE");
     private static final CauseHolder CANCELLATION_CAUSE_HOLDER = new CauseHolder(ThrowableUtil.unknownStackTrace(
@@ -48,22 +55,23 @@ public class DefaultPromise<V> extends AbstractFuture<V> implements Promise<V> {
     private volatile Object result;
     private final EventExecutor executor;
     /**
-     * One or more listeners. Can be a {@link GenericFutureListener} or a {@link DefaultFutureListeners}.
-     * If {@code null}, it means either 1) no listeners were added yet or 2) all listeners were notified.
+     * One or more listeners. Can be a {@link GenericFutureListener} or the newest {@link ListenerNode} of a stack of
+     * listeners. If {@code null}, it means either 1) no listeners were added yet or 2) all listeners were notified.
      *
-     * Threading - synchronized(this). We must support adding listeners when there is no EventExecutor.
+     * Threading - updated with CAS by any thread. We must support adding listeners when there is no EventExecutor.
      */
-    private Object listeners;
+    private volatile Object listeners;
     /**
-     * Threading - synchronized(this). We are required to hold the monitor to use Java's underlying wait()/notifyAll().
+     * Threading - only modified while synchronized(this), as we are required to hold the monitor to use Java's
+     * underlying wait()/notifyAll(). Volatile so completing the promise only takes the monitor if someone waits.
      */
-    private short waiters;
+    private volatile short waiters;
 
     /**
-     * Threading - synchronized(this). We must prevent concurrent notification and FIFO listener notification if the
-     * executor changes.
+     * Threading - updated with CAS by any thread. We must prevent concurrent notification and FIFO listener
+     * notification if the executor changes.
      */
-    private boolean notifyingListeners;
+    private volatile int notifyingListeners;
 
     /**
      * Creates a new instance.
@@ -155,9 +163,7 @@ public class DefaultPromise<V> extends AbstractFuture<V> implements Promise<V> {
     public Promise<V> addListener(GenericFutureListener<? extends Future<? super V>> listener) {
         checkNotNull(listener, "listener");
 
-        synchronized (this) {
-            addListener0(listener);
-        }
+        addListener0(listener);
 
         if (isDone()) {
             notifyListeners();
@@ -170,13 +176,11 @@ public class DefaultPromise<V> extends AbstractFuture<V> implements Promise<V> {
     public Promise<V> addListeners(GenericFutureListener<? extends Future<? super V>>... listeners) {
         checkNotNull(listeners, "listeners");
 
-        synchronized (this) {
-            for (GenericFutureListener<? extends Future<? super V>> listener : listeners) {
-                if (listener == null) {
-                    break;
-                }
-                addListener0(listener);
+        for (GenericFutureListener<? extends Future<? super V>> listener : listeners) {
+            if (listener == null) {
+                break;
             }
+            addListener0(listener);
         }
 
         if (isDone()) {
@@ -190,9 +194,7 @@ public class DefaultPromise<V> extends AbstractFuture<V> implements Promise<V> {
     public Promise<V> removeListener(final GenericFutureListener<? extends Future<? super V>> listener) {
         checkNotNull(listener, "listener");
 
-        synchronized (this) {
-            removeListener0(listener);
-        }
+        removeListener0(listener);
 
         return this;
     }
@@ -201,13 +203,11 @@ public class DefaultPromise<V> extends AbstractFuture<V> implements Promise<V> {
     public Promise<V> removeListeners(final GenericFutureListener<? extends Future<? super V>>... listeners) {
         checkNotNull(listeners, "listeners");
 
-        synchronized (this) {
-            for (GenericFutureListener<? extends Future<? super V>> listener : listeners) {
-                if (listener == null) {
-                    break;
-                }
-                removeListener0(listener);
+        for (GenericFutureListener<? extends Future<? super V>> listener : listeners) {
+            if (listener == null) {
+                break;
             }
+            removeListener0(listener);
         }
 
         return this;
@@ -226,13 +226,15 @@ public class DefaultPromise<V> extends AbstractFuture<V> implements Promise<V> {
         checkDeadLock();
 
         synchronized (this) {
-            while (!isDone()) {
-                incWaiters();
-                try {
+            // Count as waiter before checking the result, so the completing thread either sees the waiter or we see
+            // the result.
+            incWaiters();
+            try {
+                while (!isDone()) {
                     wait();
-                } finally {
-                    decWaiters();
                 }
+            } finally {
+                decWaiters();
             }
         }
         return this;
@@ -248,16 +250,18 @@ public class DefaultPromise<V> extends AbstractFuture<V> implements Promise<V> {
 
         boolean interrupted = false;
         synchronized (this) {
-            while (!isDone()) {
-                incWaiters();
-                try {
-                    wait();
-                } catch (InterruptedException e) {
-                    // Interrupted while waiting.
-                    interrupted = true;
-                } finally {
-                    decWaiters();
+            incWaiters();
+            try {
+                while (!isDone()) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        // Interrupted while waiting.
+                        interrupted = true;
+                    }
                 }
+            } finally {
+                decWaiters();
             }
         }
 
@@ -436,7 +440,7 @@ public class DefaultPromise<V> extends AbstractFuture<V> implements Promise<V> {
     /**
      * The logic in this method should be identical to {@link #notifyListeners()} but
      * cannot share code because the listener(s) cannot be cached for an instance of {@link DefaultPromise} since the
-     * listener(s) may be changed and is protected by a synchronized operation.
+     * listener(s) may be changed concurrently.
      */
     private static void notifyListenerWithStackOverFlowProtection(final EventExecutor executor,
                                                                   final Future<?> future,
@@ -464,41 +468,45 @@ public class DefaultPromise<V> extends AbstractFuture<V> implements Promise<V> {
     }
 
     private void notifyListenersNow() {
-        Object listeners;
-        synchronized (this) {
+        for (;;) {
             // Only proceed if there are listeners to notify and we are not already notifying listeners.
-            if (notifyingListeners || this.listeners == null) {
+            if (listeners == null || !NOTIFYING_LISTENERS_UPDATER.compareAndSet(this, 0, 1)) {
                 return;
             }
-            notifyingListeners = true;
-            listeners = this.listeners;
-            this.listeners = null;
-        }
-        for (;;) {
-            if (listeners instanceof DefaultFutureListeners) {
-                notifyListeners0((DefaultFutureListeners) listeners);
-            } else {
-                notifyListener0(this, (GenericFutureListener<? extends Future<V>>) listeners);
-            }
-            synchronized (this) {
-                if (this.listeners == null) {
-                    // Nothing can throw from within this method, so setting notifyingListeners back to false does not
-                    // need to be in a finally block.
-                    notifyingListeners = false;
-                    return;
-                }
-                listeners = this.listeners;
-                this.listeners = null;
+            Object listeners = LISTENERS_UPDATER.getAndSet(this, null);
+            // Nothing can throw from within this method, so setting notifyingListeners back to false does not need
+            // to be in a finally block.
+            if (listeners instanceof ListenerNode) {
+                notifyListeners0((ListenerNode) listeners);
+            } else if (listeners != null) {
+                notifyListener0(this, (GenericFutureListener<?>) listeners);
             }
+            notifyingListeners = 0;
+            // A listener may have been added by a thread which saw us notifying, so check again.
         }
     }
 
-    private void notifyListeners0(DefaultFutureListeners listeners) {
-        GenericFutureListener<?>[] a = listeners.listeners();
-        int size = listeners.size();
-        for (int i = 0; i < size; i ++) {
-            notifyListener0(this, a[i]);
+    private void notifyListeners0(ListenerNode head) {
+        if (head.next == null) {
+            notifyListener0(head);
+            return;
+        }
+        // The stack has the newest listener on top, but the listeners are notified in the order they were added.
+        int size = 0;
+        for (ListenerNode node = head; node != null; node = node.next) {
+            size ++;
+        }
+        ListenerNode[] nodes = new ListenerNode[size];
+        for (ListenerNode node = head; node != null; node = node.next) {
+            nodes[-- size] = node;
         }
+        for (ListenerNode node: nodes) {
+            notifyListener0(node);
+        }
+    }
+
+    private void notifyListener0(ListenerNode node) {
+        notifyListener0(this, node.listener);
     }
 
     @SuppressWarnings({ "unchecked", "rawtypes" })
@@ -511,21 +519,87 @@ public class DefaultPromise<V> extends AbstractFuture<V> implements Promise<V> {
     }
 
     private void addListener0(GenericFutureListener<? extends Future<? super V>> listener) {
-        if (listeners == null) {
-            listeners = listener;
-        } else if (listeners instanceof DefaultFutureListeners) {
-            ((DefaultFutureListeners) listeners).add(listener);
-        } else {
-            listeners = new DefaultFutureListeners((GenericFutureListener<? extends Future<V>>) listeners, listener);
+        for (;;) {
+            Object listeners = this.listeners;
+            Object newListeners;
+            if (listeners == null) {
+                // Most promises have a single listener at most, so store it without a node.
+                newListeners = listener;
+            } else if (listeners instanceof ListenerNode) {
+                newListeners = new ListenerNode(listener, (ListenerNode) listeners);
+            } else {
+                newListeners = new ListenerNode(
+                        listener, new ListenerNode((GenericFutureListener<?>) listeners, null));
+            }
+            if (LISTENERS_UPDATER.compareAndSet(this, listeners, newListeners)) {
+                return;
+            }
         }
     }
 
     private void removeListener0(GenericFutureListener<? extends Future<? super V>> listener) {
-        if (listeners instanceof DefaultFutureListeners) {
-            ((DefaultFutureListeners) listeners).remove(listener);
-        } else if (listeners == listener) {
-            listeners = null;
+        for (;;) {
+            Object listeners = this.listeners;
+            if (listeners == listener) {
+                if (LISTENERS_UPDATER.compareAndSet(this, listener, null)) {
+                    return;
+                }
+            } else if (listeners instanceof ListenerNode) {
+                Object newListeners = removeOldest((ListenerNode) listeners, listener);
+                if (newListeners == listeners || LISTENERS_UPDATER.compareAndSet(this, listeners, newListeners)) {
+                    return;
+                }
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the listeners without the oldest node of the given listener, or {@code head} if there is none. As the
+     * nodes are immutable the older nodes are shared and only the newer ones are copied, so the stack never keeps
+     * nodes of removed listeners.
+     */
+    private static Object removeOldest(ListenerNode head, GenericFutureListener<?> listener) {
+        ListenerNode oldest = null;
+        int newer = 0;
+        int size = 0;
+        for (ListenerNode node = head; node != null; node = node.next) {
+            size ++;
+            if (node.listener == listener) {
+                oldest = node;
+                newer = size - 1;
+            }
+        }
+        if (oldest == null) {
+            return head;
+        }
+        ListenerNode[] nodes = new ListenerNode[newer];
+        ListenerNode node = head;
+        for (int i = 0; i < newer; i ++, node = node.next) {
+            nodes[i] = node;
+        }
+        ListenerNode newHead = oldest.next;
+        for (int i = newer - 1; i >= 0; i --) {
+            newHead = new ListenerNode(nodes[i].listener, newHead);
+        }
+        if (newHead == null) {
+            return null;
         }
+        // Go back to storing the listener without a node once it is the only one.
+        return newHead.next == null ? newHead.listener : newHead;
+    }
+
+    // visible for testing
+    int numListenerNodes() {
+        int size = 0;
+        Object listeners = this.listeners;
+        if (listeners instanceof ListenerNode) {
+            for (ListenerNode node = (ListenerNode) listeners; node != null; node = node.next) {
+                size ++;
+            }
+        }
+        return size;
     }
 
     private boolean setSuccess0(V result) {
@@ -545,9 +619,12 @@ public class DefaultPromise<V> extends AbstractFuture<V> implements Promise<V> {
         return false;
     }
 
-    private synchronized void checkNotifyWaiters() {
+    private void checkNotifyWaiters() {
+        // Only take the monitor if someone waits, which is rare compared to adding listeners.
         if (waiters > 0) {
-            notifyAll();
+            synchronized (this) {
+                notifyAll();
+            }
         }
     }
 
@@ -592,11 +669,11 @@ public class DefaultPromise<V> extends AbstractFuture<V> implements Promise<V> {
         try {
             for (;;) {
                 synchronized (this) {
-                    if (isDone()) {
-                        return true;
-                    }
                     incWaiters();
                     try {
+                        if (isDone()) {
+                            return true;
+                        }
                         wait(waitTime / 1000000, (int) (waitTime % 1000000));
                     } catch (InterruptedException e) {
                         if (interruptable) {
@@ -679,35 +756,37 @@ public class DefaultPromise<V> extends AbstractFuture<V> implements Promise<V> {
      * Returns a {@link GenericProgressiveFutureListener}, an array of {@link GenericProgressiveFutureListener}, or
      * {@code null}.
      */
-    private synchronized Object progressiveListeners() {
+    private Object progressiveListeners() {
         Object listeners = this.listeners;
         if (listeners == null) {
             // No listeners added
             return null;
         }
 
-        if (listeners instanceof DefaultFutureListeners) {
-            // Copy DefaultFutureListeners into an array of listeners.
-            DefaultFutureListeners dfl = (DefaultFutureListeners) listeners;
-            int progressiveSize = dfl.progressiveSize();
+        if (listeners instanceof ListenerNode) {
+            int progressiveSize = 0;
+            GenericProgressiveFutureListener<?> progressive = null;
+            for (ListenerNode node = (ListenerNode) listeners; node != null; node = node.next) {
+                GenericFutureListener<?> l = node.listener;
+                if (l instanceof GenericProgressiveFutureListener) {
+                    progressive = (GenericProgressiveFutureListener<?>) l;
+                    progressiveSize ++;
+                }
+            }
             switch (progressiveSize) {
                 case 0:
                     return null;
                 case 1:
-                    for (GenericFutureListener<?> l: dfl.listeners()) {
-                        if (l instanceof GenericProgressiveFutureListener) {
-                            return l;
-                        }
-                    }
-                    return null;
+                    return progressive;
             }
 
-            GenericFutureListener<?>[] array = dfl.listeners();
+            // Copy the listeners into an array in the order they were added. The nodes are immutable, so this sees the
+            // same listeners as the loop above.
             GenericProgressiveFutureListener<?>[] copy = new GenericProgressiveFutureListener[progressiveSize];
-            for (int i = 0, j = 0; j < progressiveSize; i ++) {
-                GenericFutureListener<?> l = array[i];
+            for (ListenerNode node = (ListenerNode) listeners; progressiveSize > 0; node = node.next) {
+                GenericFutureListener<?> l = node.listener;
                 if (l instanceof GenericProgressiveFutureListener) {
-                    copy[j ++] = (GenericProgressiveFutureListener<?>) l;
+                    copy[-- progressiveSize] = (GenericProgressiveFutureListener<?>) l;
                 }
             }
 
@@ -748,6 +827,21 @@ public class DefaultPromise<V> extends AbstractFuture<V> implements Promise<V> {
         return result != null && result != UNCANCELLABLE;
     }
 
+    /**
+     * A listener on the stack of listeners, with the most recently added listener on top. Nodes are never modified,
+     * so every read of the stack sees a consistent snapshot without locking. Adding a listener pushes a new node,
+     * removing one replaces the stack with a copy that does not contain it.
+     */
+    private static final class ListenerNode {
+        final ListenerNode next;
+        final GenericFutureListener<?> listener;
+
+        ListenerNode(GenericFutureListener<?> listener, ListenerNode next) {
+            this.listener = listener;
+            this.next = next;
+        }
+    }
+
     private static final class CauseHolder {
         final Throwable cause;
         CauseHolder(Throwable cause) {
@@ -73,8 +73,8 @@ public final class GlobalEventExecutor extends AbstractScheduledEventExecutor {
     Runnable takeTask() {
         BlockingQueue<Runnable> taskQueue = this.taskQueue;
         for (;;) {
-            ScheduledFutureTask<?> scheduledTask = peekScheduledTask();
-            if (scheduledTask == null) {
+            long delayNanos = nextScheduledTaskNano();
+            if (delayNanos == -1) {
                 Runnable task = null;
                 try {
                     task = taskQueue.take();
@@ -83,7 +83,6 @@ public final class GlobalEventExecutor extends AbstractScheduledEventExecutor {
                 }
                 return task;
             } else {
-                long delayNanos = scheduledTask.delayNanos();
                 Runnable task;
                 if (delayNanos > 0) {
                     try {
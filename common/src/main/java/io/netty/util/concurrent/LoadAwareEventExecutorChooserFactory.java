@@ -0,0 +1,139 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.ThreadLocalRandom;
+import io.netty.util.internal.UnstableApi;
+
+/**
+ * {@link EventExecutorChooserFactory} whose choosers pick the less loaded of two randomly selected
+ * {@link EventExecutor}s ("power of two choices").
+ * <p>
+ * Unlike round-robin this keeps long-lived work spread evenly when executors get uneven amounts of it, for example
+ * because some connections live much longer than others, while it only has to look at two executors for every choice
+ * and does not send all new work to the same executor until its load is updated.
+ */
+@UnstableApi
+public final class LoadAwareEventExecutorChooserFactory implements EventExecutorChooserFactory {
+
+    /**
+     * Estimates the current load of an {@link EventExecutor}. Implementations are called from any thread and
+     * should be cheap, as they are called twice for every choice.
+     */
+    public interface LoadEstimator {
+        /**
+         * Returns the load of the given {@link EventExecutor}, where a higher value means more load.
+         */
+        long load(EventExecutor executor);
+    }
+
+    /**
+     * Uses the number of tasks in the task queue of a {@link SingleThreadEventExecutor} as its load, and {@code 0} for
+     * any other {@link EventExecutor}. The size of the task queue is read directly, as
+     * {@link SingleThreadEventExecutor#pendingTasks()} may have to ask the executor thread itself.
+     */
+    public static final LoadEstimator PENDING_TASKS = new LoadEstimator() {
+        @Override
+        public long load(EventExecutor executor) {
+            return executor instanceof SingleThreadEventExecutor ?
+                    ((SingleThreadEventExecutor) executor).queuedTasks() : 0;
+        }
+    };
+
+    /**
+     * Uses the {@link SingleThreadEventExecutorMetric#recentBusyTimeNanos() recent busy time} of a
+     * {@link SingleThreadEventExecutor} as its load, and {@code 0} for any other {@link EventExecutor}. The
+     * {@link SingleThreadEventExecutor#metric() metric} of every such executor must be collected already, for example
+     * because the system property {@code io.netty.eventexecutor.metrics} is {@code true}, as it only measures the
+     * busy time from then on. {@link #newChooser(EventExecutor[])} throws an {@link IllegalStateException} otherwise.
+     */
+    public static final LoadEstimator RECENT_BUSY_TIME = new LoadEstimator() {
+        @Override
+        public long load(EventExecutor executor) {
+            if (!(executor instanceof SingleThreadEventExecutor)) {
+                return 0;
+            }
+            SingleThreadEventExecutor singleThreadExecutor = (SingleThreadEventExecutor) executor;
+            if (!singleThreadExecutor.isMetricCollected()) {
+                // Only possible if the estimator is used without newChooser(...), which validates the executors.
+                throw newMetricNotCollectedException(executor);
+            }
+            return singleThreadExecutor.metric().recentBusyTimeNanos();
+        }
+    };
+
+    private static IllegalStateException newMetricNotCollectedException(EventExecutor executor) {
+        return new IllegalStateException("metric of " + executor + " is not collected " +
+                "(set -Dio.netty.eventexecutor.metrics=true or call metric() before)");
+    }
+
+    private final LoadEstimator estimator;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param estimator the {@link LoadEstimator} which is used to compare the randomly selected executors
+     */
+    public LoadAwareEventExecutorChooserFactory(LoadEstimator estimator) {
+        this.estimator = ObjectUtil.checkNotNull(estimator, "estimator");
+    }
+
+    @Override
+    public EventExecutorChooser newChooser(EventExecutor[] executors) {
+        if (executors.length == 0) {
+            throw new IllegalArgumentException("executors must not be empty");
+        }
+        if (estimator == RECENT_BUSY_TIME) {
+            // Fail when the group or bootstrap is built, and not on every choice.
+            for (EventExecutor executor: executors) {
+                if (executor instanceof SingleThreadEventExecutor &&
+                        !((SingleThreadEventExecutor) executor).isMetricCollected()) {
+                    throw newMetricNotCollectedException(executor);
+                }
+            }
+        }
+        return new PowerOfTwoChoicesEventExecutorChooser(executors.clone(), estimator);
+    }
+
+    private static final class PowerOfTwoChoicesEventExecutorChooser implements EventExecutorChooser {
+        private final EventExecutor[] executors;
+        private final LoadEstimator estimator;
+
+        PowerOfTwoChoicesEventExecutorChooser(EventExecutor[] executors, LoadEstimator estimator) {
+            this.executors = executors;
+            this.estimator = estimator;
+        }
+
+        @Override
+        public EventExecutor next() {
+            EventExecutor[] executors = this.executors;
+            if (executors.length == 1) {
+                return executors[0];
+            }
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int first = random.nextInt(executors.length);
+            // Pick the second one from the remaining executors, so the two are never the same.
+            int second = random.nextInt(executors.length - 1);
+            if (second >= first) {
+                second ++;
+            }
+            EventExecutor a = executors[first];
+            EventExecutor b = executors[second];
+            return estimator.load(b) < estimator.load(a) ? b : a;
+        }
+    }
+}
@@ -31,6 +31,13 @@ final class ScheduledFutureTask<V> extends PromiseTask<V> implements ScheduledFu
         return System.nanoTime() - START_TIME;
     }
 
+    /**
+     * Converts a value returned by {@link System#nanoTime()} to the time base of the deadlines.
+     */
+    static long nanoTime(long systemNanoTime) {
+        return systemNanoTime - START_TIME;
+    }
+
     static long deadlineNanos(long delay) {
         return nanoTime() + delay;
     }
@@ -40,6 +47,11 @@ final class ScheduledFutureTask<V> extends PromiseTask<V> implements ScheduledFu
     /* 0 - no repeat, >0 - repeat at fixed rate, <0 - repeat with fixed delay */
     private final long periodNanos;
 
+    // Links the tasks of a bucket of a ScheduledTaskWheel, the bucket is -1 if the task is not in any bucket.
+    ScheduledFutureTask<?> prevInBucket;
+    ScheduledFutureTask<?> nextInBucket;
+    int bucket = -1;
+
     ScheduledFutureTask(
             AbstractScheduledEventExecutor executor,
             Runnable runnable, V result, long nanoTime) {
@@ -0,0 +1,298 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Hierarchical timing wheel which holds the scheduled tasks of an {@link AbstractScheduledEventExecutor} instead of a
+ * single {@link PriorityQueue}. It is only accessed from the event loop, so it does not need any synchronization.
+ * <p>
+ * The time is divided into ticks of {@code 2^20} nanoseconds (about one millisecond). Every level of the wheel has
+ * {@code 64} buckets, and a bucket of level {@code n} spans {@code 64^n} ticks. A task is put into the lowest level
+ * whose bucket does not contain the current tick, which takes constant time, and is removed from its bucket in
+ * constant time when it is cancelled. Once the current time reaches a bucket its tasks are either moved to a lower
+ * level or, for the lowest level, into a small {@link PriorityQueue} of due tasks. This keeps the exact ordering of
+ * the deadlines while only the tasks of the current tick are ever kept in a heap. Tasks which are scheduled further
+ * ahead than the wheel spans (about five hours) are kept in a separate heap until the wheel reaches them.
+ */
+final class ScheduledTaskWheel extends AbstractQueue<ScheduledFutureTask<?>> {
+
+    private static final int TICK_SHIFT = 20;
+    // 64 buckets per level, so the non-empty buckets of a level can be tracked in a single long.
+    private static final int BUCKET_BITS = 6;
+    private static final int BUCKETS_PER_LEVEL = 1 << BUCKET_BITS;
+    private static final int BUCKET_MASK = BUCKETS_PER_LEVEL - 1;
+    private static final int LEVELS = 4;
+
+    private final ScheduledFutureTask<?>[] buckets = new ScheduledFutureTask<?>[LEVELS * BUCKETS_PER_LEVEL];
+    // One bit per non-empty bucket of each level.
+    private final long[] occupied = new long[LEVELS];
+    // Tasks whose tick is not after the current tick, ordered by their deadline.
+    private final PriorityQueue<ScheduledFutureTask<?>> dueTasks = new PriorityQueue<ScheduledFutureTask<?>>();
+    // Tasks which are too far in the future to fit into the wheel.
+    private final PriorityQueue<ScheduledFutureTask<?>> overflowTasks = new PriorityQueue<ScheduledFutureTask<?>>();
+    private long currentTick;
+    private int size;
+
+    ScheduledTaskWheel() {
+        currentTick = ScheduledFutureTask.nanoTime() >> TICK_SHIFT;
+    }
+
+    @Override
+    public boolean offer(ScheduledFutureTask<?> task) {
+        if (task == null) {
+            throw new NullPointerException("task");
+        }
+        add0(task);
+        size ++;
+        return true;
+    }
+
+    private void add0(ScheduledFutureTask<?> task) {
+        long tick = task.deadlineNanos() >> TICK_SHIFT;
+        if (tick <= currentTick) {
+            dueTasks.add(task);
+            return;
+        }
+        // The highest bit in which the tick differs from the current tick determines the level.
+        int level = (Long.SIZE - 1 - Long.numberOfLeadingZeros(tick ^ currentTick)) / BUCKET_BITS;
+        if (level >= LEVELS) {
+            overflowTasks.add(task);
+            return;
+        }
+        int slot = (int) (tick >>> level * BUCKET_BITS) & BUCKET_MASK;
+        int bucket = level << BUCKET_BITS | slot;
+        ScheduledFutureTask<?> head = buckets[bucket];
+        if (head != null) {
+            head.prevInBucket = task;
+        }
+        task.nextInBucket = head;
+        task.prevInBucket = null;
+        task.bucket = bucket;
+        buckets[bucket] = task;
+        occupied[level] |= 1L << slot;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (!(o instanceof ScheduledFutureTask)) {
+            return false;
+        }
+        ScheduledFutureTask<?> task = (ScheduledFutureTask<?>) o;
+        if (task.bucket >= 0) {
+            unlink(task);
+        } else if (!dueTasks.remove(task) && !overflowTasks.remove(task)) {
+            return false;
+        }
+        size --;
+        return true;
+    }
+
+    private void unlink(ScheduledFutureTask<?> task) {
+        int bucket = task.bucket;
+        ScheduledFutureTask<?> prev = task.prevInBucket;
+        ScheduledFutureTask<?> next = task.nextInBucket;
+        if (next != null) {
+            next.prevInBucket = prev;
+        }
+        if (prev != null) {
+            prev.nextInBucket = next;
+        } else {
+            buckets[bucket] = next;
+            if (next == null) {
+                occupied[bucket >>> BUCKET_BITS] &= ~(1L << (bucket & BUCKET_MASK));
+            }
+        }
+        task.prevInBucket = null;
+        task.nextInBucket = null;
+        task.bucket = -1;
+    }
+
+    /**
+     * Returns the first task whose deadline is not after {@code nanoTime} and removes it, or returns {@code null} if
+     * there is no such task.
+     */
+    ScheduledFutureTask<?> pollDue(long nanoTime) {
+        advance(nanoTime);
+        ScheduledFutureTask<?> task = dueTasks.peek();
+        if (task == null || task.deadlineNanos() > nanoTime) {
+            return null;
+        }
+        dueTasks.remove();
+        size --;
+        return task;
+    }
+
+    /**
+     * Returns the time at which the next task may be due, which must only be called if the wheel is not empty. The
+     * returned value is never after the deadline of the next task, but may be earlier if the next task is still kept
+     * in a bucket of a higher level. It is never earlier than {@code nanoTime} unless a task is due.
+     */
+    long nextDeadlineNanos(long nanoTime) {
+        assert size != 0;
+        advance(nanoTime);
+        ScheduledFutureTask<?> task = dueTasks.peek();
+        if (task != null) {
+            return task.deadlineNanos();
+        }
+        for (int level = 0; level < LEVELS; level ++) {
+            if (occupied[level] != 0) {
+                return bucketStart(level, Long.numberOfTrailingZeros(occupied[level])) << TICK_SHIFT;
+            }
+        }
+        return overflowTasks.peek().deadlineNanos();
+    }
+
+    /**
+     * Moves the tasks of all buckets which are not after the tick of {@code nanoTime} down the wheel.
+     */
+    private void advance(long nanoTime) {
+        long tick = nanoTime >> TICK_SHIFT;
+        for (;;) {
+            int level = 0;
+            while (level < LEVELS && occupied[level] == 0) {
+                level ++;
+            }
+            if (level == LEVELS) {
+                // The wheel is empty, so it can start over at the given time.
+                if (tick > currentTick) {
+                    currentTick = tick;
+                    promoteOverflowTasks();
+                }
+                return;
+            }
+
+            int slot = Long.numberOfTrailingZeros(occupied[level]);
+            long start = bucketStart(level, slot);
+            if (start > tick) {
+                // All buckets start after the given time, so moving the current tick does not change in which
+                // bucket any of the tasks belongs.
+                if (tick > currentTick) {
+                    currentTick = tick;
+                }
+                return;
+            }
+
+            int bucket = level << BUCKET_BITS | slot;
+            ScheduledFutureTask<?> task = buckets[bucket];
+            buckets[bucket] = null;
+            occupied[level] &= ~(1L << slot);
+            currentTick = start;
+            while (task != null) {
+                ScheduledFutureTask<?> next = task.nextInBucket;
+                task.prevInBucket = null;
+                task.nextInBucket = null;
+                task.bucket = -1;
+                add0(task);
+                task = next;
+            }
+        }
+    }
+
+    private long bucketStart(int level, int slot) {
+        int spanShift = (level + 1) * BUCKET_BITS;
+        return currentTick >>> spanShift << spanShift | (long) slot << level * BUCKET_BITS;
+    }
+
+    private void promoteOverflowTasks() {
+        for (;;) {
+            ScheduledFutureTask<?> task = overflowTasks.peek();
+            if (task == null) {
+                return;
+            }
+            long tick = task.deadlineNanos() >> TICK_SHIFT;
+            if (tick > currentTick && (tick ^ currentTick) >>> LEVELS * BUCKET_BITS != 0) {
+                // The following tasks are even further ahead.
+                return;
+            }
+            overflowTasks.remove();
+            add0(task);
+        }
+    }
+
+    /**
+     * Returns the task with the earliest deadline without taking the current time into account. Prefer
+     * {@link #pollDue(long)} and {@link #nextDeadlineNanos(long)}, as this may need to move the tasks of buckets which
+     * are not due yet.
+     */
+    @Override
+    public ScheduledFutureTask<?> peek() {
+        while (dueTasks.isEmpty() && size != 0) {
+            long nextDeadlineNanos = nextDeadlineNanos(currentTick << TICK_SHIFT);
+            advance(nextDeadlineNanos);
+        }
+        return dueTasks.peek();
+    }
+
+    @Override
+    public ScheduledFutureTask<?> poll() {
+        ScheduledFutureTask<?> task = peek();
+        if (task != null) {
+            dueTasks.remove();
+            size --;
+        }
+        return task;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        for (int bucket = 0; bucket < buckets.length; bucket ++) {
+            ScheduledFutureTask<?> task = buckets[bucket];
+            while (task != null) {
+                ScheduledFutureTask<?> next = task.nextInBucket;
+                task.prevInBucket = null;
+                task.nextInBucket = null;
+                task.bucket = -1;
+                task = next;
+            }
+            buckets[bucket] = null;
+        }
+        for (int level = 0; level < LEVELS; level ++) {
+            occupied[level] = 0;
+        }
+        dueTasks.clear();
+        overflowTasks.clear();
+        size = 0;
+    }
+
+    /**
+     * Returns an {@link Iterator} over a snapshot of all tasks in no particular order, which does not support
+     * {@link Iterator#remove()}.
+     */
+    @Override
+    public Iterator<ScheduledFutureTask<?>> iterator() {
+        List<ScheduledFutureTask<?>> tasks = new ArrayList<ScheduledFutureTask<?>>(size);
+        tasks.addAll(dueTasks);
+        for (ScheduledFutureTask<?> head: buckets) {
+            for (ScheduledFutureTask<?> task = head; task != null; task = task.nextInBucket) {
+                tasks.add(task);
+            }
+        }
+        tasks.addAll(overflowTasks);
+        return Collections.unmodifiableList(tasks).iterator();
+    }
+}
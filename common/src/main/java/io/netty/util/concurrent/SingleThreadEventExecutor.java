@@ -17,6 +17,7 @@ package io.netty.util.concurrent;
 
 import io.netty.util.internal.ObjectUtil;
 import io.netty.util.internal.SystemPropertyUtil;
+import io.netty.util.internal.ThreadExecutorMap;
 import io.netty.util.internal.UnstableApi;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
@@ -53,6 +54,15 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
     private static final InternalLogger logger =
             InternalLoggerFactory.getInstance(SingleThreadEventExecutor.class);
 
+    private static final boolean METRICS_ENABLED =
+            SystemPropertyUtil.getBoolean("io.netty.eventexecutor.metrics", false);
+
+    static {
+        if (logger.isDebugEnabled()) {
+            logger.debug("-Dio.netty.eventexecutor.metrics: {}", METRICS_ENABLED);
+        }
+    }
+
     private static final int ST_NOT_STARTED = 1;
     private static final int ST_STARTED = 2;
     private static final int ST_SHUTTING_DOWN = 3;
@@ -74,6 +84,9 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
 
     private static final AtomicIntegerFieldUpdater<SingleThreadEventExecutor> STATE_UPDATER =
             AtomicIntegerFieldUpdater.newUpdater(SingleThreadEventExecutor.class, "state");
+    private static final AtomicReferenceFieldUpdater<SingleThreadEventExecutor, SingleThreadEventExecutorMetric>
+            METRIC_UPDATER = AtomicReferenceFieldUpdater.newUpdater(
+                    SingleThreadEventExecutor.class, SingleThreadEventExecutorMetric.class, "metric");
     private static final AtomicReferenceFieldUpdater<SingleThreadEventExecutor, ThreadProperties> PROPERTIES_UPDATER =
             AtomicReferenceFieldUpdater.newUpdater(
                     SingleThreadEventExecutor.class, ThreadProperties.class, "threadProperties");
@@ -83,6 +96,7 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
     private volatile Thread thread;
     @SuppressWarnings("unused")
     private volatile ThreadProperties threadProperties;
+    private volatile SingleThreadEventExecutorMetric metric;
     private final Executor executor;
     private volatile boolean interrupted;
 
@@ -163,6 +177,9 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
         this.executor = ObjectUtil.checkNotNull(executor, "executor");
         taskQueue = newTaskQueue(this.maxPendingTasks);
         rejectedExecutionHandler = ObjectUtil.checkNotNull(rejectedHandler, "rejectedHandler");
+        if (METRICS_ENABLED) {
+            metric = newMetric();
+        }
     }
 
     /**
@@ -230,8 +247,8 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
 
         BlockingQueue<Runnable> taskQueue = (BlockingQueue<Runnable>) this.taskQueue;
         for (;;) {
-            ScheduledFutureTask<?> scheduledTask = peekScheduledTask();
-            if (scheduledTask == null) {
+            long delayNanos = nextScheduledTaskNano();
+            if (delayNanos == -1) {
                 Runnable task = null;
                 try {
                     task = taskQueue.take();
@@ -243,7 +260,6 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
                 }
                 return task;
             } else {
-                long delayNanos = scheduledTask.delayNanos();
                 Runnable task = null;
                 if (delayNanos > 0) {
                     try {
@@ -309,6 +325,14 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
         return taskQueue.size();
     }
 
+    /**
+     * Returns the number of tasks in the task queue, which unlike {@link #pendingTasks()} is never overridden to ask
+     * the executor thread, so it is cheap but only approximate when called from another thread.
+     */
+    final int queuedTasks() {
+        return taskQueue.size();
+    }
+
     /**
      * Add a task to the task queue, or throws a {@link RejectedExecutionException} if this instance was shutdown
      * before.
@@ -346,21 +370,24 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
      */
     protected boolean runAllTasks() {
         assert inEventLoop();
+        final SingleThreadEventExecutorMetric metric = this.metric;
+        final long startTime = metric != null ? ScheduledFutureTask.nanoTime() : 0;
         boolean fetchedAll;
-        boolean ranAtLeastOne = false;
+        int runTasks = 0;
 
         do {
             fetchedAll = fetchFromScheduledTaskQueue();
-            if (runAllTasksFrom(taskQueue)) {
-                ranAtLeastOne = true;
-            }
+            runTasks += runTasksFrom(taskQueue);
         } while (!fetchedAll); // keep on processing until we fetched all scheduled tasks.
 
-        if (ranAtLeastOne) {
+        if (runTasks != 0) {
             lastExecutionTime = ScheduledFutureTask.nanoTime();
         }
         afterRunningAllTasks();
-        return ranAtLeastOne;
+        if (metric != null) {
+            metric.recordTaskRun(runTasks, ScheduledFutureTask.nanoTime() - startTime);
+        }
+        return runTasks != 0;
     }
 
     /**
@@ -371,15 +398,19 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
      * @return {@code true} if atleast one task was executed.
      */
     protected final boolean runAllTasksFrom(Queue<Runnable> taskQueue) {
+        return runTasksFrom(taskQueue) != 0;
+    }
+
+    private int runTasksFrom(Queue<Runnable> taskQueue) {
         Runnable task = pollTaskFrom(taskQueue);
         if (task == null) {
-            return false;
+            return 0;
         }
-        for (;;) {
+        for (int runTasks = 1;; runTasks ++) {
             safeExecute(task);
             task = pollTaskFrom(taskQueue);
             if (task == null) {
-                return true;
+                return runTasks;
             }
         }
     }
@@ -396,7 +427,8 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
             return false;
         }
 
-        final long deadline = ScheduledFutureTask.nanoTime() + timeoutNanos;
+        final long startTime = ScheduledFutureTask.nanoTime();
+        final long deadline = startTime + timeoutNanos;
         long runTasks = 0;
         long lastExecutionTime;
         for (;;) {
@@ -422,6 +454,10 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
 
         afterRunningAllTasks();
         this.lastExecutionTime = lastExecutionTime;
+        final SingleThreadEventExecutorMetric metric = this.metric;
+        if (metric != null) {
+            metric.recordTaskRun((int) runTasks, ScheduledFutureTask.nanoTime() - startTime);
+        }
         return true;
     }
 
@@ -434,12 +470,12 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
      * Returns the amount of time left until the scheduled task with the closest dead line is executed.
      */
     protected long delayNanos(long currentTimeNanos) {
-        ScheduledFutureTask<?> scheduledTask = peekScheduledTask();
-        if (scheduledTask == null) {
+        long delayNanos = nextScheduledTaskNano(ScheduledFutureTask.nanoTime(currentTimeNanos));
+        if (delayNanos == -1) {
             return SCHEDULE_PURGE_INTERVAL;
         }
 
-        return scheduledTask.delayNanos(currentTimeNanos);
+        return delayNanos;
     }
 
     /**
@@ -469,10 +505,51 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
         if (!inEventLoop || STATE_UPDATER.get(this) == ST_SHUTTING_DOWN) {
             // Use offer as we actually only need this to unblock the thread and if offer fails we do not care as there
             // is already something in the queue.
-            taskQueue.offer(WAKEUP_TASK);
+            if (taskQueue.offer(WAKEUP_TASK) && !inEventLoop) {
+                recordWakeup();
+            }
+        }
+    }
+
+    /**
+     * Records that another thread woke up this executor, which sub-classes that override {@link #wakeup(boolean)}
+     * should call for every wake-up they issue.
+     */
+    protected final void recordWakeup() {
+        final SingleThreadEventExecutorMetric metric = this.metric;
+        if (metric != null) {
+            metric.recordWakeup();
         }
     }
 
+    /**
+     * Returns the metric of this executor. The metric is collected from the start if the system property
+     * {@code io.netty.eventexecutor.metrics} is {@code true}, and from the first call of this method on otherwise.
+     */
+    public SingleThreadEventExecutorMetric metric() {
+        SingleThreadEventExecutorMetric metric = this.metric;
+        if (metric == null) {
+            METRIC_UPDATER.compareAndSet(this, null, newMetric());
+            metric = this.metric;
+        }
+        return metric;
+    }
+
+    /**
+     * Returns {@code true} if the {@link #metric()} of this executor is collected.
+     */
+    protected final boolean isMetricCollected() {
+        return metric != null;
+    }
+
+    /**
+     * Creates the {@link SingleThreadEventExecutorMetric} of this executor, which sub-classes may override to
+     * collect additional values.
+     */
+    protected SingleThreadEventExecutorMetric newMetric() {
+        return new SingleThreadEventExecutorMetric(this);
+    }
+
     @Override
     public boolean inEventLoop(Thread thread) {
         return thread == this.thread;
@@ -738,13 +815,15 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
             throw new NullPointerException("task");
         }
 
+        final SingleThreadEventExecutorMetric metric = this.metric;
+        final Runnable queuedTask = metric != null ? metric.newTimedTask(task) : task;
         boolean inEventLoop = inEventLoop();
         if (inEventLoop) {
-            addTask(task);
+            addTask(queuedTask);
         } else {
             startThread();
-            addTask(task);
-            if (isShutdown() && removeTask(task)) {
+            addTask(queuedTask);
+            if (isShutdown() && removeTask(queuedTask)) {
                 reject();
             }
         }
@@ -754,6 +833,47 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
         }
     }
 
+    /**
+     * Executes all of the given tasks in their iteration order. Unlike calling {@link #execute(Runnable)} for every
+     * task, this wakes up the executor thread at most once for the whole batch.
+     * <p>
+     * If one of the tasks is rejected, the {@link RejectedExecutionException} is thrown without adding the following
+     * tasks, while the tasks which were added before may still be run.
+     */
+    public void executeAll(Collection<? extends Runnable> tasks) {
+        ObjectUtil.checkNotNull(tasks, "tasks");
+        if (tasks.isEmpty()) {
+            return;
+        }
+
+        boolean inEventLoop = inEventLoop();
+        if (!inEventLoop) {
+            startThread();
+        }
+        boolean wakeup = false;
+        try {
+            for (Runnable task: tasks) {
+                if (task == null) {
+                    throw new NullPointerException("task");
+                }
+                final SingleThreadEventExecutorMetric metric = this.metric;
+                final Runnable queuedTask = metric != null ? metric.newTimedTask(task) : task;
+                addTask(queuedTask);
+                if (!inEventLoop && isShutdown() && removeTask(queuedTask)) {
+                    reject();
+                }
+                if (!wakeup && wakesUpForTask(task)) {
+                    wakeup = true;
+                }
+            }
+        } finally {
+            // Also wake up the executor for the tasks which were added before a task was rejected.
+            if (!addTaskWakesUp && wakeup) {
+                wakeup(inEventLoop);
+            }
+        }
+    }
+
     @Override
     public <T> T invokeAny(Collection<? extends Callable<T>> tasks) throws InterruptedException, ExecutionException {
         throwIfInEventLoop("invokeAny");
@@ -844,7 +964,7 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
 
     private void doStartThread() {
         assert thread == null;
-        executor.execute(new Runnable() {
+        executor.execute(ThreadExecutorMap.apply(new Runnable() {
             @Override
             public void run() {
                 thread = Thread.currentThread();
@@ -899,7 +1019,7 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
                     }
                 }
             }
-        });
+        }, this));
     }
 
     private static final class DefaultThreadProperties implements ThreadProperties {
@@ -0,0 +1,240 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import io.netty.util.internal.LongCounter;
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.StringUtil;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Exposed metric for {@link SingleThreadEventExecutor}.
+ * <p>
+ * Except for the number of wake-ups all values are only updated by the thread of the executor, so reading them from
+ * another thread is cheap but a snapshot of several values is not necessarily consistent.
+ */
+public class SingleThreadEventExecutorMetric {
+
+    // Bucket 0 counts the waits below 2^10 nanoseconds, and every following bucket twice as long waits.
+    private static final int MIN_WAIT_TIME_SHIFT = 10;
+    private static final int TASK_WAIT_TIME_BUCKETS = 24;
+    private static final long BUSY_TIME_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final SingleThreadEventExecutor executor;
+    private final LongCounter wakeups = PlatformDependent.newLongCounter();
+    private final LongCounter submittedTasks = PlatformDependent.newLongCounter();
+    private final AtomicLongArray taskWaitTimeHistogram = new AtomicLongArray(TASK_WAIT_TIME_BUCKETS);
+    private volatile long taskWaitTimeNanos;
+    private volatile long waitedTasks;
+    private volatile long taskRuns;
+    private volatile long tasks;
+    private volatile long taskTimeNanos;
+
+    // Guarded by this, as they are only used by the threads which read the recent busy time.
+    private long busyTimeWindowStart = System.nanoTime();
+    private long busyTimeAtWindowStart;
+    private long lastWindowBusyTimeNanos;
+
+    protected SingleThreadEventExecutorMetric(SingleThreadEventExecutor executor) {
+        this.executor = ObjectUtil.checkNotNull(executor, "executor");
+    }
+
+    /**
+     * Returns the number of tasks which are currently pending, see {@link SingleThreadEventExecutor#pendingTasks()}.
+     */
+    public int pendingTasks() {
+        return executor.pendingTasks();
+    }
+
+    /**
+     * Returns the number of tasks which were submitted since this metric was created but not run yet. Unlike
+     * {@link #pendingTasks()} this is cheap to call from any thread, but it does not count the tasks which were
+     * submitted before the metric was created or which were added to the task queue by other means.
+     */
+    public long queuedTasks() {
+        // Read the run tasks first, as a task which is submitted and run in between is then only counted as queued.
+        long waitedTasks = this.waitedTasks;
+        return Math.max(0, submittedTasks.value() - waitedTasks);
+    }
+
+    /**
+     * Returns the number of times another thread woke up the executor because it submitted a task.
+     */
+    public long numWakeups() {
+        return wakeups.value();
+    }
+
+    /**
+     * Returns the number of times the executor ran the tasks of its task queue.
+     */
+    public long numTaskRuns() {
+        return taskRuns;
+    }
+
+    /**
+     * Returns the number of tasks which were taken from the task queue and run, including the scheduled tasks.
+     */
+    public long numTasks() {
+        return tasks;
+    }
+
+    /**
+     * Returns the total time in nanoseconds the executor spent running the tasks of its task queue.
+     */
+    public long taskTimeNanos() {
+        return taskTimeNanos;
+    }
+
+    /**
+     * Returns the total time in nanoseconds the executor spent doing work, which is {@link #taskTimeNanos()} unless
+     * a sub-class also measures other work.
+     */
+    public long busyTimeNanos() {
+        return taskTimeNanos();
+    }
+
+    /**
+     * Returns the time in nanoseconds the executor spent doing work recently, which is the {@link #busyTimeNanos()}
+     * of the last completed window of about one second plus the one of the current window. The windows are only
+     * advanced by calls of this method, so the first call returns the busy time since the metric was created.
+     */
+    public synchronized long recentBusyTimeNanos() {
+        long now = System.nanoTime();
+        long busyTime = busyTimeNanos();
+        long elapsed = now - busyTimeWindowStart;
+        if (elapsed >= BUSY_TIME_WINDOW_NANOS) {
+            long windowBusyTime = busyTime - busyTimeAtWindowStart;
+            // If nobody asked for a while the window is longer than one second, so scale it down.
+            lastWindowBusyTimeNanos = elapsed < 2 * BUSY_TIME_WINDOW_NANOS ? windowBusyTime :
+                    (long) (windowBusyTime * ((double) BUSY_TIME_WINDOW_NANOS / elapsed));
+            busyTimeWindowStart = now;
+            busyTimeAtWindowStart = busyTime;
+        }
+        return lastWindowBusyTimeNanos + busyTime - busyTimeAtWindowStart;
+    }
+
+    /**
+     * Returns the number of submitted tasks whose time in the task queue was recorded.
+     */
+    public long numWaitedTasks() {
+        return waitedTasks;
+    }
+
+    /**
+     * Returns the total time in nanoseconds the submitted tasks waited in the task queue before they were run.
+     */
+    public long taskWaitTimeNanos() {
+        return taskWaitTimeNanos;
+    }
+
+    /**
+     * Returns how many submitted tasks waited how long in the task queue before they were run. The element at index
+     * {@code i} counts the waits below {@link #taskWaitTimeBucketLimitNanos(int) taskWaitTimeBucketLimitNanos(i)}
+     * which are not counted by a lower index.
+     */
+    public long[] taskWaitTimeHistogram() {
+        long[] histogram = new long[TASK_WAIT_TIME_BUCKETS];
+        for (int i = 0; i < histogram.length; i ++) {
+            histogram[i] = taskWaitTimeHistogram.get(i);
+        }
+        return histogram;
+    }
+
+    /**
+     * Returns the exclusive upper bound in nanoseconds of the given bucket of {@link #taskWaitTimeHistogram()}, which
+     * is {@link Long#MAX_VALUE} for the last bucket.
+     */
+    public static long taskWaitTimeBucketLimitNanos(int bucket) {
+        if (bucket < 0 || bucket >= TASK_WAIT_TIME_BUCKETS) {
+            throw new IndexOutOfBoundsException("bucket: " + bucket + " (expected: 0-" + (TASK_WAIT_TIME_BUCKETS - 1)
+                    + ')');
+        }
+        return bucket == TASK_WAIT_TIME_BUCKETS - 1 ? Long.MAX_VALUE : 1L << MIN_WAIT_TIME_SHIFT + bucket;
+    }
+
+    void recordWakeup() {
+        wakeups.increment();
+    }
+
+    void recordTaskRun(int tasks, long taskTimeNanos) {
+        taskRuns ++;
+        this.tasks += tasks;
+        this.taskTimeNanos += taskTimeNanos;
+    }
+
+    void recordTaskWaitTime(long waitTimeNanos) {
+        waitedTasks ++;
+        taskWaitTimeNanos += waitTimeNanos;
+        int bucket = Math.min(TASK_WAIT_TIME_BUCKETS - 1,
+                Math.max(0, Long.SIZE - Long.numberOfLeadingZeros(waitTimeNanos) - MIN_WAIT_TIME_SHIFT));
+        // Only the thread of the executor records a wait time, so there is no need for an atomic increment.
+        taskWaitTimeHistogram.lazySet(bucket, taskWaitTimeHistogram.get(bucket) + 1);
+    }
+
+    /**
+     * Wraps a submitted task so the time it waits in the task queue is recorded once it is run.
+     */
+    Runnable newTimedTask(Runnable task) {
+        submittedTasks.increment();
+        return new TimedTask(this, task);
+    }
+
+    /**
+     * Appends the values of this metric to the given {@link StringBuilder}, which sub-classes extend to add their own.
+     */
+    protected void appendTo(StringBuilder sb) {
+        sb.append("pendingTasks: ").append(pendingTasks())
+                .append("; numWakeups: ").append(numWakeups())
+                .append("; numTaskRuns: ").append(numTaskRuns())
+                .append("; numTasks: ").append(numTasks())
+                .append("; taskTimeNanos: ").append(taskTimeNanos())
+                .append("; numWaitedTasks: ").append(numWaitedTasks())
+                .append("; taskWaitTimeNanos: ").append(taskWaitTimeNanos());
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(256);
+        sb.append(StringUtil.simpleClassName(this)).append('(');
+        appendTo(sb);
+        return sb.append(')').toString();
+    }
+
+    private static final class TimedTask implements Runnable {
+        private final SingleThreadEventExecutorMetric metric;
+        private final Runnable task;
+        private final long submitTime = System.nanoTime();
+
+        TimedTask(SingleThreadEventExecutorMetric metric, Runnable task) {
+            this.metric = metric;
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            metric.recordTaskWaitTime(System.nanoTime() - submitTime);
+            task.run();
+        }
+
+        @Override
+        public String toString() {
+            return task.toString();
+        }
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.UnstableApi;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link EventExecutor} which runs every task on a new {@link Thread}, which is a virtual thread if the Java runtime
+ * supports them. This makes it cheap to run tasks which block, for example on a database, without sizing a pool of
+ * threads for the worst case latency.
+ * <p>
+ * Like {@link UnorderedThreadPoolEventExecutor} it makes no guarantees about the order in which tasks are run. Wrap
+ * it with a {@link NonStickyEventExecutorGroup} to get an {@link EventExecutorGroup} whose
+ * {@link EventExecutorGroup#next()} returns {@link OrderedEventExecutor}s, which can be used with
+ * {@code ChannelPipeline.addLast(group, handler)}:
+ * <pre>
+ * EventExecutorGroup blockingGroup = new {@link NonStickyEventExecutorGroup}(new ThreadPerTaskEventExecutor());
+ * pipeline.addLast(blockingGroup, new MyDatabaseHandler());
+ * </pre>
+ * Every channel then gets an executor of its own, whose tasks are run one after the other on a new thread whenever
+ * it has tasks. Without virtual threads every such run starts a platform thread, which is much more expensive.
+ * <p>
+ * Scheduling tasks is not supported.
+ */
+@UnstableApi
+public final class ThreadPerTaskEventExecutor extends AbstractEventExecutor {
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(ThreadPerTaskEventExecutor.class);
+
+    private static final Method OF_VIRTUAL;
+    private static final Method BUILDER_NAME;
+    private static final Method BUILDER_FACTORY;
+
+    static {
+        Method ofVirtual = null;
+        Method builderName = null;
+        Method builderFactory = null;
+        try {
+            // Thread.ofVirtual().name(prefix, start).factory(), which is only available since Java 21.
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builderName = builderClass.getMethod("name", String.class, long.class);
+            builderFactory = builderClass.getMethod("factory");
+            logger.debug("java.lang.Thread.ofVirtual(): available");
+        } catch (Throwable cause) {
+            ofVirtual = null;
+            logger.debug("java.lang.Thread.ofVirtual(): unavailable", cause);
+        }
+        OF_VIRTUAL = ofVirtual;
+        BUILDER_NAME = builderName;
+        BUILDER_FACTORY = builderFactory;
+    }
+
+    private final ThreadFactory threadFactory;
+    private final AtomicInteger runningTasks = new AtomicInteger();
+    private final Promise<?> terminationFuture = GlobalEventExecutor.INSTANCE.newPromise();
+    private volatile boolean shutdown;
+
+    /**
+     * Creates a new instance which uses virtual threads if they are available and platform threads of a
+     * {@link DefaultThreadFactory} otherwise.
+     */
+    public ThreadPerTaskEventExecutor() {
+        this(newThreadFactory(DefaultThreadFactory.toPoolName(ThreadPerTaskEventExecutor.class)));
+    }
+
+    /**
+     * Creates a new instance which runs every task on a new {@link Thread} of the given {@link ThreadFactory}.
+     */
+    public ThreadPerTaskEventExecutor(ThreadFactory threadFactory) {
+        this.threadFactory = ObjectUtil.checkNotNull(threadFactory, "threadFactory");
+    }
+
+    /**
+     * Returns {@code true} if the Java runtime supports virtual threads.
+     */
+    public static boolean isVirtualThreadAvailable() {
+        return OF_VIRTUAL != null;
+    }
+
+    /**
+     * Returns a {@link ThreadFactory} which creates virtual threads named {@code poolName-<n>} if they are available,
+     * or daemon platform threads of a {@link DefaultThreadFactory} otherwise.
+     */
+    public static ThreadFactory newThreadFactory(String poolName) {
+        ObjectUtil.checkNotNull(poolName, "poolName");
+        if (OF_VIRTUAL != null) {
+            try {
+                Object builder = BUILDER_NAME.invoke(OF_VIRTUAL.invoke(null), poolName + '-', 0L);
+                return (ThreadFactory) BUILDER_FACTORY.invoke(builder);
+            } catch (Throwable cause) {
+                logger.debug("Failed to create a virtual thread factory, using platform threads instead", cause);
+            }
+        }
+        return new DefaultThreadFactory(poolName, true);
+    }
+
+    /**
+     * Returns {@code false}, as every task is run by a new thread.
+     */
+    @Override
+    public boolean inEventLoop(Thread thread) {
+        return false;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        ObjectUtil.checkNotNull(task, "task");
+        runningTasks.incrementAndGet();
+        boolean started = false;
+        try {
+            // Check after counting the task, so shutdown() either sees it or we see the shutdown.
+            if (shutdown) {
+                throw new RejectedExecutionException("event executor terminated");
+            }
+            threadFactory.newThread(new TaskRunner(task)).start();
+            started = true;
+        } finally {
+            if (!started) {
+                taskDone();
+            }
+        }
+    }
+
+    private void taskDone() {
+        if (runningTasks.decrementAndGet() == 0 && shutdown) {
+            terminationFuture.trySuccess(null);
+        }
+    }
+
+    @Override
+    public boolean isShuttingDown() {
+        return shutdown;
+    }
+
+    /**
+     * Rejects new tasks right away and completes the returned {@link Future} once the running tasks completed. The
+     * quiet period and timeout are ignored.
+     */
+    @Override
+    public Future<?> shutdownGracefully(long quietPeriod, long timeout, TimeUnit unit) {
+        shutdown();
+        return terminationFuture();
+    }
+
+    @Override
+    public Future<?> terminationFuture() {
+        return terminationFuture;
+    }
+
+    @SuppressWarnings("deprecation")
+    @Override
+    public void shutdown() {
+        shutdown = true;
+        if (runningTasks.get() == 0) {
+            terminationFuture.trySuccess(null);
+        }
+    }
+
+    /**
+     * Same as {@link #shutdown()}, as running tasks are not interrupted and no tasks are waiting to be run.
+     */
+    @SuppressWarnings("deprecation")
+    @Override
+    public List<Runnable> shutdownNow() {
+        shutdown();
+        return Collections.emptyList();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return terminationFuture.isDone();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return terminationFuture.await(timeout, unit);
+    }
+
+    private final class TaskRunner implements Runnable {
+        private final Runnable task;
+
+        TaskRunner(Runnable task) {
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            try {
+                safeExecute(task);
+            } finally {
+                taskDone();
+            }
+        }
+    }
+}
@@ -0,0 +1,349 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.UnstableApi;
+import io.netty.util.internal.chmv8.ForkJoinPool;
+import io.netty.util.internal.chmv8.ForkJoinTask;
+import io.netty.util.internal.chmv8.ForkJoinWorkerThread;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link EventExecutorGroup} whose {@link EventExecutor}s are serial task queues which are run by the worker threads
+ * of a work-stealing {@link ForkJoinPool}.
+ * <p>
+ * Every call of {@link #next()} returns a new {@link OrderedEventExecutor}, so a handler which was added to a
+ * pipeline with this group sees the events of its channel in order, like it does with a
+ * {@link DefaultEventExecutorGroup}. Unlike a {@link DefaultEventExecutor} such an executor is not bound to a thread:
+ * whenever it has tasks it is handed to the pool as a whole, and a worker which runs out of work steals it from the
+ * worker it was queued at. A slow channel therefore only delays the channels whose queues were taken by the same
+ * worker, and only until an idle worker steals them.
+ * <p>
+ * A worker runs at most {@code maxTasksPerRun} tasks of a queue before it queues it again, so a busy channel does not
+ * starve the others. Blocking tasks occupy their worker like they do with any other {@link EventExecutorGroup}, so the
+ * number of threads should still account for them.
+ * <p>
+ * The executors do not support scheduling tasks, and as they are created on demand they are not returned by
+ * {@link #iterator()}.
+ */
+@UnstableApi
+public final class WorkStealingEventExecutorGroup extends AbstractEventExecutorGroup {
+
+    private static final AtomicInteger poolId = new AtomicInteger();
+
+    private final ForkJoinPool pool;
+    private final int maxTasksPerRun;
+    private final Promise<?> terminationFuture = GlobalEventExecutor.INSTANCE.newPromise();
+    private final AtomicBoolean checkingTermination = new AtomicBoolean();
+
+    /**
+     * Creates a new instance with one thread per available processor.
+     */
+    public WorkStealingEventExecutorGroup() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a new instance which runs at most {@code 1024} tasks of an executor at once.
+     *
+     * @param nThreads  the number of worker threads
+     */
+    public WorkStealingEventExecutorGroup(int nThreads) {
+        this(nThreads, 1024);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param nThreads          the number of worker threads
+     * @param maxTasksPerRun    the maximum number of tasks of an executor a worker runs before it queues the executor
+     *                          again
+     */
+    public WorkStealingEventExecutorGroup(int nThreads, int maxTasksPerRun) {
+        ObjectUtil.checkPositive(nThreads, "nThreads");
+        this.maxTasksPerRun = ObjectUtil.checkPositive(maxTasksPerRun, "maxTasksPerRun");
+        final String prefix = DefaultThreadFactory.toPoolName(WorkStealingEventExecutorGroup.class) + '-' +
+                poolId.incrementAndGet() + '-';
+        // Async mode runs the locally queued executors in FIFO order, which is fairer for event-style tasks which are
+        // never joined.
+        pool = new ForkJoinPool(nThreads, new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+            private final AtomicInteger nextId = new AtomicInteger();
+
+            @Override
+            public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+                WorkerThread thread = new WorkerThread(pool);
+                thread.setName(prefix + nextId.incrementAndGet());
+                return thread;
+            }
+        }, null, true);
+    }
+
+    /**
+     * Returns a new {@link OrderedEventExecutor} whose tasks are run by the worker threads of this group.
+     */
+    @Override
+    public EventExecutor next() {
+        return new SerialEventExecutor(this);
+    }
+
+    /**
+     * Returns an empty {@link Iterator}, as the executors of this group are created on demand by {@link #next()}.
+     */
+    @Override
+    public Iterator<EventExecutor> iterator() {
+        return Collections.<EventExecutor>emptyList().iterator();
+    }
+
+    /**
+     * Returns the number of executors which were stolen by a worker from the queue of another worker.
+     */
+    public long stealCount() {
+        return pool.getStealCount();
+    }
+
+    @Override
+    public boolean isShuttingDown() {
+        return pool.isShutdown();
+    }
+
+    /**
+     * Shuts down the worker threads once all pending tasks were run. The quiet period and timeout are ignored, as
+     * new tasks are rejected right away.
+     */
+    @Override
+    public Future<?> shutdownGracefully(long quietPeriod, long timeout, TimeUnit unit) {
+        shutdown();
+        return terminationFuture();
+    }
+
+    @Override
+    public Future<?> terminationFuture() {
+        return terminationFuture;
+    }
+
+    @SuppressWarnings("deprecation")
+    @Override
+    public void shutdown() {
+        pool.shutdown();
+        checkTermination();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return pool.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return pool.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return pool.awaitTermination(timeout, unit);
+    }
+
+    private void checkTermination() {
+        if (pool.isTerminated()) {
+            terminationFuture.trySuccess(null);
+        } else if (pool.isShutdown() && checkingTermination.compareAndSet(false, true)) {
+            // The pool has no hook which is called once it terminated, so poll until the last worker is gone.
+            GlobalEventExecutor.INSTANCE.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    checkingTermination.set(false);
+                    checkTermination();
+                }
+            }, 10, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    void submit(ForkJoinTask<?> task) {
+        Thread thread = Thread.currentThread();
+        if (thread instanceof ForkJoinWorkerThread && ((ForkJoinWorkerThread) thread).getPool() == pool) {
+            // Queue it at the current worker, from where an idle worker can steal it.
+            task.fork();
+        } else {
+            pool.execute(task);
+        }
+    }
+
+    private static final class WorkerThread extends ForkJoinWorkerThread {
+        WorkerThread(ForkJoinPool pool) {
+            super(pool);
+        }
+
+        @Override
+        protected void onTermination(Throwable exception) {
+            try {
+                FastThreadLocal.removeAll();
+            } finally {
+                super.onTermination(exception);
+            }
+        }
+    }
+
+    private static final class SerialEventExecutor extends AbstractEventExecutor implements OrderedEventExecutor {
+        private static final int NONE = 0;
+        private static final int SUBMITTED = 1;
+        private static final int RUNNING = 2;
+
+        private final WorkStealingEventExecutorGroup group;
+        private final Queue<Runnable> tasks = PlatformDependent.newMpscQueue();
+        private final AtomicInteger state = new AtomicInteger();
+        private volatile Thread thread;
+
+        SerialEventExecutor(WorkStealingEventExecutorGroup group) {
+            super(group);
+            this.group = group;
+        }
+
+        void runTasks() {
+            if (!state.compareAndSet(SUBMITTED, RUNNING)) {
+                return;
+            }
+            thread = Thread.currentThread();
+            int i = 0;
+            try {
+                for (; i < group.maxTasksPerRun; i++) {
+                    Runnable task = tasks.poll();
+                    if (task == null) {
+                        break;
+                    }
+                    safeExecute(task);
+                }
+            } finally {
+                thread = null;
+                if (i == group.maxTasksPerRun) {
+                    state.set(SUBMITTED);
+                    submitSelf();
+                } else {
+                    state.set(NONE);
+                    // A task may have been added after the queue was found empty but before the state was reset, in
+                    // which case execute(...) did not submit this executor.
+                    if (!tasks.isEmpty() && state.compareAndSet(NONE, SUBMITTED)) {
+                        submitSelf();
+                    }
+                }
+            }
+        }
+
+        private void submitSelf() {
+            try {
+                group.submit(new RunTasks(this));
+            } catch (RejectedExecutionException e) {
+                // The group was shut down, so nothing will ever run the remaining tasks.
+                state.set(NONE);
+                throw e;
+            }
+        }
+
+        @Override
+        public boolean inEventLoop(Thread thread) {
+            return thread == this.thread;
+        }
+
+        @Override
+        public boolean isShuttingDown() {
+            return group.isShuttingDown();
+        }
+
+        @Override
+        public Future<?> shutdownGracefully(long quietPeriod, long timeout, TimeUnit unit) {
+            return group.shutdownGracefully(quietPeriod, timeout, unit);
+        }
+
+        @Override
+        public Future<?> terminationFuture() {
+            return group.terminationFuture();
+        }
+
+        @SuppressWarnings("deprecation")
+        @Override
+        public void shutdown() {
+            group.shutdown();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return group.isShutdown();
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return group.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            return group.awaitTermination(timeout, unit);
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            ObjectUtil.checkNotNull(command, "command");
+            if (group.isShutdown()) {
+                throw new RejectedExecutionException("event executor terminated");
+            }
+            if (!tasks.offer(command)) {
+                throw new RejectedExecutionException();
+            }
+            if (state.compareAndSet(NONE, SUBMITTED)) {
+                try {
+                    group.submit(new RunTasks(this));
+                } catch (Throwable e) {
+                    // Not reset the state as some other Runnable may be added to the queue already in the meantime.
+                    tasks.remove(command);
+                    PlatformDependent.throwException(e);
+                }
+            }
+        }
+    }
+
+    private static final class RunTasks extends ForkJoinTask<Void> {
+        private static final long serialVersionUID = -5391408373447530349L;
+
+        private final transient SerialEventExecutor executor;
+
+        RunTasks(SerialEventExecutor executor) {
+            this.executor = executor;
+        }
+
+        @Override
+        public Void getRawResult() {
+            return null;
+        }
+
+        @Override
+        protected void setRawResult(Void value) {
+        }
+
+        @Override
+        protected boolean exec() {
+            executor.runTasks();
+            return true;
+        }
+    }
+}
@@ -404,6 +404,14 @@ public final class PlatformDependent {
         return PlatformDependent0.getLong(address);
     }
 
+    /**
+     * Reads the {@code int} at the given memory address with volatile semantics, which is needed for memory which is
+     * shared with other threads or the kernel.
+     */
+    public static int getIntVolatile(long address) {
+        return PlatformDependent0.getIntVolatile(address);
+    }
+
     public static byte getByte(byte[] data, int index) {
         return PlatformDependent0.getByte(data, index);
     }
@@ -532,6 +540,14 @@ public final class PlatformDependent {
         PlatformDependent0.putLong(address, value);
     }
 
+    /**
+     * Writes the {@code int} at the given memory address with ordered (lazy set) semantics, so all writes before are
+     * visible to other threads or the kernel once they observe the new value.
+     */
+    public static void putIntOrdered(long address, int newValue) {
+        PlatformDependent0.putIntOrdered(address, newValue);
+    }
+
     public static void putByte(byte[] data, int index, byte value) {
         PlatformDependent0.putByte(data, index, value);
     }
@@ -833,6 +849,18 @@ public final class PlatformDependent {
                 return new MpscLinkedAtomicQueue<T>();
             }
         }
+
+        static <T> Queue<T> newMpscQueue(final int chunkSize, final int maxCapacity) {
+            if (USE_MPSC_CHUNKED_ARRAY_QUEUE) {
+                final int capacity = Math.min(maxCapacity, MAX_ALLOWED_MPSC_CAPACITY);
+                // The chunks must be smaller than the maximum capacity, so use a single array otherwise.
+                return Pow2.roundToPowerOfTwo(chunkSize) < Pow2.roundToPowerOfTwo(capacity) ?
+                        new MpscChunkedArrayQueue<T>(chunkSize, capacity, true) : new MpscArrayQueue<T>(capacity);
+            } else {
+                // There is no bounded linked queue, so fall back to a single array.
+                return new MpscAtomicArrayQueue<T>(maxCapacity);
+            }
+        }
     }
 
     /**
@@ -851,6 +879,15 @@ public final class PlatformDependent {
         return Mpsc.newMpscQueue(maxCapacity);
     }
 
+    /**
+     * Create a new {@link Queue} which is safe to use for multiple producers (different threads) and a single
+     * consumer (one thread!). Unlike {@link #newMpscQueue(int)} it never holds more than about {@code maxCapacity}
+     * elements, and grows by chunks of {@code chunkSize} elements if possible.
+     */
+    public static <T> Queue<T> newMpscQueue(final int chunkSize, final int maxCapacity) {
+        return Mpsc.newMpscQueue(chunkSize, maxCapacity);
+    }
+
     /**
      * Create a new {@link Queue} which is safe to use for single producer (one thread!) and a single
      * consumer (one thread!).
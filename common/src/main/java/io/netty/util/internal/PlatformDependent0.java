@@ -350,6 +350,10 @@ final class PlatformDependent0 {
         return UNSAFE.getLong(address);
     }
 
+    static int getIntVolatile(long address) {
+        return UNSAFE.getIntVolatile(null, address);
+    }
+
     static byte getByte(byte[] data, int index) {
         return UNSAFE.getByte(data, BYTE_ARRAY_BASE_OFFSET + index);
     }
@@ -382,6 +386,10 @@ final class PlatformDependent0 {
         UNSAFE.putLong(address, value);
     }
 
+    static void putIntOrdered(long address, int newValue) {
+        UNSAFE.putOrderedInt(null, address, newValue);
+    }
+
     static void putByte(byte[] data, int index, byte value) {
         UNSAFE.putByte(data, BYTE_ARRAY_BASE_OFFSET + index, value);
     }
@@ -17,8 +17,13 @@ package io.netty.util;
 
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.Assert.*;
 
@@ -206,6 +211,103 @@ public class RecyclerTest {
                 " internally", array.length - maxCapacity / 2 <= instancesCount.get());
     }
 
+    @Test(timeout = 5000)
+    public void testMultipleRecycleAtDifferentThread() throws Exception {
+        Recycler<HandledObject> recycler = newRecycler(1024);
+        final HandledObject object = recycler.get();
+        final AtomicReference<IllegalStateException> exceptionStore = new AtomicReference<IllegalStateException>();
+        final Thread thread1 = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                object.recycle();
+            }
+        });
+        thread1.start();
+        thread1.join();
+
+        final Thread thread2 = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    object.recycle();
+                } catch (IllegalStateException e) {
+                    exceptionStore.set(e);
+                }
+            }
+        });
+        thread2.start();
+        thread2.join();
+        assertNotNull(exceptionStore.get());
+    }
+
+    @Test(timeout = 10000)
+    public void testRecycleAtManyDifferentThreads() throws Exception {
+        final int maxCapacity = 1024;
+        final Recycler<HandledObject> recycler = new Recycler<HandledObject>(maxCapacity, 1, 1, 1) {
+            @Override
+            protected HandledObject newObject(Recycler.Handle<HandledObject> handle) {
+                return new HandledObject(handle);
+            }
+        };
+
+        final Map<HandledObject, Boolean> objects = new IdentityHashMap<HandledObject, Boolean>();
+        final HandledObject[] array = new HandledObject[maxCapacity];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = recycler.get();
+            objects.put(array[i], Boolean.TRUE);
+        }
+
+        // Every thread returns a quarter of the objects at the same time.
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < 4; i++) {
+            final int start = i * maxCapacity / 4;
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = start; i < start + maxCapacity / 4; i++) {
+                        array[i].recycle();
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread: threads) {
+            thread.join();
+        }
+
+        // As the ratio is 1 and the queue of the returned objects is as big as the pool, none of them was dropped.
+        for (int i = 0; i < array.length; i++) {
+            assertTrue(objects.containsKey(recycler.get()));
+        }
+        assertFalse(objects.containsKey(recycler.get()));
+    }
+
+    @Test
+    public void testMaxCapacityOfType() {
+        System.setProperty("io.netty.recycler.maxCapacityPerThread.recyclerTest", "4");
+        final Recycler<HandledObject> recycler;
+        try {
+            recycler = new Recycler<HandledObject>("recyclerTest") {
+                @Override
+                protected HandledObject newObject(Recycler.Handle<HandledObject> handle) {
+                    return new HandledObject(handle);
+                }
+            };
+        } finally {
+            System.clearProperty("io.netty.recycler.maxCapacityPerThread.recyclerTest");
+        }
+
+        HandledObject[] objects = new HandledObject[64];
+        for (int i = 0; i < objects.length; i++) {
+            objects[i] = recycler.get();
+        }
+        for (HandledObject object: objects) {
+            object.recycle();
+        }
+        assertEquals(4, recycler.threadLocalCapacity());
+    }
+
     static final class HandledObject {
         Recycler.Handle<HandledObject> handle;
 
@@ -18,11 +18,19 @@ package io.netty.util;
 import org.junit.Test;
 
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.CyclicBarrier;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
 public class ResourceLeakDetectorTest {
 
     @Test(timeout = 60000)
@@ -95,6 +103,109 @@ public class ResourceLeakDetectorTest {
         assertNoErrors(error);
     }
 
+    @Test(timeout = 60000)
+    public void testCompactRecordsCountLeaksPerSite() throws Throwable {
+        ResourceLeakDetector.Level oldLevel = ResourceLeakDetector.getLevel();
+        boolean oldCompactRecords = ResourceLeakDetector.isCompactRecords();
+        ResourceLeakDetector.setLevel(ResourceLeakDetector.Level.PARANOID);
+        ResourceLeakDetector.setCompactRecords(true);
+        try {
+            CountingResourceLeakDetector detector = new CountingResourceLeakDetector();
+            for (int i = 0; i < 10; i ++) {
+                leakAndTouch(detector);
+            }
+
+            List<ResourceLeakDetector.LeakSite> sites = detector.leakSites();
+            while (sites.size() < 2 || sites.get(0).leakCount() + sites.get(1).leakCount() < 10) {
+                System.gc();
+                Thread.sleep(10);
+                // Tracking a new object reports the leaks which were detected in the meantime.
+                Object obj = new Object();
+                detector.track(obj).close(obj);
+                sites = detector.leakSites();
+            }
+
+            // The tracked objects were all created at the same site and last accessed at another one.
+            assertEquals(2, sites.size());
+            ResourceLeakDetector.LeakSite creationSite = sites.get(0).leakCount() > 0 ? sites.get(0) : sites.get(1);
+            ResourceLeakDetector.LeakSite accessSite = creationSite == sites.get(0) ? sites.get(1) : sites.get(0);
+            assertEquals(10, creationSite.leakCount());
+            assertEquals(0, creationSite.lastAccessCount());
+            assertEquals(0, accessSite.leakCount());
+            assertEquals(10, accessSite.lastAccessCount());
+            // Like the String records the creation site starts at the call of track(...).
+            assertEquals("track", creationSite.stackTrace()[0].getMethodName());
+            assertEquals("leakAndTouch", creationSite.stackTrace()[1].getMethodName());
+            assertEquals("touch", accessSite.stackTrace()[0].getMethodName());
+
+            // Equal records are logged once and share a single site.
+            assertEquals(1, detector.reportedLeaks);
+            assertTrue(detector.lastRecords.contains("touch"));
+            assertFalse(detector.lastRecords.contains("Hint"));
+        } finally {
+            ResourceLeakDetector.setLevel(oldLevel);
+            ResourceLeakDetector.setCompactRecords(oldCompactRecords);
+        }
+    }
+
+    @Test
+    public void testCompactRecordsAreInterned() {
+        ResourceLeakDetector.Level oldLevel = ResourceLeakDetector.getLevel();
+        boolean oldCompactRecords = ResourceLeakDetector.isCompactRecords();
+        ResourceLeakDetector.setLevel(ResourceLeakDetector.Level.PARANOID);
+        ResourceLeakDetector.setCompactRecords(true);
+        try {
+            CountingResourceLeakDetector detector = new CountingResourceLeakDetector();
+            List<Object> objects = Arrays.asList(new Object(), new Object());
+            List<ResourceLeakTracker<Object>> leaks = new ArrayList<ResourceLeakTracker<Object>>();
+            for (Object obj: objects) {
+                leaks.add(detector.track(obj));
+            }
+            for (ResourceLeakTracker<Object> leak: Arrays.asList(leaks.get(0), leaks.get(0), leaks.get(1))) {
+                touch(leak);
+            }
+            // Consecutive equal records are only kept once.
+            assertTrue(leaks.get(0).toString().contains("Recent access records: 1"));
+            assertEquals(leaks.get(0).toString(), leaks.get(1).toString());
+            for (int i = 0; i < objects.size(); i ++) {
+                assertTrue(leaks.get(i).close(objects.get(i)));
+            }
+        } finally {
+            ResourceLeakDetector.setLevel(oldLevel);
+            ResourceLeakDetector.setCompactRecords(oldCompactRecords);
+        }
+    }
+
+    @Test
+    public void testInternedSitesAreBounded() {
+        CountingResourceLeakDetector detector = new CountingResourceLeakDetector();
+        ResourceLeakDetector.LeakSite first = detector.internSite(newLeakSite(0));
+        int numSites = 100000;
+        for (int i = 0; i < numSites; i ++) {
+            detector.internSite(newLeakSite(i));
+        }
+        assertTrue(detector.numInternedSites() < numSites);
+
+        // Sites which were interned before the limit was reached are still shared.
+        assertSame(first, detector.internSite(newLeakSite(0)));
+        ResourceLeakDetector.LeakSite site = newLeakSite(numSites);
+        assertSame(site, detector.internSite(site));
+    }
+
+    private static ResourceLeakDetector.LeakSite newLeakSite(int line) {
+        return new ResourceLeakDetector.LeakSite(new StackTraceElement[] {
+                new StackTraceElement("io.netty.util.Foo", "bar", "Foo.java", line)
+        });
+    }
+
+    private static void leakAndTouch(ResourceLeakDetector<Object> detector) {
+        touch(detector.track(new Object()));
+    }
+
+    private static void touch(ResourceLeakTracker<Object> leak) {
+        leak.record("Hint");
+    }
+
     // Mimic the way how we implement our classes that should help with leak detection
     private static final  class LeakAwareResource implements Resource {
         private final Resource resource;
@@ -138,6 +249,21 @@ public class ResourceLeakDetectorTest {
         }
     }
 
+    private static final class CountingResourceLeakDetector extends ResourceLeakDetector<Object> {
+        volatile int reportedLeaks;
+        volatile String lastRecords;
+
+        CountingResourceLeakDetector() {
+            super(Object.class, 1, Integer.MAX_VALUE);
+        }
+
+        @Override
+        protected void reportTracedLeak(String resourceType, String records) {
+            reportedLeaks ++;
+            lastRecords = records;
+        }
+    }
+
     private static final class TestResourceLeakDetector<T> extends ResourceLeakDetector<T> {
 
         private final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
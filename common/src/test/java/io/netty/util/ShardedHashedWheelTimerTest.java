@@ -0,0 +1,177 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ShardedHashedWheelTimerTest {
+
+    private static final TimerTask NOOP = new TimerTask() {
+        @Override
+        public void run(Timeout timeout) {
+        }
+    };
+
+    @Test(timeout = 5000)
+    public void testTimeoutsOfAllThreadsExpire() throws Exception {
+        final ShardedHashedWheelTimer timer = new ShardedHashedWheelTimer(
+                Executors.defaultThreadFactory(), 10, TimeUnit.MILLISECONDS, 8, 4);
+        final CountDownLatch latch = new CountDownLatch(40);
+        final Set<Timer> wheels = new HashSet<Timer>();
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < 4; i++) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 10; i++) {
+                        Timeout timeout = timer.newTimeout(new TimerTask() {
+                            @Override
+                            public void run(Timeout timeout) {
+                                latch.countDown();
+                            }
+                        }, 10, TimeUnit.MILLISECONDS);
+                        synchronized (wheels) {
+                            wheels.add(timeout.timer());
+                        }
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread: threads) {
+            thread.join();
+        }
+        latch.await();
+
+        assertEquals(40, timer.expiredTimeouts());
+        assertEquals(0, timer.pendingTimeouts());
+        assertTrue(timer.maxLatenessNanos() >= timer.averageLatenessNanos());
+        assertTrue(wheels.size() > 1);
+        assertEquals(0, timer.stop().size());
+    }
+
+    @Test
+    public void testTimeoutsOfSingleThreadAreSpread() {
+        ShardedHashedWheelTimer timer = new ShardedHashedWheelTimer(4);
+        try {
+            Set<Timer> wheels = new HashSet<Timer>();
+            for (int i = 0; i < 100; i++) {
+                Timeout timeout = timer.newTimeout(NOOP, 1, TimeUnit.HOURS);
+                wheels.add(timeout.timer());
+                timeout.cancel();
+            }
+            assertTrue(wheels.size() > 1);
+        } finally {
+            assertEquals(0, timer.stop().size());
+        }
+    }
+
+    @Test
+    public void testBatchCancel() {
+        ShardedHashedWheelTimer timer = new ShardedHashedWheelTimer(2);
+        try {
+            List<Timeout> timeouts = new ArrayList<Timeout>();
+            for (int i = 0; i < 10; i++) {
+                timeouts.add(timer.newTimeout(NOOP, 1, TimeUnit.HOURS));
+            }
+
+            timeouts.get(0).cancel();
+            assertEquals(9, timer.cancel(timeouts));
+            assertEquals(0, timer.cancel(timeouts));
+            for (Timeout timeout: timeouts) {
+                assertTrue(timeout.isCancelled());
+            }
+        } finally {
+            assertEquals(0, timer.stop().size());
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void testBatchCancelRemovesTimeoutsOfAllWheels() throws Exception {
+        HashedWheelTimer timer1 = new HashedWheelTimer(Executors.defaultThreadFactory(), 10, TimeUnit.MILLISECONDS, 8);
+        HashedWheelTimer timer2 = new HashedWheelTimer(Executors.defaultThreadFactory(), 10, TimeUnit.MILLISECONDS, 8);
+        try {
+            List<Timeout> timeouts = new ArrayList<Timeout>();
+            for (int i = 0; i < 10; i++) {
+                timeouts.add((i & 1) == 0 ? timer1.newTimeout(NOOP, 1, TimeUnit.HOURS)
+                                          : timer2.newTimeout(NOOP, 1, TimeUnit.HOURS));
+            }
+            assertEquals(5, timer1.pendingTimeouts());
+            assertEquals(5, timer2.pendingTimeouts());
+
+            assertEquals(10, HashedWheelTimer.cancel(timeouts));
+            // The worker threads remove all cancelled timeouts of their batch on their next tick.
+            while (timer1.pendingTimeouts() != 0 || timer2.pendingTimeouts() != 0) {
+                Thread.sleep(10);
+            }
+        } finally {
+            assertEquals(0, timer1.stop().size());
+            assertEquals(0, timer2.stop().size());
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void testPendingTimeouts() throws Exception {
+        ShardedHashedWheelTimer timer = new ShardedHashedWheelTimer(
+                Executors.defaultThreadFactory(), 10, TimeUnit.MILLISECONDS, 8, 4);
+        try {
+            List<Timeout> timeouts = new ArrayList<Timeout>();
+            for (int i = 0; i < 10; i++) {
+                timeouts.add(timer.newTimeout(NOOP, 1, TimeUnit.HOURS));
+            }
+            assertEquals(10, timer.pendingTimeouts());
+
+            assertEquals(4, timer.cancel(timeouts.subList(0, 4)));
+            while (timer.pendingTimeouts() != 6) {
+                Thread.sleep(10);
+            }
+
+            final CountDownLatch latch = new CountDownLatch(1);
+            timer.newTimeout(new TimerTask() {
+                @Override
+                public void run(Timeout timeout) {
+                    latch.countDown();
+                }
+            }, 10, TimeUnit.MILLISECONDS);
+            latch.await();
+            assertEquals(6, timer.pendingTimeouts());
+        } finally {
+            assertEquals(6, timer.stop().size());
+        }
+    }
+
+    @Test
+    public void testStopReturnsUnprocessedTimeoutsOfAllShards() {
+        ShardedHashedWheelTimer timer = new ShardedHashedWheelTimer(3);
+        Set<Timeout> timeouts = new HashSet<Timeout>();
+        for (int i = 0; i < 5; i++) {
+            timeouts.add(timer.newTimeout(NOOP, 1, TimeUnit.HOURS));
+        }
+        assertEquals(timeouts, timer.stop());
+    }
+}
@@ -21,7 +21,9 @@ import io.netty.util.internal.logging.InternalLoggerFactory;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CancellationException;
@@ -33,10 +35,12 @@ import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static java.lang.Math.max;
 import static org.hamcrest.Matchers.lessThan;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
@@ -241,6 +245,105 @@ public class DefaultPromiseTest {
         }
     }
 
+    @Test(timeout = 10000)
+    public void testConcurrentlyAddedListenersAreNotifiedOnceInOrder() throws Exception {
+        final DefaultPromise<Void> promise = new DefaultPromise<Void>(ImmediateEventExecutor.INSTANCE);
+        final int listenersPerThread = 10000;
+        final AtomicInteger notified = new AtomicInteger();
+        final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+        final CountDownLatch started = new CountDownLatch(4);
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < 4; i++) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    final AtomicInteger last = new AtomicInteger();
+                    started.countDown();
+                    for (int i = 1; i <= listenersPerThread; i++) {
+                        final int id = i;
+                        promise.addListener(new FutureListener<Void>() {
+                            @Override
+                            public void operationComplete(Future<Void> future) {
+                                if (!last.compareAndSet(id - 1, id)) {
+                                    error.compareAndSet(null, new AssertionError(
+                                            "expected " + (id - 1) + " but was " + last.get()));
+                                }
+                                notified.incrementAndGet();
+                            }
+                        });
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        started.await();
+        promise.setSuccess(null);
+        for (Thread thread: threads) {
+            thread.join();
+        }
+        assertNull(error.get());
+        assertEquals(4 * listenersPerThread, notified.get());
+    }
+
+    @Test
+    public void testRemoveListener() {
+        final StringBuilder notified = new StringBuilder();
+        FutureListener<Void> a = new FutureListener<Void>() {
+            @Override
+            public void operationComplete(Future<Void> future) {
+                notified.append('a');
+            }
+        };
+        FutureListener<Void> b = new FutureListener<Void>() {
+            @Override
+            public void operationComplete(Future<Void> future) {
+                notified.append('b');
+            }
+        };
+        DefaultPromise<Void> promise = new DefaultPromise<Void>(ImmediateEventExecutor.INSTANCE);
+        promise.addListener(a).addListener(b).addListener(a);
+        // Removes the listener which was added first.
+        promise.removeListener(a);
+        promise.setSuccess(null);
+        assertEquals("ba", notified.toString());
+
+        notified.setLength(0);
+        promise = new DefaultPromise<Void>(ImmediateEventExecutor.INSTANCE);
+        promise.addListener(a);
+        promise.removeListener(a);
+        promise.addListener(b);
+        promise.setSuccess(null);
+        assertEquals("b", notified.toString());
+    }
+
+    @Test
+    public void testRemovedListenerNodesAreUnlinked() {
+        FutureListener<Void> a = new FutureListener<Void>() {
+            @Override
+            public void operationComplete(Future<Void> future) { }
+        };
+        FutureListener<Void> b = new FutureListener<Void>() {
+            @Override
+            public void operationComplete(Future<Void> future) { }
+        };
+        DefaultPromise<Void> promise = new DefaultPromise<Void>(ImmediateEventExecutor.INSTANCE);
+        promise.addListener(a);
+        for (int i = 0; i < 10000; i++) {
+            promise.addListener(b);
+            assertEquals(2, promise.numListenerNodes());
+            promise.removeListener(b);
+            // A single listener is stored without a node again.
+            assertEquals(0, promise.numListenerNodes());
+        }
+        promise.addListener(b).addListener(b);
+        for (int i = 0; i < 10000; i++) {
+            promise.addListener(a);
+            promise.removeListener(a);
+            assertEquals(3, promise.numListenerNodes());
+        }
+    }
+
     private void testStackOverFlowChainedFuturesA(int promiseChainLength, final EventExecutor executor,
                                                   boolean runTestInExecutorThread)
             throws InterruptedException {
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import io.netty.util.concurrent.EventExecutorChooserFactory.EventExecutorChooser;
+import io.netty.util.concurrent.LoadAwareEventExecutorChooserFactory.LoadEstimator;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class LoadAwareEventExecutorChooserFactoryTest {
+
+    @Test
+    public void testChoosesLessLoadedExecutor() {
+        EventExecutor[] executors = newExecutors(3);
+        final Map<EventExecutor, Long> loads = new IdentityHashMap<EventExecutor, Long>();
+        loads.put(executors[0], 10L);
+        loads.put(executors[1], 5L);
+        loads.put(executors[2], 100L);
+        EventExecutorChooser chooser = new LoadAwareEventExecutorChooserFactory(new LoadEstimator() {
+            @Override
+            public long load(EventExecutor executor) {
+                return loads.get(executor);
+            }
+        }).newChooser(executors);
+
+        Set<EventExecutor> chosen = new HashSet<EventExecutor>();
+        for (int i = 0; i < 1000; i++) {
+            EventExecutor executor = chooser.next();
+            // The most loaded executor always loses against the other one it is compared with.
+            assertNotSame(executors[2], executor);
+            chosen.add(executor);
+        }
+        // The least loaded executor wins every comparison it takes part in, but the second is chosen when it is
+        // compared with the most loaded one.
+        assertEquals(2, chosen.size());
+    }
+
+    @Test
+    public void testSingleExecutor() {
+        EventExecutor[] executors = newExecutors(1);
+        EventExecutorChooser chooser = new LoadAwareEventExecutorChooserFactory(
+                LoadAwareEventExecutorChooserFactory.PENDING_TASKS).newChooser(executors);
+        assertSame(executors[0], chooser.next());
+    }
+
+    @Test(timeout = 5000)
+    public void testPendingTasks() throws Exception {
+        EventExecutor[] executors = newExecutors(2);
+        final CountDownLatch blocked = new CountDownLatch(1);
+        try {
+            EventExecutorChooser chooser = new LoadAwareEventExecutorChooserFactory(
+                    LoadAwareEventExecutorChooserFactory.PENDING_TASKS).newChooser(executors);
+            for (int i = 0; i < 10; i++) {
+                executors[0].execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            blocked.await();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                });
+            }
+            for (int i = 0; i < 100; i++) {
+                assertSame(executors[1], chooser.next());
+            }
+            // Estimating the pending tasks must not enable the collection of the metric.
+            for (EventExecutor executor: executors) {
+                assertFalse(((SingleThreadEventExecutor) executor).isMetricCollected());
+            }
+        } finally {
+            blocked.countDown();
+            for (EventExecutor executor: executors) {
+                executor.shutdownGracefully(0, 0, TimeUnit.SECONDS).sync();
+            }
+        }
+    }
+
+    @Test
+    public void testRecentBusyTimeRequiresMetric() throws Exception {
+        EventExecutor[] executors = newExecutors(2);
+        try {
+            EventExecutorChooserFactory factory = new LoadAwareEventExecutorChooserFactory(
+                    LoadAwareEventExecutorChooserFactory.RECENT_BUSY_TIME);
+            try {
+                factory.newChooser(executors);
+                fail();
+            } catch (IllegalStateException expected) {
+                // expected
+            }
+            for (EventExecutor executor: executors) {
+                assertFalse(((SingleThreadEventExecutor) executor).isMetricCollected());
+                ((SingleThreadEventExecutor) executor).metric();
+            }
+            assertNotNull(factory.newChooser(executors).next());
+        } finally {
+            for (EventExecutor executor: executors) {
+                executor.shutdownGracefully(0, 0, TimeUnit.SECONDS).sync();
+            }
+        }
+    }
+
+    private static EventExecutor[] newExecutors(int num) {
+        EventExecutor[] executors = new EventExecutor[num];
+        for (int i = 0; i < num; i++) {
+            executors[i] = new DefaultEventExecutor();
+        }
+        return executors;
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ScheduledTaskWheelTest {
+
+    private static final Runnable NOOP = new Runnable() {
+        @Override
+        public void run() {
+        }
+    };
+
+    private static ScheduledFutureTask<?> newTask(long deadlineNanos) {
+        return new ScheduledFutureTask<Void>(GlobalEventExecutor.INSTANCE, NOOP, null, deadlineNanos);
+    }
+
+    @Test
+    public void testPollInDeadlineOrder() {
+        ScheduledTaskWheel wheel = new ScheduledTaskWheel();
+        long now = ScheduledFutureTask.nanoTime();
+        Random random = new Random(42);
+        List<ScheduledFutureTask<?>> expected = new ArrayList<ScheduledFutureTask<?>>();
+        for (int i = 0; i < 10000; i++) {
+            // Spread the deadlines over all levels of the wheel and beyond.
+            long delay = random.nextLong() & (1L << 10 + random.nextInt(40)) - 1;
+            ScheduledFutureTask<?> task = newTask(now + delay);
+            assertTrue(wheel.offer(task));
+            if (random.nextInt(4) == 0) {
+                assertTrue(wheel.remove(task));
+            } else {
+                expected.add(task);
+            }
+        }
+        assertEquals(expected.size(), wheel.size());
+        Collections.sort(expected);
+
+        int i = 0;
+        while (i < expected.size()) {
+            long deadlineNanos = wheel.nextDeadlineNanos(now);
+            assertTrue(deadlineNanos <= expected.get(i).deadlineNanos());
+            // Jump to the returned time or a bit further, like an event loop which woke up late.
+            now = Math.max(now + 1, deadlineNanos) + random.nextInt(1 << 20);
+            ScheduledFutureTask<?> task;
+            while ((task = wheel.pollDue(now)) != null) {
+                assertSame(expected.get(i++), task);
+                assertTrue(task.deadlineNanos() <= now);
+            }
+            assertTrue(i == expected.size() || expected.get(i).deadlineNanos() > now);
+        }
+        assertTrue(wheel.isEmpty());
+    }
+
+    @Test
+    public void testCancelInBucketAndDue() {
+        ScheduledTaskWheel wheel = new ScheduledTaskWheel();
+        long now = ScheduledFutureTask.nanoTime();
+        ScheduledFutureTask<?> due = newTask(now);
+        ScheduledFutureTask<?> later = newTask(now + TimeUnit.SECONDS.toNanos(30));
+        ScheduledFutureTask<?> last = newTask(now + TimeUnit.SECONDS.toNanos(31));
+        wheel.add(due);
+        wheel.add(later);
+        wheel.add(last);
+
+        assertTrue(wheel.remove(later));
+        assertFalse(wheel.remove(later));
+        assertTrue(wheel.remove(due));
+        assertEquals(1, wheel.size());
+
+        assertNull(wheel.pollDue(now + TimeUnit.SECONDS.toNanos(30)));
+        assertSame(last, wheel.pollDue(now + TimeUnit.SECONDS.toNanos(31)));
+        assertTrue(wheel.isEmpty());
+    }
+
+    @Test
+    public void testPeekAndClear() {
+        ScheduledTaskWheel wheel = new ScheduledTaskWheel();
+        long now = ScheduledFutureTask.nanoTime();
+        ScheduledFutureTask<?> first = newTask(now + TimeUnit.MINUTES.toNanos(1));
+        wheel.add(newTask(now + TimeUnit.DAYS.toNanos(1)));
+        wheel.add(newTask(now + TimeUnit.HOURS.toNanos(1)));
+        wheel.add(first);
+
+        assertSame(first, wheel.peek());
+        assertEquals(3, wheel.toArray().length);
+        wheel.clear();
+        assertTrue(wheel.isEmpty());
+        assertNull(wheel.peek());
+        assertNull(wheel.pollDue(now + TimeUnit.DAYS.toNanos(2)));
+    }
+}
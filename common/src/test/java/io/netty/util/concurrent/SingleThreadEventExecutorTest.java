@@ -18,9 +18,12 @@ package io.netty.util.concurrent;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executors;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
@@ -56,6 +59,121 @@ public class SingleThreadEventExecutorTest {
         executor.shutdownGracefully();
     }
 
+    @Test(timeout = 3000)
+    public void testMetric() throws Exception {
+        SingleThreadEventExecutor executor = new SingleThreadEventExecutor(
+                null, new DefaultThreadFactory("test"), false) {
+            @Override
+            protected void run() {
+                while (!confirmShutdown()) {
+                    Runnable task = takeTask();
+                    if (task != null) {
+                        task.run();
+                        runAllTasks();
+                    }
+                }
+            }
+        };
+        try {
+            SingleThreadEventExecutorMetric metric = executor.metric();
+            Assert.assertSame(metric, executor.metric());
+
+            final CountDownLatch started = new CountDownLatch(1);
+            final CountDownLatch blocked = new CountDownLatch(1);
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    started.countDown();
+                    try {
+                        blocked.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            started.await();
+            // All of these tasks are run by runAllTasks() once the first task completed.
+            final CountDownLatch done = new CountDownLatch(9);
+            for (int i = 0; i < 9; i++) {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        done.countDown();
+                    }
+                });
+            }
+            Assert.assertTrue(metric.pendingTasks() >= 9);
+            blocked.countDown();
+            done.await();
+
+            executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                }
+            }).sync();
+            // The tasks are only recorded once runAllTasks() returns, which may be after the last of them completed.
+            while (metric.numTasks() < 9) {
+                Thread.sleep(10);
+            }
+            Assert.assertEquals(11, metric.numWaitedTasks());
+            long waited = 0;
+            for (long count: metric.taskWaitTimeHistogram()) {
+                waited += count;
+            }
+            Assert.assertEquals(11, waited);
+            Assert.assertEquals(1024, SingleThreadEventExecutorMetric.taskWaitTimeBucketLimitNanos(0));
+            Assert.assertEquals(Long.MAX_VALUE, SingleThreadEventExecutorMetric.taskWaitTimeBucketLimitNanos(
+                    metric.taskWaitTimeHistogram().length - 1));
+            Assert.assertTrue(metric.taskWaitTimeNanos() > 0);
+            Assert.assertTrue(metric.numTaskRuns() > 0);
+            Assert.assertTrue(metric.numTasks() >= 9);
+            Assert.assertTrue(metric.numWakeups() > 0);
+        } finally {
+            executor.shutdownGracefully(0, 0, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Test(timeout = 3000)
+    public void testExecuteAllWakesUpOnce() throws Exception {
+        SingleThreadEventExecutor executor = new SingleThreadEventExecutor(
+                null, new DefaultThreadFactory("test"), false) {
+            @Override
+            protected void run() {
+                while (!confirmShutdown()) {
+                    Runnable task = takeTask();
+                    if (task != null) {
+                        task.run();
+                    }
+                }
+            }
+        };
+        try {
+            SingleThreadEventExecutorMetric metric = executor.metric();
+            final List<Integer> order = Collections.synchronizedList(new ArrayList<Integer>());
+            final CountDownLatch done = new CountDownLatch(10);
+            List<Runnable> tasks = new ArrayList<Runnable>();
+            for (int i = 0; i < 10; i++) {
+                final int id = i;
+                tasks.add(new Runnable() {
+                    @Override
+                    public void run() {
+                        order.add(id);
+                        done.countDown();
+                    }
+                });
+            }
+            executor.executeAll(tasks);
+            done.await();
+
+            for (int i = 0; i < 10; i++) {
+                Assert.assertEquals(i, (int) order.get(i));
+            }
+            Assert.assertEquals(1, metric.numWakeups());
+        } finally {
+            executor.shutdownGracefully(0, 0, TimeUnit.MILLISECONDS);
+        }
+    }
+
     @Test(expected = RejectedExecutionException.class, timeout = 3000)
     public void testInvokeAnyInEventLoop() {
         testInvokeInEventLoop(true, false);
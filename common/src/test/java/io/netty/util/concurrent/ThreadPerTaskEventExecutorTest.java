@@ -0,0 +1,152 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ThreadPerTaskEventExecutorTest {
+
+    @Test(timeout = 10000)
+    public void testTasksRunOnDistinctThreads() throws Exception {
+        final ThreadPerTaskEventExecutor executor = new ThreadPerTaskEventExecutor();
+        try {
+            final int tasks = 8;
+            // Every task blocks until all of them run, which only works if none waits for another to complete.
+            final CountDownLatch running = new CountDownLatch(tasks);
+            final Set<Thread> threads = Collections.synchronizedSet(new HashSet<Thread>());
+            List<Future<?>> futures = new ArrayList<Future<?>>(tasks);
+            for (int i = 0; i < tasks; i++) {
+                futures.add(executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        threads.add(Thread.currentThread());
+                        running.countDown();
+                        try {
+                            running.await();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future: futures) {
+                future.syncUninterruptibly();
+            }
+            assertEquals(tasks, threads.size());
+            assertFalse(executor.inEventLoop());
+        } finally {
+            executor.shutdownGracefully();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testOrderingWithNonStickyEventExecutorGroup() throws Exception {
+        ThreadPerTaskEventExecutor executor = new ThreadPerTaskEventExecutor();
+        NonStickyEventExecutorGroup group = new NonStickyEventExecutorGroup(executor);
+        try {
+            EventExecutor ordered = group.next();
+            assertTrue(ordered instanceof OrderedEventExecutor);
+
+            final int tasks = 1000;
+            final List<Integer> values = Collections.synchronizedList(new ArrayList<Integer>(tasks));
+            final CountDownLatch latch = new CountDownLatch(tasks);
+            for (int i = 0; i < tasks; i++) {
+                final int value = i;
+                ordered.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        values.add(value);
+                        latch.countDown();
+                    }
+                });
+            }
+            latch.await();
+            for (int i = 0; i < tasks; i++) {
+                assertEquals(i, (int) values.get(i));
+            }
+        } finally {
+            group.shutdownGracefully();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testTerminationWaitsForRunningTasks() throws Exception {
+        ThreadPerTaskEventExecutor executor = new ThreadPerTaskEventExecutor();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        started.await();
+
+        Future<?> terminationFuture = executor.shutdownGracefully();
+        assertTrue(executor.isShuttingDown());
+        assertFalse(terminationFuture.await(100, TimeUnit.MILLISECONDS));
+        assertFalse(executor.isTerminated());
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    fail();
+                }
+            });
+            fail();
+        } catch (RejectedExecutionException expected) {
+            // expected
+        }
+
+        release.countDown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        assertTrue(terminationFuture.isSuccess());
+    }
+
+    @Test
+    public void testNewThreadFactory() {
+        Thread thread = ThreadPerTaskEventExecutor.newThreadFactory("testPool").newThread(new Runnable() {
+            @Override
+            public void run() {
+                // NOOP
+            }
+        });
+        assertTrue(thread.getName().startsWith("testPool-"));
+        if (!ThreadPerTaskEventExecutor.isVirtualThreadAvailable()) {
+            assertTrue(thread instanceof FastThreadLocalThread);
+            assertTrue(thread.isDaemon());
+        }
+    }
+}
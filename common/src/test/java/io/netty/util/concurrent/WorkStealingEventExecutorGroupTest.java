@@ -0,0 +1,185 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class WorkStealingEventExecutorGroupTest {
+
+    @Test(timeout = 10000)
+    public void testOrdering() throws Throwable {
+        final WorkStealingEventExecutorGroup group = new WorkStealingEventExecutorGroup(4, 16);
+        try {
+            final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+            final CountDownLatch done = new CountDownLatch(32);
+            List<Thread> threads = new ArrayList<Thread>();
+            for (int i = 0; i < 32; i++) {
+                final EventExecutor executor = group.next();
+                final AtomicInteger last = new AtomicInteger();
+                final Runnable submitAll = new Runnable() {
+                    @Override
+                    public void run() {
+                        for (int i = 1; i <= 10000; i++) {
+                            executor.execute(new OrderedTask(last, i, 10000, done, error));
+                        }
+                    }
+                };
+                final boolean fromWorker = (i & 1) == 0;
+                Thread thread = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (fromWorker) {
+                            // Submit the tasks from a worker thread, so the executor is queued at that worker.
+                            group.next().execute(submitAll);
+                        } else {
+                            submitAll.run();
+                        }
+                    }
+                });
+                threads.add(thread);
+                thread.start();
+            }
+            for (Thread thread: threads) {
+                thread.join();
+            }
+            done.await();
+            assertNull(error.get());
+        } finally {
+            group.shutdownGracefully().sync();
+        }
+    }
+
+    private static final class OrderedTask implements Runnable {
+        private final AtomicInteger last;
+        private final int id;
+        private final int tasks;
+        private final CountDownLatch done;
+        private final AtomicReference<Throwable> error;
+
+        OrderedTask(AtomicInteger last, int id, int tasks, CountDownLatch done, AtomicReference<Throwable> error) {
+            this.last = last;
+            this.id = id;
+            this.tasks = tasks;
+            this.done = done;
+            this.error = error;
+        }
+
+        @Override
+        public void run() {
+            if (!last.compareAndSet(id - 1, id)) {
+                error.compareAndSet(null, new AssertionError("expected " + (id - 1) + " but was " + last.get()));
+            }
+            if (id == tasks) {
+                done.countDown();
+            }
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testBlockedExecutorDoesNotStallOthers() throws Exception {
+        WorkStealingEventExecutorGroup group = new WorkStealingEventExecutorGroup(2);
+        final CountDownLatch blocked = new CountDownLatch(1);
+        try {
+            final CountDownLatch started = new CountDownLatch(1);
+            group.next().execute(new Runnable() {
+                @Override
+                public void run() {
+                    started.countDown();
+                    try {
+                        blocked.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            started.await();
+
+            final CountDownLatch done = new CountDownLatch(100);
+            for (int i = 0; i < 100; i++) {
+                group.next().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        done.countDown();
+                    }
+                });
+            }
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+        } finally {
+            blocked.countDown();
+            group.shutdownGracefully().sync();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testInEventLoop() throws Exception {
+        WorkStealingEventExecutorGroup group = new WorkStealingEventExecutorGroup(2);
+        try {
+            final EventExecutor executor = group.next();
+            final EventExecutor other = group.next();
+            assertFalse(executor.inEventLoop());
+            Future<Boolean> future = executor.submit(new Callable<Boolean>() {
+                @Override
+                public Boolean call() {
+                    return executor.inEventLoop() && !other.inEventLoop();
+                }
+            });
+            assertTrue(future.sync().getNow());
+        } finally {
+            group.shutdownGracefully().sync();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testShutdown() throws Exception {
+        WorkStealingEventExecutorGroup group = new WorkStealingEventExecutorGroup(2);
+        EventExecutor executor = group.next();
+        final CountDownLatch ran = new CountDownLatch(1);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                ran.countDown();
+            }
+        });
+        ran.await();
+
+        assertTrue(group.shutdownGracefully().await(5, TimeUnit.SECONDS));
+        assertTrue(group.isTerminated());
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                }
+            });
+            fail();
+        } catch (RejectedExecutionException expected) {
+            // expected
+        }
+    }
+}
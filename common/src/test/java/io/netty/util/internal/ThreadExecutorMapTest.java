@@ -0,0 +1,61 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.internal;
+
+import io.netty.util.concurrent.DefaultEventExecutor;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.Future;
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class ThreadExecutorMapTest {
+
+    @Test
+    public void testCurrentExecutor() throws Exception {
+        final EventExecutor executor = new DefaultEventExecutor();
+        try {
+            Future<EventExecutor> future = executor.submit(new Callable<EventExecutor>() {
+                @Override
+                public EventExecutor call() {
+                    return ThreadExecutorMap.currentExecutor();
+                }
+            });
+            assertSame(executor, future.sync().getNow());
+            assertNull(ThreadExecutorMap.currentExecutor());
+        } finally {
+            executor.shutdownGracefully(0, 0, TimeUnit.MILLISECONDS).sync();
+        }
+    }
+
+    @Test
+    public void testApplyRemovesMappingAfterRun() {
+        final EventExecutor executor = new DefaultEventExecutor();
+        final EventExecutor[] current = new EventExecutor[1];
+        ThreadExecutorMap.apply(new Runnable() {
+            @Override
+            public void run() {
+                current[0] = ThreadExecutorMap.currentExecutor();
+            }
+        }, executor).run();
+        assertSame(executor, current[0]);
+        assertNull(ThreadExecutorMap.currentExecutor());
+    }
+}
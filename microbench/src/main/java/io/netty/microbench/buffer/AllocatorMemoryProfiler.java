@@ -0,0 +1,79 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.buffer;
+
+import io.netty.buffer.ByteBufAllocator;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.profile.InternalProfiler;
+import org.openjdk.jmh.results.AggregationPolicy;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.ScalarResult;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reports the memory reserved by the allocator of a benchmark as secondary JMH results. The benchmark is expected
+ * to call {@link #record(ByteBufAllocator, long)} from a {@code @TearDown(Level.Iteration)} method, which runs
+ * before JMH collects the results of the iteration.
+ */
+public final class AllocatorMemoryProfiler implements InternalProfiler {
+
+    private static volatile long usedMemory = -1;
+    private static volatile long liveBytes = -1;
+
+    /**
+     * Records the memory that is currently reserved by the given allocator.
+     *
+     * @param liveBytes the number of bytes the benchmark currently holds in live buffers, or {@code -1} if unknown.
+     */
+    static void record(ByteBufAllocator allocator, long liveBytes) {
+        AllocatorMemoryProfiler.liveBytes = liveBytes;
+        usedMemory = ByteBufAllocatorType.usedMemory(allocator);
+    }
+
+    @Override
+    public String getDescription() {
+        return "Memory reserved by the ByteBufAllocator under test";
+    }
+
+    @Override
+    public void beforeIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams) {
+        usedMemory = -1;
+        liveBytes = -1;
+    }
+
+    @Override
+    public Collection<? extends Result> afterIteration(
+            BenchmarkParams benchmarkParams, IterationParams iterationParams, IterationResult result) {
+        long usedMemory = AllocatorMemoryProfiler.usedMemory;
+        if (usedMemory < 0) {
+            return Collections.emptyList();
+        }
+        List<Result> results = new ArrayList<Result>(2);
+        results.add(new ScalarResult("usedMemory", usedMemory, "bytes", AggregationPolicy.AVG));
+        long liveBytes = AllocatorMemoryProfiler.liveBytes;
+        if (liveBytes > 0) {
+            results.add(new ScalarResult("fragmentation", (double) usedMemory / liveBytes,
+                    "usedMemory/liveBytes", AggregationPolicy.AVG));
+        }
+        return results;
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.buffer;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.internal.PlatformDependent;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+
+import java.util.Queue;
+
+/**
+ * Benchmarks buffers which are allocated by one thread and released by another, as happens when a buffer is
+ * written to a {@link io.netty.channel.Channel} of another {@link io.netty.channel.EventLoop}. The memory reserved by
+ * the allocator is reported by the {@link AllocatorMemoryProfiler}.
+ */
+@State(Scope.Group)
+public class ByteBufAllocatorCrossThreadBenchmark extends AbstractMicrobenchmark {
+
+    private static final int QUEUE_CAPACITY = 1024;
+
+    /**
+     * Counts how often the producer needed to release a buffer itself because the consumer did not keep up, and
+     * how often the consumer found no buffer to release.
+     */
+    @AuxCounters
+    @State(Scope.Thread)
+    public static class HandoffCounters {
+        public long producerFrees;
+        public long consumerMisses;
+    }
+
+    @Param
+    public ByteBufAllocatorType allocatorType;
+
+    @Param({ "00256", "04096", "65536" })
+    public int size;
+
+    private ByteBufAllocator allocator;
+    private Queue<ByteBuf> queue;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        allocator = allocatorType.newAllocator();
+        queue = PlatformDependent.newFixedMpscQueue(QUEUE_CAPACITY);
+    }
+
+    @TearDown(Level.Iteration)
+    public void drainAndRecordMemory() {
+        for (;;) {
+            ByteBuf buf = queue.poll();
+            if (buf == null) {
+                break;
+            }
+            buf.release();
+        }
+        AllocatorMemoryProfiler.record(allocator, -1);
+    }
+
+    @Override
+    protected ChainedOptionsBuilder newOptionsBuilder() throws Exception {
+        return super.newOptionsBuilder().addProfiler(AllocatorMemoryProfiler.class);
+    }
+
+    @Benchmark
+    @Group("crossThread")
+    @GroupThreads(1)
+    public void allocate(HandoffCounters counters) {
+        ByteBuf buf = allocator.directBuffer(size);
+        if (!queue.offer(buf)) {
+            buf.release();
+            counters.producerFrees++;
+        }
+    }
+
+    @Benchmark
+    @Group("crossThread")
+    @GroupThreads(1)
+    public void release(HandoffCounters counters) {
+        ByteBuf buf = queue.poll();
+        if (buf == null) {
+            counters.consumerMisses++;
+        } else {
+            buf.release();
+        }
+    }
+
+    @Benchmark
+    @Group("sameThread")
+    @GroupThreads(1)
+    public void allocateAndRelease() {
+        allocator.directBuffer(size).release();
+    }
+}
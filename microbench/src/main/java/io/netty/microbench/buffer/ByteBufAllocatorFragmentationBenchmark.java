@@ -0,0 +1,173 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.buffer;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+
+import java.util.Random;
+
+/**
+ * Benchmarks an allocator with a realistic mix of buffer sizes, where a part of the buffers is kept alive for a long
+ * time while the rest is released quickly. Besides the throughput the memory reserved by the allocator and the
+ * resulting fragmentation ({@code usedMemory / liveBytes}) are reported by the {@link AllocatorMemoryProfiler}.
+ */
+@State(Scope.Thread)
+public class ByteBufAllocatorFragmentationBenchmark extends AbstractMicrobenchmark {
+
+    private static final int MAX_LIVE_BUFFERS = 4096;
+    private static final int NUM_SIZES = 8192;
+    // Replace one long-lived buffer for every 256 short-lived buffers.
+    private static final int LONG_LIVED_MASK = 255;
+
+    /**
+     * The distribution of the requested sizes.
+     */
+    public enum SizeDistribution {
+        /**
+         * Mostly small buffers as used for headers and protocol frames, mixed with some reads of up to 64KiB.
+         */
+        NETWORK {
+            @Override
+            int nextSize(Random random) {
+                int p = random.nextInt(100);
+                if (p < 40) {
+                    return 16 + random.nextInt(512 - 16);
+                }
+                if (p < 75) {
+                    return 512 + random.nextInt(8192 - 512);
+                }
+                if (p < 95) {
+                    return 8192 + random.nextInt(65536 - 8192);
+                }
+                return 65536 + random.nextInt(262144 - 65536);
+            }
+        },
+        /**
+         * Sizes that are uniformly distributed between 1 byte and 64KiB.
+         */
+        UNIFORM {
+            @Override
+            int nextSize(Random random) {
+                return 1 + random.nextInt(65536);
+            }
+        },
+        /**
+         * Sizes just above a power of two, which is the worst case for rounding up to the next power of two.
+         */
+        POWER_OF_TWO_PLUS_ONE {
+            @Override
+            int nextSize(Random random) {
+                return (1 << 9 + random.nextInt(8)) + 1;
+            }
+        };
+
+        abstract int nextSize(Random random);
+    }
+
+    @Param
+    public ByteBufAllocatorType allocatorType;
+
+    @Param
+    public SizeDistribution distribution;
+
+    @Param({ "0", "10", "50" })
+    public int longLivedPercent;
+
+    private ByteBufAllocator allocator;
+    private ByteBuf[] buffers;
+    private int[] sizes;
+    private int[] indexes;
+    private int longLivedBuffers;
+    private int sizeIdx;
+    private int longLivedIdx;
+    private long ops;
+    private long liveBytes;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        allocator = allocatorType.newAllocator();
+        buffers = new ByteBuf[MAX_LIVE_BUFFERS];
+        longLivedBuffers = MAX_LIVE_BUFFERS * longLivedPercent / 100;
+
+        // Use a fixed seed so all allocators see exactly the same sequence of requests.
+        Random random = new Random(42);
+        sizes = new int[NUM_SIZES];
+        indexes = new int[NUM_SIZES];
+        for (int i = 0; i < NUM_SIZES; i++) {
+            sizes[i] = distribution.nextSize(random);
+            indexes[i] = longLivedBuffers + random.nextInt(MAX_LIVE_BUFFERS - longLivedBuffers);
+        }
+        for (int i = 0; i < MAX_LIVE_BUFFERS; i++) {
+            replace(i, sizes[i % NUM_SIZES]);
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void recordMemory() {
+        AllocatorMemoryProfiler.record(allocator, liveBytes);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i].release();
+            buffers[i] = null;
+        }
+        liveBytes = 0;
+    }
+
+    @Override
+    protected ChainedOptionsBuilder newOptionsBuilder() throws Exception {
+        return super.newOptionsBuilder().addProfiler(AllocatorMemoryProfiler.class);
+    }
+
+    @Benchmark
+    public ByteBuf allocateAndFree() {
+        int i = sizeIdx;
+        sizeIdx = i + 1 & NUM_SIZES - 1;
+        ByteBuf buf = replace(indexes[i], sizes[i]);
+
+        long ops = ++this.ops;
+        if (longLivedBuffers != 0 && (ops & LONG_LIVED_MASK) == 0) {
+            int idx = longLivedIdx;
+            longLivedIdx = idx + 1 == longLivedBuffers ? 0 : idx + 1;
+            replace(idx, sizes[sizeIdx]);
+        }
+        return buf;
+    }
+
+    private ByteBuf replace(int idx, int size) {
+        ByteBuf oldBuf = buffers[idx];
+        if (oldBuf != null) {
+            liveBytes -= oldBuf.capacity();
+            oldBuf.release();
+        }
+        ByteBuf buf = allocator.directBuffer(size);
+        liveBytes += size;
+        buffers[idx] = buf;
+        return buf;
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.buffer;
+
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufAllocatorMetric;
+import io.netty.buffer.ByteBufAllocatorMetricProvider;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocatorOptions;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.concurrent.FastThreadLocalThread;
+
+/**
+ * The {@link ByteBufAllocator} configurations which are compared by the allocator benchmarks.
+ */
+public enum ByteBufAllocatorType {
+    UNPOOLED {
+        @Override
+        ByteBufAllocator newAllocator() {
+            return new UnpooledByteBufAllocator(true, true);
+        }
+    },
+    POOLED {
+        @Override
+        ByteBufAllocator newAllocator() {
+            return newPooledAllocator(false, false);
+        }
+    },
+    POOLED_SIZE_CLASSES {
+        @Override
+        ByteBufAllocator newAllocator() {
+            return newPooledAllocator(false, true);
+        }
+    },
+    /**
+     * Arenas are only pinned to {@link FastThreadLocalThread}s, so this type must be created and used by the
+     * benchmark threads of the {@link AbstractMicrobenchmark.HarnessExecutor}.
+     */
+    POOLED_PINNED {
+        @Override
+        ByteBufAllocator newAllocator() {
+            if (!(Thread.currentThread() instanceof FastThreadLocalThread)) {
+                throw new IllegalStateException(
+                        "arena pinning requires the benchmark to run on FastThreadLocalThreads, but was called from: " +
+                        Thread.currentThread() + " (run it via " + AbstractMicrobenchmark.class.getSimpleName() +
+                        " which uses -Djmh.executor=CUSTOM)");
+            }
+            return newPooledAllocator(true, false);
+        }
+    };
+
+    abstract ByteBufAllocator newAllocator();
+
+    /**
+     * Returns the number of heap and direct bytes which are currently reserved by the given allocator.
+     */
+    static long usedMemory(ByteBufAllocator allocator) {
+        ByteBufAllocatorMetric metric = ((ByteBufAllocatorMetricProvider) allocator).metric();
+        return metric.usedHeapMemory() + metric.usedDirectMemory();
+    }
+
+    private static ByteBufAllocator newPooledAllocator(boolean pinArenas, boolean useSizeClasses) {
+        return new PooledByteBufAllocator(true,
+                PooledByteBufAllocator.defaultNumHeapArena(), PooledByteBufAllocator.defaultNumDirectArena(),
+                PooledByteBufAllocator.defaultPageSize(), PooledByteBufAllocator.defaultMaxOrder(),
+                PooledByteBufAllocator.defaultTinyCacheSize(), PooledByteBufAllocator.defaultSmallCacheSize(),
+                PooledByteBufAllocator.defaultNormalCacheSize(), true,
+                new PooledByteBufAllocatorOptions().pinArenasToEventLoops(pinArenas)
+                        .useSizeClasses(useSizeClasses).chunkReleaseDelayMillis(0));
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.testsuite.transport.socket;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.WriteBudget;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class SocketWriteBudgetTest extends AbstractSocketTest {
+
+    @Rule
+    public final Timeout globalTimeout = new Timeout(60000);
+
+    private static final Random random = new Random();
+    static final byte[] data = new byte[1048576];
+
+    static {
+        random.nextBytes(data);
+    }
+
+    @Test
+    public void testWriteBudgetSmallMessages() throws Throwable {
+        run();
+    }
+
+    public void testWriteBudgetSmallMessages(ServerBootstrap sb, Bootstrap cb) throws Throwable {
+        testWriteBudget(sb, cb, new WriteBudget(4096), 16);
+    }
+
+    @Test
+    public void testWriteBudgetLargeMessages() throws Throwable {
+        run();
+    }
+
+    public void testWriteBudgetLargeMessages(ServerBootstrap sb, Bootstrap cb) throws Throwable {
+        testWriteBudget(sb, cb, new WriteBudget(64 * 1024), data.length / 4);
+    }
+
+    @Test
+    public void testWriteBudgetTimeBounded() throws Throwable {
+        run();
+    }
+
+    public void testWriteBudgetTimeBounded(ServerBootstrap sb, Bootstrap cb) throws Throwable {
+        // Every write operation uses up the time, so each flush writes once.
+        testWriteBudget(sb, cb, new WriteBudget(Integer.MAX_VALUE, 1, TimeUnit.NANOSECONDS), 1024);
+    }
+
+    private static void testWriteBudget(
+            ServerBootstrap sb, Bootstrap cb, WriteBudget budget, int messageSize) throws Throwable {
+        final CountDownLatch receivedLatch = new CountDownLatch(1);
+        final ByteBuf received = Unpooled.buffer(data.length);
+        final AtomicReference<Throwable> exception = new AtomicReference<Throwable>();
+        sb.childHandler(new SimpleChannelInboundHandler<ByteBuf>() {
+            @Override
+            protected void channelRead0(ChannelHandlerContext ctx, ByteBuf msg) {
+                received.writeBytes(msg);
+                if (received.readableBytes() == data.length) {
+                    receivedLatch.countDown();
+                }
+            }
+
+            @Override
+            public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+                exception.compareAndSet(null, cause);
+                ctx.close();
+            }
+        });
+        cb.option(ChannelOption.WRITE_BUDGET, budget);
+        cb.handler(new ChannelInboundHandlerAdapter());
+
+        Channel sc = sb.bind().sync().channel();
+        Channel cc = cb.connect().sync().channel();
+        try {
+            assertSame(budget, cc.config().getOption(ChannelOption.WRITE_BUDGET));
+            for (int i = 0; i < data.length; i += messageSize) {
+                cc.write(Unpooled.wrappedBuffer(data, i, Math.min(messageSize, data.length - i)));
+            }
+            ChannelFuture future = cc.writeAndFlush(Unpooled.EMPTY_BUFFER);
+            assertTrue(future.await(30000));
+            future.sync();
+            assertTrue(receivedLatch.await(30000, TimeUnit.MILLISECONDS));
+            if (exception.get() != null) {
+                throw exception.get();
+            }
+            assertEquals(Unpooled.wrappedBuffer(data), received);
+        } finally {
+            cc.close().sync();
+            sc.close().sync();
+            received.release();
+        }
+    }
+}
@@ -24,7 +24,9 @@
 #include <sys/sendfile.h>
 #include <sys/un.h>
 #include <linux/tcp.h> // TCP_NOTSENT_LOWAT is a linux specific define
+#include <linux/errqueue.h> // struct sock_extended_err is a linux specific define
 #include <netinet/in.h>
+#include <netinet/udp.h>
 #include <sys/types.h>
 #include <sys/socket.h>
 #include <unistd.h>
@@ -37,6 +39,7 @@
 #include <link.h>
 #include <time.h>
 #include "netty_unix_filedescriptor.h"
+#include "netty_unix_limits.h"
 #include "netty_unix_socket.h"
 #include "netty_unix_errors.h"
 #include "netty_unix_util.h"
@@ -47,17 +50,6 @@
 #define SO_REUSEPORT 15
 #endif /* SO_REUSEPORT */
 
-// Define IOV_MAX if not found to limit the iov size on writev calls
-// See https://github.com/netty/netty/issues/2647
-#ifndef IOV_MAX
-#define IOV_MAX 1024
-#endif /* IOV_MAX */
-
-// Define UIO_MAXIOV if not found
-#ifndef UIO_MAXIOV
-#define UIO_MAXIOV 1024
-#endif /* UIO_MAXIOV */
-
 // TCP_NOTSENT_LOWAT is defined in linux 3.12. We define this here so older kernels can compile.
 #ifndef TCP_NOTSENT_LOWAT
 #define TCP_NOTSENT_LOWAT 25
@@ -68,6 +60,33 @@
 #define TCP_FASTOPEN 23
 #endif
 
+// SO_ZEROCOPY, MSG_ZEROCOPY and SO_EE_ORIGIN_ZEROCOPY are defined in linux 4.14. We define these here so older
+// kernels can compile.
+#ifndef SO_ZEROCOPY
+#define SO_ZEROCOPY 60
+#endif
+
+#ifndef MSG_ZEROCOPY
+#define MSG_ZEROCOPY 0x4000000
+#endif
+
+#ifndef SO_EE_ORIGIN_ZEROCOPY
+#define SO_EE_ORIGIN_ZEROCOPY 5
+#endif
+
+#ifndef SOL_UDP
+#define SOL_UDP 17
+#endif
+
+// UDP_SEGMENT is defined in linux 4.18 and UDP_GRO in linux 5.0. We define these here so older kernels can compile.
+#ifndef UDP_SEGMENT
+#define UDP_SEGMENT 103
+#endif
+
+#ifndef UDP_GRO
+#define UDP_GRO 104
+#endif
+
 /**
  * On older Linux kernels, epoll can't handle timeout
  * values bigger than (LONG_MAX - 999ULL)/HZ.
@@ -83,6 +102,7 @@ extern int epoll_create1(int flags) __attribute__((weak));
 
 #ifdef IO_NETTY_SENDMMSG_NOT_FOUND
 extern int sendmmsg(int sockfd, struct mmsghdr* msgvec, unsigned int vlen, unsigned int flags) __attribute__((weak));
+extern int recvmmsg(int sockfd, struct mmsghdr* msgvec, unsigned int vlen, int flags, struct timespec* timeout) __attribute__((weak));
 
 #ifndef __USE_GNU
 struct mmsghdr {
@@ -103,6 +123,10 @@ jfieldID packetScopeIdFieldId = NULL;
 jfieldID packetPortFieldId = NULL;
 jfieldID packetMemoryAddressFieldId = NULL;
 jfieldID packetCountFieldId = NULL;
+jfieldID packetAddrLenFieldId = NULL;
+jfieldID packetReceivedAmountFieldId = NULL;
+jfieldID packetSegmentSizeFieldId = NULL;
+jfieldID packetTruncatedFieldId = NULL;
 
 clockid_t epollWaitClock = 0; // initialized in initializeEpollWaitClock
 
@@ -293,6 +317,7 @@ static jint netty_epoll_native_epollCtlDel0(JNIEnv* env, jclass clazz, jint efd,
 static jint netty_epoll_native_sendmmsg0(JNIEnv* env, jclass clazz, jint fd, jobjectArray packets, jint offset, jint len) {
     struct mmsghdr msg[len];
     struct sockaddr_storage addr[len];
+    char control[len][CMSG_SPACE(sizeof(uint16_t))];
     int i;
 
     memset(msg, 0, sizeof(msg));
@@ -313,6 +338,18 @@ static jint netty_epoll_native_sendmmsg0(JNIEnv* env, jclass clazz, jint fd, job
 
         msg[i].msg_hdr.msg_iov = (struct iovec*) (intptr_t) (*env)->GetLongField(env, packet, packetMemoryAddressFieldId);
         msg[i].msg_hdr.msg_iovlen = (*env)->GetIntField(env, packet, packetCountFieldId);;
+
+        jint segmentSize = (*env)->GetIntField(env, packet, packetSegmentSizeFieldId);
+        if (segmentSize > 0) {
+            // Let the kernel split the data into datagrams of segmentSize bytes.
+            msg[i].msg_hdr.msg_control = control[i];
+            msg[i].msg_hdr.msg_controllen = sizeof(control[i]);
+            struct cmsghdr* cm = CMSG_FIRSTHDR(&msg[i].msg_hdr);
+            cm->cmsg_level = SOL_UDP;
+            cm->cmsg_type = UDP_SEGMENT;
+            cm->cmsg_len = CMSG_LEN(sizeof(uint16_t));
+            *((uint16_t*) CMSG_DATA(cm)) = (uint16_t) segmentSize;
+        }
     }
 
     ssize_t res;
@@ -327,6 +364,149 @@ static jint netty_epoll_native_sendmmsg0(JNIEnv* env, jclass clazz, jint fd, job
     }
     return (jint) res;
 }
+static jint netty_epoll_native_recvmmsg0(JNIEnv* env, jclass clazz, jint fd, jobjectArray packets, jint offset, jint len) {
+    struct mmsghdr msg[len];
+    struct sockaddr_storage addr[len];
+    char control[len][CMSG_SPACE(sizeof(int))];
+    int i;
+
+    memset(msg, 0, sizeof(msg));
+
+    for (i = 0; i < len; i++) {
+        jobject packet = (*env)->GetObjectArrayElement(env, packets, i + offset);
+
+        msg[i].msg_hdr.msg_name = &addr[i];
+        msg[i].msg_hdr.msg_namelen = sizeof(addr[i]);
+
+        msg[i].msg_hdr.msg_iov = (struct iovec*) (intptr_t) (*env)->GetLongField(env, packet, packetMemoryAddressFieldId);
+        msg[i].msg_hdr.msg_iovlen = (*env)->GetIntField(env, packet, packetCountFieldId);
+
+        // Used to receive the segment size of datagrams which were coalesced because of UDP_GRO.
+        msg[i].msg_hdr.msg_control = control[i];
+        msg[i].msg_hdr.msg_controllen = sizeof(control[i]);
+    }
+
+    int res;
+    int err;
+    do {
+       res = recvmmsg(fd, msg, len, 0, NULL);
+       // keep on reading if it was interrupted
+    } while (res == -1 && ((err = errno) == EINTR));
+
+    if (res < 0) {
+        return -err;
+    }
+
+    for (i = 0; i < res; i++) {
+        jobject packet = (*env)->GetObjectArrayElement(env, packets, i + offset);
+        jbyteArray address = (jbyteArray) (*env)->GetObjectField(env, packet, packetAddrFieldId);
+        jint addrLen;
+        jint scopeId = 0;
+        jint port;
+
+        if (addr[i].ss_family == AF_INET) {
+            struct sockaddr_in* s = (struct sockaddr_in*) &addr[i];
+            addrLen = 4;
+            port = ntohs(s->sin_port);
+            (*env)->SetByteArrayRegion(env, address, 0, addrLen, (jbyte*) &s->sin_addr.s_addr);
+        } else {
+            struct sockaddr_in6* s = (struct sockaddr_in6*) &addr[i];
+            port = ntohs(s->sin6_port);
+            if (IN6_IS_ADDR_V4MAPPED(&s->sin6_addr)) {
+                addrLen = 4;
+                // The IPv4 address is stored in the last 4 bytes.
+                (*env)->SetByteArrayRegion(env, address, 0, addrLen, (jbyte*) &s->sin6_addr.s6_addr[12]);
+            } else {
+                addrLen = 16;
+                scopeId = s->sin6_scope_id;
+                (*env)->SetByteArrayRegion(env, address, 0, addrLen, (jbyte*) &s->sin6_addr.s6_addr);
+            }
+        }
+
+        (*env)->SetIntField(env, packet, packetAddrLenFieldId, addrLen);
+        (*env)->SetIntField(env, packet, packetScopeIdFieldId, scopeId);
+        (*env)->SetIntField(env, packet, packetPortFieldId, port);
+        (*env)->SetIntField(env, packet, packetReceivedAmountFieldId, (jint) msg[i].msg_len);
+
+        jint segmentSize = 0;
+        struct cmsghdr* cm;
+        for (cm = CMSG_FIRSTHDR(&msg[i].msg_hdr); cm != NULL; cm = CMSG_NXTHDR(&msg[i].msg_hdr, cm)) {
+            if (cm->cmsg_level == SOL_UDP && cm->cmsg_type == UDP_GRO) {
+                segmentSize = *((int*) CMSG_DATA(cm));
+                break;
+            }
+        }
+        (*env)->SetIntField(env, packet, packetSegmentSizeFieldId, segmentSize);
+        (*env)->SetBooleanField(env, packet, packetTruncatedFieldId, (msg[i].msg_hdr.msg_flags & MSG_TRUNC) != 0);
+    }
+    return (jint) res;
+}
+
+static jint netty_epoll_native_sendZerocopy0(JNIEnv* env, jclass clazz, jint fd, jlong address, jint pos, jint limit) {
+    ssize_t res;
+    int err;
+    do {
+       res = send(fd, ((void*) (intptr_t) address) + pos, (size_t) (limit - pos), MSG_ZEROCOPY);
+       // keep on writing if it was interrupted
+    } while (res == -1 && ((err = errno) == EINTR));
+
+    if (res < 0) {
+        return -err;
+    }
+    return (jint) res;
+}
+
+static jint netty_epoll_native_recvZerocopyCompletions0(JNIEnv* env, jclass clazz, jint fd, jintArray ranges) {
+    jint len = (*env)->GetArrayLength(env, ranges);
+    jint cRanges[len];
+    jint count = 0;
+
+    while (count + 2 <= len) {
+        char control[CMSG_SPACE(sizeof(struct sock_extended_err) + sizeof(struct sockaddr_storage))];
+        struct msghdr msg;
+        struct cmsghdr* cmsg;
+        ssize_t res;
+        int err;
+
+        memset(&msg, 0, sizeof(msg));
+        msg.msg_control = control;
+        msg.msg_controllen = sizeof(control);
+
+        do {
+            res = recvmsg(fd, &msg, MSG_ERRQUEUE);
+            // keep on reading if it was interrupted
+        } while (res == -1 && ((err = errno) == EINTR));
+
+        if (res < 0) {
+            if (err == EAGAIN || err == EWOULDBLOCK) {
+                // The error queue is empty.
+                break;
+            }
+            if (count == 0) {
+                return -err;
+            }
+            break;
+        }
+
+        for (cmsg = CMSG_FIRSTHDR(&msg); cmsg != NULL; cmsg = CMSG_NXTHDR(&msg, cmsg)) {
+            if ((cmsg->cmsg_level == SOL_IP && cmsg->cmsg_type == IP_RECVERR) ||
+                (cmsg->cmsg_level == SOL_IPV6 && cmsg->cmsg_type == IPV6_RECVERR)) {
+                struct sock_extended_err* serr = (struct sock_extended_err*) CMSG_DATA(cmsg);
+                if (serr->ee_errno == 0 && serr->ee_origin == SO_EE_ORIGIN_ZEROCOPY && count + 2 <= len) {
+                    // The kernel is done with the sends numbered from ee_info up to and including ee_data.
+                    cRanges[count++] = (jint) serr->ee_info;
+                    cRanges[count++] = (jint) serr->ee_data;
+                }
+            }
+        }
+    }
+
+    if (count > 0) {
+        (*env)->SetIntArrayRegion(env, ranges, 0, count, cRanges);
+    }
+    return count / 2;
+}
+
 static jint netty_epoll_native_recvFd0(JNIEnv* env, jclass clazz, jint fd) {
     int socketFd;
     struct msghdr descriptorMessage = { 0 };
@@ -493,6 +673,14 @@ static void netty_epoll_native_setIpFreeBind(JNIEnv* env, jclass clazz, jint fd,
     netty_unix_socket_setOption(env, fd, IPPROTO_IP, IP_FREEBIND, &optval, sizeof(optval));
 }
 
+static void netty_epoll_native_setSoZerocopy(JNIEnv* env, jclass clazz, jint fd, jint optval) {
+    netty_unix_socket_setOption(env, fd, SOL_SOCKET, SO_ZEROCOPY, &optval, sizeof(optval));
+}
+
+static void netty_epoll_native_setUdpGro(JNIEnv* env, jclass clazz, jint fd, jint optval) {
+    netty_unix_socket_setOption(env, fd, SOL_UDP, UDP_GRO, &optval, sizeof(optval));
+}
+
 static jint netty_epoll_native_isReuseAddress(JNIEnv* env, jclass clazz, jint fd) {
     int optval;
     if (netty_unix_socket_getOption(env, fd, SOL_SOCKET, SO_REUSEADDR, &optval, sizeof(optval)) == -1) {
@@ -573,6 +761,22 @@ static jint netty_epoll_Native_isIpFreeBind(JNIEnv* env, jclass clazz, jint fd)
      return optval;
 }
 
+static jint netty_epoll_native_isSoZerocopy(JNIEnv* env, jclass clazz, jint fd) {
+     int optval;
+     if (netty_unix_socket_getOption(env, fd, SOL_SOCKET, SO_ZEROCOPY, &optval, sizeof(optval)) == -1) {
+         return -1;
+     }
+     return optval;
+}
+
+static jint netty_epoll_native_isUdpGro(JNIEnv* env, jclass clazz, jint fd) {
+     int optval;
+     if (netty_unix_socket_getOption(env, fd, SOL_UDP, UDP_GRO, &optval, sizeof(optval)) == -1) {
+         return -1;
+     }
+     return optval;
+}
+
 static void netty_epoll_native_tcpInfo0(JNIEnv* env, jclass clazz, jint fd, jintArray array) {
      struct tcp_info tcp_info;
      if (netty_unix_socket_getOption(env, fd, IPPROTO_TCP, TCP_INFO, &tcp_info, sizeof(tcp_info)) == -1) {
@@ -627,14 +831,6 @@ static jstring netty_epoll_native_kernelVersion(JNIEnv* env, jclass clazz) {
     return NULL;
 }
 
-static jint netty_epoll_native_iovMax(JNIEnv* env, jclass clazz) {
-    return IOV_MAX;
-}
-
-static jint netty_epoll_native_uioMaxIov(JNIEnv* env, jclass clazz) {
-    return UIO_MAXIOV;
-}
-
 static jboolean netty_epoll_native_isSupportingSendmmsg(JNIEnv* env, jclass clazz) {
     if (sendmmsg) {
         return JNI_TRUE;
@@ -642,6 +838,25 @@ static jboolean netty_epoll_native_isSupportingSendmmsg(JNIEnv* env, jclass claz
     return JNI_FALSE;
 }
 
+static jboolean netty_epoll_native_isSupportingRecvmmsg(JNIEnv* env, jclass clazz) {
+    if (recvmmsg) {
+        return JNI_TRUE;
+    }
+    return JNI_FALSE;
+}
+
+static jboolean netty_epoll_native_isSupportingUdpSegment(JNIEnv* env, jclass clazz) {
+    // There is no other way to find out if the kernel supports UDP_SEGMENT than to try to set it.
+    int fd = socket(AF_INET, SOCK_DGRAM, 0);
+    if (fd == -1) {
+        return JNI_FALSE;
+    }
+    int gsoSize = 512;
+    int res = setsockopt(fd, SOL_UDP, UDP_SEGMENT, &gsoSize, sizeof(gsoSize));
+    close(fd);
+    return res == 0 ? JNI_TRUE : JNI_FALSE;
+}
+
 static jboolean netty_epoll_native_isSupportingTcpFastopen(JNIEnv* env, jclass clazz) {
     int fastopen = 0;
     getSysctlValue("/proc/sys/net/ipv4/tcp_fastopen", &fastopen);
@@ -699,10 +914,6 @@ static jint netty_epoll_native_splice0(JNIEnv* env, jclass clazz, jint fd, jlong
     return (jint) res;
 }
 
-static jlong netty_epoll_native_ssizeMax(JNIEnv* env, jclass clazz) {
-    return SSIZE_MAX;
-}
-
 static jint netty_epoll_native_tcpMd5SigMaxKeyLen(JNIEnv* env, jclass clazz) {
     struct tcp_md5sig md5sig;
 
@@ -759,11 +970,10 @@ static const JNINativeMethod statically_referenced_fixed_method_table[] = {
   { "epollout", "()I", (void *) netty_epoll_native_epollout },
   { "epollrdhup", "()I", (void *) netty_epoll_native_epollrdhup },
   { "epollerr", "()I", (void *) netty_epoll_native_epollerr },
-  { "ssizeMax", "()J", (void *) netty_epoll_native_ssizeMax },
   { "tcpMd5SigMaxKeyLen", "()I", (void *) netty_epoll_native_tcpMd5SigMaxKeyLen },
-  { "iovMax", "()I", (void *) netty_epoll_native_iovMax },
-  { "uioMaxIov", "()I", (void *) netty_epoll_native_uioMaxIov },
   { "isSupportingSendmmsg", "()Z", (void *) netty_epoll_native_isSupportingSendmmsg },
+  { "isSupportingRecvmmsg", "()Z", (void *) netty_epoll_native_isSupportingRecvmmsg },
+  { "isSupportingUdpSegment", "()Z", (void *) netty_epoll_native_isSupportingUdpSegment },
   { "isSupportingTcpFastopen", "()Z", (void *) netty_epoll_native_isSupportingTcpFastopen },
   { "kernelVersion", "()Ljava/lang/String;", (void *) netty_epoll_native_kernelVersion }
 };
@@ -778,8 +988,11 @@ static const JNINativeMethod fixed_method_table[] = {
   { "epollCtlMod0", "(III)I", (void *) netty_epoll_native_epollCtlMod0 },
   { "epollCtlDel0", "(II)I", (void *) netty_epoll_native_epollCtlDel0 },
   // "sendmmsg0" has a dynamic signature
+  // "recvmmsg0" has a dynamic signature
   { "recvFd0", "(I)I", (void *) netty_epoll_native_recvFd0 },
   { "sendFd0", "(II)I", (void *) netty_epoll_native_sendFd0 },
+  { "sendZerocopy0", "(IJII)I", (void *) netty_epoll_native_sendZerocopy0 },
+  { "recvZerocopyCompletions0", "(I[I)I", (void *) netty_epoll_native_recvZerocopyCompletions0 },
   // "sendFile0" has a dynamic signature
   { "setReuseAddress", "(II)V", (void *) netty_epoll_native_setReuseAddress },
   { "setReusePort", "(II)V", (void *) netty_epoll_native_setReusePort },
@@ -792,6 +1005,8 @@ static const JNINativeMethod fixed_method_table[] = {
   { "setTcpKeepCnt", "(II)V", (void *) netty_epoll_native_setTcpKeepCnt },
   { "setTcpUserTimeout", "(II)V", (void *) netty_epoll_native_setTcpUserTimeout },
   { "setIpFreeBind", "(II)V", (void *) netty_epoll_native_setIpFreeBind },
+  { "setSoZerocopy", "(II)V", (void *) netty_epoll_native_setSoZerocopy },
+  { "setUdpGro", "(II)V", (void *) netty_epoll_native_setUdpGro },
   { "isReuseAddress", "(I)I", (void *) netty_epoll_native_isReuseAddress },
   { "isReusePort", "(I)I", (void *) netty_epoll_native_isReusePort },
   { "getTcpNotSentLowAt", "(I)I", (void *) netty_epoll_native_getTcpNotSentLowAt },
@@ -802,6 +1017,8 @@ static const JNINativeMethod fixed_method_table[] = {
   { "getTcpKeepCnt", "(I)I", (void *) netty_epoll_native_getTcpKeepCnt },
   { "getTcpUserTimeout", "(I)I", (void *) netty_epoll_native_getTcpUserTimeout },
   { "isIpFreeBind", "(I)I", (void *) netty_epoll_Native_isIpFreeBind },
+  { "isSoZerocopy", "(I)I", (void *) netty_epoll_native_isSoZerocopy },
+  { "isUdpGro", "(I)I", (void *) netty_epoll_native_isUdpGro },
   { "tcpInfo0", "(I[I)V", (void *) netty_epoll_native_tcpInfo0 },
   { "sizeofEpollEvent", "()I", (void *) netty_epoll_native_sizeofEpollEvent },
   { "offsetofEpollData", "()I", (void *) netty_epoll_native_offsetofEpollData },
@@ -811,7 +1028,7 @@ static const JNINativeMethod fixed_method_table[] = {
 static const jint fixed_method_table_size = sizeof(fixed_method_table) / sizeof(fixed_method_table[0]);
 
 static jint dynamicMethodsTableSize() {
-    return fixed_method_table_size + 2;
+    return fixed_method_table_size + 3;
 }
 
 static JNINativeMethod* createDynamicMethodsTable(const char* packagePrefix) {
@@ -824,6 +1041,12 @@ static JNINativeMethod* createDynamicMethodsTable(const char* packagePrefix) {
     dynamicMethod->fnPtr = (void *) netty_epoll_native_sendmmsg0;
     free(dynamicTypeName);
     ++dynamicMethod;
+    dynamicTypeName = netty_unix_util_prepend(packagePrefix, "io/netty/channel/epoll/NativeDatagramPacketArray$NativeDatagramPacket;II)I");
+    dynamicMethod->name = "recvmmsg0";
+    dynamicMethod->signature = netty_unix_util_prepend("(I[L", dynamicTypeName);
+    dynamicMethod->fnPtr = (void *) netty_epoll_native_recvmmsg0;
+    free(dynamicTypeName);
+    ++dynamicMethod;
     dynamicTypeName = netty_unix_util_prepend(packagePrefix, "io/netty/channel/DefaultFileRegion;JJJ)J");
     dynamicMethod->name = "sendfile0";
     dynamicMethod->signature = netty_unix_util_prepend("(IL", dynamicTypeName);
@@ -870,6 +1093,9 @@ static jint netty_epoll_native_JNI_OnLoad(JNIEnv* env, const char* packagePrefix
     if (netty_unix_filedescriptor_JNI_OnLoad(env, packagePrefix) == JNI_ERR) {
         return JNI_ERR;
     }
+    if (netty_unix_limits_JNI_OnLoad(env, packagePrefix) == JNI_ERR) {
+        return JNI_ERR;
+    }
     if (netty_unix_socket_JNI_OnLoad(env, packagePrefix) == JNI_ERR) {
         return JNI_ERR;
     }
@@ -950,6 +1176,30 @@ static jint netty_epoll_native_JNI_OnLoad(JNIEnv* env, const char* packagePrefix
         return JNI_ERR;
     }
 
+    packetAddrLenFieldId = (*env)->GetFieldID(env, nativeDatagramPacketCls, "addrLen", "I");
+    if (packetAddrLenFieldId == NULL) {
+        netty_unix_errors_throwRuntimeException(env, "failed to get field ID: NativeDatagramPacket.addrLen");
+        return JNI_ERR;
+    }
+
+    packetReceivedAmountFieldId = (*env)->GetFieldID(env, nativeDatagramPacketCls, "receivedAmount", "I");
+    if (packetReceivedAmountFieldId == NULL) {
+        netty_unix_errors_throwRuntimeException(env, "failed to get field ID: NativeDatagramPacket.receivedAmount");
+        return JNI_ERR;
+    }
+
+    packetSegmentSizeFieldId = (*env)->GetFieldID(env, nativeDatagramPacketCls, "segmentSize", "I");
+    if (packetSegmentSizeFieldId == NULL) {
+        netty_unix_errors_throwRuntimeException(env, "failed to get field ID: NativeDatagramPacket.segmentSize");
+        return JNI_ERR;
+    }
+
+    packetTruncatedFieldId = (*env)->GetFieldID(env, nativeDatagramPacketCls, "truncated", "Z");
+    if (packetTruncatedFieldId == NULL) {
+        netty_unix_errors_throwRuntimeException(env, "failed to get field ID: NativeDatagramPacket.truncated");
+        return JNI_ERR;
+    }
+
     if (!initializeEpollWaitClock()) {
       return JNI_ERR;
     }
@@ -960,6 +1210,7 @@ static jint netty_epoll_native_JNI_OnLoad(JNIEnv* env, const char* packagePrefix
 static void netty_epoll_native_JNI_OnUnLoad(JNIEnv* env) {
     netty_unix_errors_JNI_OnUnLoad(env);
     netty_unix_filedescriptor_JNI_OnUnLoad(env);
+    netty_unix_limits_JNI_OnUnLoad(env);
     netty_unix_socket_JNI_OnUnLoad(env);
 }
 
@@ -27,6 +27,7 @@ import io.netty.channel.ChannelMetadata;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoop;
 import io.netty.channel.RecvByteBufAllocator;
+import io.netty.channel.WriteBudget;
 import io.netty.channel.socket.ChannelInputShutdownEvent;
 import io.netty.channel.unix.Socket;
 import io.netty.channel.unix.UnixChannel;
@@ -48,6 +49,17 @@ abstract class AbstractEpollChannel extends AbstractChannel implements UnixChann
 
     protected volatile boolean active;
 
+    // Set while the channel waits in the ring of its EpollEventLoop to be flushed again after it used up its
+    // WriteBudget.
+    boolean budgetedFlushPending;
+
+    // The state of the current write round, see startWriteRound().
+    private boolean writeBudgeted;
+    private boolean writeBudgetExhausted;
+    private boolean writeTimeBounded;
+    private long writeBytesLeft;
+    private long writeDeadline;
+
     AbstractEpollChannel(Socket fd, int flag) {
         this(null, fd, flag, false);
     }
@@ -108,7 +120,11 @@ abstract class AbstractEpollChannel extends AbstractChannel implements UnixChann
     protected void doClose() throws Exception {
         active = false;
         try {
-            doDeregister();
+            // A channel which is closed on another Executor was removed from the EventLoop before, see
+            // AbstractUnsafe.prepareToClose().
+            if (eventLoop().inEventLoop()) {
+                doDeregister();
+            }
         } finally {
             fileDescriptor.close();
         }
@@ -131,6 +147,8 @@ abstract class AbstractEpollChannel extends AbstractChannel implements UnixChann
 
     @Override
     protected void doDeregister() throws Exception {
+        // The ring of the EpollEventLoop skips the channel once it is deregistered.
+        budgetedFlushPending = false;
         ((EpollEventLoop) eventLoop()).remove(this);
     }
 
@@ -270,9 +288,10 @@ abstract class AbstractEpollChannel extends AbstractChannel implements UnixChann
             long memoryAddress = buf.memoryAddress();
             int readerIndex = buf.readerIndex();
             int writerIndex = buf.writerIndex();
-            for (int i = writeSpinCount - 1; i >= 0; i--) {
+            for (int i = writeSpinCount - 1; i >= 0 && !writeBudgetExhausted; i--) {
                 int localFlushedAmount = fileDescriptor.writeAddress(memoryAddress, readerIndex, writerIndex);
                 if (localFlushedAmount > 0) {
+                    consumeWriteBudget(localFlushedAmount);
                     writtenBytes += localFlushedAmount;
                     if (writtenBytes == readableBytes) {
                         return writtenBytes;
@@ -289,11 +308,12 @@ abstract class AbstractEpollChannel extends AbstractChannel implements UnixChann
             } else {
                 nioBuf = buf.nioBuffer();
             }
-            for (int i = writeSpinCount - 1; i >= 0; i--) {
+            for (int i = writeSpinCount - 1; i >= 0 && !writeBudgetExhausted; i--) {
                 int pos = nioBuf.position();
                 int limit = nioBuf.limit();
                 int localFlushedAmount = fileDescriptor.write(nioBuf, pos, limit);
                 if (localFlushedAmount > 0) {
+                    consumeWriteBudget(localFlushedAmount);
                     nioBuf.position(pos + localFlushedAmount);
                     writtenBytes += localFlushedAmount;
                     if (writtenBytes == readableBytes) {
@@ -304,13 +324,63 @@ abstract class AbstractEpollChannel extends AbstractChannel implements UnixChann
                 }
             }
         }
-        if (writtenBytes < readableBytes) {
+        if (writtenBytes < readableBytes && !writeBudgetExhausted) {
             // Returned EAGAIN need to set EPOLLOUT
             setFlag(Native.EPOLLOUT);
         }
         return writtenBytes;
     }
 
+    /**
+     * Starts a new write round and returns the maximal number of write operations per message. If the
+     * {@link WriteBudget} of the channel is set, the round ends once the budget is used up instead, otherwise each
+     * message is written with up to {@link ChannelConfig#getWriteSpinCount()} write operations.
+     */
+    final int startWriteRound() {
+        EpollChannelConfig config = config();
+        WriteBudget budget = config.getWriteBudget();
+        writeBudgetExhausted = false;
+        if (budget == null) {
+            writeBudgeted = false;
+            return config.getWriteSpinCount();
+        }
+        writeBudgeted = true;
+        writeBytesLeft = budget.maxBytes();
+        long maxTimeNanos = budget.maxTimeNanos();
+        writeTimeBounded = maxTimeNanos > 0;
+        if (writeTimeBounded) {
+            writeDeadline = System.nanoTime() + maxTimeNanos;
+        }
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * Returns the number of bytes which may still be written in the current write round, at most
+     * {@link Integer#MAX_VALUE}.
+     */
+    final int writeBytesLeft() {
+        return writeBudgeted ? (int) Math.min(writeBytesLeft, Integer.MAX_VALUE) : Integer.MAX_VALUE;
+    }
+
+    /**
+     * Accounts the given number of written bytes to the current write round.
+     */
+    final void consumeWriteBudget(long writtenBytes) {
+        if (writeBudgeted) {
+            writeBytesLeft -= writtenBytes;
+            if (writeBytesLeft <= 0 || writeTimeBounded && System.nanoTime() - writeDeadline >= 0) {
+                writeBudgetExhausted = true;
+            }
+        }
+    }
+
+    /**
+     * Returns {@code true} if the current write round used up the {@link WriteBudget} of the channel.
+     */
+    final boolean isWriteBudgetExhausted() {
+        return writeBudgetExhausted;
+    }
+
     protected abstract class AbstractEpollUnsafe extends AbstractUnsafe {
         boolean readPending;
         boolean maybeMoreDataToRead;
@@ -450,12 +520,21 @@ abstract class AbstractEpollChannel extends AbstractChannel implements UnixChann
             // Flush immediately only when there's no pending flush.
             // If there's a pending flush operation, event loop will call forceFlush() later,
             // and thus there's no need to call it now.
-            if (isFlagSet(Native.EPOLLOUT)) {
+            if (isFlagSet(Native.EPOLLOUT) || budgetedFlushPending) {
                 return;
             }
             super.flush0();
         }
 
+        /**
+         * Called once a EPOLLERR event is ready to be processed, before {@link #epollOutReady()} and
+         * {@link #epollInReady()}. Returns {@code true} if the event only reported that the kernel is done with
+         * {@code MSG_ZEROCOPY} writes, so it needs no further processing.
+         */
+        boolean epollErrReady() {
+            return false;
+        }
+
         /**
          * Called once a EPOLLOUT event is ready to be processed
          */
@@ -35,9 +35,12 @@ import io.netty.channel.FileRegion;
 import io.netty.channel.RecvByteBufAllocator;
 import io.netty.channel.socket.DuplexChannel;
 import io.netty.channel.unix.FileDescriptor;
+import io.netty.channel.unix.IovArray;
 import io.netty.channel.unix.Socket;
+import io.netty.util.concurrent.GlobalEventExecutor;
 import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.StringUtil;
+import io.netty.util.internal.SystemPropertyUtil;
 import io.netty.util.internal.ThrowableUtil;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
@@ -73,6 +76,20 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
     private static final ClosedChannelException FAIL_SPLICE_IF_CLOSED_CLOSED_CHANNEL_EXCEPTION =
             ThrowableUtil.unknownStackTrace(new ClosedChannelException(),
             AbstractEpollStreamChannel.class, "failSpliceIfClosed(...)");
+    // The kernel documentation recommends MSG_ZEROCOPY only for writes of more than around 10 KB, as pinning the
+    // pages and reading the completion notification costs more than copying smaller writes.
+    private static final int ZERO_COPY_THRESHOLD = Math.max(1,
+            SystemPropertyUtil.getInt("io.netty.epoll.zeroCopyThreshold", 16384));
+    // How long a close waits for the kernel to report the MSG_ZEROCOPY writes as done before it drops their buffers.
+    private static final long ZERO_COPY_CLOSE_TIMEOUT_MILLIS = Math.max(0,
+            SystemPropertyUtil.getLong("io.netty.epoll.zeroCopyCloseTimeoutMillis", 1000));
+
+    static {
+        if (logger.isDebugEnabled()) {
+            logger.debug("-Dio.netty.epoll.zeroCopyThreshold: {}", ZERO_COPY_THRESHOLD);
+            logger.debug("-Dio.netty.epoll.zeroCopyCloseTimeoutMillis: {}", ZERO_COPY_CLOSE_TIMEOUT_MILLIS);
+        }
+    }
 
     /**
      * The future of the current connection attempt.  If not null, subsequent
@@ -89,6 +106,11 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
 
     private WritableByteChannel byteChannel;
 
+    private volatile boolean zeroCopy;
+    // Lazy init these if we need to write with MSG_ZEROCOPY
+    private ZeroCopyWrites zeroCopyWrites;
+    private int[] zeroCopyCompletions;
+
     /**
      * @deprecated Use {@link #AbstractEpollStreamChannel(Channel, Socket)}.
      */
@@ -287,6 +309,101 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
         }
     }
 
+    /**
+     * Enables or disables writing large {@link ByteBuf}s with {@code MSG_ZEROCOPY}. {@code SO_ZEROCOPY} must be set on
+     * the socket before.
+     */
+    final void setZeroCopy(boolean zeroCopy) {
+        this.zeroCopy = zeroCopy;
+    }
+
+    private boolean isZeroCopyWrite(Object msg) {
+        ZeroCopyWrites writes = zeroCopyWrites;
+        if (writes != null && writes.hasUnassignedSends()) {
+            // The current buffer was partly sent with MSG_ZEROCOPY already, so the kernel may still read it.
+            return true;
+        }
+        if (!zeroCopy || !(msg instanceof ByteBuf)) {
+            return false;
+        }
+        ByteBuf buf = (ByteBuf) msg;
+        return buf.readableBytes() >= ZERO_COPY_THRESHOLD && buf.hasMemoryAddress();
+    }
+
+    /**
+     * Write bytes from the given {@link ByteBuf} with {@code MSG_ZEROCOPY}. Once written completely the {@link ByteBuf}
+     * is only released and its {@link ChannelPromise} is only notified when the kernel reported that it does not read
+     * it anymore.
+     */
+    private boolean writeBytesZeroCopy(ChannelOutboundBuffer in, ByteBuf buf, int writeSpinCount) throws Exception {
+        ZeroCopyWrites writes = zeroCopyWrites;
+        if (writes == null) {
+            zeroCopyWrites = writes = new ZeroCopyWrites();
+            zeroCopyCompletions = new int[2 * 16];
+        }
+        final Socket fd = fd();
+        final long memoryAddress = buf.memoryAddress();
+        final int readerIndex = buf.readerIndex();
+        final int writerIndex = buf.writerIndex();
+        int offset = readerIndex;
+        for (int i = writeSpinCount - 1; i >= 0 && !isWriteBudgetExhausted(); i--) {
+            int localFlushedAmount = Native.sendZerocopy(fd.intValue(), memoryAddress, offset, writerIndex);
+            if (localFlushedAmount > 0) {
+                writes.sent();
+            } else if (localFlushedAmount < 0) {
+                // The kernel could not pin more memory, so let it copy the bytes instead.
+                localFlushedAmount = fd.writeAddress(memoryAddress, offset, writerIndex);
+            }
+            if (localFlushedAmount <= 0) {
+                break;
+            }
+            consumeWriteBudget(localFlushedAmount);
+            offset += localFlushedAmount;
+            if (offset == writerIndex) {
+                break;
+            }
+        }
+
+        if (offset != readerIndex) {
+            in.progress(offset - readerIndex);
+        }
+        if (offset != writerIndex) {
+            buf.readerIndex(offset);
+            if (writes.hasUnassignedSends()) {
+                writes.partlySent(buf);
+            }
+            return false;
+        }
+        if (writes.hasUnassignedSends()) {
+            writes.add(buf, in.removeDeferred());
+        } else {
+            // All bytes were copied, so the kernel does not need the buffer anymore.
+            in.remove();
+        }
+        return true;
+    }
+
+    /**
+     * Read the completion notifications of {@code MSG_ZEROCOPY} writes from the error queue of the socket. Returns
+     * {@code false} if no writes wait for a notification.
+     */
+    private boolean readZeroCopyCompletions() throws IOException {
+        ZeroCopyWrites writes = zeroCopyWrites;
+        if (writes == null || writes.isEmpty()) {
+            return false;
+        }
+        int[] ranges = zeroCopyCompletions;
+        for (;;) {
+            int completions = Native.recvZerocopyCompletions(fd().intValue(), ranges);
+            for (int i = 0; i < completions; i++) {
+                writes.complete(ranges[2 * i], ranges[2 * i + 1]);
+            }
+            if (completions < ranges.length / 2) {
+                return true;
+            }
+        }
+    }
+
     private boolean writeBytesMultiple(
             ChannelOutboundBuffer in, IovArray array, int writeSpinCount) throws IOException {
 
@@ -301,11 +418,12 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
         boolean done = false;
         int offset = 0;
         int end = offset + cnt;
-        for (int i = writeSpinCount - 1; i >= 0; i--) {
+        for (int i = writeSpinCount - 1; i >= 0 && !isWriteBudgetExhausted(); i--) {
             long localWrittenBytes = fd().writevAddresses(array.memoryAddress(offset), cnt);
             if (localWrittenBytes == 0) {
                 break;
             }
+            consumeWriteBudget(localWrittenBytes);
             expectedWrittenBytes -= localWrittenBytes;
 
             if (expectedWrittenBytes == 0) {
@@ -340,11 +458,12 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
         boolean done = false;
         int offset = 0;
         int end = offset + nioBufferCnt;
-        for (int i = writeSpinCount - 1; i >= 0; i--) {
+        for (int i = writeSpinCount - 1; i >= 0 && !isWriteBudgetExhausted(); i--) {
             long localWrittenBytes = fd().writev(nioBuffers, offset, nioBufferCnt);
             if (localWrittenBytes == 0) {
                 break;
             }
+            consumeWriteBudget(localWrittenBytes);
             expectedWrittenBytes -= localWrittenBytes;
 
             if (expectedWrittenBytes == 0) {
@@ -390,13 +509,14 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
         boolean done = false;
         long flushedAmount = 0;
 
-        for (int i = writeSpinCount - 1; i >= 0; i--) {
+        for (int i = writeSpinCount - 1; i >= 0 && !isWriteBudgetExhausted(); i--) {
             final long offset = region.transferred();
             final long localFlushedAmount =
                     Native.sendfile(fd().intValue(), region, baseOffset, offset, regionCount - offset);
             if (localFlushedAmount == 0) {
                 break;
             }
+            consumeWriteBudget(localFlushedAmount);
 
             flushedAmount += localFlushedAmount;
             if (region.transfered() >= regionCount) {
@@ -428,11 +548,12 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
         if (byteChannel == null) {
             byteChannel = new SocketWritableByteChannel();
         }
-        for (int i = writeSpinCount - 1; i >= 0; i--) {
+        for (int i = writeSpinCount - 1; i >= 0 && !isWriteBudgetExhausted(); i--) {
             final long localFlushedAmount = region.transferTo(byteChannel, region.transferred());
             if (localFlushedAmount == 0) {
                 break;
             }
+            consumeWriteBudget(localFlushedAmount);
 
             flushedAmount += localFlushedAmount;
             if (region.transferred() >= region.count()) {
@@ -453,7 +574,7 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
 
     @Override
     protected void doWrite(ChannelOutboundBuffer in) throws Exception {
-        int writeSpinCount = config().getWriteSpinCount();
+        int writeSpinCount = startWriteRound();
         for (;;) {
             final int msgCount = in.size();
 
@@ -463,9 +584,15 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
                 // Return here so we not set the EPOLLOUT flag.
                 return;
             }
+            if (isWriteBudgetExhausted()) {
+                // Break the loop and so flush again once the other channels of the event loop had their turn.
+                break;
+            }
 
-            // Do gathering write if the outbounf buffer entries start with more than one ByteBuf.
-            if (msgCount > 1 && in.current() instanceof ByteBuf) {
+            // Do gathering write if the outbounf buffer entries start with more than one ByteBuf, unless the first one
+            // is written with MSG_ZEROCOPY.
+            Object msg = in.current();
+            if (msgCount > 1 && msg instanceof ByteBuf && !isZeroCopyWrite(msg)) {
                 if (!doWriteMultiple(in, writeSpinCount)) {
                     // Break the loop and so set EPOLLOUT flag.
                     break;
@@ -481,6 +608,13 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
                 }
             }
         }
+        if (isWriteBudgetExhausted()) {
+            // The underlying descriptor may still accept more data, so do not wait for EPOLLOUT but flush again once
+            // the other channels of the event loop had their turn.
+            clearFlag(Native.EPOLLOUT);
+            ((EpollEventLoop) eventLoop()).addBudgetedFlush(this);
+            return;
+        }
         // Underlying descriptor can not accept all data currently, so set the EPOLLOUT flag to be woken up
         // when it can accept more data.
         setFlag(Native.EPOLLOUT);
@@ -489,7 +623,13 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
     protected boolean doWriteSingle(ChannelOutboundBuffer in, int writeSpinCount) throws Exception {
         // The outbound buffer contains only one message or it contains a file region.
         Object msg = in.current();
-        if (msg instanceof ByteBuf) {
+        if (isZeroCopyWrite(msg)) {
+            if (!writeBytesZeroCopy(in, (ByteBuf) msg, writeSpinCount)) {
+                // was not able to write everything so break here we will get notified later again once
+                // the network stack can handle more writes.
+                return false;
+            }
+        } else if (msg instanceof ByteBuf) {
             if (!writeBytes(in, (ByteBuf) msg, writeSpinCount)) {
                 // was not able to write everything so break here we will get notified later again once
                 // the network stack can handle more writes.
@@ -524,6 +664,12 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
         if (PlatformDependent.hasUnsafe()) {
             // this means we can cast to IovArray and write the IovArray directly.
             IovArray array = ((EpollEventLoop) eventLoop()).cleanArray();
+            // Do not gather more than the budget of the current write round allows.
+            array.maxBytes(writeBytesLeft());
+            if (zeroCopy) {
+                // Leave buffers which should be written with MSG_ZEROCOPY for doWriteSingle(...).
+                array.stopAtBytes(ZERO_COPY_THRESHOLD);
+            }
             in.forEachFlushedMessage(array);
 
             int cnt = array.count();
@@ -538,7 +684,7 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
                 in.removeBytes(0);
             }
         } else {
-            ByteBuffer[] buffers = in.nioBuffers();
+            ByteBuffer[] buffers = in.nioBuffers(writeBytesLeft());
             int cnt = in.nioBufferCount();
             if (cnt >= 1) {
                 // TODO: Handle the case where cnt == 1 specially.
@@ -636,7 +782,7 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
 
     @Override
     public ChannelFuture shutdownOutput(final ChannelPromise promise) {
-        Executor closeExecutor = ((EpollStreamUnsafe) unsafe()).prepareToClose();
+        Executor closeExecutor = ((EpollStreamUnsafe) unsafe()).prepareToShutdown();
         if (closeExecutor != null) {
             closeExecutor.execute(new Runnable() {
                 @Override
@@ -667,7 +813,7 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
 
     @Override
     public ChannelFuture shutdownInput(final ChannelPromise promise) {
-        Executor closeExecutor = ((EpollStreamUnsafe) unsafe()).prepareToClose();
+        Executor closeExecutor = ((EpollStreamUnsafe) unsafe()).prepareToShutdown();
         if (closeExecutor != null) {
             closeExecutor.execute(new Runnable() {
                 @Override
@@ -698,7 +844,7 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
 
     @Override
     public ChannelFuture shutdown(final ChannelPromise promise) {
-        Executor closeExecutor = ((EpollStreamUnsafe) unsafe()).prepareToClose();
+        Executor closeExecutor = ((EpollStreamUnsafe) unsafe()).prepareToShutdown();
         if (closeExecutor != null) {
             closeExecutor.execute(new Runnable() {
                 @Override
@@ -737,12 +883,26 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
                 future.cancel(false);
                 connectTimeoutFuture = null;
             }
+            try {
+                // Notify the writes the kernel is done with, as no notifications can be read once closed.
+                readZeroCopyCompletions();
+            } catch (IOException ignore) {
+                // The notifications are lost, the writes are failed below.
+            }
             // Calling super.doClose() first so splceTo(...) will fail on next call.
             super.doClose();
         } finally {
             safeClosePipe(pipeIn);
             safeClosePipe(pipeOut);
             clearSpliceQueue();
+            if (zeroCopyWrites != null) {
+                int dropped = zeroCopyWrites.failAll(DO_CLOSE_CLOSED_CHANNEL_EXCEPTION);
+                if (dropped > 0) {
+                    logger.warn("Dropped {} buffer(s) of MSG_ZEROCOPY writes which were not reported as done " +
+                            "within {} ms after the close of {}, as the kernel may still read them.",
+                            dropped, ZERO_COPY_CLOSE_TIMEOUT_MILLIS, this);
+                }
+            }
         }
     }
 
@@ -794,11 +954,65 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
         }
     }
 
+    /**
+     * Runs the close of the channel on the {@link GlobalEventExecutor} once the kernel reported all
+     * {@code MSG_ZEROCOPY} writes as done, or once the timeout passed. The notifications are polled by a task which
+     * reschedules itself, so the {@link GlobalEventExecutor} is free for other tasks while the close waits.
+     */
+    private final class ZeroCopyCloseExecutor implements Executor, Runnable {
+        private final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ZERO_COPY_CLOSE_TIMEOUT_MILLIS);
+        private Runnable closeTask;
+
+        @Override
+        public void execute(Runnable closeTask) {
+            this.closeTask = closeTask;
+            GlobalEventExecutor.INSTANCE.execute(this);
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (readZeroCopyCompletions() && !zeroCopyWrites.isEmpty() && deadline - System.nanoTime() > 0) {
+                    GlobalEventExecutor.INSTANCE.schedule(this, 1, TimeUnit.MILLISECONDS);
+                    return;
+                }
+            } catch (IOException ignore) {
+                // The notifications are lost, so there is no need to wait for them.
+            }
+            closeTask.run();
+        }
+    }
+
     class EpollStreamUnsafe extends AbstractEpollUnsafe {
 
-        // Overridden here just to be able to access this method from AbstractEpollStreamChannel
         @Override
-        protected Executor prepareToClose() {
+        protected final Executor prepareToClose() {
+            Executor closeExecutor = prepareToShutdown();
+            if (closeExecutor != null) {
+                return closeExecutor;
+            }
+            ZeroCopyWrites writes = zeroCopyWrites;
+            if (writes != null && isOpen()) {
+                try {
+                    if (readZeroCopyCompletions() && !writes.isEmpty()) {
+                        // The kernel may still read the buffers of the writes, so wait for its notifications before
+                        // doClose() without blocking the event loop. Remove the channel from the event loop first,
+                        // as it is not allowed to touch the writes anymore.
+                        ((EpollEventLoop) eventLoop()).remove(AbstractEpollStreamChannel.this);
+                        return new ZeroCopyCloseExecutor();
+                    }
+                } catch (IOException ignore) {
+                    // The notifications are lost, so there is no need to wait for them.
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Prepares to shutdown or close the socket and returns the {@link Executor} on which it must be done, or
+         * {@code null} if it must be done on the {@link EventLoop}.
+         */
+        Executor prepareToShutdown() {
             return super.prepareToClose();
         }
 
@@ -967,6 +1181,17 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
             return new EpollRecvByteAllocatorStreamingHandle(handle, config());
         }
 
+        @Override
+        boolean epollErrReady() {
+            try {
+                return readZeroCopyCompletions();
+            } catch (IOException e) {
+                pipeline().fireExceptionCaught(e);
+                close(voidPromise());
+                return true;
+            }
+        }
+
         @Override
         void epollInReady() {
             if (fd().isInputShutdown()) {
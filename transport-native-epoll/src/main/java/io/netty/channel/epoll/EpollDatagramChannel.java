@@ -26,11 +26,14 @@ import io.netty.channel.ChannelOutboundBuffer;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.ChannelPromise;
 import io.netty.channel.DefaultAddressedEnvelope;
+import io.netty.channel.MaxMessagesRecvByteBufAllocator;
+import io.netty.channel.RecvByteBufAllocator;
 import io.netty.channel.socket.DatagramChannel;
 import io.netty.channel.socket.DatagramChannelConfig;
 import io.netty.channel.socket.DatagramPacket;
 import io.netty.channel.unix.DatagramSocketAddress;
 import io.netty.channel.unix.FileDescriptor;
+import io.netty.channel.unix.IovArray;
 import io.netty.channel.unix.Socket;
 import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.StringUtil;
@@ -60,10 +63,13 @@ public final class EpollDatagramChannel extends AbstractEpollChannel implements
             StringUtil.simpleClassName(ByteBuf.class) + ", " +
             StringUtil.simpleClassName(InetSocketAddress.class) + ">, " +
             StringUtil.simpleClassName(ByteBuf.class) + ')';
+    // The kernel coalesces datagrams up to the maximum size of an IP packet because of UDP_GRO.
+    private static final int MAX_GRO_DATAGRAM_SIZE = 65535;
 
     private volatile InetSocketAddress local;
     private volatile InetSocketAddress remote;
     private volatile boolean connected;
+    private volatile boolean udpGro;
     private final EpollDatagramChannelConfig config;
 
     public EpollDatagramChannel() {
@@ -87,6 +93,14 @@ public final class EpollDatagramChannel extends AbstractEpollChannel implements
         config = new EpollDatagramChannelConfig(this);
     }
 
+    /**
+     * Returns {@code true} if {@link SegmentedDatagramPacket} is supported natively, which needs {@code sendmmsg}
+     * and {@code UDP_SEGMENT}, so since Linux 4.18.
+     */
+    public static boolean isSegmentedDatagramPacketSupported() {
+        return Epoll.isAvailable() && Native.IS_SUPPORTING_SENDMMSG && Native.IS_SUPPORTING_UDP_SEGMENT;
+    }
+
     @Override
     public InetSocketAddress remoteAddress() {
         return (InetSocketAddress) super.remoteAddress();
@@ -299,8 +313,9 @@ public final class EpollDatagramChannel extends AbstractEpollChannel implements
             }
 
             try {
-                // Check if sendmmsg(...) is supported which is only the case for GLIBC 2.14+
-                if (Native.IS_SUPPORTING_SENDMMSG && in.size() > 1) {
+                // Check if sendmmsg(...) is supported which is only the case for GLIBC 2.14+. A
+                // SegmentedDatagramPacket can only be written with it.
+                if (Native.IS_SUPPORTING_SENDMMSG && (in.size() > 1 || msg instanceof SegmentedDatagramPacket)) {
                     NativeDatagramPacketArray array = NativeDatagramPacketArray.getInstance(in);
                     int cnt = array.count();
 
@@ -399,6 +414,22 @@ public final class EpollDatagramChannel extends AbstractEpollChannel implements
 
     @Override
     protected Object filterOutboundMessage(Object msg) {
+        if (msg instanceof SegmentedDatagramPacket) {
+            if (!isSegmentedDatagramPacketSupported()) {
+                throw new UnsupportedOperationException(
+                        "unsupported message type: " + StringUtil.simpleClassName(msg) + EXPECTED_TYPES);
+            }
+            SegmentedDatagramPacket packet = (SegmentedDatagramPacket) msg;
+            ByteBuf content = packet.content();
+            if (content.hasMemoryAddress() || content.isDirect() && content instanceof CompositeByteBuf &&
+                    content.nioBufferCount() <= Native.IOV_MAX) {
+                return msg;
+            }
+            // We can only handle direct buffers so we need to copy if a non direct is
+            // passed to write.
+            return packet.replace(newDirectBuffer(packet, content));
+        }
+
         if (msg instanceof DatagramPacket) {
             DatagramPacket packet = (DatagramPacket) msg;
             ByteBuf content = packet.content();
@@ -470,6 +501,14 @@ public final class EpollDatagramChannel extends AbstractEpollChannel implements
                 "unsupported message type: " + StringUtil.simpleClassName(msg) + EXPECTED_TYPES);
     }
 
+    /**
+     * Enables or disables reading datagrams which were coalesced because of {@code UDP_GRO}. {@code UDP_GRO} must be
+     * set on the socket before.
+     */
+    void setUdpGro(boolean udpGro) {
+        this.udpGro = udpGro;
+    }
+
     @Override
     public EpollDatagramChannelConfig config() {
         return config;
@@ -540,9 +579,40 @@ public final class EpollDatagramChannel extends AbstractEpollChannel implements
             try {
                 ByteBuf data = null;
                 try {
+                    final int maxDatagramSize = config().getMaxDatagramPayloadSize();
+                    final boolean gro = udpGro;
+                    final int maxMessagesPerRead = maxMessagesPerRead(config);
                     do {
                         data = allocHandle.allocate(allocator);
-                        allocHandle.attemptedBytesRead(data.writableBytes());
+                        int writable = data.writableBytes();
+
+                        int datagramSize = maxDatagramSize == 0 ? writable : Math.min(maxDatagramSize, writable);
+                        if (gro && datagramSize < MAX_GRO_DATAGRAM_SIZE) {
+                            // Coalesced datagrams which do not fit are truncated, so always leave room for them.
+                            datagramSize = MAX_GRO_DATAGRAM_SIZE;
+                        }
+                        if (gro && (!data.hasMemoryAddress() || writable < datagramSize)) {
+                            // The UDP_GRO segment size can only be read with recvmmsg(...), which needs a
+                            // memory address.
+                            ByteBuf direct = allocator.directBuffer(Math.max(writable, datagramSize));
+                            data.release();
+                            data = direct;
+                            writable = data.writableBytes();
+                        }
+                        allocHandle.attemptedBytesRead(writable);
+
+                        int numDatagram = Math.min(writable / datagramSize, maxMessagesPerRead - readBuf.size());
+                        if (Native.IS_SUPPORTING_RECVMMSG && (gro || numDatagram > 1 && data.hasMemoryAddress())) {
+                            boolean read = recvmmsg(allocHandle, data, datagramSize, Math.max(numDatagram, 1));
+                            // The received datagrams retained slices of the buffer.
+                            data.release();
+                            data = null;
+                            if (!read) {
+                                break;
+                            }
+                            continue;
+                        }
+
                         final DatagramSocketAddress remoteAddress;
                         if (data.hasMemoryAddress()) {
                             // has a memory address so use optimized call
@@ -590,5 +660,53 @@ public final class EpollDatagramChannel extends AbstractEpollChannel implements
                 epollInFinally(config);
             }
         }
+
+        /**
+         * Reads up to {@code numDatagram} datagrams of at most {@code datagramSize} bytes each into the given
+         * {@link ByteBuf} with one {@code recvmmsg} call, and adds a {@link DatagramPacket} for each of them to
+         * {@link #readBuf}, also for each datagram which was coalesced with others because of {@code UDP_GRO}.
+         * Returns {@code false} if there was nothing to read.
+         */
+        private boolean recvmmsg(EpollRecvByteAllocatorHandle allocHandle, ByteBuf data, int datagramSize,
+                                 int numDatagram) throws IOException {
+            NativeDatagramPacketArray array = NativeDatagramPacketArray.getInstance();
+            int writerIndex = data.writerIndex();
+            for (int i = 0; i < numDatagram; i++, writerIndex += datagramSize) {
+                if (!array.addWritable(data, writerIndex, datagramSize)) {
+                    break;
+                }
+            }
+
+            int received = Native.recvmmsg(fd().intValue(), array.packets(), 0, array.count());
+            if (received == 0) {
+                allocHandle.lastBytesRead(-1);
+                return false;
+            }
+
+            NativeDatagramPacketArray.NativeDatagramPacket[] packets = array.packets();
+            InetSocketAddress local = (InetSocketAddress) localAddress();
+            int bytesRead = 0;
+            int messages = readBuf.size();
+            writerIndex = data.writerIndex();
+            for (int i = 0; i < received; i++, writerIndex += datagramSize) {
+                bytesRead += packets[i].newDatagramPackets(
+                        data.retainedSlice(writerIndex, datagramSize), local, readBuf);
+            }
+            allocHandle.incMessagesRead(readBuf.size() - messages);
+            if (received == array.count()) {
+                // All packets were filled, so there may be more datagrams to read.
+                allocHandle.attemptedBytesRead(bytesRead);
+            }
+            allocHandle.lastBytesRead(bytesRead);
+            return true;
+        }
+    }
+
+    private static int maxMessagesPerRead(DatagramChannelConfig config) {
+        RecvByteBufAllocator allocator = config.getRecvByteBufAllocator();
+        if (allocator instanceof MaxMessagesRecvByteBufAllocator) {
+            return ((MaxMessagesRecvByteBufAllocator) allocator).maxMessagesPerRead();
+        }
+        return Integer.MAX_VALUE;
     }
 }
@@ -23,6 +23,7 @@ import io.netty.channel.MessageSizeEstimator;
 import io.netty.channel.RecvByteBufAllocator;
 import io.netty.channel.WriteBufferWaterMark;
 import io.netty.channel.socket.DatagramChannelConfig;
+import io.netty.util.internal.ObjectUtil;
 
 import java.io.IOException;
 import java.net.InetAddress;
@@ -33,6 +34,7 @@ public final class EpollDatagramChannelConfig extends EpollChannelConfig impleme
     private static final RecvByteBufAllocator DEFAULT_RCVBUF_ALLOCATOR = new FixedRecvByteBufAllocator(2048);
     private final EpollDatagramChannel datagramChannel;
     private boolean activeOnOpen;
+    private volatile int maxDatagramSize;
 
     EpollDatagramChannelConfig(EpollDatagramChannel channel) {
         super(channel);
@@ -49,7 +51,8 @@ public final class EpollDatagramChannelConfig extends EpollChannelConfig impleme
                 ChannelOption.SO_REUSEADDR, ChannelOption.IP_MULTICAST_LOOP_DISABLED,
                 ChannelOption.IP_MULTICAST_ADDR, ChannelOption.IP_MULTICAST_IF, ChannelOption.IP_MULTICAST_TTL,
                 ChannelOption.IP_TOS, ChannelOption.DATAGRAM_CHANNEL_ACTIVE_ON_REGISTRATION,
-                EpollChannelOption.SO_REUSEPORT);
+                EpollChannelOption.SO_REUSEPORT, EpollChannelOption.MAX_DATAGRAM_PAYLOAD_SIZE,
+                EpollChannelOption.UDP_GRO);
     }
 
     @SuppressWarnings({ "unchecked", "deprecation" })
@@ -88,6 +91,12 @@ public final class EpollDatagramChannelConfig extends EpollChannelConfig impleme
         if (option == EpollChannelOption.SO_REUSEPORT) {
             return (T) Boolean.valueOf(isReusePort());
         }
+        if (option == EpollChannelOption.MAX_DATAGRAM_PAYLOAD_SIZE) {
+            return (T) Integer.valueOf(getMaxDatagramPayloadSize());
+        }
+        if (option == EpollChannelOption.UDP_GRO) {
+            return (T) Boolean.valueOf(isUdpGro());
+        }
         return super.getOption(option);
     }
 
@@ -118,6 +127,10 @@ public final class EpollDatagramChannelConfig extends EpollChannelConfig impleme
             setActiveOnOpen((Boolean) value);
         } else if (option == EpollChannelOption.SO_REUSEPORT) {
             setReusePort((Boolean) value);
+        } else if (option == EpollChannelOption.MAX_DATAGRAM_PAYLOAD_SIZE) {
+            setMaxDatagramPayloadSize((Integer) value);
+        } else if (option == EpollChannelOption.UDP_GRO) {
+            setUdpGro((Boolean) value);
         } else {
             return super.setOption(option, value);
         }
@@ -368,4 +381,57 @@ public final class EpollDatagramChannelConfig extends EpollChannelConfig impleme
             throw new ChannelException(e);
         }
     }
+
+    /**
+     * Set the maximum {@link io.netty.channel.socket.DatagramPacket} size. This will be used to determine if
+     * {@code recvmmsg} should be used when reading from the underlying socket. When {@code recvmmsg} is used
+     * we may be able to read multiple {@link io.netty.channel.socket.DatagramPacket}s with one syscall and so
+     * greatly improve the performance. This number will be used to slice each {@link io.netty.buffer.ByteBuf}
+     * of the {@link RecvByteBufAllocator} into multiple datagrams, so it should be a fraction of the buffer size
+     * the {@link RecvByteBufAllocator} allocates, for example by using a {@link FixedRecvByteBufAllocator}.
+     * Datagrams which are bigger than this size are truncated. Set it to {@code 0} to disable it, which is the
+     * default.
+     */
+    public EpollDatagramChannelConfig setMaxDatagramPayloadSize(int maxDatagramSize) {
+        this.maxDatagramSize = ObjectUtil.checkPositiveOrZero(maxDatagramSize, "maxDatagramSize");
+        return this;
+    }
+
+    /**
+     * Get the maximum {@link io.netty.channel.socket.DatagramPacket} size.
+     */
+    public int getMaxDatagramPayloadSize() {
+        return maxDatagramSize;
+    }
+
+    /**
+     * Enable / disable <a href="https://lwn.net/Articles/768995/">UDP_GRO</a>, which is supported since Linux 5.0.
+     * The kernel may then coalesce datagrams of the same flow into one, which are read with one {@code recvmmsg}
+     * call and sliced into separate {@link io.netty.channel.socket.DatagramPacket}s again without copying them.
+     * As the coalesced datagrams are up to 64KB, every datagram is read into a buffer of at least that size then,
+     * also if the {@link RecvByteBufAllocator} or {@link #setMaxDatagramPayloadSize(int)} ask for less.
+     */
+    public EpollDatagramChannelConfig setUdpGro(boolean gro) {
+        try {
+            if (gro && !Native.IS_SUPPORTING_RECVMMSG) {
+                throw new UnsupportedOperationException("UDP_GRO needs recvmmsg(...)");
+            }
+            Native.setUdpGro(datagramChannel.fd().intValue(), gro ? 1 : 0);
+            datagramChannel.setUdpGro(gro);
+            return this;
+        } catch (IOException e) {
+            throw new ChannelException(e);
+        }
+    }
+
+    /**
+     * Returns {@code true} if <a href="https://lwn.net/Articles/768995/">UDP_GRO</a> is enabled.
+     */
+    public boolean isUdpGro() {
+        try {
+            return Native.isUdpGro(datagramChannel.fd().intValue()) != 0;
+        } catch (IOException e) {
+            throw new ChannelException(e);
+        }
+    }
 }
@@ -21,6 +21,7 @@ import io.netty.channel.SelectStrategy;
 import io.netty.channel.SingleThreadEventLoop;
 import io.netty.channel.epoll.AbstractEpollChannel.AbstractEpollUnsafe;
 import io.netty.channel.unix.FileDescriptor;
+import io.netty.channel.unix.IovArray;
 import io.netty.util.IntSupplier;
 import io.netty.util.collection.IntObjectHashMap;
 import io.netty.util.collection.IntObjectMap;
@@ -31,6 +32,7 @@ import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Queue;
@@ -46,12 +48,20 @@ final class EpollEventLoop extends SingleThreadEventLoop {
     private static final AtomicIntegerFieldUpdater<EpollEventLoop> WAKEN_UP_UPDATER =
             AtomicIntegerFieldUpdater.newUpdater(EpollEventLoop.class, "wakenUp");
 
+    static {
+        // Ensure JNI is initialized by the time this class is loaded, as the constructor uses unix-common classes
+        // which are backed by JNI methods before EpollEventLoopGroup had the chance to check the availability.
+        Epoll.ensureAvailability();
+    }
+
     private final FileDescriptor epollFd;
     private final FileDescriptor eventFd;
     private final IntObjectMap<AbstractEpollChannel> channels = new IntObjectHashMap<AbstractEpollChannel>(4096);
     private final boolean allowGrowing;
     private final EpollEventArray events;
     private final IovArray iovArray = new IovArray();
+    // The channels which used up their WriteBudget while they could still write, in the order they are flushed again.
+    private final ArrayDeque<AbstractEpollChannel> budgetedFlushes = new ArrayDeque<AbstractEpollChannel>();
     private final SelectStrategy selectStrategy;
     private final IntSupplier selectNowSupplier = new IntSupplier() {
         @Override
@@ -124,6 +134,7 @@ final class EpollEventLoop extends SingleThreadEventLoop {
         if (!inEventLoop && WAKEN_UP_UPDATER.compareAndSet(this, 0, 1)) {
             // write to the evfd which will then wake-up epoll_wait(...)
             Native.eventFdWrite(eventFd.intValue(), 1L);
+            recordWakeup();
         }
     }
 
@@ -178,6 +189,12 @@ final class EpollEventLoop extends SingleThreadEventLoop {
             return submit(pendingTasksCallable).syncUninterruptibly().getNow();
         }
     }
+
+    @Override
+    public int registeredChannels() {
+        return channels.size();
+    }
+
     /**
      * Returns the percentage of the desired amount of time spent for I/O in the event loop.
      */
@@ -239,10 +256,17 @@ final class EpollEventLoop extends SingleThreadEventLoop {
     protected void run() {
         for (;;) {
             try {
-                int strategy = selectStrategy.calculateStrategy(selectNowSupplier, hasTasks());
+                int strategy = selectStrategy.calculateStrategy(selectNowSupplier,
+                        hasTasks() || hasBudgetedFlushes());
                 switch (strategy) {
                     case SelectStrategy.CONTINUE:
                         continue;
+                    case SelectStrategy.BUSY_WAIT:
+                        // Mark the loop as awake so other threads do not write to the eventfd while it spins. The
+                        // flag is reset before the next blocking epoll_wait, which also checks for tasks again.
+                        wakenUp = 1;
+                        strategy = Native.epollWait(epollFd.intValue(), events, 0);
+                        break;
                     case SelectStrategy.SELECT:
                         strategy = epollWait(WAKEN_UP_UPDATER.getAndSet(this, 0) == 1);
 
@@ -282,11 +306,12 @@ final class EpollEventLoop extends SingleThreadEventLoop {
                 }
 
                 final int ioRatio = this.ioRatio;
-                if (ioRatio == 100) {
+                if (ioRatio == 100 && !isMetricCollected()) {
                     try {
                         if (strategy > 0) {
                             processReady(events, strategy);
                         }
+                        processBudgetedFlushes();
                     } finally {
                         // Ensure we always run tasks.
                         runAllTasks();
@@ -298,10 +323,16 @@ final class EpollEventLoop extends SingleThreadEventLoop {
                         if (strategy > 0) {
                             processReady(events, strategy);
                         }
+                        processBudgetedFlushes();
                     } finally {
                         // Ensure we always run tasks.
                         final long ioTime = System.nanoTime() - ioStartTime;
-                        runAllTasks(ioTime * (100 - ioRatio) / ioRatio);
+                        recordIo(Math.max(strategy, 0), ioTime);
+                        if (ioRatio == 100) {
+                            runAllTasks();
+                        } else {
+                            runAllTasks(ioTime * (100 - ioRatio) / ioRatio);
+                        }
                     }
                 }
                 if (allowGrowing && strategy == events.length()) {
@@ -325,6 +356,37 @@ final class EpollEventLoop extends SingleThreadEventLoop {
         }
     }
 
+    /**
+     * Adds the given channel, which used up its {@link io.netty.channel.WriteBudget} while it could still write, to
+     * the ring of channels which are flushed again in the next iteration of the loop. The channel does not flush
+     * before then.
+     */
+    void addBudgetedFlush(AbstractEpollChannel ch) {
+        assert inEventLoop();
+        if (!ch.budgetedFlushPending) {
+            ch.budgetedFlushPending = true;
+            budgetedFlushes.add(ch);
+        }
+    }
+
+    private boolean hasBudgetedFlushes() {
+        return !budgetedFlushes.isEmpty();
+    }
+
+    private void processBudgetedFlushes() {
+        // Only flush the channels which were added before, the channels which use up their budget again are added to
+        // the end of the ring and flushed in the next iteration, so all channels get their turn.
+        for (int i = budgetedFlushes.size(); i > 0; i --) {
+            AbstractEpollChannel ch = budgetedFlushes.poll();
+            if (ch.eventLoop() != this || !ch.budgetedFlushPending) {
+                // The channel was deregistered in the meantime.
+                continue;
+            }
+            ch.budgetedFlushPending = false;
+            ((AbstractEpollUnsafe) ch.unsafe()).epollOutReady();
+        }
+    }
+
     private static void handleLoopException(Throwable t) {
         logger.warn("Unexpected exception in the selector loop.", t);
 
@@ -361,7 +423,7 @@ final class EpollEventLoop extends SingleThreadEventLoop {
                 // consume wakeup event
                 Native.eventFdRead(eventFd.intValue());
             } else {
-                final long ev = events.events(i);
+                long ev = events.events(i);
 
                 AbstractEpollChannel ch = channels.get(fd);
                 if (ch != null) {
@@ -371,6 +433,13 @@ final class EpollEventLoop extends SingleThreadEventLoop {
                     // past.
                     AbstractEpollUnsafe unsafe = (AbstractEpollUnsafe) ch.unsafe();
 
+                    // Read the notifications of completed MSG_ZEROCOPY writes from the error queue of the socket. They
+                    // are reported as EPOLLERR, which must then not trigger a read or flush. A real error on a stream
+                    // socket also ends the connection, which is still handled via EPOLLRDHUP.
+                    if ((ev & Native.EPOLLERR) != 0 && unsafe.epollErrReady()) {
+                        ev &= ~Native.EPOLLERR;
+                    }
+
                     // First check for EPOLLOUT as we may need to fail the connect ChannelPromise before try
                     // to read from the file descriptor.
                     // See https://github.com/netty/netty/issues/3785
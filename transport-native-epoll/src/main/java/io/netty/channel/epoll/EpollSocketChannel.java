@@ -206,7 +206,7 @@ public final class EpollSocketChannel extends AbstractEpollStreamChannel impleme
 
     private final class EpollSocketChannelUnsafe extends EpollStreamUnsafe {
         @Override
-        protected Executor prepareToClose() {
+        Executor prepareToShutdown() {
             try {
                 // Check isOpen() first as otherwise it will throw a RuntimeException
                 // when call getSoLinger() as the fd is not valid anymore.
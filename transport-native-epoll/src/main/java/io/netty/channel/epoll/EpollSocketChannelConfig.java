@@ -54,7 +54,7 @@ public final class EpollSocketChannelConfig extends EpollChannelConfig implement
                 SO_RCVBUF, SO_SNDBUF, TCP_NODELAY, SO_KEEPALIVE, SO_REUSEADDR, SO_LINGER, IP_TOS,
                 ALLOW_HALF_CLOSURE, EpollChannelOption.TCP_CORK, EpollChannelOption.TCP_NOTSENT_LOWAT,
                 EpollChannelOption.TCP_KEEPCNT, EpollChannelOption.TCP_KEEPIDLE, EpollChannelOption.TCP_KEEPINTVL,
-                EpollChannelOption.TCP_MD5SIG, EpollChannelOption.TCP_QUICKACK);
+                EpollChannelOption.TCP_MD5SIG, EpollChannelOption.TCP_QUICKACK, EpollChannelOption.SO_ZEROCOPY);
     }
 
     @SuppressWarnings("unchecked")
@@ -105,6 +105,9 @@ public final class EpollSocketChannelConfig extends EpollChannelConfig implement
         if (option == EpollChannelOption.TCP_QUICKACK) {
             return (T) Boolean.valueOf(isTcpQuickAck());
         }
+        if (option == EpollChannelOption.SO_ZEROCOPY) {
+            return (T) Boolean.valueOf(isSoZerocopy());
+        }
         return super.getOption(option);
     }
 
@@ -146,6 +149,8 @@ public final class EpollSocketChannelConfig extends EpollChannelConfig implement
             setTcpMd5Sig(m);
         } else if (option == EpollChannelOption.TCP_QUICKACK) {
             setTcpQuickAck((Boolean) value);
+        } else if (option == EpollChannelOption.SO_ZEROCOPY) {
+            setSoZerocopy((Boolean) value);
         } else {
             return super.setOption(option, value);
         }
@@ -474,6 +479,37 @@ public final class EpollSocketChannelConfig extends EpollChannelConfig implement
         }
     }
 
+    /**
+     * Set the {@code SO_ZEROCOPY} option on the socket, which needs at least Linux 4.14. If enabled direct
+     * {@link io.netty.buffer.ByteBuf}s of at least {@code io.netty.epoll.zeroCopyThreshold} (16 KiB by default)
+     * readable bytes are written with {@code MSG_ZEROCOPY}, so the kernel sends their memory instead of copying it.
+     * Their {@link io.netty.channel.ChannelPromise}s are only notified and the buffers only released once the kernel
+     * is done with them, which usually means once the peer acknowledged the data, so they must not be modified before.
+     * If the channel is closed before, they are released on close while the kernel may still send from them, so close
+     * the channel only once its last write completed. See
+     * <a href="https://www.kernel.org/doc/html/latest/networking/msg_zerocopy.html">MSG_ZEROCOPY</a> for more details.
+     */
+    public EpollSocketChannelConfig setSoZerocopy(boolean soZerocopy) {
+        try {
+            Native.setSoZerocopy(channel.fd().intValue(), soZerocopy ? 1 : 0);
+            channel.setZeroCopy(soZerocopy);
+            return this;
+        } catch (IOException e) {
+            throw new ChannelException(e);
+        }
+    }
+
+    /**
+     * Returns {@code true} if the {@code SO_ZEROCOPY} option is set on the socket, {@code false} otherwise.
+     */
+    public boolean isSoZerocopy() {
+        try {
+            return Native.isSoZerocopy(channel.fd().intValue()) != 0;
+        } catch (IOException e) {
+            throw new ChannelException(e);
+        }
+    }
+
     @Override
     public boolean isAllowHalfClosure() {
         return allowHalfClosure;
@@ -21,6 +21,7 @@ import io.netty.util.internal.NativeLibraryLoader;
 import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.SystemPropertyUtil;
 import io.netty.channel.unix.FileDescriptor;
+import io.netty.channel.unix.Limits;
 import io.netty.channel.unix.NativeInetAddress;
 import io.netty.util.internal.ThrowableUtil;
 
@@ -34,14 +35,15 @@ import static io.netty.channel.epoll.NativeStaticallyReferencedJniMethods.epolle
 import static io.netty.channel.epoll.NativeStaticallyReferencedJniMethods.epollin;
 import static io.netty.channel.epoll.NativeStaticallyReferencedJniMethods.epollout;
 import static io.netty.channel.epoll.NativeStaticallyReferencedJniMethods.epollrdhup;
-import static io.netty.channel.epoll.NativeStaticallyReferencedJniMethods.iovMax;
+import static io.netty.channel.epoll.NativeStaticallyReferencedJniMethods.isSupportingRecvmmsg;
 import static io.netty.channel.epoll.NativeStaticallyReferencedJniMethods.isSupportingSendmmsg;
 import static io.netty.channel.epoll.NativeStaticallyReferencedJniMethods.isSupportingTcpFastopen;
+import static io.netty.channel.epoll.NativeStaticallyReferencedJniMethods.isSupportingUdpSegment;
 import static io.netty.channel.epoll.NativeStaticallyReferencedJniMethods.kernelVersion;
-import static io.netty.channel.epoll.NativeStaticallyReferencedJniMethods.ssizeMax;
 import static io.netty.channel.epoll.NativeStaticallyReferencedJniMethods.tcpMd5SigMaxKeyLen;
-import static io.netty.channel.epoll.NativeStaticallyReferencedJniMethods.uioMaxIov;
 import static io.netty.channel.unix.Errors.ERRNO_EAGAIN_NEGATIVE;
+import static io.netty.channel.unix.Errors.ERRNO_ECONNRESET_NEGATIVE;
+import static io.netty.channel.unix.Errors.ERRNO_ENOBUFS_NEGATIVE;
 import static io.netty.channel.unix.Errors.ERRNO_EPIPE_NEGATIVE;
 import static io.netty.channel.unix.Errors.ERRNO_EWOULDBLOCK_NEGATIVE;
 import static io.netty.channel.unix.Errors.ioResult;
@@ -72,31 +74,43 @@ public final class Native {
     public static final int EPOLLET = epollet();
     public static final int EPOLLERR = epollerr();
 
-    public static final int IOV_MAX = iovMax();
-    public static final int UIO_MAX_IOV = uioMaxIov();
+    public static final int IOV_MAX = Limits.IOV_MAX;
+    public static final int UIO_MAX_IOV = Limits.UIO_MAX_IOV;
     public static final boolean IS_SUPPORTING_SENDMMSG = isSupportingSendmmsg();
+    public static final boolean IS_SUPPORTING_RECVMMSG = isSupportingRecvmmsg();
+    public static final boolean IS_SUPPORTING_UDP_SEGMENT = isSupportingUdpSegment();
     public static final boolean IS_SUPPORTING_TCP_FASTOPEN = isSupportingTcpFastopen();
-    public static final long SSIZE_MAX = ssizeMax();
+    public static final long SSIZE_MAX = Limits.SSIZE_MAX;
     public static final int TCP_MD5SIG_MAXKEYLEN = tcpMd5SigMaxKeyLen();
     public static final String KERNEL_VERSION = kernelVersion();
 
     private static final NativeIoException SENDFILE_CONNECTION_RESET_EXCEPTION;
     private static final NativeIoException SENDMMSG_CONNECTION_RESET_EXCEPTION;
+    private static final NativeIoException RECVMMSG_CONNECTION_RESET_EXCEPTION;
     private static final NativeIoException SPLICE_CONNECTION_RESET_EXCEPTION;
+    private static final NativeIoException SEND_ZEROCOPY_CONNECTION_RESET_EXCEPTION;
     private static final ClosedChannelException SENDFILE_CLOSED_CHANNEL_EXCEPTION = ThrowableUtil.unknownStackTrace(
             new ClosedChannelException(), Native.class, "sendfile(...)");
     private static final ClosedChannelException SENDMMSG_CLOSED_CHANNEL_EXCEPTION = ThrowableUtil.unknownStackTrace(
             new ClosedChannelException(), Native.class, "sendmmsg(...)");
+    private static final ClosedChannelException RECVMMSG_CLOSED_CHANNEL_EXCEPTION = ThrowableUtil.unknownStackTrace(
+            new ClosedChannelException(), Native.class, "recvmmsg(...)");
     private static final ClosedChannelException SPLICE_CLOSED_CHANNEL_EXCEPTION = ThrowableUtil.unknownStackTrace(
             new ClosedChannelException(), Native.class, "splice(...)");
+    private static final ClosedChannelException SEND_ZEROCOPY_CLOSED_CHANNEL_EXCEPTION =
+            ThrowableUtil.unknownStackTrace(new ClosedChannelException(), Native.class, "sendZerocopy(...)");
 
     static {
         SENDFILE_CONNECTION_RESET_EXCEPTION = newConnectionResetException("syscall:sendfile(...)",
                 ERRNO_EPIPE_NEGATIVE);
         SENDMMSG_CONNECTION_RESET_EXCEPTION = newConnectionResetException("syscall:sendmmsg(...)",
                 ERRNO_EPIPE_NEGATIVE);
+        RECVMMSG_CONNECTION_RESET_EXCEPTION = newConnectionResetException("syscall:recvmmsg(...)",
+                ERRNO_ECONNRESET_NEGATIVE);
         SPLICE_CONNECTION_RESET_EXCEPTION = newConnectionResetException("syscall:splice(...)",
                 ERRNO_EPIPE_NEGATIVE);
+        SEND_ZEROCOPY_CONNECTION_RESET_EXCEPTION = newConnectionResetException("syscall:send(...)",
+                ERRNO_EPIPE_NEGATIVE);
     }
 
     public static FileDescriptor newEventFd() {
@@ -185,6 +199,57 @@ public final class Native {
     private static native int sendmmsg0(
             int fd, NativeDatagramPacketArray.NativeDatagramPacket[] msgs, int offset, int len);
 
+    /**
+     * Receives up to {@code len} datagrams into the given packets and returns the number of datagrams received,
+     * or {@code 0} if there was nothing to receive. The sender and the number of bytes received are stored in
+     * each of the packets.
+     */
+    public static int recvmmsg(
+            int fd, NativeDatagramPacketArray.NativeDatagramPacket[] msgs, int offset, int len) throws IOException {
+        int res = recvmmsg0(fd, msgs, offset, len);
+        if (res >= 0) {
+            return res;
+        }
+        return ioResult("recvmmsg", res, RECVMMSG_CONNECTION_RESET_EXCEPTION, RECVMMSG_CLOSED_CHANNEL_EXCEPTION);
+    }
+
+    private static native int recvmmsg0(
+            int fd, NativeDatagramPacketArray.NativeDatagramPacket[] msgs, int offset, int len);
+
+    /**
+     * Sends the bytes between {@code pos} and {@code limit} of the given memory address with {@code MSG_ZEROCOPY},
+     * and returns the number of bytes sent, {@code 0} if the socket is not writable or {@code -1} if the kernel could
+     * not pin more memory, in which case the bytes should be sent without {@code MSG_ZEROCOPY}.
+     */
+    public static int sendZerocopy(int fd, long address, int pos, int limit) throws IOException {
+        int res = sendZerocopy0(fd, address, pos, limit);
+        if (res >= 0) {
+            return res;
+        }
+        if (res == ERRNO_ENOBUFS_NEGATIVE) {
+            return -1;
+        }
+        return ioResult("send", res, SEND_ZEROCOPY_CONNECTION_RESET_EXCEPTION, SEND_ZEROCOPY_CLOSED_CHANNEL_EXCEPTION);
+    }
+
+    private static native int sendZerocopy0(int fd, long address, int pos, int limit);
+
+    /**
+     * Reads the completion notifications of {@code MSG_ZEROCOPY} sends from the error queue of the socket. Every
+     * notification is stored as two ints into {@code ranges}, the numbers of the first and the last send the kernel is
+     * done with. Returns the number of notifications read, which is less than {@code ranges.length / 2} once the
+     * error queue is empty.
+     */
+    public static int recvZerocopyCompletions(int fd, int[] ranges) throws IOException {
+        int res = recvZerocopyCompletions0(fd, ranges);
+        if (res >= 0) {
+            return res;
+        }
+        throw newIOException("recvmsg", res);
+    }
+
+    private static native int recvZerocopyCompletions0(int fd, int[] ranges);
+
     public static int recvFd(int fd) throws IOException {
         int res = recvFd0(fd);
         if (res > 0) {
@@ -228,6 +293,8 @@ public final class Native {
     public static native int getTcpKeepCnt(int fd) throws IOException;
     public static native int getTcpUserTimeout(int milliseconds) throws IOException;
     public static native int isIpFreeBind(int fd)throws IOException;
+    public static native int isSoZerocopy(int fd) throws IOException;
+    public static native int isUdpGro(int fd) throws IOException;
 
     public static native void setReuseAddress(int fd, int reuseAddress) throws IOException;
     public static native void setReusePort(int fd, int reuseAddress) throws IOException;
@@ -240,6 +307,8 @@ public final class Native {
     public static native void setTcpKeepCnt(int fd, int probes) throws IOException;
     public static native void setTcpUserTimeout(int fd, int milliseconds)throws IOException;
     public static native void setIpFreeBind(int fd, int freeBind) throws IOException;
+    public static native void setSoZerocopy(int fd, int zerocopy) throws IOException;
+    public static native void setUdpGro(int fd, int gro) throws IOException;
     public static void tcpInfo(int fd, EpollTcpInfo info) throws IOException {
         tcpInfo0(fd, info.info);
     }
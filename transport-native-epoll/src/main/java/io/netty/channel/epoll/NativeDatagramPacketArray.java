@@ -19,14 +19,19 @@ import static io.netty.channel.unix.NativeInetAddress.ipv4MappedIpv6Address;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelOutboundBuffer;
 import io.netty.channel.socket.DatagramPacket;
+import io.netty.channel.unix.IovArray;
 import io.netty.util.concurrent.FastThreadLocal;
 
 import java.net.Inet6Address;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.List;
 
 /**
- * Support <a href="http://linux.die.net/man/2/sendmmsg">sendmmsg(...)</a> on linux with GLIBC 2.14+
+ * Support <a href="http://linux.die.net/man/2/sendmmsg">sendmmsg(...)</a> on linux with GLIBC 2.14+ and
+ * <a href="http://linux.die.net/man/2/recvmmsg">recvmmsg(...)</a> on linux with GLIBC 2.12+
  */
 final class NativeDatagramPacketArray implements ChannelOutboundBuffer.MessageProcessor {
 
@@ -72,7 +77,9 @@ final class NativeDatagramPacketArray implements ChannelOutboundBuffer.MessagePr
         }
         NativeDatagramPacket p = packets[count];
         InetSocketAddress recipient = packet.recipient();
-        if (!p.init(content, recipient)) {
+        int segmentSize = packet instanceof SegmentedDatagramPacket ?
+                ((SegmentedDatagramPacket) packet).segmentSize() : 0;
+        if (!p.init(content, recipient, segmentSize)) {
             return false;
         }
 
@@ -80,6 +87,21 @@ final class NativeDatagramPacketArray implements ChannelOutboundBuffer.MessagePr
         return true;
     }
 
+    /**
+     * Try to add a packet which receives up to {@code len} bytes into the given {@link ByteBuf}, starting at
+     * {@code index}. Returns {@code true} on success, {@code false} otherwise.
+     */
+    boolean addWritable(ByteBuf buf, int index, int len) {
+        if (count == packets.length) {
+            return false;
+        }
+        if (!packets[count].initWritable(buf, index, len)) {
+            return false;
+        }
+        count++;
+        return true;
+    }
+
     @Override
     public boolean processMessage(Object msg) throws Exception {
         return msg instanceof DatagramPacket && add((DatagramPacket) msg);
@@ -110,6 +132,15 @@ final class NativeDatagramPacketArray implements ChannelOutboundBuffer.MessagePr
         return array;
     }
 
+    /**
+     * Returns an empty {@link NativeDatagramPacketArray}, to be filled via {@link #addWritable(ByteBuf, int, int)}.
+     */
+    static NativeDatagramPacketArray getInstance() {
+        NativeDatagramPacketArray array = ARRAY.get();
+        array.count = 0;
+        return array;
+    }
+
     /**
      * Used to pass needed data to JNI.
      */
@@ -127,6 +158,16 @@ final class NativeDatagramPacketArray implements ChannelOutboundBuffer.MessagePr
         private byte[] addr;
         private int scopeId;
         private int port;
+        // The size of the datagrams the data is split into by the kernel, or 0 if it is a single datagram.
+        private int segmentSize;
+
+        // Filled by recvmmsg(...): the length of the sender address in addr, the number of bytes received and if
+        // the datagram was truncated because it did not fit. The segmentSize is set if multiple datagrams were
+        // coalesced into one because of UDP_GRO.
+        private final byte[] senderAddr = new byte[16];
+        private int addrLen;
+        private int receivedAmount;
+        private boolean truncated;
 
         private void release() {
             array.release();
@@ -135,7 +176,7 @@ final class NativeDatagramPacketArray implements ChannelOutboundBuffer.MessagePr
         /**
          * Init this instance and return {@code true} if the init was successful.
          */
-        private boolean init(ByteBuf buf, InetSocketAddress recipient) {
+        private boolean init(ByteBuf buf, InetSocketAddress recipient, int segmentSize) {
             array.clear();
             if (!array.add(buf)) {
                 return false;
@@ -153,7 +194,57 @@ final class NativeDatagramPacketArray implements ChannelOutboundBuffer.MessagePr
                 scopeId = 0;
             }
             port = recipient.getPort();
+            this.segmentSize = segmentSize;
             return true;
         }
+
+        /**
+         * Init this instance to receive into the given {@link ByteBuf} and return {@code true} if the init was
+         * successful.
+         */
+        private boolean initWritable(ByteBuf buf, int index, int len) {
+            array.clear();
+            if (!array.addWritable(buf, index, len)) {
+                return false;
+            }
+            memoryAddress = array.memoryAddress(0);
+            count = array.count();
+            addr = senderAddr;
+            segmentSize = 0;
+            return true;
+        }
+
+        /**
+         * Adds a {@link DatagramPacket} for each datagram which was received into {@code buffer} to {@code out},
+         * and returns the number of bytes received. Datagrams which the kernel coalesced because of
+         * {@code UDP_GRO} are sliced into separate {@link DatagramPacket}s again, and if they were truncated only the
+         * complete ones are added. The {@code buffer} is released.
+         */
+        int newDatagramPackets(ByteBuf buffer, InetSocketAddress localAddress, List<Object> out)
+                throws UnknownHostException {
+            final InetAddress address;
+            if (addrLen == 4) {
+                address = InetAddress.getByAddress(Arrays.copyOf(addr, 4));
+            } else {
+                address = Inet6Address.getByAddress(null, Arrays.copyOf(addr, 16), scopeId);
+            }
+            InetSocketAddress sender = new InetSocketAddress(address, port);
+            buffer.writerIndex(receivedAmount);
+            if (segmentSize <= 0 || receivedAmount <= segmentSize && !truncated) {
+                out.add(new DatagramPacket(buffer, localAddress, sender));
+                return receivedAmount;
+            }
+            // The last datagram is incomplete if the coalesced datagrams did not fit, so drop it.
+            int end = truncated ? receivedAmount - receivedAmount % segmentSize : receivedAmount;
+            try {
+                for (int index = 0; index < end; index += segmentSize) {
+                    ByteBuf segment = buffer.retainedSlice(index, Math.min(segmentSize, end - index));
+                    out.add(new DatagramPacket(segment, localAddress, sender));
+                }
+            } finally {
+                buffer.release();
+            }
+            return receivedAmount;
+        }
     }
 }
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.socket.DatagramPacket;
+import io.netty.util.internal.ObjectUtil;
+
+import java.net.InetSocketAddress;
+
+/**
+ * Allows to use <a href="https://blog.cloudflare.com/accelerating-udp-packet-transmission-for-quic/">GSO</a>
+ * if the underlying OS supports it. The content is sent with one syscall and split into datagrams of
+ * {@link #segmentSize()} bytes by the kernel or the network card, only the last one may be smaller.
+ * <p>
+ * Check {@link EpollDatagramChannel#isSegmentedDatagramPacketSupported()} before using it, as writing it fails
+ * otherwise. The kernel limits the number of segments of one packet to 64.
+ */
+public final class SegmentedDatagramPacket extends DatagramPacket {
+
+    private final int segmentSize;
+
+    /**
+     * Create a new instance.
+     *
+     * @param data          the {@link ByteBuf} to send.
+     * @param segmentSize   the segment size.
+     * @param recipient     the recipient.
+     */
+    public SegmentedDatagramPacket(ByteBuf data, int segmentSize, InetSocketAddress recipient) {
+        super(data, recipient);
+        this.segmentSize = ObjectUtil.checkPositive(segmentSize, "segmentSize");
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param data          the {@link ByteBuf} to send.
+     * @param segmentSize   the segment size.
+     * @param recipient     the recipient.
+     * @param sender        the sender.
+     */
+    public SegmentedDatagramPacket(ByteBuf data, int segmentSize,
+                                   InetSocketAddress recipient, InetSocketAddress sender) {
+        super(data, recipient, sender);
+        this.segmentSize = ObjectUtil.checkPositive(segmentSize, "segmentSize");
+    }
+
+    /**
+     * Return the size of each segment (the last segment can be smaller).
+     */
+    public int segmentSize() {
+        return segmentSize;
+    }
+
+    @Override
+    public SegmentedDatagramPacket copy() {
+        return replace(content().copy());
+    }
+
+    @Override
+    public SegmentedDatagramPacket duplicate() {
+        return replace(content().duplicate());
+    }
+
+    @Override
+    public SegmentedDatagramPacket retainedDuplicate() {
+        return replace(content().retainedDuplicate());
+    }
+
+    @Override
+    public SegmentedDatagramPacket replace(ByteBuf content) {
+        return new SegmentedDatagramPacket(content, segmentSize, recipient(), sender());
+    }
+
+    @Override
+    public SegmentedDatagramPacket retain() {
+        super.retain();
+        return this;
+    }
+
+    @Override
+    public SegmentedDatagramPacket retain(int increment) {
+        super.retain(increment);
+        return this;
+    }
+
+    @Override
+    public SegmentedDatagramPacket touch() {
+        super.touch();
+        return this;
+    }
+
+    @Override
+    public SegmentedDatagramPacket touch(Object hint) {
+        super.touch(hint);
+        return this;
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelPromise;
+
+import java.util.ArrayDeque;
+
+/**
+ * Keeps track of the {@link ByteBuf}s written with {@code MSG_ZEROCOPY}. The kernel reads their memory while it
+ * transmits the data, so they must neither be released nor have their {@link ChannelPromise}s notified before the
+ * kernel reported that it is done with them.
+ * <p>
+ * The kernel numbers every successful {@code MSG_ZEROCOPY} send on a socket, starting at {@code 0}, and reports ranges
+ * of these numbers once it is done with the sends via the error queue of the socket. The numbers are 32 bit unsigned
+ * and wrap around.
+ */
+final class ZeroCopyWrites {
+    private final ArrayDeque<PendingWrite> pending = new ArrayDeque<PendingWrite>();
+    // The number the kernel will use for the next send.
+    private int nextId;
+    // The number of the first send of the buffer currently written, which was not added yet.
+    private int firstUnassignedId;
+    // The number of sends of the buffer currently written, which the kernel is done with already.
+    private int unassignedDone;
+    // The buffer currently written, retained while it is partly sent so its memory stays valid if it is released by
+    // the ChannelOutboundBuffer because the channel is closed.
+    private ByteBuf unassignedBuf;
+
+    ZeroCopyWrites() {
+        this(0);
+    }
+
+    // Only used for testing, to start with the given number instead of 0.
+    ZeroCopyWrites(int firstId) {
+        nextId = firstId;
+        firstUnassignedId = firstId;
+    }
+
+    /**
+     * Must be called after every successful {@code MSG_ZEROCOPY} send.
+     */
+    void sent() {
+        nextId++;
+    }
+
+    /**
+     * Returns {@code true} if the buffer which is currently written was partly sent with {@code MSG_ZEROCOPY}, in
+     * which case the rest of it must also be sent with {@code MSG_ZEROCOPY} and it must be {@link #add added} once
+     * written completely.
+     */
+    boolean hasUnassignedSends() {
+        return firstUnassignedId != nextId;
+    }
+
+    /**
+     * Must be called if the buffer which is currently written was only partly sent and {@link #hasUnassignedSends()}.
+     */
+    void partlySent(ByteBuf buf) {
+        if (unassignedBuf == null) {
+            unassignedBuf = buf.retain();
+        } else {
+            assert unassignedBuf == buf;
+        }
+    }
+
+    /**
+     * Adds the completely written buffer, which the caller took over with its {@link ChannelPromise}. It is released
+     * and the {@link ChannelPromise} is notified once the kernel is done with all sends since the last call.
+     */
+    void add(ByteBuf buf, ChannelPromise promise) {
+        int sends = nextId - firstUnassignedId;
+        assert sends > 0;
+        if (unassignedBuf != null) {
+            assert unassignedBuf == buf;
+            unassignedBuf = null;
+            // The caller took over the buffer, so drop the reference taken by partlySent(...).
+            buf.release();
+        }
+        pending.add(new PendingWrite(buf, promise, firstUnassignedId, sends, sends - unassignedDone));
+        firstUnassignedId = nextId;
+        unassignedDone = 0;
+        succeedDone();
+    }
+
+    /**
+     * Returns {@code true} if neither a buffer waits for the kernel nor the buffer which is currently written was
+     * partly sent with {@code MSG_ZEROCOPY}.
+     */
+    boolean isEmpty() {
+        return pending.isEmpty() && !hasUnassignedSends();
+    }
+
+    /**
+     * Marks the sends numbered from {@code first} up to and including {@code last} as done, and releases the buffers
+     * and notifies the {@link ChannelPromise}s of all writes the kernel is done with, in the order they were added.
+     */
+    void complete(int first, int last) {
+        // Compare the numbers relative to first so this also works once they wrapped around.
+        int rangeEnd = last - first;
+        for (PendingWrite write: pending) {
+            int start = write.firstId - first;
+            if (start > rangeEnd) {
+                break;
+            }
+            write.remaining -= overlap(start, start + write.sends - 1, rangeEnd);
+        }
+        int start = firstUnassignedId - first;
+        unassignedDone += overlap(start, start + nextId - firstUnassignedId - 1, rangeEnd);
+        succeedDone();
+    }
+
+    // Returns the number of sends between start and end which are also between 0 and rangeEnd.
+    private static int overlap(int start, int end, int rangeEnd) {
+        return Math.max(Math.min(end, rangeEnd) - Math.max(start, 0) + 1, 0);
+    }
+
+    private void succeedDone() {
+        for (;;) {
+            PendingWrite write = pending.peek();
+            if (write == null || write.remaining > 0) {
+                break;
+            }
+            pending.remove();
+            write.succeed();
+        }
+    }
+
+    /**
+     * Fails the {@link ChannelPromise}s of all writes the kernel did not report as done yet. Called once the socket is
+     * closed, as no further reports can be read then. The kernel may still read the memory of these buffers, so they
+     * are dropped without being released, which keeps the memory from being reused. Returns the number of dropped
+     * buffers.
+     */
+    int failAll(Throwable cause) {
+        int dropped = 0;
+        for (;;) {
+            PendingWrite write = pending.poll();
+            if (write == null) {
+                break;
+            }
+            write.promise.tryFailure(cause);
+            dropped ++;
+        }
+        if (unassignedBuf != null) {
+            if (unassignedDone < nextId - firstUnassignedId) {
+                dropped ++;
+            } else {
+                unassignedBuf.release();
+            }
+            unassignedBuf = null;
+        }
+        firstUnassignedId = nextId;
+        unassignedDone = 0;
+        return dropped;
+    }
+
+    private static final class PendingWrite {
+        private final ByteBuf buf;
+        final ChannelPromise promise;
+        final int firstId;
+        final int sends;
+        int remaining;
+
+        PendingWrite(ByteBuf buf, ChannelPromise promise, int firstId, int sends, int remaining) {
+            this.buf = buf;
+            this.promise = promise;
+            this.firstId = firstId;
+            this.sends = sends;
+            this.remaining = remaining;
+        }
+
+        void succeed() {
+            buf.release();
+            promise.trySuccess();
+        }
+    }
+}
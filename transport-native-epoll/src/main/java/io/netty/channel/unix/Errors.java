@@ -40,6 +40,7 @@ public final class Errors {
     public static final int ERRNO_EAGAIN_NEGATIVE = -errnoEAGAIN();
     public static final int ERRNO_EWOULDBLOCK_NEGATIVE = -errnoEWOULDBLOCK();
     public static final int ERRNO_EINPROGRESS_NEGATIVE = -errnoEINPROGRESS();
+    public static final int ERRNO_ENOBUFS_NEGATIVE = -errnoENOBUFS();
     public static final int ERROR_ECONNREFUSED_NEGATIVE = -errorECONNREFUSED();
     public static final int ERROR_EISCONN_NEGATIVE = -errorEISCONN();
     public static final int ERROR_EALREADY_NEGATIVE = -errorEALREADY();
@@ -95,6 +96,13 @@ public final class Errors {
         if (err == refusedCause.expectedErr()) {
             throw refusedCause;
         }
+        throwConnectException(method, err);
+    }
+
+    /**
+     * Throws the exception which matches the given negative error number returned by a {@code connect(...)}.
+     */
+    public static void throwConnectException(String method, int err) throws IOException {
         if (err == ERROR_EALREADY_NEGATIVE) {
             throw new ConnectionPendingException();
         }
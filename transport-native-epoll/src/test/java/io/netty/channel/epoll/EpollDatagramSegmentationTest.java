@@ -0,0 +1,158 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.FixedRecvByteBufAllocator;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.socket.DatagramPacket;
+import io.netty.util.NetUtil;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeNoException;
+import static org.junit.Assume.assumeTrue;
+
+public class EpollDatagramSegmentationTest {
+
+    private static final int SEGMENT_SIZE = 512;
+    private static final int SEGMENTS = 8;
+
+    private static EventLoopGroup group;
+
+    @BeforeClass
+    public static void before() {
+        group = new EpollEventLoopGroup(1);
+    }
+
+    @AfterClass
+    public static void after() {
+        group.shutdownGracefully();
+    }
+
+    @Test(timeout = 10000)
+    public void testSegmentedDatagramPacket() throws Throwable {
+        testSegmentedDatagramPacket(false, 65536);
+    }
+
+    @Test(timeout = 10000)
+    public void testSegmentedDatagramPacketWithUdpGro() throws Throwable {
+        testSegmentedDatagramPacket(true, 65536);
+    }
+
+    @Test(timeout = 10000)
+    public void testSegmentedDatagramPacketWithUdpGroAndSmallBuffers() throws Throwable {
+        // The coalesced datagrams must not be truncated, although they do not fit into the buffers.
+        testSegmentedDatagramPacket(true, 2048);
+    }
+
+    @Test
+    public void testUdpGroOption() throws Throwable {
+        EpollDatagramChannel channel = (EpollDatagramChannel) new Bootstrap().group(group)
+                .channel(EpollDatagramChannel.class).handler(new ChannelInboundHandlerAdapter())
+                .bind(new InetSocketAddress(NetUtil.LOCALHOST4, 0)).sync().channel();
+        try {
+            try {
+                channel.config().setUdpGro(true);
+            } catch (RuntimeException e) {
+                // UDP_GRO is only supported since Linux 5.0.
+                assumeNoException(e);
+            }
+            // The option is read from the socket.
+            assertTrue(channel.config().isUdpGro());
+            assertEquals(Boolean.TRUE, channel.config().getOption(EpollChannelOption.UDP_GRO));
+            channel.config().setUdpGro(false);
+            assertFalse(channel.config().isUdpGro());
+        } finally {
+            channel.close().sync();
+        }
+    }
+
+    private static void testSegmentedDatagramPacket(boolean gro, int bufferSize) throws Throwable {
+        assumeTrue(EpollDatagramChannel.isSegmentedDatagramPacketSupported());
+
+        final BlockingQueue<DatagramPacket> received = new LinkedBlockingQueue<DatagramPacket>();
+        Bootstrap sb = new Bootstrap().group(group).channel(EpollDatagramChannel.class)
+                .option(ChannelOption.RCVBUF_ALLOCATOR, new FixedRecvByteBufAllocator(bufferSize))
+                .handler(new SimpleChannelInboundHandler<DatagramPacket>(false) {
+                    @Override
+                    protected void channelRead0(ChannelHandlerContext ctx, DatagramPacket msg) {
+                        received.add(msg);
+                    }
+                });
+        Channel sc = sb.bind(new InetSocketAddress(NetUtil.LOCALHOST4, 0)).sync().channel();
+        Channel cc = null;
+        try {
+            if (gro) {
+                try {
+                    ((EpollDatagramChannel) sc).config().setUdpGro(true);
+                } catch (RuntimeException e) {
+                    // UDP_GRO is only supported since Linux 5.0.
+                    assumeNoException(e);
+                }
+                assertTrue(((EpollDatagramChannel) sc).config().isUdpGro());
+            }
+
+            cc = new Bootstrap().group(group).channel(EpollDatagramChannel.class)
+                    .handler(new ChannelInboundHandlerAdapter())
+                    .bind(new InetSocketAddress(NetUtil.LOCALHOST4, 0)).sync().channel();
+
+            ByteBuf buf = Unpooled.directBuffer(SEGMENT_SIZE * SEGMENTS);
+            for (int i = 0; i < SEGMENT_SIZE * SEGMENTS; i++) {
+                buf.writeByte(i / SEGMENT_SIZE);
+            }
+            cc.writeAndFlush(new SegmentedDatagramPacket(
+                    buf, SEGMENT_SIZE, (InetSocketAddress) sc.localAddress())).sync();
+
+            for (int i = 0; i < SEGMENTS; i++) {
+                DatagramPacket packet = received.poll(5, TimeUnit.SECONDS);
+                assertNotNull(packet);
+                try {
+                    ByteBuf content = packet.content();
+                    assertEquals(SEGMENT_SIZE, content.readableBytes());
+                    for (int j = 0; j < SEGMENT_SIZE; j++) {
+                        assertEquals(i, content.getByte(content.readerIndex() + j));
+                    }
+                    assertEquals(cc.localAddress(), packet.sender());
+                } finally {
+                    packet.release();
+                }
+            }
+        } finally {
+            sc.close().sync();
+            if (cc != null) {
+                cc.close().sync();
+            }
+        }
+    }
+}
@@ -125,6 +125,19 @@ public class EpollSocketChannelConfigTest {
         assertTrue(ch.config().isTcpQuickAck());
     }
 
+    @Test
+    public void testSoZerocopy() {
+        try {
+            ch.config().setSoZerocopy(true);
+        } catch (RuntimeException e) {
+            // SO_ZEROCOPY is only supported since Linux 4.14.
+            assumeNoException(e);
+        }
+        assertTrue(ch.config().isSoZerocopy());
+        ch.config().setSoZerocopy(false);
+        assertFalse(ch.config().isSoZerocopy());
+    }
+
     @Test
     public void testSetOptionWhenClosed() {
         ch.close().syncUninterruptibly();
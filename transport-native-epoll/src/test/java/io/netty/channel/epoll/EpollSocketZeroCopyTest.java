@@ -0,0 +1,113 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.concurrent.GlobalEventExecutor;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeNoException;
+
+public class EpollSocketZeroCopyTest {
+
+    @Test(timeout = 30000)
+    public void testCloseWithPendingZeroCopyWrites() throws Exception {
+        EventLoopGroup group = new EpollEventLoopGroup(1);
+        Channel serverChannel = null;
+        Channel clientChannel = null;
+        List<ByteBuf> buffers = new ArrayList<ByteBuf>();
+        try {
+            // The server does not read, so the kernel can not be done with all writes before the close.
+            serverChannel = new ServerBootstrap().group(group).channel(EpollServerSocketChannel.class)
+                    .childOption(ChannelOption.AUTO_READ, false)
+                    .childHandler(new ChannelInboundHandlerAdapter())
+                    .bind(new InetSocketAddress("127.0.0.1", 0)).syncUninterruptibly().channel();
+            clientChannel = new Bootstrap().group(group).channel(EpollSocketChannel.class)
+                    .handler(new ChannelInboundHandlerAdapter())
+                    .connect(serverChannel.localAddress()).syncUninterruptibly().channel();
+            try {
+                ((EpollSocketChannel) clientChannel).config().setSoZerocopy(true);
+            } catch (RuntimeException e) {
+                // SO_ZEROCOPY is only supported since Linux 4.14.
+                assumeNoException(e);
+            }
+
+            List<ChannelFuture> writes = new ArrayList<ChannelFuture>();
+            for (int i = 0; i < 16; i++) {
+                ByteBuf buf = Unpooled.directBuffer(256 * 1024).writeZero(256 * 1024);
+                buffers.add(buf);
+                writes.add(clientChannel.write(buf.retain()));
+            }
+            clientChannel.flush();
+            ChannelFuture closeFuture = clientChannel.close();
+
+            // The event loop must not be blocked while the close waits for the kernel.
+            final Channel channel = clientChannel;
+            assertTrue(group.submit(new Callable<Boolean>() {
+                @Override
+                public Boolean call() {
+                    return channel.isActive();
+                }
+            }).await(500, TimeUnit.MILLISECONDS));
+            // Neither must the GlobalEventExecutor, which runs the close.
+            assertTrue(GlobalEventExecutor.INSTANCE.submit(new Callable<Boolean>() {
+                @Override
+                public Boolean call() {
+                    return channel.isOpen();
+                }
+            }).await(500, TimeUnit.MILLISECONDS));
+            closeFuture.syncUninterruptibly();
+
+            for (int i = 0; i < writes.size(); i++) {
+                ChannelFuture write = writes.get(i);
+                assertTrue(write.awaitUninterruptibly(5, TimeUnit.SECONDS));
+                if (write.isSuccess()) {
+                    assertEquals(1, buffers.get(i).refCnt());
+                } else {
+                    // Buffers the kernel may still read are dropped, all others are released.
+                    assertTrue(buffers.get(i).refCnt() <= 2);
+                }
+            }
+        } finally {
+            for (ByteBuf buf: buffers) {
+                buf.release(buf.refCnt());
+            }
+            if (clientChannel != null) {
+                clientChannel.close().syncUninterruptibly();
+            }
+            if (serverChannel != null) {
+                serverChannel.close().syncUninterruptibly();
+            }
+            group.shutdownGracefully(0, 0, TimeUnit.SECONDS).syncUninterruptibly();
+        }
+    }
+}
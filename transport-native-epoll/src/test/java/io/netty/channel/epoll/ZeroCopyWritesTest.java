@@ -0,0 +1,207 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ZeroCopyWritesTest {
+
+    private final EmbeddedChannel channel = new EmbeddedChannel();
+    private final ZeroCopyWrites writes = new ZeroCopyWrites();
+
+    @After
+    public void tearDown() {
+        channel.finish();
+    }
+
+    @Test
+    public void testCompleteInOrder() {
+        ByteBuf buf1 = Unpooled.buffer(1);
+        ByteBuf buf2 = Unpooled.buffer(1);
+        ChannelPromise promise1 = add(buf1, 1);
+        ChannelPromise promise2 = add(buf2, 2);
+        assertFalse(writes.isEmpty());
+
+        writes.complete(0, 0);
+        assertTrue(promise1.isSuccess());
+        assertEquals(0, buf1.refCnt());
+        assertFalse(promise2.isDone());
+        assertEquals(1, buf2.refCnt());
+
+        writes.complete(1, 2);
+        assertTrue(promise2.isSuccess());
+        assertEquals(0, buf2.refCnt());
+        assertTrue(writes.isEmpty());
+    }
+
+    @Test
+    public void testCompleteOutOfOrder() {
+        ByteBuf buf1 = Unpooled.buffer(1);
+        ByteBuf buf2 = Unpooled.buffer(1);
+        ChannelPromise promise1 = add(buf1, 2);
+        ChannelPromise promise2 = add(buf2, 1);
+
+        // Writes are only notified in the order they were added.
+        writes.complete(1, 2);
+        assertFalse(promise1.isDone());
+        assertFalse(promise2.isDone());
+        assertEquals(1, buf2.refCnt());
+
+        writes.complete(0, 0);
+        assertTrue(promise1.isSuccess());
+        assertTrue(promise2.isSuccess());
+        assertEquals(0, buf1.refCnt());
+        assertEquals(0, buf2.refCnt());
+        assertTrue(writes.isEmpty());
+    }
+
+    @Test
+    public void testCompleteBeforeAdd() {
+        ByteBuf buf = Unpooled.buffer(1);
+        writes.sent();
+        writes.sent();
+        assertTrue(writes.hasUnassignedSends());
+        assertFalse(writes.isEmpty());
+
+        // The kernel may be done with the first part of a buffer before the rest of it was written.
+        writes.complete(0, 0);
+        writes.sent();
+        ChannelPromise promise = channel.newPromise();
+        writes.add(buf, promise);
+        assertFalse(writes.hasUnassignedSends());
+        assertFalse(promise.isDone());
+
+        writes.complete(1, 2);
+        assertTrue(promise.isSuccess());
+        assertEquals(0, buf.refCnt());
+        assertTrue(writes.isEmpty());
+    }
+
+    @Test
+    public void testCompleteAllBeforeAdd() {
+        ByteBuf buf = Unpooled.buffer(1);
+        writes.sent();
+        writes.complete(0, 0);
+        ChannelPromise promise = channel.newPromise();
+        writes.add(buf, promise);
+        assertTrue(promise.isSuccess());
+        assertEquals(0, buf.refCnt());
+        assertTrue(writes.isEmpty());
+    }
+
+    @Test
+    public void testCompleteWrapAround() {
+        // The numbers are unsigned, so the sends of the second buffer are numbered 0 and 1.
+        ZeroCopyWrites wrapping = new ZeroCopyWrites(-2);
+        ByteBuf buf1 = Unpooled.buffer(1);
+        ByteBuf buf2 = Unpooled.buffer(1);
+        ChannelPromise promise1 = add(wrapping, buf1, 2);
+        ChannelPromise promise2 = add(wrapping, buf2, 2);
+
+        wrapping.complete(-1, 0);
+        assertFalse(promise1.isDone());
+        wrapping.complete(-2, -2);
+        assertTrue(promise1.isSuccess());
+        assertFalse(promise2.isDone());
+
+        wrapping.complete(1, 1);
+        assertTrue(promise2.isSuccess());
+        assertEquals(0, buf1.refCnt());
+        assertEquals(0, buf2.refCnt());
+        assertTrue(wrapping.isEmpty());
+    }
+
+    @Test
+    public void testFailAllDropsUnconfirmedBuffers() {
+        ByteBuf buf1 = Unpooled.buffer(1);
+        ByteBuf buf2 = Unpooled.buffer(1);
+        ChannelPromise promise1 = add(buf1, 1);
+        ChannelPromise promise2 = add(buf2, 1);
+        writes.complete(0, 0);
+        assertTrue(promise1.isSuccess());
+
+        Exception cause = new Exception();
+        assertEquals(1, writes.failAll(cause));
+        assertSame(cause, promise2.cause());
+        // The kernel may still read the buffer, so it must not be released.
+        assertEquals(1, buf2.refCnt());
+        assertTrue(writes.isEmpty());
+    }
+
+    @Test
+    public void testPartlySentBufferIsRetained() {
+        ByteBuf buf = Unpooled.buffer(1);
+        writes.sent();
+        writes.partlySent(buf);
+        writes.partlySent(buf);
+        assertEquals(2, buf.refCnt());
+
+        // The ChannelOutboundBuffer releases the buffer once the channel is closed.
+        buf.release();
+        assertEquals(1, writes.failAll(new Exception()));
+        assertEquals(1, buf.refCnt());
+        assertTrue(writes.isEmpty());
+    }
+
+    @Test
+    public void testPartlySentBufferIsReleasedIfDone() {
+        ByteBuf buf = Unpooled.buffer(1);
+        writes.sent();
+        writes.partlySent(buf);
+        writes.complete(0, 0);
+        buf.release();
+        assertEquals(0, writes.failAll(new Exception()));
+        assertEquals(0, buf.refCnt());
+    }
+
+    @Test
+    public void testAddReleasesPartlySentReference() {
+        ByteBuf buf = Unpooled.buffer(1);
+        writes.sent();
+        writes.partlySent(buf);
+        writes.sent();
+        ChannelPromise promise = channel.newPromise();
+        writes.add(buf, promise);
+        assertEquals(1, buf.refCnt());
+
+        writes.complete(0, 1);
+        assertTrue(promise.isSuccess());
+        assertEquals(0, buf.refCnt());
+    }
+
+    private ChannelPromise add(ByteBuf buf, int sends) {
+        return add(writes, buf, sends);
+    }
+
+    private ChannelPromise add(ZeroCopyWrites zeroCopyWrites, ByteBuf buf, int sends) {
+        for (int i = 0; i < sends; i++) {
+            zeroCopyWrites.sent();
+        }
+        ChannelPromise promise = channel.newPromise();
+        zeroCopyWrites.add(buf, promise);
+        return promise;
+    }
+}
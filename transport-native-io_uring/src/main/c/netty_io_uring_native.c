@@ -0,0 +1,357 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+#define _GNU_SOURCE
+#include <jni.h>
+#include <dlfcn.h>
+#include <errno.h>
+#include <fcntl.h>
+#include <stdint.h>
+#include <stdio.h>
+#include <stdlib.h>
+#include <string.h>
+#include <unistd.h>
+#include <arpa/inet.h>
+#include <netinet/in.h>
+#include <sys/mman.h>
+#include <sys/socket.h>
+#include <sys/syscall.h>
+#include <linux/io_uring.h>
+#include "netty_unix_util.h"
+
+// The syscall numbers are the same on all architectures since linux 5.1.
+#ifndef __NR_io_uring_setup
+#define __NR_io_uring_setup 425
+#endif
+#ifndef __NR_io_uring_enter
+#define __NR_io_uring_enter 426
+#endif
+
+// IORING_ENTER_EXT_ARG and struct io_uring_getevents_arg are defined in linux 5.11. We define these here so older
+// kernel headers can compile.
+#ifndef IORING_ENTER_EXT_ARG
+#define IORING_ENTER_EXT_ARG (1U << 3)
+struct io_uring_getevents_arg {
+    __u64 sigmask;
+    __u32 sigmask_sz;
+    __u32 pad;
+    __u64 ts;
+};
+#endif
+
+// The indices of the values returned by ioUringSetup0(...), see also io.netty.channel.uring.Native.
+#define RING_FD 0
+#define RING_SQ_RING_ADDRESS 1
+#define RING_SQ_RING_SIZE 2
+#define RING_CQ_RING_ADDRESS 3
+#define RING_CQ_RING_SIZE 4
+#define RING_SQES_ADDRESS 5
+#define RING_SQES_SIZE 6
+#define RING_SQ_HEAD_ADDRESS 7
+#define RING_SQ_TAIL_ADDRESS 8
+#define RING_SQ_MASK 9
+#define RING_SQ_ENTRIES 10
+#define RING_SQ_ARRAY_ADDRESS 11
+#define RING_CQ_HEAD_ADDRESS 12
+#define RING_CQ_TAIL_ADDRESS 13
+#define RING_CQ_MASK 14
+#define RING_CQ_ENTRIES 15
+#define RING_CQES_ADDRESS 16
+#define RING_FEATURES 17
+#define RING_LENGTH 18
+
+// JNI Registered Methods Begin
+static jint netty_io_uring_native_ioUringSetup0(JNIEnv* env, jclass clazz, jint entries, jlongArray ring) {
+    struct io_uring_params params;
+    memset(&params, 0, sizeof(params));
+
+    int fd = syscall(__NR_io_uring_setup, entries, &params);
+    if (fd < 0) {
+        return -errno;
+    }
+
+    size_t sqRingSize = params.sq_off.array + params.sq_entries * sizeof(__u32);
+    size_t cqRingSize = params.cq_off.cqes + params.cq_entries * sizeof(struct io_uring_cqe);
+    if ((params.features & IORING_FEAT_SINGLE_MMAP) != 0) {
+        if (cqRingSize > sqRingSize) {
+            sqRingSize = cqRingSize;
+        }
+        cqRingSize = sqRingSize;
+    }
+
+    char* sqRing = mmap(NULL, sqRingSize, PROT_READ | PROT_WRITE, MAP_SHARED | MAP_POPULATE, fd, IORING_OFF_SQ_RING);
+    if (sqRing == MAP_FAILED) {
+        int err = errno;
+        close(fd);
+        return -err;
+    }
+    char* cqRing = sqRing;
+    if ((params.features & IORING_FEAT_SINGLE_MMAP) == 0) {
+        cqRing = mmap(NULL, cqRingSize, PROT_READ | PROT_WRITE, MAP_SHARED | MAP_POPULATE, fd, IORING_OFF_CQ_RING);
+        if (cqRing == MAP_FAILED) {
+            int err = errno;
+            munmap(sqRing, sqRingSize);
+            close(fd);
+            return -err;
+        }
+    }
+    size_t sqesSize = params.sq_entries * sizeof(struct io_uring_sqe);
+    char* sqes = mmap(NULL, sqesSize, PROT_READ | PROT_WRITE, MAP_SHARED | MAP_POPULATE, fd, IORING_OFF_SQES);
+    if (sqes == MAP_FAILED) {
+        int err = errno;
+        if (cqRing != sqRing) {
+            munmap(cqRing, cqRingSize);
+        }
+        munmap(sqRing, sqRingSize);
+        close(fd);
+        return -err;
+    }
+
+    jlong values[RING_LENGTH];
+    values[RING_FD] = fd;
+    values[RING_SQ_RING_ADDRESS] = (jlong) sqRing;
+    values[RING_SQ_RING_SIZE] = (jlong) sqRingSize;
+    values[RING_CQ_RING_ADDRESS] = (jlong) cqRing;
+    values[RING_CQ_RING_SIZE] = (jlong) cqRingSize;
+    values[RING_SQES_ADDRESS] = (jlong) sqes;
+    values[RING_SQES_SIZE] = (jlong) sqesSize;
+    values[RING_SQ_HEAD_ADDRESS] = (jlong) (sqRing + params.sq_off.head);
+    values[RING_SQ_TAIL_ADDRESS] = (jlong) (sqRing + params.sq_off.tail);
+    values[RING_SQ_MASK] = *((__u32*) (sqRing + params.sq_off.ring_mask));
+    values[RING_SQ_ENTRIES] = params.sq_entries;
+    values[RING_SQ_ARRAY_ADDRESS] = (jlong) (sqRing + params.sq_off.array);
+    values[RING_CQ_HEAD_ADDRESS] = (jlong) (cqRing + params.cq_off.head);
+    values[RING_CQ_TAIL_ADDRESS] = (jlong) (cqRing + params.cq_off.tail);
+    values[RING_CQ_MASK] = *((__u32*) (cqRing + params.cq_off.ring_mask));
+    values[RING_CQ_ENTRIES] = params.cq_entries;
+    values[RING_CQES_ADDRESS] = (jlong) (cqRing + params.cq_off.cqes);
+    values[RING_FEATURES] = params.features;
+    (*env)->SetLongArrayRegion(env, ring, 0, RING_LENGTH, values);
+    return 0;
+}
+
+static jint netty_io_uring_native_ioUringEnter0(JNIEnv* env, jclass clazz, jint ringFd, jint toSubmit,
+                                                jint minComplete, jint flags, jlong timeoutNanos) {
+    struct __kernel_timespec ts;
+    struct io_uring_getevents_arg arg;
+    memset(&arg, 0, sizeof(arg));
+    if (timeoutNanos >= 0) {
+        ts.tv_sec = timeoutNanos / 1000000000;
+        ts.tv_nsec = timeoutNanos % 1000000000;
+        arg.ts = (__u64) (uintptr_t) &ts;
+    }
+
+    int res;
+    int err;
+    do {
+        res = syscall(__NR_io_uring_enter, ringFd, toSubmit, minComplete, flags | IORING_ENTER_EXT_ARG,
+                      &arg, sizeof(arg));
+        if (res >= 0) {
+            return res;
+        }
+    } while ((err = errno) == EINTR);
+    if (err == ETIME || err == EBUSY || err == EAGAIN) {
+        // Nothing was submitted, either because the timeout expired or because the completion queue must be
+        // processed first.
+        return 0;
+    }
+    return -err;
+}
+
+static void netty_io_uring_native_ioUringExit0(JNIEnv* env, jclass clazz, jlong sqRingAddress, jlong sqRingSize,
+                                               jlong cqRingAddress, jlong cqRingSize, jlong sqesAddress,
+                                               jlong sqesSize, jint ringFd) {
+    munmap((void*) sqesAddress, (size_t) sqesSize);
+    if (cqRingAddress != sqRingAddress) {
+        munmap((void*) cqRingAddress, (size_t) cqRingSize);
+    }
+    munmap((void*) sqRingAddress, (size_t) sqRingSize);
+    close(ringFd);
+}
+
+static jint netty_io_uring_native_setBlocking0(JNIEnv* env, jclass clazz, jint fd) {
+    int flags = fcntl(fd, F_GETFL);
+    if (flags == -1 || fcntl(fd, F_SETFL, flags & ~O_NONBLOCK) == -1) {
+        return -errno;
+    }
+    return 0;
+}
+
+static jint netty_io_uring_native_sizeofSockaddrStorage(JNIEnv* env, jclass clazz) {
+    return sizeof(struct sockaddr_storage);
+}
+
+static jint netty_io_uring_native_writeSockaddr0(JNIEnv* env, jclass clazz, jint fd, jlong memoryAddress,
+                                                 jbyteArray address, jint scopeId, jint port) {
+    int domain;
+    socklen_t domainLen = sizeof(domain);
+    if (getsockopt(fd, SOL_SOCKET, SO_DOMAIN, &domain, &domainLen) == -1) {
+        return -errno;
+    }
+
+    // The address is always given as an ipv6 or ipv4 mapped ipv6 address, see NativeInetAddress.
+    jbyte bytes[16];
+    (*env)->GetByteArrayRegion(env, address, 0, 16, bytes);
+
+    struct sockaddr_storage* addr = (struct sockaddr_storage*) memoryAddress;
+    memset(addr, 0, sizeof(struct sockaddr_storage));
+    if (domain == AF_INET6) {
+        struct sockaddr_in6* ip6addr = (struct sockaddr_in6*) addr;
+        ip6addr->sin6_family = AF_INET6;
+        ip6addr->sin6_port = htons((uint16_t) port);
+        ip6addr->sin6_scope_id = (uint32_t) scopeId;
+        memcpy(&ip6addr->sin6_addr.s6_addr, bytes, 16);
+        return sizeof(struct sockaddr_in6);
+    }
+    struct sockaddr_in* ipaddr = (struct sockaddr_in*) addr;
+    ipaddr->sin_family = AF_INET;
+    ipaddr->sin_port = htons((uint16_t) port);
+    memcpy(&ipaddr->sin_addr.s_addr, bytes + 12, 4);
+    return sizeof(struct sockaddr_in);
+}
+
+static jint netty_io_uring_native_readSockaddr0(JNIEnv* env, jclass clazz, jlong memoryAddress, jbyteArray out) {
+    // Encodes the address in the format of NativeInetAddress.address(...).
+    const struct sockaddr_storage* addr = (const struct sockaddr_storage*) memoryAddress;
+    jbyte bytes[24];
+    int len;
+    int port;
+    if (addr->ss_family == AF_INET) {
+        const struct sockaddr_in* ipaddr = (const struct sockaddr_in*) addr;
+        memcpy(bytes, &ipaddr->sin_addr.s_addr, 4);
+        port = ntohs(ipaddr->sin_port);
+        len = 8;
+    } else if (addr->ss_family == AF_INET6) {
+        const struct sockaddr_in6* ip6addr = (const struct sockaddr_in6*) addr;
+        port = ntohs(ip6addr->sin6_port);
+        if (IN6_IS_ADDR_V4MAPPED(&ip6addr->sin6_addr)) {
+            memcpy(bytes, &ip6addr->sin6_addr.s6_addr[12], 4);
+            len = 8;
+        } else {
+            memcpy(bytes, &ip6addr->sin6_addr.s6_addr, 16);
+            uint32_t scopeId = ip6addr->sin6_scope_id;
+            bytes[16] = scopeId >> 24;
+            bytes[17] = scopeId >> 16;
+            bytes[18] = scopeId >> 8;
+            bytes[19] = scopeId;
+            len = 24;
+        }
+    } else {
+        return -EAFNOSUPPORT;
+    }
+    bytes[len - 4] = port >> 24;
+    bytes[len - 3] = port >> 16;
+    bytes[len - 2] = port >> 8;
+    bytes[len - 1] = port;
+    (*env)->SetByteArrayRegion(env, out, 0, len, bytes);
+    return len;
+}
+// JNI Registered Methods End
+
+// JNI Method Registration Table Begin
+static const JNINativeMethod method_table[] = {
+  { "ioUringSetup0", "(I[J)I", (void *) netty_io_uring_native_ioUringSetup0 },
+  { "ioUringEnter0", "(IIIIJ)I", (void *) netty_io_uring_native_ioUringEnter0 },
+  { "ioUringExit0", "(JJJJJJI)V", (void *) netty_io_uring_native_ioUringExit0 },
+  { "setBlocking0", "(I)I", (void *) netty_io_uring_native_setBlocking0 },
+  { "sizeofSockaddrStorage", "()I", (void *) netty_io_uring_native_sizeofSockaddrStorage },
+  { "writeSockaddr0", "(IJ[BII)I", (void *) netty_io_uring_native_writeSockaddr0 },
+  { "readSockaddr0", "(J[B)I", (void *) netty_io_uring_native_readSockaddr0 }
+};
+static const jint method_table_size = sizeof(method_table) / sizeof(method_table[0]);
+// JNI Method Registration Table End
+
+static jint netty_io_uring_native_JNI_OnLoad(JNIEnv* env, const char* packagePrefix) {
+    if (netty_unix_util_register_natives(env,
+            packagePrefix,
+            "io/netty/channel/uring/Native",
+            method_table,
+            method_table_size) != 0) {
+        return JNI_ERR;
+    }
+    return JNI_VERSION_1_6;
+}
+
+/**
+ * The expected format of the library name is "lib<>netty-transport-native-io_uring" where the <> portion is what we
+ * will return.
+ */
+static char* parsePackagePrefix(const char* libraryPathName, jint* status) {
+    char* packageNameEnd = strstr(libraryPathName, "netty-transport-native-io_uring");
+    if (packageNameEnd == NULL) {
+        *status = JNI_ERR;
+        return NULL;
+    }
+    char* packagePrefix = netty_unix_util_rstrstr(packageNameEnd, libraryPathName, "lib");
+    if (packagePrefix == NULL) {
+        *status = JNI_ERR;
+        return NULL;
+    }
+    packagePrefix += 3;
+    if (packagePrefix == packageNameEnd) {
+        return NULL;
+    }
+    // packagePrefix length is > 0
+    // Make a copy so we can modify the value without impacting libraryPathName.
+    size_t packagePrefixLen = packageNameEnd - packagePrefix;
+    packagePrefix = strndup(packagePrefix, packagePrefixLen);
+    // Make sure the packagePrefix is in the correct format for the JNI functions it will be used with.
+    char* temp = packagePrefix;
+    packageNameEnd = packagePrefix + packagePrefixLen;
+    // Package names must be sanitized, in JNI packages names are separated by '/' characters.
+    for (; temp != packageNameEnd; ++temp) {
+        if (*temp == '-') {
+            *temp = '/';
+        }
+    }
+    // Make sure packagePrefix is terminated with the '/' JNI package separator.
+    if(*(--temp) != '/') {
+        temp = packagePrefix;
+        packagePrefix = netty_unix_util_prepend(packagePrefix, "/");
+        free(temp);
+    }
+    return packagePrefix;
+}
+
+jint JNI_OnLoad(JavaVM* vm, void* reserved) {
+    JNIEnv* env;
+    if ((*vm)->GetEnv(vm, (void**) &env, JNI_VERSION_1_6) != JNI_OK) {
+        return JNI_ERR;
+    }
+
+    Dl_info dlinfo;
+    jint status = 0;
+    // We need to use an address of a function that is uniquely part of this library, so choose a static
+    // function. See https://github.com/netty/netty/issues/4840.
+    if (!dladdr((void*) parsePackagePrefix, &dlinfo)) {
+        fprintf(stderr, "FATAL: transport-native-io_uring JNI call to dladdr failed!\n");
+        return JNI_ERR;
+    }
+    char* packagePrefix = parsePackagePrefix(dlinfo.dli_fname, &status);
+    if (status == JNI_ERR) {
+        fprintf(stderr, "FATAL: transport-native-io_uring JNI encountered unexpected dlinfo.dli_fname: %s\n",
+                dlinfo.dli_fname);
+        return JNI_ERR;
+    }
+
+    jint ret = netty_io_uring_native_JNI_OnLoad(env, packagePrefix);
+
+    if (packagePrefix != NULL) {
+      free(packagePrefix);
+      packagePrefix = NULL;
+    }
+
+    return ret;
+}
@@ -0,0 +1,293 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.AbstractChannel;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelConfig;
+import io.netty.channel.ChannelMetadata;
+import io.netty.channel.EventLoop;
+import io.netty.channel.unix.Socket;
+import io.netty.channel.unix.UnixChannel;
+import io.netty.util.ReferenceCountUtil;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.UnresolvedAddressException;
+
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+
+/**
+ * Base class for the {@link Channel}s of the {@link IOUringEventLoop}.
+ * <p>
+ * Every operation is added to the {@link SubmissionQueue} of the {@link IOUringEventLoop} with the id the channel got
+ * when it was registered and the operation code as user data, so its completion can be dispatched to
+ * {@link AbstractIOUringUnsafe#completed(byte, int)}. At most one operation of each kind is in flight. The kernel may
+ * still use the memory of the operations in flight, so once the channel is closed or deregistered they are cancelled
+ * and the channel stays known to the {@link IOUringEventLoop} until all of them completed. The cancellations are
+ * submitted right away, after which the operations hold their own reference to the socket, so closing the file
+ * descriptor does not need to wait for them.
+ */
+abstract class AbstractIOUringChannel extends AbstractChannel implements UnixChannel {
+    private static final ChannelMetadata METADATA = new ChannelMetadata(false);
+    private final Socket socket;
+    // The id assigned by the IOUringEventLoop, only valid while ioRegistered is true or operations are in flight.
+    private int id;
+    private boolean ioRegistered;
+    // One bit for each operation code which is in flight.
+    private int pendingOps;
+    private volatile boolean open = true;
+
+    protected volatile boolean active;
+
+    AbstractIOUringChannel(Channel parent, Socket fd, boolean active) {
+        super(parent);
+        socket = checkNotNull(fd, "fd");
+        this.active = active;
+    }
+
+    static long userData(int id, byte op) {
+        return (long) id << 32 | op & 0xFF;
+    }
+
+    static int id(long userData) {
+        return (int) (userData >>> 32);
+    }
+
+    static byte op(long userData) {
+        return (byte) userData;
+    }
+
+    @Override
+    public final Socket fd() {
+        return socket;
+    }
+
+    @Override
+    public abstract ChannelConfig config();
+
+    @Override
+    public boolean isActive() {
+        return active;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public ChannelMetadata metadata() {
+        return METADATA;
+    }
+
+    @Override
+    protected boolean isCompatible(EventLoop loop) {
+        return loop instanceof IOUringEventLoop;
+    }
+
+    @Override
+    protected void doRegister() throws Exception {
+        id = ((IOUringEventLoop) eventLoop()).add(this);
+        ioRegistered = true;
+    }
+
+    @Override
+    protected void doDeregister() throws Exception {
+        if (!ioRegistered) {
+            return;
+        }
+        ioRegistered = false;
+        if (pendingOps == 0) {
+            ((IOUringEventLoop) eventLoop()).remove(id);
+        } else {
+            // Keep the registration until the cancelled operations completed, as they may still use the memory of
+            // this channel. Data which a read completed with concurrently is discarded.
+            cancelPendingOps();
+        }
+    }
+
+    @Override
+    protected void doClose() throws Exception {
+        active = false;
+        open = false;
+        try {
+            doDeregister();
+        } finally {
+            socket.close();
+        }
+    }
+
+    @Override
+    protected void doDisconnect() throws Exception {
+        doClose();
+    }
+
+    @Override
+    protected final void doBeginRead() throws Exception {
+        // Channel.read() or ChannelHandlerContext.read() was called
+        final AbstractIOUringUnsafe unsafe = (AbstractIOUringUnsafe) unsafe();
+        unsafe.readPending = true;
+        unsafe.scheduleRead();
+    }
+
+    @Override
+    protected abstract AbstractIOUringUnsafe newUnsafe();
+
+    /**
+     * Adds the operation with the given code and arguments for the file descriptor of this channel.
+     */
+    final void submit(byte op, long address, int len, long offset, int opFlags) throws IOException {
+        assert !isPending(op);
+        ((IOUringEventLoop) eventLoop()).submissionQueue().add(
+                op, socket.intValue(), address, len, offset, opFlags, userData(id, op));
+        pendingOps |= 1 << op;
+    }
+
+    /**
+     * Returns {@code true} if an operation with the given code is in flight.
+     */
+    final boolean isPending(byte op) {
+        return (pendingOps & 1 << op) != 0;
+    }
+
+    private void cancelPendingOps() throws IOException {
+        SubmissionQueue submissionQueue = ((IOUringEventLoop) eventLoop()).submissionQueue();
+        for (int ops = pendingOps; ops != 0; ops &= ops - 1) {
+            byte op = (byte) Integer.numberOfTrailingZeros(ops);
+            submissionQueue.add(Native.IORING_OP_ASYNC_CANCEL, -1, userData(id, op), 0, 0, 0,
+                    userData(id, Native.IORING_OP_ASYNC_CANCEL));
+        }
+        // Submit all operations of the file descriptor, so it can be closed without the kernel picking up a reused
+        // file descriptor number later on.
+        submissionQueue.submit();
+    }
+
+    /**
+     * Called by the {@link IOUringEventLoop} once an operation of this channel completed with the given result.
+     */
+    final void completed(byte op, int res) {
+        pendingOps &= ~(1 << op);
+        AbstractIOUringUnsafe unsafe = (AbstractIOUringUnsafe) unsafe();
+        if (ioRegistered && res != Native.ERRNO_ECANCELED_NEGATIVE) {
+            unsafe.completed(op, res);
+            return;
+        }
+        unsafe.cancelled(op, res);
+        if (pendingOps == 0 && !ioRegistered) {
+            ((IOUringEventLoop) eventLoop()).remove(id);
+        }
+    }
+
+    /**
+     * Returns an off-heap copy of the specified {@link ByteBuf}, and releases the original one.
+     */
+    protected final ByteBuf newDirectBuffer(ByteBuf buf) {
+        return newDirectBuffer(buf, buf);
+    }
+
+    /**
+     * Returns an off-heap copy of the specified {@link ByteBuf}, and releases the specified holder.
+     * The caller must ensure that the holder releases the original {@link ByteBuf} when the holder is released by
+     * this method.
+     */
+    protected final ByteBuf newDirectBuffer(Object holder, ByteBuf buf) {
+        final int readableBytes = buf.readableBytes();
+        if (readableBytes == 0) {
+            ReferenceCountUtil.safeRelease(holder);
+            return Unpooled.EMPTY_BUFFER;
+        }
+
+        final ByteBufAllocator alloc = alloc();
+        if (alloc.isDirectBufferPooled()) {
+            return newDirectBuffer0(holder, buf, alloc, readableBytes);
+        }
+
+        final ByteBuf directBuf = ByteBufUtil.threadLocalDirectBuffer();
+        if (directBuf == null) {
+            return newDirectBuffer0(holder, buf, alloc, readableBytes);
+        }
+
+        directBuf.writeBytes(buf, buf.readerIndex(), readableBytes);
+        ReferenceCountUtil.safeRelease(holder);
+        return directBuf;
+    }
+
+    private static ByteBuf newDirectBuffer0(Object holder, ByteBuf buf, ByteBufAllocator alloc, int capacity) {
+        final ByteBuf directBuf = alloc.directBuffer(capacity);
+        directBuf.writeBytes(buf, buf.readerIndex(), capacity);
+        ReferenceCountUtil.safeRelease(holder);
+        return directBuf;
+    }
+
+    protected static void checkResolvable(InetSocketAddress addr) {
+        if (addr.isUnresolved()) {
+            throw new UnresolvedAddressException();
+        }
+    }
+
+    protected abstract class AbstractIOUringUnsafe extends AbstractUnsafe {
+        boolean readPending;
+
+        /**
+         * Adds the read operation of the channel, unless it is in flight already.
+         */
+        abstract void scheduleRead();
+
+        /**
+         * Called once an operation of the channel completed with the given result, which is the negative error number
+         * if it failed.
+         */
+        abstract void completed(byte op, int res);
+
+        /**
+         * Called instead of {@link #completed(byte, int)} once an operation completed after it was cancelled, so
+         * the resources it used can be released.
+         */
+        void cancelled(byte op, int res) {
+            // Nothing to release by default.
+        }
+
+        /**
+         * Returns {@code true} if a write operation is in flight, in which case flushing waits for its completion.
+         */
+        boolean isWritePending() {
+            return false;
+        }
+
+        @Override
+        protected void flush0() {
+            // Flush immediately only when there's no write in flight.
+            // If there's a write in flight, its completion will call forceFlush() later,
+            // and thus there's no need to call it now.
+            if (isWritePending()) {
+                return;
+            }
+            super.flush0();
+        }
+
+        /**
+         * Called once a write completed, to continue with the remaining flushed messages.
+         */
+        final void forceFlush() {
+            super.flush0();
+        }
+    }
+}
@@ -0,0 +1,575 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelMetadata;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.ConnectTimeoutException;
+import io.netty.channel.EventLoop;
+import io.netty.channel.RecvByteBufAllocator;
+import io.netty.channel.socket.ChannelInputShutdownEvent;
+import io.netty.channel.socket.DuplexChannel;
+import io.netty.channel.unix.Errors;
+import io.netty.channel.unix.IovArray;
+import io.netty.channel.unix.Limits;
+import io.netty.channel.unix.Socket;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.StringUtil;
+import io.netty.util.internal.ThrowableUtil;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ConnectionPendingException;
+import java.nio.channels.NotYetConnectedException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Base class for stream based {@link Channel}s of the {@link IOUringEventLoop}. There is at most one read and one
+ * write in flight, the write covers as many of the flushed buffers as fit into an {@link IovArray}.
+ */
+abstract class AbstractIOUringStreamChannel extends AbstractIOUringChannel implements DuplexChannel {
+    private static final ChannelMetadata METADATA = new ChannelMetadata(false, 16);
+    private static final String EXPECTED_TYPES =
+            " (expected: " + StringUtil.simpleClassName(ByteBuf.class) + ')';
+    private static final ClosedChannelException DO_CLOSE_CLOSED_CHANNEL_EXCEPTION = ThrowableUtil.unknownStackTrace(
+            new ClosedChannelException(), AbstractIOUringStreamChannel.class, "doClose()");
+
+    private ChannelPromise connectPromise;
+    private ScheduledFuture<?> connectTimeoutFuture;
+    private SocketAddress requestedRemoteAddress;
+    // The memory of the address of the connect in flight.
+    private long connectAddressMemory;
+    // The buffer of the read in flight.
+    private ByteBuf readBuffer;
+    // The error of the last write, which is thrown by the next doWrite(...) to fail the flushed messages.
+    private IOException writeError;
+    // The array of the writev in flight.
+    private IovArray writeArray;
+
+    AbstractIOUringStreamChannel(Channel parent, Socket fd, boolean active) {
+        super(parent, fd, active);
+    }
+
+    @Override
+    public ChannelMetadata metadata() {
+        return METADATA;
+    }
+
+    @Override
+    protected void doWrite(ChannelOutboundBuffer in) throws Exception {
+        IOException error = writeError;
+        if (error != null) {
+            writeError = null;
+            throw error;
+        }
+        if (isPending(Native.IORING_OP_WRITE) || isPending(Native.IORING_OP_WRITEV)) {
+            return;
+        }
+        for (;;) {
+            final int msgCount = in.size();
+            if (msgCount == 0) {
+                return;
+            }
+            ByteBuf buf = (ByteBuf) in.current();
+            if (msgCount > 1 || !buf.hasMemoryAddress()) {
+                IOUringEventLoop loop = (IOUringEventLoop) eventLoop();
+                IovArray array = loop.acquireArray();
+                try {
+                    in.forEachFlushedMessage(array);
+                    if (array.count() == 0) {
+                        // The outbound buffer contained empty buffers only.
+                        loop.releaseArray(array);
+                        in.removeBytes(0);
+                        continue;
+                    }
+                    submit(Native.IORING_OP_WRITEV, array.memoryAddress(0), array.count(), 0, 0);
+                } catch (Exception e) {
+                    loop.releaseArray(array);
+                    throw e;
+                }
+                writeArray = array;
+                return;
+            }
+            int readableBytes = buf.readableBytes();
+            if (readableBytes == 0) {
+                in.remove();
+                continue;
+            }
+            submit(Native.IORING_OP_WRITE, buf.memoryAddress() + buf.readerIndex(), readableBytes, 0, 0);
+            return;
+        }
+    }
+
+    @Override
+    protected Object filterOutboundMessage(Object msg) {
+        if (msg instanceof ByteBuf) {
+            ByteBuf buf = (ByteBuf) msg;
+            if (!buf.hasMemoryAddress()) {
+                if (buf instanceof CompositeByteBuf) {
+                    // Special handling of CompositeByteBuf to reduce memory copies if some of the Components
+                    // in the CompositeByteBuf are backed by a memoryAddress.
+                    CompositeByteBuf comp = (CompositeByteBuf) buf;
+                    if (!comp.isDirect() || comp.nioBufferCount() > Limits.IOV_MAX) {
+                        // more then 1024 buffers for gathering writes so just do a memory copy.
+                        buf = newDirectBuffer(buf);
+                        assert buf.hasMemoryAddress();
+                    }
+                } else {
+                    // We can only handle buffers with memory address so we need to copy if a non direct is
+                    // passed to write.
+                    buf = newDirectBuffer(buf);
+                    assert buf.hasMemoryAddress();
+                }
+            }
+            return buf;
+        }
+
+        throw new UnsupportedOperationException(
+                "unsupported message type: " + StringUtil.simpleClassName(msg) + EXPECTED_TYPES);
+    }
+
+    private void shutdownOutput0(final ChannelPromise promise) {
+        try {
+            fd().shutdown(false, true);
+            promise.setSuccess();
+        } catch (Throwable cause) {
+            promise.setFailure(cause);
+        }
+    }
+
+    private void shutdownInput0(final ChannelPromise promise) {
+        try {
+            // A read in flight completes with 0 bytes once the input is shut down.
+            fd().shutdown(true, false);
+            promise.setSuccess();
+        } catch (Throwable cause) {
+            promise.setFailure(cause);
+        }
+    }
+
+    private void shutdown0(final ChannelPromise promise) {
+        try {
+            fd().shutdown(true, true);
+            promise.setSuccess();
+        } catch (Throwable cause) {
+            promise.setFailure(cause);
+        }
+    }
+
+    @Override
+    public boolean isOutputShutdown() {
+        return fd().isOutputShutdown();
+    }
+
+    @Override
+    public boolean isInputShutdown() {
+        return fd().isInputShutdown();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return fd().isShutdown();
+    }
+
+    @Override
+    public ChannelFuture shutdownOutput() {
+        return shutdownOutput(newPromise());
+    }
+
+    @Override
+    public ChannelFuture shutdownOutput(final ChannelPromise promise) {
+        EventLoop loop = eventLoop();
+        if (loop.inEventLoop()) {
+            shutdownOutput0(promise);
+        } else {
+            loop.execute(new Runnable() {
+                @Override
+                public void run() {
+                    shutdownOutput0(promise);
+                }
+            });
+        }
+        return promise;
+    }
+
+    @Override
+    public ChannelFuture shutdownInput() {
+        return shutdownInput(newPromise());
+    }
+
+    @Override
+    public ChannelFuture shutdownInput(final ChannelPromise promise) {
+        EventLoop loop = eventLoop();
+        if (loop.inEventLoop()) {
+            shutdownInput0(promise);
+        } else {
+            loop.execute(new Runnable() {
+                @Override
+                public void run() {
+                    shutdownInput0(promise);
+                }
+            });
+        }
+        return promise;
+    }
+
+    @Override
+    public ChannelFuture shutdown() {
+        return shutdown(newPromise());
+    }
+
+    @Override
+    public ChannelFuture shutdown(final ChannelPromise promise) {
+        EventLoop loop = eventLoop();
+        if (loop.inEventLoop()) {
+            shutdown0(promise);
+        } else {
+            loop.execute(new Runnable() {
+                @Override
+                public void run() {
+                    shutdown0(promise);
+                }
+            });
+        }
+        return promise;
+    }
+
+    @Override
+    protected void doClose() throws Exception {
+        ChannelPromise promise = connectPromise;
+        if (promise != null) {
+            // Use tryFailure() instead of setFailure() to avoid the race against cancel().
+            promise.tryFailure(DO_CLOSE_CLOSED_CHANNEL_EXCEPTION);
+            connectPromise = null;
+        }
+
+        ScheduledFuture<?> future = connectTimeoutFuture;
+        if (future != null) {
+            future.cancel(false);
+            connectTimeoutFuture = null;
+        }
+        super.doClose();
+    }
+
+    /**
+     * Connect to the remote peer, which always completes asynchronously.
+     */
+    protected void doConnect(SocketAddress remoteAddress, SocketAddress localAddress) throws Exception {
+        if (localAddress != null) {
+            fd().bind(localAddress);
+        }
+
+        boolean success = false;
+        try {
+            if (connectAddressMemory == 0) {
+                connectAddressMemory = PlatformDependent.allocateMemory(Native.SIZEOF_SOCKADDR_STORAGE);
+            }
+            int addressLength = Native.writeSockaddr(fd(), connectAddressMemory, (InetSocketAddress) remoteAddress);
+            // The length of the address is passed as offset.
+            submit(Native.IORING_OP_CONNECT, connectAddressMemory, 0, addressLength, 0);
+            success = true;
+        } finally {
+            if (!success) {
+                doClose();
+            }
+        }
+    }
+
+    class IOUringStreamUnsafe extends AbstractIOUringUnsafe {
+        // True while the written buffers are removed, as the listeners of their promises may flush again.
+        private boolean inWriteCompleted;
+
+        @Override
+        public void connect(
+                final SocketAddress remoteAddress, final SocketAddress localAddress, final ChannelPromise promise) {
+            if (!promise.setUncancellable() || !ensureOpen(promise)) {
+                return;
+            }
+
+            try {
+                if (connectPromise != null) {
+                    throw new ConnectionPendingException();
+                }
+
+                doConnect(remoteAddress, localAddress);
+                connectPromise = promise;
+                requestedRemoteAddress = remoteAddress;
+
+                // Schedule connect timeout.
+                int connectTimeoutMillis = config().getConnectTimeoutMillis();
+                if (connectTimeoutMillis > 0) {
+                    connectTimeoutFuture = eventLoop().schedule(new Runnable() {
+                        @Override
+                        public void run() {
+                            ChannelPromise connectPromise = AbstractIOUringStreamChannel.this.connectPromise;
+                            ConnectTimeoutException cause =
+                                    new ConnectTimeoutException("connection timed out: " + remoteAddress);
+                            if (connectPromise != null && connectPromise.tryFailure(cause)) {
+                                close(voidPromise());
+                            }
+                        }
+                    }, connectTimeoutMillis, TimeUnit.MILLISECONDS);
+                }
+
+                promise.addListener(new ChannelFutureListener() {
+                    @Override
+                    public void operationComplete(ChannelFuture future) throws Exception {
+                        if (future.isCancelled()) {
+                            if (connectTimeoutFuture != null) {
+                                connectTimeoutFuture.cancel(false);
+                            }
+                            connectPromise = null;
+                            close(voidPromise());
+                        }
+                    }
+                });
+            } catch (Throwable t) {
+                closeIfClosed();
+                promise.tryFailure(annotateConnectException(t, remoteAddress));
+            }
+        }
+
+        private void fulfillConnectPromise(ChannelPromise promise, boolean wasActive) {
+            if (promise == null) {
+                // Closed via cancellation and the promise has been notified already.
+                return;
+            }
+            active = true;
+
+            // Get the state as trySuccess() may trigger an ChannelFutureListener that will close the Channel.
+            // We still need to ensure we call fireChannelActive() in this case.
+            boolean active = isActive();
+
+            // trySuccess() will return false if a user cancelled the connection attempt.
+            boolean promiseSet = promise.trySuccess();
+
+            // Regardless if the connection attempt was cancelled, channelActive() event should be triggered,
+            // because what happened is what happened.
+            if (!wasActive && active) {
+                pipeline().fireChannelActive();
+            }
+
+            // If a user cancelled the connection attempt, close the channel, which is followed by channelInactive().
+            if (!promiseSet) {
+                close(voidPromise());
+            }
+        }
+
+        private void fulfillConnectPromise(ChannelPromise promise, Throwable cause) {
+            if (promise == null) {
+                // Closed via cancellation and the promise has been notified already.
+                return;
+            }
+
+            // Use tryFailure() instead of setFailure() to avoid the race against cancel().
+            promise.tryFailure(cause);
+            closeIfClosed();
+        }
+
+        private void finishConnect(int res) {
+            // Note this method is invoked by the event loop only if the connection attempt was
+            // neither cancelled nor timed out.
+
+            assert eventLoop().inEventLoop();
+
+            try {
+                boolean wasActive = isActive();
+                if (res < 0) {
+                    Errors.throwConnectException("connect", res);
+                }
+                connected();
+                fulfillConnectPromise(connectPromise, wasActive);
+            } catch (Throwable t) {
+                fulfillConnectPromise(connectPromise, annotateConnectException(t, requestedRemoteAddress));
+            } finally {
+                // Check for null as the connectTimeoutFuture is only created if a connectTimeoutMillis > 0 is used
+                // See https://github.com/netty/netty/issues/1770
+                if (connectTimeoutFuture != null) {
+                    connectTimeoutFuture.cancel(false);
+                }
+                connectPromise = null;
+            }
+        }
+
+        /**
+         * Called once the connect completed successfully.
+         */
+        void connected() {
+            // Nothing to update by default.
+        }
+
+        @Override
+        void scheduleRead() {
+            if (isPending(Native.IORING_OP_READ) || !isActive() || fd().isInputShutdown()) {
+                return;
+            }
+            RecvByteBufAllocator.Handle allocHandle = recvBufAllocHandle();
+            allocHandle.reset(config());
+            ByteBuf byteBuf = allocHandle.allocate(alloc());
+            if (!byteBuf.hasMemoryAddress()) {
+                // The kernel reads into the memory directly.
+                ByteBuf directBuf = alloc().directBuffer(byteBuf.writableBytes());
+                byteBuf.release();
+                byteBuf = directBuf;
+            }
+            int writableBytes = byteBuf.writableBytes();
+            allocHandle.attemptedBytesRead(writableBytes);
+            try {
+                submit(Native.IORING_OP_READ, byteBuf.memoryAddress() + byteBuf.writerIndex(), writableBytes, 0, 0);
+                readBuffer = byteBuf;
+            } catch (IOException e) {
+                byteBuf.release();
+                pipeline().fireExceptionCaught(e);
+                close(voidPromise());
+            }
+        }
+
+        @Override
+        void completed(byte op, int res) {
+            switch (op) {
+                case Native.IORING_OP_READ:
+                    readCompleted(res);
+                    break;
+                case Native.IORING_OP_WRITE:
+                case Native.IORING_OP_WRITEV:
+                    writeCompleted(res);
+                    break;
+                case Native.IORING_OP_CONNECT:
+                    freeConnectAddress();
+                    if (connectPromise != null) {
+                        finishConnect(res);
+                    }
+                    break;
+                default:
+                    throw new Error();
+            }
+        }
+
+        @Override
+        void cancelled(byte op, int res) {
+            if (op == Native.IORING_OP_READ) {
+                ByteBuf byteBuf = readBuffer;
+                readBuffer = null;
+                byteBuf.release();
+            } else if (op == Native.IORING_OP_WRITEV) {
+                releaseWriteArray();
+            } else if (op == Native.IORING_OP_CONNECT) {
+                freeConnectAddress();
+            }
+        }
+
+        private void releaseWriteArray() {
+            if (writeArray != null) {
+                ((IOUringEventLoop) eventLoop()).releaseArray(writeArray);
+                writeArray = null;
+            }
+        }
+
+        private void freeConnectAddress() {
+            if (connectAddressMemory != 0) {
+                PlatformDependent.freeMemory(connectAddressMemory);
+                connectAddressMemory = 0;
+            }
+        }
+
+        private void readCompleted(int res) {
+            ByteBuf byteBuf = readBuffer;
+            readBuffer = null;
+            ChannelPipeline pipeline = pipeline();
+            if (res > 0) {
+                RecvByteBufAllocator.Handle allocHandle = recvBufAllocHandle();
+                byteBuf.writerIndex(byteBuf.writerIndex() + res);
+                allocHandle.lastBytesRead(res);
+                allocHandle.incMessagesRead(1);
+                readPending = false;
+                pipeline.fireChannelRead(byteBuf);
+                allocHandle.readComplete();
+                // The next read is added once the channel is read again, which is done right away for autoRead.
+                pipeline.fireChannelReadComplete();
+                return;
+            }
+            byteBuf.release();
+            if (res < 0) {
+                pipeline.fireExceptionCaught(Errors.newIOException("read", res));
+            }
+            shutdownInput();
+        }
+
+        /**
+         * Shutdown the input side of the channel.
+         */
+        void shutdownInput() {
+            if (!fd().isInputShutdown()) {
+                if (Boolean.TRUE.equals(config().getOption(ChannelOption.ALLOW_HALF_CLOSURE))) {
+                    try {
+                        fd().shutdown(true, false);
+                    } catch (IOException ignored) {
+                        // We attempted to shutdown and failed, which means the input has already effectively been
+                        // shutdown.
+                        fireEventAndClose(ChannelInputShutdownEvent.INSTANCE);
+                        return;
+                    } catch (NotYetConnectedException ignore) {
+                        // We attempted to shutdown and failed, which means the input has already effectively been
+                        // shutdown.
+                        fireEventAndClose(ChannelInputShutdownEvent.INSTANCE);
+                        return;
+                    }
+                    pipeline().fireUserEventTriggered(ChannelInputShutdownEvent.INSTANCE);
+                } else {
+                    close(voidPromise());
+                }
+            }
+        }
+
+        private void fireEventAndClose(Object evt) {
+            pipeline().fireUserEventTriggered(evt);
+            close(voidPromise());
+        }
+
+        private void writeCompleted(int res) {
+            releaseWriteArray();
+            if (res >= 0) {
+                // A write added by a listener before all written bytes were removed would start at the wrong
+                // buffers, so flushing waits until forceFlush() below.
+                inWriteCompleted = true;
+                try {
+                    outboundBuffer().removeBytes(res);
+                } finally {
+                    inWriteCompleted = false;
+                }
+            } else {
+                writeError = Errors.newIOException("write", res);
+            }
+            forceFlush();
+        }
+
+        @Override
+        boolean isWritePending() {
+            return inWriteCompleted || isPending(Native.IORING_OP_WRITE) || isPending(Native.IORING_OP_WRITEV);
+        }
+    }
+}
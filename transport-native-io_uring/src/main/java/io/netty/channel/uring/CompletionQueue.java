@@ -0,0 +1,79 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.util.internal.PlatformDependent;
+
+/**
+ * The completion queue of an {@code io_uring} instance.
+ */
+final class CompletionQueue {
+    // Offsets in struct io_uring_cqe, which are part of the kernel ABI.
+    private static final int CQE_SIZE = 16;
+    private static final int CQE_USER_DATA_FIELD = 0;
+    private static final int CQE_RES_FIELD = 8;
+
+    private final long kHeadAddress;
+    private final long kTailAddress;
+    private final int ringMask;
+    private final long cqesAddress;
+
+    CompletionQueue(long kHeadAddress, long kTailAddress, int ringMask, long cqesAddress) {
+        this.kHeadAddress = kHeadAddress;
+        this.kTailAddress = kTailAddress;
+        this.ringMask = ringMask;
+        this.cqesAddress = cqesAddress;
+    }
+
+    /**
+     * Called for every completed operation.
+     */
+    interface CompletionCallback {
+        void handle(long userData, int res);
+    }
+
+    /**
+     * Returns {@code true} if there is at least one completed operation which was not processed yet.
+     */
+    boolean hasCompletions() {
+        return PlatformDependent.getInt(kHeadAddress) != PlatformDependent.getIntVolatile(kTailAddress);
+    }
+
+    /**
+     * Calls the given {@link CompletionCallback} for all completed operations and returns their number.
+     */
+    int process(CompletionCallback callback) {
+        int head = PlatformDependent.getInt(kHeadAddress);
+        int processed = 0;
+        for (;;) {
+            int tail = PlatformDependent.getIntVolatile(kTailAddress);
+            if (head == tail) {
+                break;
+            }
+            do {
+                long cqe = cqesAddress + (long) CQE_SIZE * (head & ringMask);
+                long userData = PlatformDependent.getLong(cqe + CQE_USER_DATA_FIELD);
+                int res = PlatformDependent.getInt(cqe + CQE_RES_FIELD);
+                head++;
+                processed++;
+                // Release the entry before the callback, which may submit operations that complete right away.
+                PlatformDependent.putIntOrdered(kHeadAddress, head);
+                callback.handle(userData, res);
+            } while (head != tail);
+        }
+        return processed;
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.util.internal.PlatformDependent;
+
+/**
+ * Tells if {@code netty-transport-native-io_uring} is supported, which needs Linux 5.11 or later and a 64 bit JVM.
+ */
+public final class IOUring {
+
+    private static final Throwable UNAVAILABILITY_CAUSE;
+
+    static  {
+        Throwable cause = null;
+        if (!PlatformDependent.hasUnsafe()) {
+            cause = new IllegalStateException("sun.misc.Unsafe not available");
+        } else if (PlatformDependent.addressSize() != 8) {
+            cause = new IllegalStateException("Only supported on 64 bit JVMs");
+        } else {
+            RingBuffer ringBuffer = null;
+            try {
+                ringBuffer = Native.newRingBuffer(1);
+            } catch (Throwable t) {
+                cause = t;
+            } finally {
+                if (ringBuffer != null) {
+                    ringBuffer.close();
+                }
+            }
+        }
+        UNAVAILABILITY_CAUSE = cause;
+    }
+
+    /**
+     * Returns {@code true} if and only if {@code netty-transport-native-io_uring} is available.
+     */
+    public static boolean isAvailable() {
+        return UNAVAILABILITY_CAUSE == null;
+    }
+
+    /**
+     * Ensure that {@code netty-transport-native-io_uring} is available.
+     *
+     * @throws UnsatisfiedLinkError if unavailable
+     */
+    public static void ensureAvailability() {
+        if (UNAVAILABILITY_CAUSE != null) {
+            throw (Error) new UnsatisfiedLinkError(
+                    "failed to load the required native library").initCause(UNAVAILABILITY_CAUSE);
+        }
+    }
+
+    /**
+     * Returns the cause of unavailability of {@code netty-transport-native-io_uring}.
+     *
+     * @return the cause if unavailable. {@code null} if available.
+     */
+    public static Throwable unavailabilityCause() {
+        return UNAVAILABILITY_CAUSE;
+    }
+
+    private IOUring() { }
+}
@@ -0,0 +1,623 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.channel.AddressedEnvelope;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelMetadata;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.DefaultAddressedEnvelope;
+import io.netty.channel.RecvByteBufAllocator;
+import io.netty.channel.socket.DatagramChannel;
+import io.netty.channel.socket.DatagramPacket;
+import io.netty.channel.unix.Errors;
+import io.netty.channel.unix.IovArray;
+import io.netty.channel.unix.Limits;
+import io.netty.util.internal.StringUtil;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.net.SocketAddress;
+import java.net.SocketException;
+import java.nio.channels.NotYetConnectedException;
+
+/**
+ * {@link DatagramChannel} implementation that uses {@code io_uring} to send and receive datagrams. Multicast is not
+ * supported.
+ */
+public final class IOUringDatagramChannel extends AbstractIOUringChannel implements DatagramChannel {
+    private static final ChannelMetadata METADATA = new ChannelMetadata(true);
+    private static final String EXPECTED_TYPES =
+            " (expected: " + StringUtil.simpleClassName(DatagramPacket.class) + ", " +
+            StringUtil.simpleClassName(AddressedEnvelope.class) + '<' +
+            StringUtil.simpleClassName(ByteBuf.class) + ", " +
+            StringUtil.simpleClassName(InetSocketAddress.class) + ">, " +
+            StringUtil.simpleClassName(ByteBuf.class) + ')';
+
+    private volatile InetSocketAddress local;
+    private volatile InetSocketAddress remote;
+    private volatile boolean connected;
+    private final IOUringDatagramChannelConfig config;
+
+    // The memory of the recvmsg and the sendmsg in flight, allocated once needed.
+    private MsgHdrMemory recvMsgHdr;
+    private MsgHdrMemory sendMsgHdr;
+    // The array of the sendmsg in flight, if the data is not backed by a single memory address.
+    private IovArray sendArray;
+    // The buffer of the recvmsg in flight.
+    private ByteBuf readBuffer;
+    // Will hold the address of the sender after recvmsg(...) was successful.
+    private final byte[] senderAddress = new byte[24];
+
+    public IOUringDatagramChannel() {
+        super(null, Native.newBlockingSocketDgram(), false);
+        config = new IOUringDatagramChannelConfig(this);
+    }
+
+    @Override
+    public InetSocketAddress remoteAddress() {
+        return (InetSocketAddress) super.remoteAddress();
+    }
+
+    @Override
+    public InetSocketAddress localAddress() {
+        return (InetSocketAddress) super.localAddress();
+    }
+
+    @Override
+    public ChannelMetadata metadata() {
+        return METADATA;
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public boolean isActive() {
+        return isOpen() &&
+                (config.getOption(ChannelOption.DATAGRAM_CHANNEL_ACTIVE_ON_REGISTRATION) && isRegistered()
+                        || active);
+    }
+
+    @Override
+    public boolean isConnected() {
+        return connected;
+    }
+
+    @Override
+    public ChannelFuture joinGroup(InetAddress multicastAddress) {
+        return joinGroup(multicastAddress, newPromise());
+    }
+
+    @Override
+    public ChannelFuture joinGroup(InetAddress multicastAddress, ChannelPromise promise) {
+        try {
+            return joinGroup(
+                    multicastAddress,
+                    NetworkInterface.getByInetAddress(localAddress().getAddress()),
+                    null, promise);
+        } catch (SocketException e) {
+            promise.setFailure(e);
+        }
+        return promise;
+    }
+
+    @Override
+    public ChannelFuture joinGroup(
+            InetSocketAddress multicastAddress, NetworkInterface networkInterface) {
+        return joinGroup(multicastAddress, networkInterface, newPromise());
+    }
+
+    @Override
+    public ChannelFuture joinGroup(
+            InetSocketAddress multicastAddress, NetworkInterface networkInterface,
+            ChannelPromise promise) {
+        return joinGroup(multicastAddress.getAddress(), networkInterface, null, promise);
+    }
+
+    @Override
+    public ChannelFuture joinGroup(
+            InetAddress multicastAddress, NetworkInterface networkInterface, InetAddress source) {
+        return joinGroup(multicastAddress, networkInterface, source, newPromise());
+    }
+
+    @Override
+    public ChannelFuture joinGroup(
+            final InetAddress multicastAddress, final NetworkInterface networkInterface,
+            final InetAddress source, final ChannelPromise promise) {
+
+        if (multicastAddress == null) {
+            throw new NullPointerException("multicastAddress");
+        }
+
+        if (networkInterface == null) {
+            throw new NullPointerException("networkInterface");
+        }
+
+        promise.setFailure(new UnsupportedOperationException("Multicast not supported"));
+        return promise;
+    }
+
+    @Override
+    public ChannelFuture leaveGroup(InetAddress multicastAddress) {
+        return leaveGroup(multicastAddress, newPromise());
+    }
+
+    @Override
+    public ChannelFuture leaveGroup(InetAddress multicastAddress, ChannelPromise promise) {
+        try {
+            return leaveGroup(
+                    multicastAddress, NetworkInterface.getByInetAddress(localAddress().getAddress()), null, promise);
+        } catch (SocketException e) {
+            promise.setFailure(e);
+        }
+        return promise;
+    }
+
+    @Override
+    public ChannelFuture leaveGroup(
+            InetSocketAddress multicastAddress, NetworkInterface networkInterface) {
+        return leaveGroup(multicastAddress, networkInterface, newPromise());
+    }
+
+    @Override
+    public ChannelFuture leaveGroup(
+            InetSocketAddress multicastAddress,
+            NetworkInterface networkInterface, ChannelPromise promise) {
+        return leaveGroup(multicastAddress.getAddress(), networkInterface, null, promise);
+    }
+
+    @Override
+    public ChannelFuture leaveGroup(
+            InetAddress multicastAddress, NetworkInterface networkInterface, InetAddress source) {
+        return leaveGroup(multicastAddress, networkInterface, source, newPromise());
+    }
+
+    @Override
+    public ChannelFuture leaveGroup(
+            final InetAddress multicastAddress, final NetworkInterface networkInterface, final InetAddress source,
+            final ChannelPromise promise) {
+        if (multicastAddress == null) {
+            throw new NullPointerException("multicastAddress");
+        }
+        if (networkInterface == null) {
+            throw new NullPointerException("networkInterface");
+        }
+
+        promise.setFailure(new UnsupportedOperationException("Multicast not supported"));
+
+        return promise;
+    }
+
+    @Override
+    public ChannelFuture block(
+            InetAddress multicastAddress, NetworkInterface networkInterface,
+            InetAddress sourceToBlock) {
+        return block(multicastAddress, networkInterface, sourceToBlock, newPromise());
+    }
+
+    @Override
+    public ChannelFuture block(
+            final InetAddress multicastAddress, final NetworkInterface networkInterface,
+            final InetAddress sourceToBlock, final ChannelPromise promise) {
+        if (multicastAddress == null) {
+            throw new NullPointerException("multicastAddress");
+        }
+        if (sourceToBlock == null) {
+            throw new NullPointerException("sourceToBlock");
+        }
+
+        if (networkInterface == null) {
+            throw new NullPointerException("networkInterface");
+        }
+        promise.setFailure(new UnsupportedOperationException("Multicast not supported"));
+        return promise;
+    }
+
+    @Override
+    public ChannelFuture block(InetAddress multicastAddress, InetAddress sourceToBlock) {
+        return block(multicastAddress, sourceToBlock, newPromise());
+    }
+
+    @Override
+    public ChannelFuture block(
+            InetAddress multicastAddress, InetAddress sourceToBlock, ChannelPromise promise) {
+        try {
+            return block(
+                    multicastAddress,
+                    NetworkInterface.getByInetAddress(localAddress().getAddress()),
+                    sourceToBlock, promise);
+        } catch (Throwable e) {
+            promise.setFailure(e);
+        }
+        return promise;
+    }
+
+    @Override
+    protected AbstractIOUringUnsafe newUnsafe() {
+        return new IOUringDatagramChannelUnsafe();
+    }
+
+    @Override
+    protected InetSocketAddress localAddress0() {
+        return local;
+    }
+
+    @Override
+    protected InetSocketAddress remoteAddress0() {
+        return remote;
+    }
+
+    @Override
+    protected void doBind(SocketAddress localAddress) throws Exception {
+        InetSocketAddress addr = (InetSocketAddress) localAddress;
+        checkResolvable(addr);
+        fd().bind(addr);
+        local = fd().localAddress();
+        active = true;
+    }
+
+    @Override
+    protected void doWrite(ChannelOutboundBuffer in) throws Exception {
+        if (isPending(Native.IORING_OP_SENDMSG)) {
+            return;
+        }
+        for (;;) {
+            Object msg = in.current();
+            if (msg == null) {
+                // Wrote all messages.
+                break;
+            }
+
+            try {
+                if (doWriteMessage(msg)) {
+                    // The message is removed once the sendmsg completed.
+                    break;
+                }
+                in.remove();
+            } catch (IOException e) {
+                // Continue on write error as a DatagramChannel can write to multiple remote peers
+                //
+                // See https://github.com/netty/netty/issues/2665
+                in.remove(e);
+            }
+        }
+    }
+
+    /**
+     * Adds a {@code sendmsg(...)} of the given message and returns {@code true}, or returns {@code false} if there
+     * is nothing to send.
+     */
+    private boolean doWriteMessage(Object msg) throws Exception {
+        final ByteBuf data;
+        InetSocketAddress remoteAddress;
+        if (msg instanceof AddressedEnvelope) {
+            @SuppressWarnings("unchecked")
+            AddressedEnvelope<ByteBuf, InetSocketAddress> envelope =
+                    (AddressedEnvelope<ByteBuf, InetSocketAddress>) msg;
+            data = envelope.content();
+            remoteAddress = envelope.recipient();
+        } else {
+            data = (ByteBuf) msg;
+            remoteAddress = null;
+        }
+
+        final int dataLen = data.readableBytes();
+        if (dataLen == 0) {
+            return false;
+        }
+
+        if (remoteAddress == null) {
+            remoteAddress = remote;
+            if (remoteAddress == null) {
+                throw new NotYetConnectedException();
+            }
+        }
+
+        if (sendMsgHdr == null) {
+            sendMsgHdr = new MsgHdrMemory();
+        }
+        if (data.hasMemoryAddress()) {
+            sendMsgHdr.prepareSend(fd(), data.memoryAddress() + data.readerIndex(), dataLen, remoteAddress);
+        } else {
+            IOUringEventLoop loop = (IOUringEventLoop) eventLoop();
+            IovArray array = loop.acquireArray();
+            array.add((CompositeByteBuf) data);
+            int cnt = array.count();
+            assert cnt != 0;
+            sendMsgHdr.prepareSendIov(fd(), array.memoryAddress(0), cnt, remoteAddress);
+            try {
+                submit(Native.IORING_OP_SENDMSG, sendMsgHdr.address(), 1, 0, 0);
+            } catch (IOException e) {
+                loop.releaseArray(array);
+                throw e;
+            }
+            sendArray = array;
+            return true;
+        }
+        submit(Native.IORING_OP_SENDMSG, sendMsgHdr.address(), 1, 0, 0);
+        return true;
+    }
+
+    @Override
+    protected Object filterOutboundMessage(Object msg) {
+        if (msg instanceof DatagramPacket) {
+            DatagramPacket packet = (DatagramPacket) msg;
+            ByteBuf content = packet.content();
+            if (content.hasMemoryAddress()) {
+                return msg;
+            }
+
+            if (content.isDirect() && content instanceof CompositeByteBuf) {
+                // Special handling of CompositeByteBuf to reduce memory copies if some of the Components
+                // in the CompositeByteBuf are backed by a memoryAddress.
+                CompositeByteBuf comp = (CompositeByteBuf) content;
+                if (comp.isDirect() && comp.nioBufferCount() <= Limits.IOV_MAX) {
+                    return msg;
+                }
+            }
+            // We can only handle direct buffers so we need to copy if a non direct is
+            // passed to write.
+            return new DatagramPacket(newDirectBuffer(packet, content), packet.recipient());
+        }
+
+        if (msg instanceof ByteBuf) {
+            ByteBuf buf = (ByteBuf) msg;
+            if (!buf.hasMemoryAddress()) {
+                if (buf instanceof CompositeByteBuf) {
+                    // Special handling of CompositeByteBuf to reduce memory copies if some of the Components
+                    // in the CompositeByteBuf are backed by a memoryAddress.
+                    CompositeByteBuf comp = (CompositeByteBuf) buf;
+                    if (!comp.isDirect() || comp.nioBufferCount() > Limits.IOV_MAX) {
+                        // more then 1024 buffers for gathering writes so just do a memory copy.
+                        buf = newDirectBuffer(buf);
+                        assert buf.hasMemoryAddress();
+                    }
+                } else {
+                    // We can only handle buffers with memory address so we need to copy if a non direct is
+                    // passed to write.
+                    buf = newDirectBuffer(buf);
+                    assert buf.hasMemoryAddress();
+                }
+            }
+            return buf;
+        }
+
+        if (msg instanceof AddressedEnvelope) {
+            @SuppressWarnings("unchecked")
+            AddressedEnvelope<Object, SocketAddress> e = (AddressedEnvelope<Object, SocketAddress>) msg;
+            if (e.content() instanceof ByteBuf &&
+                (e.recipient() == null || e.recipient() instanceof InetSocketAddress)) {
+
+                ByteBuf content = (ByteBuf) e.content();
+                if (content.hasMemoryAddress()) {
+                    return e;
+                }
+                if (content instanceof CompositeByteBuf) {
+                    // Special handling of CompositeByteBuf to reduce memory copies if some of the Components
+                    // in the CompositeByteBuf are backed by a memoryAddress.
+                    CompositeByteBuf comp = (CompositeByteBuf) content;
+                    if (comp.isDirect() && comp.nioBufferCount() <= Limits.IOV_MAX) {
+                        return e;
+                    }
+                }
+                // We can only handle direct buffers so we need to copy if a non direct is
+                // passed to write.
+                return new DefaultAddressedEnvelope<ByteBuf, InetSocketAddress>(
+                        newDirectBuffer(e, content), (InetSocketAddress) e.recipient());
+            }
+        }
+
+        throw new UnsupportedOperationException(
+                "unsupported message type: " + StringUtil.simpleClassName(msg) + EXPECTED_TYPES);
+    }
+
+    @Override
+    public IOUringDatagramChannelConfig config() {
+        return config;
+    }
+
+    @Override
+    protected void doDisconnect() throws Exception {
+        connected = false;
+    }
+
+    @Override
+    protected void doClose() throws Exception {
+        try {
+            super.doClose();
+        } finally {
+            if (!isPending(Native.IORING_OP_RECVMSG)) {
+                releaseRecvMsgHdr();
+            }
+            if (!isPending(Native.IORING_OP_SENDMSG)) {
+                releaseSendMsgHdr();
+            }
+        }
+    }
+
+    private void releaseRecvMsgHdr() {
+        if (recvMsgHdr != null) {
+            recvMsgHdr.release();
+            recvMsgHdr = null;
+        }
+    }
+
+    private void releaseSendMsgHdr() {
+        if (sendMsgHdr != null) {
+            sendMsgHdr.release();
+            sendMsgHdr = null;
+        }
+    }
+
+    final class IOUringDatagramChannelUnsafe extends AbstractIOUringUnsafe {
+
+        @Override
+        public void connect(SocketAddress remote, SocketAddress local, ChannelPromise channelPromise) {
+            boolean success = false;
+            try {
+                try {
+                    boolean wasActive = isActive();
+                    InetSocketAddress remoteAddress = (InetSocketAddress) remote;
+                    if (local != null) {
+                        InetSocketAddress localAddress = (InetSocketAddress) local;
+                        doBind(localAddress);
+                    }
+
+                    checkResolvable(remoteAddress);
+                    IOUringDatagramChannel.this.remote = remoteAddress;
+                    IOUringDatagramChannel.this.local = fd().localAddress();
+                    success = true;
+
+                    // First notify the promise before notifying the handler.
+                    channelPromise.trySuccess();
+
+                    // Regardless if the connection attempt was cancelled, channelActive() event should be triggered,
+                    // because what happened is what happened.
+                    if (!wasActive && isActive()) {
+                        pipeline().fireChannelActive();
+                    }
+                } finally {
+                    if (!success) {
+                        doClose();
+                    } else {
+                        connected = true;
+                    }
+                }
+            } catch (Throwable cause) {
+                channelPromise.tryFailure(cause);
+            }
+        }
+
+        @Override
+        void scheduleRead() {
+            if (isPending(Native.IORING_OP_RECVMSG) || !isActive() || fd().isInputShutdown()) {
+                return;
+            }
+            RecvByteBufAllocator.Handle allocHandle = recvBufAllocHandle();
+            allocHandle.reset(config());
+            ByteBuf data = allocHandle.allocate(config().getAllocator());
+            if (!data.hasMemoryAddress()) {
+                // The kernel receives into the memory directly.
+                ByteBuf direct = config().getAllocator().directBuffer(data.writableBytes());
+                data.release();
+                data = direct;
+            }
+            int writable = data.writableBytes();
+            allocHandle.attemptedBytesRead(writable);
+            if (recvMsgHdr == null) {
+                recvMsgHdr = new MsgHdrMemory();
+            }
+            recvMsgHdr.prepareRecv(data.memoryAddress() + data.writerIndex(), writable);
+            try {
+                submit(Native.IORING_OP_RECVMSG, recvMsgHdr.address(), 1, 0, 0);
+                readBuffer = data;
+            } catch (IOException e) {
+                data.release();
+                pipeline().fireExceptionCaught(e);
+                close(voidPromise());
+            }
+        }
+
+        @Override
+        void completed(byte op, int res) {
+            switch (op) {
+                case Native.IORING_OP_RECVMSG:
+                    recvCompleted(res);
+                    break;
+                case Native.IORING_OP_SENDMSG:
+                    sendCompleted(res);
+                    break;
+                default:
+                    throw new Error();
+            }
+        }
+
+        @Override
+        void cancelled(byte op, int res) {
+            if (op == Native.IORING_OP_RECVMSG) {
+                ByteBuf data = readBuffer;
+                readBuffer = null;
+                data.release();
+                if (!isOpen()) {
+                    releaseRecvMsgHdr();
+                }
+            } else if (op == Native.IORING_OP_SENDMSG) {
+                releaseSendArray();
+                if (!isOpen()) {
+                    releaseSendMsgHdr();
+                }
+            }
+        }
+
+        private void recvCompleted(int res) {
+            ByteBuf data = readBuffer;
+            readBuffer = null;
+            final RecvByteBufAllocator.Handle allocHandle = recvBufAllocHandle();
+            final ChannelPipeline pipeline = pipeline();
+
+            Throwable exception = null;
+            if (res >= 0) {
+                allocHandle.incMessagesRead(1);
+                allocHandle.lastBytesRead(res);
+                data.writerIndex(data.writerIndex() + res);
+                readPending = false;
+                pipeline.fireChannelRead(new DatagramPacket(data, (InetSocketAddress) localAddress(),
+                        recvMsgHdr.sender(senderAddress)));
+            } else {
+                data.release();
+                exception = Errors.newIOException("recvmsg", res);
+            }
+            allocHandle.readComplete();
+            pipeline.fireChannelReadComplete();
+
+            if (exception != null) {
+                pipeline.fireExceptionCaught(exception);
+            }
+        }
+
+        private void releaseSendArray() {
+            if (sendArray != null) {
+                ((IOUringEventLoop) eventLoop()).releaseArray(sendArray);
+                sendArray = null;
+            }
+        }
+
+        private void sendCompleted(int res) {
+            releaseSendArray();
+            ChannelOutboundBuffer in = outboundBuffer();
+            if (res >= 0) {
+                in.remove();
+            } else {
+                // Continue on write error as a DatagramChannel can write to multiple remote peers
+                //
+                // See https://github.com/netty/netty/issues/2665
+                in.remove(Errors.newIOException("sendmsg", res));
+            }
+            forceFlush();
+        }
+
+        @Override
+        boolean isWritePending() {
+            return isPending(Native.IORING_OP_SENDMSG);
+        }
+    }
+}
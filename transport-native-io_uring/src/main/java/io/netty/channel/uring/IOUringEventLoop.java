@@ -0,0 +1,363 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SingleThreadEventLoop;
+import io.netty.channel.unix.FileDescriptor;
+import io.netty.channel.unix.IovArray;
+import io.netty.channel.uring.CompletionQueue.CompletionCallback;
+import io.netty.util.collection.IntObjectHashMap;
+import io.netty.util.collection.IntObjectMap;
+import io.netty.util.concurrent.RejectedExecutionHandler;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.SystemPropertyUtil;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * {@link EventLoop} which uses {@code io_uring} under the covers. Only works on Linux!
+ * <p>
+ * All operations the {@link AbstractIOUringChannel}s of this {@link EventLoop} add during an iteration are submitted
+ * to the kernel together, with a single {@code io_uring_enter(...)} call which also waits for the next completions.
+ */
+final class IOUringEventLoop extends SingleThreadEventLoop implements CompletionCallback {
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(IOUringEventLoop.class);
+    private static final AtomicIntegerFieldUpdater<IOUringEventLoop> WAKEN_UP_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(IOUringEventLoop.class, "wakenUp");
+
+    private static final int RING_SIZE;
+    // The id of the read of the eventfd, channels are numbered starting at 1.
+    private static final int EVENTFD_ID = 0;
+    private static final long CLEANUP_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    static {
+        RING_SIZE = Math.max(64, SystemPropertyUtil.getInt("io.netty.iouring.ringSize", 4096));
+        if (logger.isDebugEnabled()) {
+            logger.debug("-Dio.netty.iouring.ringSize: {}", RING_SIZE);
+        }
+    }
+
+    private final RingBuffer ringBuffer;
+    private final SubmissionQueue submissionQueue;
+    private final CompletionQueue completionQueue;
+    private final FileDescriptor eventFd;
+    private final long eventFdBuffer;
+    private final IntObjectMap<AbstractIOUringChannel> channels = new IntObjectHashMap<AbstractIOUringChannel>(4096);
+    // All IovArrays of this loop, and the ones which are not used by an operation in flight.
+    private final List<IovArray> iovArrays = new ArrayList<IovArray>();
+    private final ArrayDeque<IovArray> unusedIovArrays = new ArrayDeque<IovArray>();
+    private final Callable<Integer> pendingTasksCallable = new Callable<Integer>() {
+        @Override
+        public Integer call() throws Exception {
+            return IOUringEventLoop.super.pendingTasks();
+        }
+    };
+    private int nextId = EVENTFD_ID + 1;
+    private boolean eventFdReadPending;
+    private volatile int wakenUp;
+    private volatile int ioRatio = 50;
+
+    IOUringEventLoop(EventLoopGroup parent, Executor executor, RejectedExecutionHandler rejectedExecutionHandler) {
+        super(parent, executor, false, DEFAULT_MAX_PENDING_TASKS, rejectedExecutionHandler);
+        boolean success = false;
+        RingBuffer ringBuffer = null;
+        FileDescriptor eventFd = null;
+        try {
+            this.ringBuffer = ringBuffer = Native.newRingBuffer(RING_SIZE);
+            this.eventFd = eventFd = Native.newBlockingEventFd();
+            success = true;
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to create the io_uring instance", e);
+        } finally {
+            if (!success) {
+                if (ringBuffer != null) {
+                    ringBuffer.close();
+                }
+                if (eventFd != null) {
+                    try {
+                        eventFd.close();
+                    } catch (Exception e) {
+                        // ignore
+                    }
+                }
+            }
+        }
+        submissionQueue = ringBuffer.submissionQueue();
+        completionQueue = ringBuffer.completionQueue();
+        eventFdBuffer = PlatformDependent.allocateMemory(8);
+    }
+
+    /**
+     * Returns the {@link SubmissionQueue} to which the channels of this {@link EventLoop} add their operations.
+     */
+    SubmissionQueue submissionQueue() {
+        return submissionQueue;
+    }
+
+    /**
+     * Return a cleared {@link IovArray} that can be used for one operation of this {@link EventLoop}. The kernel may
+     * read the array until the operation completed, so it must only be passed to {@link #releaseArray(IovArray)}
+     * once the operation completed.
+     */
+    IovArray acquireArray() {
+        IovArray array = unusedIovArrays.poll();
+        if (array == null) {
+            array = new IovArray();
+            iovArrays.add(array);
+        } else {
+            array.clear();
+        }
+        return array;
+    }
+
+    /**
+     * Returns the {@link IovArray} of a completed operation, so it can be used for the next one.
+     */
+    void releaseArray(IovArray array) {
+        unusedIovArrays.push(array);
+    }
+
+    @Override
+    protected void wakeup(boolean inEventLoop) {
+        if (!inEventLoop && WAKEN_UP_UPDATER.compareAndSet(this, 0, 1)) {
+            // write to the evfd which will then complete the read of it and so wake-up io_uring_enter(...)
+            Native.eventFdWrite(eventFd.intValue(), 1L);
+            recordWakeup();
+        }
+    }
+
+    /**
+     * Register the given channel with this {@link EventLoop} and return its id, which is part of the user data of
+     * all its operations.
+     */
+    int add(AbstractIOUringChannel ch) {
+        assert inEventLoop();
+        int id = nextId;
+        while (id == EVENTFD_ID || channels.containsKey(id)) {
+            id++;
+        }
+        nextId = id + 1;
+        channels.put(id, ch);
+        return id;
+    }
+
+    /**
+     * Deregister the channel with the given id from this {@link EventLoop}, once it has no operations in flight.
+     */
+    void remove(int id) {
+        assert inEventLoop();
+        channels.remove(id);
+    }
+
+    @Override
+    protected Queue<Runnable> newTaskQueue(int maxPendingTasks) {
+        // This event loop never calls takeTask()
+        return PlatformDependent.newMpscQueue(maxPendingTasks);
+    }
+
+    @Override
+    public int pendingTasks() {
+        // As we use a MpscQueue we need to ensure pendingTasks() is only executed from within the EventLoop as
+        // otherwise we may see unexpected behavior (as size() is only allowed to be called by a single consumer).
+        // See https://github.com/netty/netty/issues/5297
+        if (inEventLoop()) {
+            return super.pendingTasks();
+        } else {
+            return submit(pendingTasksCallable).syncUninterruptibly().getNow();
+        }
+    }
+
+    @Override
+    public int registeredChannels() {
+        return channels.size();
+    }
+
+    /**
+     * Returns the percentage of the desired amount of time spent for I/O in the event loop.
+     */
+    public int getIoRatio() {
+        return ioRatio;
+    }
+
+    /**
+     * Sets the percentage of the desired amount of time spent for I/O in the event loop.  The default value is
+     * {@code 50}, which means the event loop will try to spend the same amount of time for I/O as for non-I/O tasks.
+     */
+    public void setIoRatio(int ioRatio) {
+        if (ioRatio <= 0 || ioRatio > 100) {
+            throw new IllegalArgumentException("ioRatio: " + ioRatio + " (expected: 0 < ioRatio <= 100)");
+        }
+        this.ioRatio = ioRatio;
+    }
+
+    private void submitAndWait() throws IOException {
+        if (!eventFdReadPending) {
+            // Keep a read of the eventfd in flight, so a wakeup(...) completes it and so ends the waiting.
+            submissionQueue.add(Native.IORING_OP_READ, eventFd.intValue(), eventFdBuffer, 8, 0, 0,
+                    AbstractIOUringChannel.userData(EVENTFD_ID, Native.IORING_OP_READ));
+            eventFdReadPending = true;
+        }
+
+        // Once wakenUp was reset every wakeup(...) writes to the eventfd, so tasks added after the check below are
+        // never missed.
+        wakenUp = 0;
+        if (hasTasks() || completionQueue.hasCompletions()) {
+            submissionQueue.submit();
+        } else {
+            long timeoutNanos = delayNanos(System.nanoTime());
+            submissionQueue.submitAndWait(timeoutNanos);
+        }
+    }
+
+    @Override
+    protected void run() {
+        for (;;) {
+            try {
+                submitAndWait();
+
+                final int ioRatio = this.ioRatio;
+                if (ioRatio == 100 && !isMetricCollected()) {
+                    try {
+                        completionQueue.process(this);
+                    } finally {
+                        // Ensure we always run tasks.
+                        runAllTasks();
+                    }
+                } else {
+                    final long ioStartTime = System.nanoTime();
+                    int completions = 0;
+
+                    try {
+                        completions = completionQueue.process(this);
+                    } finally {
+                        // Ensure we always run tasks.
+                        final long ioTime = System.nanoTime() - ioStartTime;
+                        recordIo(completions, ioTime);
+                        if (ioRatio == 100) {
+                            runAllTasks();
+                        } else {
+                            runAllTasks(ioTime * (100 - ioRatio) / ioRatio);
+                        }
+                    }
+                }
+            } catch (Throwable t) {
+                handleLoopException(t);
+            }
+            // Always handle shutdown even if the loop processing threw an exception.
+            try {
+                if (isShuttingDown()) {
+                    closeAll();
+                    if (confirmShutdown()) {
+                        break;
+                    }
+                }
+            } catch (Throwable t) {
+                handleLoopException(t);
+            }
+        }
+    }
+
+    @Override
+    public void handle(long userData, int res) {
+        int id = AbstractIOUringChannel.id(userData);
+        byte op = AbstractIOUringChannel.op(userData);
+        if (op == Native.IORING_OP_ASYNC_CANCEL) {
+            // Nothing to do, the cancelled operation completes on its own.
+            return;
+        }
+        if (id == EVENTFD_ID) {
+            // consume wakeup event
+            eventFdReadPending = false;
+            return;
+        }
+        AbstractIOUringChannel ch = channels.get(id);
+        if (ch != null) {
+            ch.completed(op, res);
+        }
+    }
+
+    private static void handleLoopException(Throwable t) {
+        logger.warn("Unexpected exception in the io_uring loop.", t);
+
+        // Prevent possible consecutive immediate failures that lead to
+        // excessive CPU consumption.
+        try {
+            Thread.sleep(1000);
+        } catch (InterruptedException e) {
+            // Ignore.
+        }
+    }
+
+    private void closeAll() {
+        Collection<AbstractIOUringChannel> array = new ArrayList<AbstractIOUringChannel>(channels.size());
+
+        for (AbstractIOUringChannel channel: channels.values()) {
+            array.add(channel);
+        }
+
+        for (AbstractIOUringChannel ch: array) {
+            ch.unsafe().close(ch.unsafe().voidPromise());
+        }
+    }
+
+    @Override
+    protected void cleanup() {
+        try {
+            // The closed channels close their file descriptors once their cancelled operations completed.
+            long deadline = System.nanoTime() + CLEANUP_TIMEOUT_NANOS;
+            while (!channels.isEmpty()) {
+                long timeoutNanos = deadline - System.nanoTime();
+                if (timeoutNanos <= 0) {
+                    break;
+                }
+                submissionQueue.submitAndWait(timeoutNanos);
+                completionQueue.process(this);
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to wait for the cancelled operations.", e);
+        } finally {
+            try {
+                // Closing the io_uring instance also cancels all operations which are still in flight.
+                ringBuffer.close();
+                channels.clear();
+                try {
+                    eventFd.close();
+                } catch (IOException e) {
+                    logger.warn("Failed to close the event fd.", e);
+                }
+            } finally {
+                // release native memory
+                for (IovArray array: iovArrays) {
+                    array.release();
+                }
+                PlatformDependent.freeMemory(eventFdBuffer);
+            }
+        }
+    }
+}
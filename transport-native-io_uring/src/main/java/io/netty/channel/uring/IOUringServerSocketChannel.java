@@ -0,0 +1,190 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelMetadata;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.RecvByteBufAllocator;
+import io.netty.channel.socket.ServerSocketChannel;
+import io.netty.channel.unix.Errors;
+import io.netty.channel.unix.Socket;
+import io.netty.util.internal.PlatformDependent;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+
+/**
+ * {@link ServerSocketChannel} implementation that uses {@code io_uring} to accept connections, which are served by
+ * {@link IOUringSocketChannel}s.
+ */
+public final class IOUringServerSocketChannel extends AbstractIOUringChannel implements ServerSocketChannel {
+    private static final ChannelMetadata METADATA = new ChannelMetadata(false, 16);
+
+    private final IOUringServerSocketChannelConfig config;
+    private volatile InetSocketAddress local;
+
+    // The struct sockaddr_storage followed by its length, which are filled in by the accept in flight.
+    private long acceptAddressMemory;
+    // Will hold the remote address after accept(...) was successful.
+    private final byte[] acceptedAddress = new byte[24];
+
+    public IOUringServerSocketChannel() {
+        super(null, Native.newBlockingSocketStream(), false);
+        config = new IOUringServerSocketChannelConfig(this);
+    }
+
+    @Override
+    public InetSocketAddress remoteAddress() {
+        return (InetSocketAddress) super.remoteAddress();
+    }
+
+    @Override
+    public InetSocketAddress localAddress() {
+        return (InetSocketAddress) super.localAddress();
+    }
+
+    @Override
+    public ChannelMetadata metadata() {
+        return METADATA;
+    }
+
+    @Override
+    public IOUringServerSocketChannelConfig config() {
+        return config;
+    }
+
+    @Override
+    protected SocketAddress localAddress0() {
+        return local;
+    }
+
+    @Override
+    protected InetSocketAddress remoteAddress0() {
+        return null;
+    }
+
+    @Override
+    protected void doBind(SocketAddress localAddress) throws Exception {
+        fd().bind(localAddress);
+        fd().listen(config.getBacklog());
+        local = fd().localAddress();
+        active = true;
+    }
+
+    @Override
+    protected void doClose() throws Exception {
+        try {
+            super.doClose();
+        } finally {
+            if (!isPending(Native.IORING_OP_ACCEPT)) {
+                freeAcceptAddress();
+            }
+        }
+    }
+
+    private void freeAcceptAddress() {
+        if (acceptAddressMemory != 0) {
+            PlatformDependent.freeMemory(acceptAddressMemory);
+            acceptAddressMemory = 0;
+        }
+    }
+
+    @Override
+    protected void doWrite(ChannelOutboundBuffer in) throws Exception {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    protected Object filterOutboundMessage(Object msg) throws Exception {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    protected AbstractIOUringUnsafe newUnsafe() {
+        return new IOUringServerSocketUnsafe();
+    }
+
+    private final class IOUringServerSocketUnsafe extends AbstractIOUringUnsafe {
+        @Override
+        public void connect(SocketAddress socketAddress, SocketAddress socketAddress2, ChannelPromise channelPromise) {
+            // Connect not supported by ServerChannel implementations
+            channelPromise.setFailure(new UnsupportedOperationException());
+        }
+
+        @Override
+        void scheduleRead() {
+            if (isPending(Native.IORING_OP_ACCEPT) || !isActive()) {
+                return;
+            }
+            if (acceptAddressMemory == 0) {
+                acceptAddressMemory = PlatformDependent.allocateMemory(Native.SIZEOF_SOCKADDR_STORAGE + 4);
+            }
+            long addressLengthAddress = acceptAddressMemory + Native.SIZEOF_SOCKADDR_STORAGE;
+            PlatformDependent.putInt(addressLengthAddress, Native.SIZEOF_SOCKADDR_STORAGE);
+            try {
+                // The accepted sockets are blocking, as io_uring waits for them without blocking the thread.
+                submit(Native.IORING_OP_ACCEPT, acceptAddressMemory, 0, addressLengthAddress, Native.SOCK_CLOEXEC);
+            } catch (IOException e) {
+                pipeline().fireExceptionCaught(e);
+                close(voidPromise());
+            }
+        }
+
+        @Override
+        void completed(byte op, int res) {
+            assert op == Native.IORING_OP_ACCEPT;
+            final RecvByteBufAllocator.Handle allocHandle = recvBufAllocHandle();
+            final ChannelPipeline pipeline = pipeline();
+            allocHandle.reset(config());
+
+            Throwable exception = null;
+            if (res >= 0) {
+                allocHandle.incMessagesRead(1);
+                readPending = false;
+                InetSocketAddress remote = Native.readSockaddr(acceptAddressMemory, acceptedAddress);
+                pipeline.fireChannelRead(new IOUringSocketChannel(IOUringServerSocketChannel.this, new Socket(res),
+                        remote));
+            } else {
+                exception = Errors.newIOException("accept", res);
+            }
+            allocHandle.readComplete();
+            pipeline.fireChannelReadComplete();
+
+            if (exception != null) {
+                pipeline.fireExceptionCaught(exception);
+            }
+        }
+
+        @Override
+        void cancelled(byte op, int res) {
+            if (res >= 0) {
+                // The connection was accepted before the accept was cancelled.
+                try {
+                    new Socket(res).close();
+                } catch (IOException ignore) {
+                    // ignore
+                }
+            }
+            if (!isOpen()) {
+                freeAcceptAddress();
+            }
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.channel.Channel;
+import io.netty.channel.socket.ServerSocketChannel;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.unix.Socket;
+import io.netty.util.concurrent.GlobalEventExecutor;
+import io.netty.util.internal.PlatformDependent;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnknownHostException;
+import java.nio.channels.AlreadyConnectedException;
+import java.util.concurrent.Executor;
+
+/**
+ * {@link SocketChannel} implementation that uses {@code io_uring} for all reads, writes and connects.
+ */
+public final class IOUringSocketChannel extends AbstractIOUringStreamChannel implements SocketChannel {
+
+    private final IOUringSocketChannelConfig config;
+
+    private volatile InetSocketAddress local;
+    private volatile InetSocketAddress remote;
+    private InetSocketAddress requestedRemote;
+
+    IOUringSocketChannel(Channel parent, Socket fd, InetSocketAddress remote) {
+        super(parent, fd, true);
+        config = new IOUringSocketChannelConfig(this);
+        // Directly cache the remote and local addresses
+        // See https://github.com/netty/netty/issues/2359
+        this.remote = remote;
+        local = fd.localAddress();
+    }
+
+    public IOUringSocketChannel() {
+        super(null, Native.newBlockingSocketStream(), false);
+        config = new IOUringSocketChannelConfig(this);
+    }
+
+    @Override
+    public InetSocketAddress remoteAddress() {
+        return (InetSocketAddress) super.remoteAddress();
+    }
+
+    @Override
+    public InetSocketAddress localAddress() {
+        return (InetSocketAddress) super.localAddress();
+    }
+
+    @Override
+    protected SocketAddress localAddress0() {
+        return local;
+    }
+
+    @Override
+    protected SocketAddress remoteAddress0() {
+        return remote;
+    }
+
+    @Override
+    protected void doBind(SocketAddress local) throws Exception {
+        InetSocketAddress localAddress = (InetSocketAddress) local;
+        fd().bind(localAddress);
+        this.local = fd().localAddress();
+    }
+
+    @Override
+    public IOUringSocketChannelConfig config() {
+        return config;
+    }
+
+    @Override
+    public ServerSocketChannel parent() {
+        return (ServerSocketChannel) super.parent();
+    }
+
+    @Override
+    protected AbstractIOUringUnsafe newUnsafe() {
+        return new IOUringSocketChannelUnsafe();
+    }
+
+    private static InetSocketAddress computeRemoteAddr(InetSocketAddress remoteAddr, InetSocketAddress osRemoteAddr) {
+        if (osRemoteAddr != null) {
+            if (PlatformDependent.javaVersion() >= 7) {
+                try {
+                    // Only try to construct a new InetSocketAddress if we using java >= 7 as getHostString() does not
+                    // exists in earlier releases and so the retrieval of the hostname could block the EventLoop if a
+                    // reverse lookup would be needed.
+                    return new InetSocketAddress(InetAddress.getByAddress(remoteAddr.getHostString(),
+                            osRemoteAddr.getAddress().getAddress()),
+                            osRemoteAddr.getPort());
+                } catch (UnknownHostException ignore) {
+                    // Should never happen but fallback to osRemoteAddr anyway.
+                }
+            }
+            return osRemoteAddr;
+        }
+        return remoteAddr;
+    }
+
+    @Override
+    protected void doConnect(SocketAddress remoteAddress, SocketAddress localAddress) throws Exception {
+        if (localAddress != null) {
+            checkResolvable((InetSocketAddress) localAddress);
+        }
+        InetSocketAddress remoteAddr = (InetSocketAddress) remoteAddress;
+        checkResolvable(remoteAddr);
+
+        if (remote != null) {
+            throw new AlreadyConnectedException();
+        }
+
+        super.doConnect(remoteAddress, localAddress);
+        // Store for later usage in connected()
+        requestedRemote = remoteAddr;
+        // We always need to set the localAddress even if not connected yet as the bind already took place.
+        //
+        // See https://github.com/netty/netty/issues/3463
+        local = fd().localAddress();
+    }
+
+    private final class IOUringSocketChannelUnsafe extends IOUringStreamUnsafe {
+        @Override
+        protected Executor prepareToClose() {
+            try {
+                // Check isOpen() first as otherwise it will throw a RuntimeException
+                // when call getSoLinger() as the fd is not valid anymore.
+                if (isOpen() && config().getSoLinger() > 0) {
+                    // The close may block until the data was sent because of SO_LINGER, so it must not happen on the
+                    // event loop. Cancel the operations in flight and deregister here, as this must happen on the
+                    // event loop, and close the file descriptor on the returned executor. The channel is inactive
+                    // from now on, so no new operations are added in the meantime.
+                    // See https://github.com/netty/netty/issues/4449
+                    active = false;
+                    doDeregister();
+                    return GlobalEventExecutor.INSTANCE;
+                }
+            } catch (Throwable ignore) {
+                // Ignore the error as the underlying channel may be closed in the meantime and so
+                // getSoLinger() may produce an exception. In this case we just return null.
+                // See https://github.com/netty/netty/issues/4449
+            }
+            return null;
+        }
+
+        @Override
+        void connected() {
+            remote = computeRemoteAddr(requestedRemote, fd().remoteAddress());
+            requestedRemote = null;
+            // The connect bound the socket to a local address, unless it was bound before.
+            local = fd().localAddress();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.channel.unix.Socket;
+import io.netty.util.internal.PlatformDependent;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+
+/**
+ * The native memory of a {@code struct msghdr} for {@code sendmsg(...)} and {@code recvmsg(...)} operations, followed
+ * by one {@code struct iovec} and the {@code struct sockaddr_storage} it points to. It must not be modified while the
+ * operation which uses it is in flight.
+ */
+final class MsgHdrMemory {
+    // Offsets in struct msghdr and struct iovec on 64 bit Linux, the only platform io_uring is supported on.
+    private static final int MSGHDR_SIZE = 56;
+    private static final int MSGHDR_NAME_FIELD = 0;
+    private static final int MSGHDR_NAMELEN_FIELD = 8;
+    private static final int MSGHDR_IOV_FIELD = 16;
+    private static final int MSGHDR_IOVLEN_FIELD = 24;
+    private static final int MSGHDR_CONTROL_FIELD = 32;
+    private static final int MSGHDR_CONTROLLEN_FIELD = 40;
+    private static final int MSGHDR_FLAGS_FIELD = 48;
+    private static final int IOVEC_SIZE = 16;
+    private static final int IOVEC_BASE_FIELD = 0;
+    private static final int IOVEC_LEN_FIELD = 8;
+
+    private final long memoryAddress;
+    private final long iovAddress;
+    private final long sockaddrAddress;
+
+    MsgHdrMemory() {
+        memoryAddress = PlatformDependent.allocateMemory(MSGHDR_SIZE + IOVEC_SIZE + Native.SIZEOF_SOCKADDR_STORAGE);
+        iovAddress = memoryAddress + MSGHDR_SIZE;
+        sockaddrAddress = iovAddress + IOVEC_SIZE;
+    }
+
+    /**
+     * Returns the address of the {@code struct msghdr}.
+     */
+    long address() {
+        return memoryAddress;
+    }
+
+    /**
+     * Prepares a {@code recvmsg(...)} into the given memory, which also receives the address of the sender.
+     */
+    void prepareRecv(long bufferAddress, int length) {
+        setIov(bufferAddress, length);
+        init(sockaddrAddress, Native.SIZEOF_SOCKADDR_STORAGE, iovAddress, 1);
+    }
+
+    /**
+     * Prepares a {@code sendmsg(...)} of the given memory to the given recipient.
+     */
+    void prepareSend(Socket socket, long bufferAddress, int length, InetSocketAddress recipient) throws IOException {
+        setIov(bufferAddress, length);
+        prepareSendIov(socket, iovAddress, 1, recipient);
+    }
+
+    /**
+     * Prepares a {@code sendmsg(...)} of the given {@code struct iovec}s to the given recipient.
+     */
+    void prepareSendIov(Socket socket, long iovArrayAddress, int iovCount, InetSocketAddress recipient)
+            throws IOException {
+        int addressLength = Native.writeSockaddr(socket, sockaddrAddress, recipient);
+        init(sockaddrAddress, addressLength, iovArrayAddress, iovCount);
+    }
+
+    /**
+     * Returns the sender of the datagram received by the last {@code recvmsg(...)}.
+     */
+    InetSocketAddress sender(byte[] tmp) {
+        return Native.readSockaddr(sockaddrAddress, tmp);
+    }
+
+    void release() {
+        PlatformDependent.freeMemory(memoryAddress);
+    }
+
+    private void setIov(long bufferAddress, int length) {
+        PlatformDependent.putLong(iovAddress + IOVEC_BASE_FIELD, bufferAddress);
+        PlatformDependent.putLong(iovAddress + IOVEC_LEN_FIELD, length);
+    }
+
+    private void init(long name, int nameLength, long iov, int iovLength) {
+        PlatformDependent.putLong(memoryAddress + MSGHDR_NAME_FIELD, name);
+        PlatformDependent.putInt(memoryAddress + MSGHDR_NAMELEN_FIELD, nameLength);
+        PlatformDependent.putLong(memoryAddress + MSGHDR_IOV_FIELD, iov);
+        PlatformDependent.putLong(memoryAddress + MSGHDR_IOVLEN_FIELD, iovLength);
+        PlatformDependent.putLong(memoryAddress + MSGHDR_CONTROL_FIELD, 0);
+        PlatformDependent.putLong(memoryAddress + MSGHDR_CONTROLLEN_FIELD, 0);
+        PlatformDependent.putInt(memoryAddress + MSGHDR_FLAGS_FIELD, 0);
+    }
+}
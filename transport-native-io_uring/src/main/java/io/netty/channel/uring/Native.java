@@ -0,0 +1,232 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.channel.ChannelException;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.unix.FileDescriptor;
+import io.netty.channel.unix.NativeInetAddress;
+import io.netty.channel.unix.Socket;
+import io.netty.util.internal.NativeLibraryLoader;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.SystemPropertyUtil;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Locale;
+
+import static io.netty.channel.unix.Errors.newIOException;
+
+/**
+ * Native helper methods
+ * <p><strong>Internal usage only!</strong>
+ * <p>The {@link Socket} and {@link FileDescriptor} methods are provided by the native library of
+ * {@code netty-transport-native-epoll}, this library only adds the {@code io_uring} specific methods.
+ */
+final class Native {
+    static {
+        // Load the shared unix natives first.
+        Epoll.ensureAvailability();
+        try {
+            // First, try calling a side-effect free JNI method to see if the library was already
+            // loaded by the application.
+            sizeofSockaddrStorage();
+        } catch (UnsatisfiedLinkError ignore) {
+            // The library was not previously loaded, load it now.
+            loadNativeLibrary();
+        }
+    }
+
+    // Operation codes, see io_uring.h. These are part of the kernel ABI, so there is no need to look them up.
+    static final byte IORING_OP_NOP = 0;
+    static final byte IORING_OP_WRITEV = 2;
+    static final byte IORING_OP_SENDMSG = 9;
+    static final byte IORING_OP_RECVMSG = 10;
+    static final byte IORING_OP_ACCEPT = 13;
+    static final byte IORING_OP_ASYNC_CANCEL = 14;
+    static final byte IORING_OP_CONNECT = 16;
+    static final byte IORING_OP_READ = 22;
+    static final byte IORING_OP_WRITE = 23;
+
+    static final int IORING_ENTER_GETEVENTS = 1;
+
+    // Linux 5.11 is needed for the timeout of io_uring_enter(...), which also implies all operations we use.
+    static final int IORING_FEAT_NODROP = 1 << 1;
+    static final int IORING_FEAT_SUBMIT_STABLE = 1 << 2;
+    static final int IORING_FEAT_FAST_POLL = 1 << 5;
+    static final int IORING_FEAT_EXT_ARG = 1 << 8;
+    static final int IORING_FEATURES_REQUIRED =
+            IORING_FEAT_NODROP | IORING_FEAT_SUBMIT_STABLE | IORING_FEAT_FAST_POLL | IORING_FEAT_EXT_ARG;
+
+    static final int SOCK_CLOEXEC = 02000000;
+    // The result of operations which were cancelled, io_uring only exists on Linux so the value is known.
+    static final int ERRNO_ECANCELED_NEGATIVE = -125;
+
+    static final int SIZEOF_SOCKADDR_STORAGE = sizeofSockaddrStorage();
+
+    // The indices of the values filled in by ioUringSetup0(...), see netty_io_uring_native.c.
+    static final int RING_FD = 0;
+    static final int RING_SQ_RING_ADDRESS = 1;
+    static final int RING_SQ_RING_SIZE = 2;
+    static final int RING_CQ_RING_ADDRESS = 3;
+    static final int RING_CQ_RING_SIZE = 4;
+    static final int RING_SQES_ADDRESS = 5;
+    static final int RING_SQES_SIZE = 6;
+    static final int RING_SQ_HEAD_ADDRESS = 7;
+    static final int RING_SQ_TAIL_ADDRESS = 8;
+    static final int RING_SQ_MASK = 9;
+    static final int RING_SQ_ENTRIES = 10;
+    static final int RING_SQ_ARRAY_ADDRESS = 11;
+    static final int RING_CQ_HEAD_ADDRESS = 12;
+    static final int RING_CQ_TAIL_ADDRESS = 13;
+    static final int RING_CQ_MASK = 14;
+    static final int RING_CQ_ENTRIES = 15;
+    static final int RING_CQES_ADDRESS = 16;
+    static final int RING_FEATURES = 17;
+    static final int RING_LENGTH = 18;
+
+    private Native() {
+        // utility
+    }
+
+    static RingBuffer newRingBuffer(int entries) throws IOException {
+        long[] ring = new long[RING_LENGTH];
+        int res = ioUringSetup0(entries, ring);
+        if (res < 0) {
+            throw newIOException("io_uring_setup", res);
+        }
+        RingBuffer ringBuffer = new RingBuffer(ring);
+        if ((ring[RING_FEATURES] & IORING_FEATURES_REQUIRED) != IORING_FEATURES_REQUIRED) {
+            ringBuffer.close();
+            throw new IOException("io_uring is missing required features (expected: Linux 5.11+)");
+        }
+        return ringBuffer;
+    }
+
+    static int ioUringEnter(int ringFd, int toSubmit, int minComplete, int flags, long timeoutNanos)
+            throws IOException {
+        int res = ioUringEnter0(ringFd, toSubmit, minComplete, flags, timeoutNanos);
+        if (res < 0) {
+            throw newIOException("io_uring_enter", res);
+        }
+        return res;
+    }
+
+    static void ioUringExit(long[] ring) {
+        ioUringExit0(ring[RING_SQ_RING_ADDRESS], ring[RING_SQ_RING_SIZE], ring[RING_CQ_RING_ADDRESS],
+                ring[RING_CQ_RING_SIZE], ring[RING_SQES_ADDRESS], ring[RING_SQES_SIZE], (int) ring[RING_FD]);
+    }
+
+    /**
+     * Clears {@code O_NONBLOCK}. {@code io_uring} fails operations on non-blocking file descriptors with
+     * {@code EAGAIN}, while it waits for blocking ones without blocking the submitting thread.
+     */
+    static void setBlocking(FileDescriptor fd) throws IOException {
+        int res = setBlocking0(fd.intValue());
+        if (res < 0) {
+            throw newIOException("fcntl", res);
+        }
+    }
+
+    /**
+     * Returns a new eventfd, which is blocking so it can be read via {@code io_uring}.
+     */
+    static FileDescriptor newBlockingEventFd() {
+        FileDescriptor eventFd = io.netty.channel.epoll.Native.newEventFd();
+        try {
+            setBlocking(eventFd);
+        } catch (IOException e) {
+            try {
+                eventFd.close();
+            } catch (IOException ignore) {
+                // ignore
+            }
+            throw new ChannelException(e);
+        }
+        return eventFd;
+    }
+
+    static void eventFdWrite(int fd, long value) {
+        io.netty.channel.epoll.Native.eventFdWrite(fd, value);
+    }
+
+    static Socket newBlockingSocketStream() {
+        return blocking(Socket.newSocketStream());
+    }
+
+    static Socket newBlockingSocketDgram() {
+        return blocking(Socket.newSocketDgram());
+    }
+
+    private static Socket blocking(Socket socket) {
+        try {
+            setBlocking(socket);
+        } catch (IOException e) {
+            try {
+                socket.close();
+            } catch (IOException ignore) {
+                // ignore
+            }
+            throw new ChannelException(e);
+        }
+        return socket;
+    }
+
+    /**
+     * Writes the given address as {@code struct sockaddr} which matches the family of the given {@link Socket} to
+     * the memory at the given address, and returns its length.
+     */
+    static int writeSockaddr(Socket socket, long memoryAddress, InetSocketAddress address) throws IOException {
+        InetAddress inetAddress = address.getAddress();
+        NativeInetAddress nativeAddress = NativeInetAddress.newInstance(inetAddress);
+        int res = writeSockaddr0(socket.intValue(), memoryAddress, nativeAddress.address(), nativeAddress.scopeId(),
+                address.getPort());
+        if (res < 0) {
+            throw newIOException("getsockopt", res);
+        }
+        return res;
+    }
+
+    /**
+     * Reads the {@code struct sockaddr} at the given memory address.
+     */
+    static InetSocketAddress readSockaddr(long memoryAddress, byte[] tmp) {
+        int len = readSockaddr0(memoryAddress, tmp);
+        if (len < 0) {
+            return null;
+        }
+        return NativeInetAddress.address(tmp, 0, len);
+    }
+
+    private static native int ioUringSetup0(int entries, long[] ring);
+    private static native int ioUringEnter0(int ringFd, int toSubmit, int minComplete, int flags, long timeoutNanos);
+    private static native void ioUringExit0(long sqRingAddress, long sqRingSize, long cqRingAddress, long cqRingSize,
+                                            long sqesAddress, long sqesSize, int ringFd);
+    private static native int setBlocking0(int fd);
+    private static native int sizeofSockaddrStorage();
+    private static native int writeSockaddr0(int fd, long memoryAddress, byte[] address, int scopeId, int port);
+    private static native int readSockaddr0(long memoryAddress, byte[] out);
+
+    private static void loadNativeLibrary() {
+        String name = SystemPropertyUtil.get("os.name").toLowerCase(Locale.UK).trim();
+        if (!name.startsWith("linux")) {
+            throw new IllegalStateException("Only supported on Linux");
+        }
+        NativeLibraryLoader.load(SystemPropertyUtil.get("io.netty.packagePrefix", "").replace('.', '-') +
+            "netty-transport-native-io_uring", PlatformDependent.getClassLoader(Native.class));
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+/**
+ * The memory shared with the kernel for one {@code io_uring} instance, which is used by one {@link IOUringEventLoop}.
+ */
+final class RingBuffer {
+    private final long[] ring;
+    private final SubmissionQueue submissionQueue;
+    private final CompletionQueue completionQueue;
+
+    RingBuffer(long[] ring) {
+        this.ring = ring;
+        int ringFd = (int) ring[Native.RING_FD];
+        submissionQueue = new SubmissionQueue(ringFd, ring[Native.RING_SQ_HEAD_ADDRESS],
+                ring[Native.RING_SQ_TAIL_ADDRESS], (int) ring[Native.RING_SQ_MASK], (int) ring[Native.RING_SQ_ENTRIES],
+                ring[Native.RING_SQ_ARRAY_ADDRESS], ring[Native.RING_SQES_ADDRESS]);
+        completionQueue = new CompletionQueue(ring[Native.RING_CQ_HEAD_ADDRESS], ring[Native.RING_CQ_TAIL_ADDRESS],
+                (int) ring[Native.RING_CQ_MASK], ring[Native.RING_CQES_ADDRESS]);
+    }
+
+    SubmissionQueue submissionQueue() {
+        return submissionQueue;
+    }
+
+    CompletionQueue completionQueue() {
+        return completionQueue;
+    }
+
+    /**
+     * Unmaps the shared memory and closes the {@code io_uring} instance, which cancels all operations in flight.
+     */
+    void close() {
+        Native.ioUringExit(ring);
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.util.internal.PlatformDependent;
+
+import java.io.IOException;
+
+/**
+ * The submission queue of an {@code io_uring} instance. Operations are only added to the queue and become visible to
+ * the kernel once {@link #submit()} or {@link #submitAndWait(long)} is called, so all operations added during one
+ * event loop iteration are submitted with one {@code io_uring_enter(...)}.
+ * <p>
+ * See <a href="https://kernel.dk/io_uring.pdf">Efficient IO with io_uring</a> for the layout of the queue.
+ */
+final class SubmissionQueue {
+    // Offsets in struct io_uring_sqe, which are part of the kernel ABI.
+    private static final int SQE_SIZE = 64;
+    private static final int SQE_OP_CODE_FIELD = 0;
+    private static final int SQE_FLAGS_FIELD = 1;
+    private static final int SQE_IOPRIO_FIELD = 2;
+    private static final int SQE_FD_FIELD = 4;
+    private static final int SQE_OFFSET_FIELD = 8;
+    private static final int SQE_ADDRESS_FIELD = 16;
+    private static final int SQE_LEN_FIELD = 24;
+    private static final int SQE_OP_FLAGS_FIELD = 28;
+    private static final int SQE_USER_DATA_FIELD = 32;
+    private static final int SQE_PAD_FIELD = 40;
+    private static final int SQE_PAD_LENGTH = 24;
+
+    private final int ringFd;
+    private final long kHeadAddress;
+    private final long kTailAddress;
+    private final int ringMask;
+    private final int ringEntries;
+    private final long sqesAddress;
+
+    // The tail which is not yet visible to the kernel, and the tail up to which the operations were submitted.
+    private int tail;
+    private int submitted;
+
+    SubmissionQueue(int ringFd, long kHeadAddress, long kTailAddress, int ringMask, int ringEntries,
+                    long arrayAddress, long sqesAddress) {
+        this.ringFd = ringFd;
+        this.kHeadAddress = kHeadAddress;
+        this.kTailAddress = kTailAddress;
+        this.ringMask = ringMask;
+        this.ringEntries = ringEntries;
+        this.sqesAddress = sqesAddress;
+        tail = PlatformDependent.getInt(kTailAddress);
+        submitted = tail;
+
+        // The array maps the ring entries to the submission queue entries, we always use the same one for each.
+        for (int i = 0; i < ringEntries; i++) {
+            PlatformDependent.putInt(arrayAddress + 4L * i, i);
+        }
+    }
+
+    /**
+     * Adds an operation with the given arguments, which have the meaning described in {@code io_uring_enter(2)} for
+     * the given operation code. If the queue is full, all operations which were added before are submitted first.
+     */
+    void add(byte op, int fd, long address, int len, long offset, int opFlags, long userData) throws IOException {
+        if (tail - PlatformDependent.getIntVolatile(kHeadAddress) == ringEntries) {
+            submit();
+        }
+        long sqe = sqesAddress + (long) SQE_SIZE * (tail & ringMask);
+        tail++;
+
+        PlatformDependent.putByte(sqe + SQE_OP_CODE_FIELD, op);
+        PlatformDependent.putByte(sqe + SQE_FLAGS_FIELD, (byte) 0);
+        PlatformDependent.putShort(sqe + SQE_IOPRIO_FIELD, (short) 0);
+        PlatformDependent.putInt(sqe + SQE_FD_FIELD, fd);
+        PlatformDependent.putLong(sqe + SQE_OFFSET_FIELD, offset);
+        PlatformDependent.putLong(sqe + SQE_ADDRESS_FIELD, address);
+        PlatformDependent.putInt(sqe + SQE_LEN_FIELD, len);
+        PlatformDependent.putInt(sqe + SQE_OP_FLAGS_FIELD, opFlags);
+        PlatformDependent.putLong(sqe + SQE_USER_DATA_FIELD, userData);
+        PlatformDependent.setMemory(sqe + SQE_PAD_FIELD, SQE_PAD_LENGTH, (byte) 0);
+    }
+
+    /**
+     * Returns the number of operations which were added but not submitted yet.
+     */
+    int pending() {
+        return tail - submitted;
+    }
+
+    /**
+     * Submits all operations which were added, without waiting for any completion.
+     */
+    int submit() throws IOException {
+        return enter(0, 0, 0);
+    }
+
+    /**
+     * Submits all operations which were added, and waits until at least one operation completed or the given
+     * timeout expired. A negative timeout waits without a timeout.
+     */
+    int submitAndWait(long timeoutNanos) throws IOException {
+        return enter(1, Native.IORING_ENTER_GETEVENTS, timeoutNanos);
+    }
+
+    private int enter(int minComplete, int flags, long timeoutNanos) throws IOException {
+        int toSubmit = tail - submitted;
+        if (toSubmit == 0 && minComplete == 0) {
+            return 0;
+        }
+        // Make the added operations visible to the kernel.
+        PlatformDependent.putIntOrdered(kTailAddress, tail);
+        int res = Native.ioUringEnter(ringFd, toSubmit, minComplete, flags, timeoutNanos);
+        submitted += res;
+        return res;
+    }
+}
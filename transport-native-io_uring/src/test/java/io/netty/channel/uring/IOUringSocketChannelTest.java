@@ -0,0 +1,88 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.concurrent.Future;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class IOUringSocketChannelTest {
+
+    @Test(timeout = 30000)
+    public void testCloseWithSoLingerDoesNotBlockEventLoop() throws Exception {
+        EventLoopGroup group = new IOUringEventLoopGroup(1);
+        Channel serverChannel = null;
+        Channel clientChannel = null;
+        try {
+            // The server does not read, so the data the client wrote can not be sent before SO_LINGER timed out.
+            serverChannel = new ServerBootstrap().group(group).channel(IOUringServerSocketChannel.class)
+                    .childOption(ChannelOption.AUTO_READ, false)
+                    .childOption(ChannelOption.SO_RCVBUF, 4096)
+                    .childHandler(new ChannelInboundHandlerAdapter())
+                    .bind(new InetSocketAddress("127.0.0.1", 0)).syncUninterruptibly().channel();
+            clientChannel = new Bootstrap().group(group).channel(IOUringSocketChannel.class)
+                    .option(ChannelOption.SO_LINGER, 2)
+                    .option(ChannelOption.SO_SNDBUF, 4096)
+                    .handler(new ChannelInboundHandlerAdapter())
+                    .connect(serverChannel.localAddress()).syncUninterruptibly().channel();
+
+            for (int i = 0; i < 64; i++) {
+                clientChannel.write(Unpooled.directBuffer(64 * 1024).writeZero(64 * 1024));
+            }
+            clientChannel.flush();
+            long start = System.nanoTime();
+            ChannelFuture closeFuture = clientChannel.close();
+
+            final Channel channel = clientChannel;
+            Future<Boolean> active = group.submit(new Callable<Boolean>() {
+                @Override
+                public Boolean call() {
+                    return channel.isActive();
+                }
+            });
+            // The event loop is not blocked while the close waits because of SO_LINGER.
+            assertTrue(active.await(500, TimeUnit.MILLISECONDS));
+            assertFalse(active.getNow());
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+
+            assertTrue(closeFuture.await(10, TimeUnit.SECONDS));
+            assertTrue(closeFuture.isSuccess());
+            assertFalse(clientChannel.isOpen());
+        } finally {
+            if (clientChannel != null) {
+                clientChannel.close().syncUninterruptibly();
+            }
+            if (serverChannel != null) {
+                serverChannel.close().syncUninterruptibly();
+            }
+            group.shutdownGracefully(0, 0, TimeUnit.SECONDS).syncUninterruptibly();
+        }
+    }
+}
@@ -25,13 +25,20 @@ import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.ChannelPipeline;
+import io.netty.channel.EventLoop;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.ServerChannel;
 import io.netty.util.AttributeKey;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.EventExecutorChooserFactory;
+import io.netty.util.concurrent.EventExecutorChooserFactory.EventExecutorChooser;
+import io.netty.util.internal.UnstableApi;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
 
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.TimeUnit;
@@ -49,6 +56,7 @@ public class ServerBootstrap extends AbstractBootstrap<ServerBootstrap, ServerCh
     private final ServerBootstrapConfig config = new ServerBootstrapConfig(this);
     private volatile EventLoopGroup childGroup;
     private volatile ChannelHandler childHandler;
+    private volatile EventExecutorChooserFactory childEventLoopChooserFactory;
 
     public ServerBootstrap() { }
 
@@ -56,6 +64,7 @@ public class ServerBootstrap extends AbstractBootstrap<ServerBootstrap, ServerCh
         super(bootstrap);
         childGroup = bootstrap.childGroup;
         childHandler = bootstrap.childHandler;
+        childEventLoopChooserFactory = bootstrap.childEventLoopChooserFactory;
         synchronized (bootstrap.childOptions) {
             childOptions.putAll(bootstrap.childOptions);
         }
@@ -137,6 +146,18 @@ public class ServerBootstrap extends AbstractBootstrap<ServerBootstrap, ServerCh
         return this;
     }
 
+    /**
+     * Set the {@link EventExecutorChooserFactory} whose chooser picks the {@link EventLoop} of the child group every
+     * accepted {@link Channel} is registered to, for example a
+     * {@link io.netty.util.concurrent.LoadAwareEventExecutorChooserFactory}. Use a value of {@code null} to let
+     * {@link EventLoopGroup#register(Channel)} of the child group pick it, which is the default.
+     */
+    @UnstableApi
+    public ServerBootstrap childEventLoopChooser(EventExecutorChooserFactory childEventLoopChooserFactory) {
+        this.childEventLoopChooserFactory = childEventLoopChooserFactory;
+        return this;
+    }
+
     @Override
     void init(Channel channel) throws Exception {
         final Map<ChannelOption<?>, Object> options = options0();
@@ -157,6 +178,8 @@ public class ServerBootstrap extends AbstractBootstrap<ServerBootstrap, ServerCh
 
         final EventLoopGroup currentChildGroup = childGroup;
         final ChannelHandler currentChildHandler = childHandler;
+        final EventExecutorChooser currentChildChooser =
+                newChildChooser(currentChildGroup, childEventLoopChooserFactory);
         final Entry<ChannelOption<?>, Object>[] currentChildOptions;
         final Entry<AttributeKey<?>, Object>[] currentChildAttrs;
         synchronized (childOptions) {
@@ -182,8 +205,8 @@ public class ServerBootstrap extends AbstractBootstrap<ServerBootstrap, ServerCh
                 ch.eventLoop().execute(new Runnable() {
                     @Override
                     public void run() {
-                        pipeline.addLast(new ServerBootstrapAcceptor(
-                                currentChildGroup, currentChildHandler, currentChildOptions, currentChildAttrs));
+                        pipeline.addLast(new ServerBootstrapAcceptor(currentChildGroup, currentChildChooser,
+                                currentChildHandler, currentChildOptions, currentChildAttrs));
                     }
                 });
             }
@@ -203,6 +226,25 @@ public class ServerBootstrap extends AbstractBootstrap<ServerBootstrap, ServerCh
         return this;
     }
 
+    private static EventExecutorChooser newChildChooser(
+            EventLoopGroup childGroup, EventExecutorChooserFactory chooserFactory) {
+        if (chooserFactory == null) {
+            return null;
+        }
+        List<EventExecutor> children = new ArrayList<EventExecutor>();
+        for (EventExecutor child: childGroup) {
+            if (!(child instanceof EventLoop)) {
+                // Only event loops can register a channel, so let the group do it.
+                return null;
+            }
+            children.add(child);
+        }
+        if (children.isEmpty()) {
+            return null;
+        }
+        return chooserFactory.newChooser(children.toArray(new EventExecutor[children.size()]));
+    }
+
     @SuppressWarnings("unchecked")
     private static Entry<AttributeKey<?>, Object>[] newAttrArray(int size) {
         return new Entry[size];
@@ -216,14 +258,16 @@ public class ServerBootstrap extends AbstractBootstrap<ServerBootstrap, ServerCh
     private static class ServerBootstrapAcceptor extends ChannelInboundHandlerAdapter {
 
         private final EventLoopGroup childGroup;
+        private final EventExecutorChooser childChooser;
         private final ChannelHandler childHandler;
         private final Entry<ChannelOption<?>, Object>[] childOptions;
         private final Entry<AttributeKey<?>, Object>[] childAttrs;
 
         ServerBootstrapAcceptor(
-                EventLoopGroup childGroup, ChannelHandler childHandler,
+                EventLoopGroup childGroup, EventExecutorChooser childChooser, ChannelHandler childHandler,
                 Entry<ChannelOption<?>, Object>[] childOptions, Entry<AttributeKey<?>, Object>[] childAttrs) {
             this.childGroup = childGroup;
+            this.childChooser = childChooser;
             this.childHandler = childHandler;
             this.childOptions = childOptions;
             this.childAttrs = childAttrs;
@@ -243,7 +287,8 @@ public class ServerBootstrap extends AbstractBootstrap<ServerBootstrap, ServerCh
             }
 
             try {
-                childGroup.register(child).addListener(new ChannelFutureListener() {
+                EventLoopGroup group = childChooser == null ? childGroup : (EventLoop) childChooser.next();
+                group.register(child).addListener(new ChannelFutureListener() {
                     @Override
                     public void operationComplete(ChannelFuture future) throws Exception {
                         if (!future.isSuccess()) {
@@ -302,6 +347,10 @@ public class ServerBootstrap extends AbstractBootstrap<ServerBootstrap, ServerCh
         return childHandler;
     }
 
+    final EventExecutorChooserFactory childEventLoopChooser() {
+        return childEventLoopChooserFactory;
+    }
+
     final Map<ChannelOption<?>, Object> childOptions() {
         return copiedMap(childOptions);
     }
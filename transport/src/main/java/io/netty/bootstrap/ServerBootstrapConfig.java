@@ -20,7 +20,9 @@ import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.ServerChannel;
 import io.netty.util.AttributeKey;
+import io.netty.util.concurrent.EventExecutorChooserFactory;
 import io.netty.util.internal.StringUtil;
+import io.netty.util.internal.UnstableApi;
 
 import java.util.Map;
 
@@ -50,6 +52,15 @@ public final class ServerBootstrapConfig extends AbstractBootstrapConfig<ServerB
         return bootstrap.childHandler();
     }
 
+    /**
+     * Returns the configured {@link EventExecutorChooserFactory} which picks the event loop of the child channels or
+     * {@code null} if the child group picks it.
+     */
+    @UnstableApi
+    public EventExecutorChooserFactory childEventLoopChooser() {
+        return bootstrap.childEventLoopChooser();
+    }
+
     /**
      * Returns a copy of the configured options which will be used for the child channels.
      */
@@ -75,6 +86,12 @@ public final class ServerBootstrapConfig extends AbstractBootstrapConfig<ServerB
             buf.append(StringUtil.simpleClassName(childGroup));
             buf.append(", ");
         }
+        EventExecutorChooserFactory childEventLoopChooser = childEventLoopChooser();
+        if (childEventLoopChooser != null) {
+            buf.append("childEventLoopChooser: ");
+            buf.append(StringUtil.simpleClassName(childEventLoopChooser));
+            buf.append(", ");
+        }
         Map<ChannelOption<?>, Object> childOptions = childOptions();
         if (!childOptions.isEmpty()) {
             buf.append("childOptions: ");
@@ -265,6 +265,34 @@ public final class ChannelOutboundBuffer {
         return true;
     }
 
+    /**
+     * Will remove the current message like {@link #remove()}, but will neither release it nor notify its
+     * {@link ChannelPromise}. The caller takes over the message and must release it and notify the returned
+     * {@link ChannelPromise} once it is done with it, which is useful if the transport only learns later that the
+     * message was written. If no flushed message exists at the time this method is called it will return
+     * {@code null}.
+     */
+    public ChannelPromise removeDeferred() {
+        Entry e = flushedEntry;
+        if (e == null) {
+            clearNioBuffers();
+            return null;
+        }
+        ChannelPromise promise = e.promise;
+        int size = e.pendingSize;
+
+        removeEntry(e);
+
+        if (!e.cancelled) {
+            decrementPendingOutboundBytes(size, false, true);
+        }
+
+        // recycle the entry
+        e.recycle();
+
+        return promise;
+    }
+
     /**
      * Will remove the current message, mark its {@link ChannelPromise} as failure using the given {@link Throwable}
      * and return {@code true}. If no   flushed message exists at the time this method is called it will return
@@ -368,6 +396,18 @@ public final class ChannelOutboundBuffer {
      * </p>
      */
     public ByteBuffer[] nioBuffers() {
+        return nioBuffers(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns an array of direct NIO buffers like {@link #nioBuffers()}, but stops before the first message whose
+     * readable bytes would make {@link #nioBufferSize()} exceed {@code maxBytes}. The first message with readable
+     * bytes is always included, even if it alone exceeds {@code maxBytes}.
+     *
+     * @param maxBytes the maximal number of bytes to gather, which must not exceed {@link Integer#MAX_VALUE}.
+     */
+    public ByteBuffer[] nioBuffers(long maxBytes) {
+        assert maxBytes > 0 && maxBytes <= Integer.MAX_VALUE;
         long nioBufferSize = 0;
         int nioBufferCount = 0;
         final InternalThreadLocalMap threadLocalMap = InternalThreadLocalMap.get();
@@ -380,7 +420,9 @@ public final class ChannelOutboundBuffer {
                 final int readableBytes = buf.writerIndex() - readerIndex;
 
                 if (readableBytes > 0) {
-                    if (Integer.MAX_VALUE - readableBytes < nioBufferSize) {
+                    if (maxBytes - readableBytes < nioBufferSize && nioBufferCount != 0) {
+                        // Stop if the nioBufferSize + readableBytes would exceed maxBytes.
+                        //
                         // If the nioBufferSize + readableBytes will overflow an Integer we stop populate the
                         // ByteBuffer array. This is done as bsd/osx don't allow to write more bytes then
                         // Integer.MAX_VALUE with one writev(...) call and so will return 'EINVAL', which will
@@ -753,7 +795,7 @@ public final class ChannelOutboundBuffer {
     }
 
     static final class Entry {
-        private static final Recycler<Entry> RECYCLER = new Recycler<Entry>() {
+        private static final Recycler<Entry> RECYCLER = new Recycler<Entry>("outboundBuffer") {
             @Override
             protected Entry newObject(Handle handle) {
                 return new Entry(handle);
@@ -16,6 +16,7 @@
 package io.netty.channel;
 
 import io.netty.buffer.ByteBufAllocator;
+import io.netty.util.internal.UnstableApi;
 
 import java.util.IdentityHashMap;
 import java.util.Map;
@@ -34,6 +35,7 @@ import static io.netty.channel.ChannelOption.RCVBUF_ALLOCATOR;
 import static io.netty.channel.ChannelOption.WRITE_BUFFER_HIGH_WATER_MARK;
 import static io.netty.channel.ChannelOption.WRITE_BUFFER_LOW_WATER_MARK;
 import static io.netty.channel.ChannelOption.WRITE_BUFFER_WATER_MARK;
+import static io.netty.channel.ChannelOption.WRITE_BUDGET;
 import static io.netty.channel.ChannelOption.WRITE_SPIN_COUNT;
 import static io.netty.util.internal.ObjectUtil.checkNotNull;
 
@@ -63,6 +65,7 @@ public class DefaultChannelConfig implements ChannelConfig {
     private volatile int autoRead = 1;
     private volatile boolean autoClose = true;
     private volatile WriteBufferWaterMark writeBufferWaterMark = WriteBufferWaterMark.DEFAULT;
+    private volatile WriteBudget writeBudget;
     private volatile boolean pinEventExecutor = true;
 
     public DefaultChannelConfig(Channel channel) {
@@ -81,7 +84,7 @@ public class DefaultChannelConfig implements ChannelConfig {
                 null,
                 CONNECT_TIMEOUT_MILLIS, MAX_MESSAGES_PER_READ, WRITE_SPIN_COUNT,
                 ALLOCATOR, AUTO_READ, AUTO_CLOSE, RCVBUF_ALLOCATOR, WRITE_BUFFER_HIGH_WATER_MARK,
-                WRITE_BUFFER_LOW_WATER_MARK, WRITE_BUFFER_WATER_MARK, MESSAGE_SIZE_ESTIMATOR,
+                WRITE_BUFFER_LOW_WATER_MARK, WRITE_BUFFER_WATER_MARK, WRITE_BUDGET, MESSAGE_SIZE_ESTIMATOR,
                 SINGLE_EVENTEXECUTOR_PER_GROUP);
     }
 
@@ -150,6 +153,9 @@ public class DefaultChannelConfig implements ChannelConfig {
         if (option == WRITE_BUFFER_WATER_MARK) {
             return (T) getWriteBufferWaterMark();
         }
+        if (option == WRITE_BUDGET) {
+            return (T) getWriteBudget();
+        }
         if (option == MESSAGE_SIZE_ESTIMATOR) {
             return (T) getMessageSizeEstimator();
         }
@@ -184,6 +190,8 @@ public class DefaultChannelConfig implements ChannelConfig {
             setWriteBufferLowWaterMark((Integer) value);
         } else if (option == WRITE_BUFFER_WATER_MARK) {
             setWriteBufferWaterMark((WriteBufferWaterMark) value);
+        } else if (option == WRITE_BUDGET) {
+            setWriteBudget((WriteBudget) value);
         } else if (option == MESSAGE_SIZE_ESTIMATOR) {
             setMessageSizeEstimator((MessageSizeEstimator) value);
         } else if (option == SINGLE_EVENTEXECUTOR_PER_GROUP) {
@@ -420,6 +428,25 @@ public class DefaultChannelConfig implements ChannelConfig {
         return this;
     }
 
+    /**
+     * Returns the {@link WriteBudget} which bounds the bytes and time the {@link Channel} may write per flush, or
+     * {@code null} if the writes are only bounded by the {@link #getWriteSpinCount() write spin count}.
+     */
+    @UnstableApi
+    public WriteBudget getWriteBudget() {
+        return writeBudget;
+    }
+
+    /**
+     * Sets the {@link WriteBudget} which bounds the bytes and time the {@link Channel} may write per flush, or
+     * {@code null} to only bound the writes by the {@link #getWriteSpinCount() write spin count}.
+     */
+    @UnstableApi
+    public ChannelConfig setWriteBudget(WriteBudget writeBudget) {
+        this.writeBudget = writeBudget;
+        return this;
+    }
+
     private ChannelConfig setPinEventExecutorPerGroup(boolean pinEventExecutor) {
         this.pinEventExecutor = pinEventExecutor;
         return this;
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel;
+
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.internal.UnstableApi;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * A write of a message to a {@link Channel} that is submitted to the {@link EventLoop} of the {@link Channel} by
+ * another thread, for example as part of a batch. Like the writes which are submitted by a {@link ChannelPipeline},
+ * the message is counted as pending outbound bytes of the {@link Channel} until the task is run, and a write
+ * without a flush does not wake up the {@link EventLoop}.
+ */
+@UnstableApi
+public class OutboundWriteTask implements Runnable {
+
+    private static final AtomicIntegerFieldUpdater<OutboundWriteTask> DONE_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(OutboundWriteTask.class, "done");
+
+    private final Channel channel;
+    private final Object msg;
+    private final ChannelPromise promise;
+    private final boolean flush;
+    private final int size;
+    private volatile int done;
+
+    /**
+     * Creates a new task which writes the given message to the {@link Channel}, and flushes it if {@code flush} is
+     * {@code true}.
+     */
+    public static OutboundWriteTask newInstance(Channel channel, Object msg, ChannelPromise promise, boolean flush) {
+        if (channel == null) {
+            throw new NullPointerException("channel");
+        }
+        if (promise == null) {
+            throw new NullPointerException("promise");
+        }
+        return flush ? new OutboundWriteTask(channel, msg, promise, true)
+                     : new NonWakeupWriteTask(channel, msg, promise);
+    }
+
+    OutboundWriteTask(Channel channel, Object msg, ChannelPromise promise, boolean flush) {
+        this.channel = channel;
+        this.msg = msg;
+        this.promise = promise;
+        this.flush = flush;
+
+        ChannelOutboundBuffer buffer;
+        // Check for null as it may be set to null if the channel is closed already
+        if (AbstractChannelHandlerContext.AbstractWriteTask.ESTIMATE_TASK_SIZE_ON_SUBMIT &&
+                (buffer = channel.unsafe().outboundBuffer()) != null) {
+            size = estimateSize(channel, msg) + AbstractChannelHandlerContext.AbstractWriteTask.WRITE_TASK_OVERHEAD;
+            buffer.incrementPendingOutboundBytes(size);
+        } else {
+            size = 0;
+        }
+    }
+
+    private static int estimateSize(Channel channel, Object msg) {
+        ChannelPipeline pipeline = channel.pipeline();
+        if (pipeline instanceof DefaultChannelPipeline) {
+            return ((DefaultChannelPipeline) pipeline).estimatorHandle().size(msg);
+        }
+        return channel.config().getMessageSizeEstimator().newHandle().size(msg);
+    }
+
+    @Override
+    public final void run() {
+        if (!DONE_UPDATER.compareAndSet(this, 0, 1)) {
+            return;
+        }
+        decrementPendingOutboundBytes();
+        if (flush) {
+            channel.writeAndFlush(msg, promise);
+        } else {
+            channel.write(msg, promise);
+        }
+    }
+
+    /**
+     * Fails the promise and releases the message if the task was not run yet, for example because the
+     * {@link EventLoop} rejected it.
+     */
+    public final void fail(Throwable cause) {
+        if (!DONE_UPDATER.compareAndSet(this, 0, 1)) {
+            return;
+        }
+        try {
+            decrementPendingOutboundBytes();
+            promise.tryFailure(cause);
+        } finally {
+            ReferenceCountUtil.release(msg);
+        }
+    }
+
+    private void decrementPendingOutboundBytes() {
+        ChannelOutboundBuffer buffer = channel.unsafe().outboundBuffer();
+        // Check for null as it may be set to null if the channel is closed already
+        if (size != 0 && buffer != null) {
+            buffer.decrementPendingOutboundBytes(size);
+        }
+    }
+
+    private static final class NonWakeupWriteTask extends OutboundWriteTask
+            implements SingleThreadEventLoop.NonWakeupRunnable {
+        NonWakeupWriteTask(Channel channel, Object msg, ChannelPromise promise) {
+            super(channel, msg, promise, false);
+        }
+    }
+}
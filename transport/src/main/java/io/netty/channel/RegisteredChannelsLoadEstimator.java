@@ -0,0 +1,45 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel;
+
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.LoadAwareEventExecutorChooserFactory;
+import io.netty.util.concurrent.LoadAwareEventExecutorChooserFactory.LoadEstimator;
+import io.netty.util.internal.UnstableApi;
+
+/**
+ * {@link LoadEstimator} which uses the number of {@link SingleThreadEventLoop#registeredChannels() registered
+ * channels} of a {@link SingleThreadEventLoop} as its load. For an event loop which does not keep track of its
+ * channels it falls back to {@link LoadAwareEventExecutorChooserFactory#PENDING_TASKS}.
+ */
+@UnstableApi
+public final class RegisteredChannelsLoadEstimator implements LoadEstimator {
+
+    public static final RegisteredChannelsLoadEstimator INSTANCE = new RegisteredChannelsLoadEstimator();
+
+    private RegisteredChannelsLoadEstimator() { }
+
+    @Override
+    public long load(EventExecutor executor) {
+        if (executor instanceof SingleThreadEventLoop) {
+            int channels = ((SingleThreadEventLoop) executor).registeredChannels();
+            if (channels >= 0) {
+                return channels;
+            }
+        }
+        return LoadAwareEventExecutorChooserFactory.PENDING_TASKS.load(executor);
+    }
+}
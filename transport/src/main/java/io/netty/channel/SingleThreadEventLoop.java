@@ -148,6 +148,38 @@ public abstract class SingleThreadEventLoop extends SingleThreadEventExecutor im
         return super.pendingTasks() + tailTasks.size();
     }
 
+    /**
+     * Returns the number of {@link Channel}s which are currently registered to this event loop, or {@code -1} if it
+     * does not keep track of them. This may be called from any thread, so the value is only an estimate.
+     */
+    @UnstableApi
+    public int registeredChannels() {
+        return -1;
+    }
+
+    @Override
+    public SingleThreadEventLoopMetric metric() {
+        return (SingleThreadEventLoopMetric) super.metric();
+    }
+
+    @Override
+    protected final SingleThreadEventLoopMetric newMetric() {
+        return new SingleThreadEventLoopMetric(this);
+    }
+
+    /**
+     * Records a single processing of the IO events which were returned by a select, which sub-classes should call for
+     * every select while {@link #isMetricCollected()} returns {@code true}.
+     *
+     * @param readyEvents   the number of IO events which were ready
+     * @param ioTimeNanos   the time in nanoseconds it took to process the IO events
+     */
+    protected final void recordIo(int readyEvents, long ioTimeNanos) {
+        if (isMetricCollected()) {
+            metric().recordIo(readyEvents, ioTimeNanos);
+        }
+    }
+
     /**
      * Marker interface for {@link Runnable} that will not trigger an {@link #wakeup(boolean)} in all cases.
      */
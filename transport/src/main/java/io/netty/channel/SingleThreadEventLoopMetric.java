@@ -0,0 +1,90 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel;
+
+import io.netty.util.concurrent.SingleThreadEventExecutorMetric;
+
+/**
+ * Exposed metric for {@link SingleThreadEventLoop}, which adds the processing of IO events to the values of
+ * {@link SingleThreadEventExecutorMetric}.
+ */
+public final class SingleThreadEventLoopMetric extends SingleThreadEventExecutorMetric {
+
+    private volatile long selects;
+    private volatile long emptySelects;
+    private volatile long readyEvents;
+    private volatile long ioTimeNanos;
+
+    SingleThreadEventLoopMetric(SingleThreadEventLoop eventLoop) {
+        super(eventLoop);
+    }
+
+    /**
+     * Returns the number of times the event loop selected and processed IO events.
+     */
+    public long numSelects() {
+        return selects;
+    }
+
+    /**
+     * Returns the number of selects which returned without any IO event, for example because the event loop was woken
+     * up to run a task.
+     */
+    public long numEmptySelects() {
+        return emptySelects;
+    }
+
+    /**
+     * Returns the number of IO events which were processed.
+     */
+    public long numReadyEvents() {
+        return readyEvents;
+    }
+
+    /**
+     * Returns the total time in nanoseconds the event loop spent processing IO events.
+     */
+    public long ioTimeNanos() {
+        return ioTimeNanos;
+    }
+
+    /**
+     * Returns the total time in nanoseconds the event loop spent running tasks and processing IO events.
+     */
+    @Override
+    public long busyTimeNanos() {
+        return taskTimeNanos() + ioTimeNanos();
+    }
+
+    void recordIo(int readyEvents, long ioTimeNanos) {
+        selects ++;
+        if (readyEvents == 0) {
+            emptySelects ++;
+        } else {
+            this.readyEvents += readyEvents;
+        }
+        this.ioTimeNanos += ioTimeNanos;
+    }
+
+    @Override
+    protected void appendTo(StringBuilder sb) {
+        super.appendTo(sb);
+        sb.append("; numSelects: ").append(numSelects())
+                .append("; numEmptySelects: ").append(numEmptySelects())
+                .append("; numReadyEvents: ").append(numReadyEvents())
+                .append("; ioTimeNanos: ").append(ioTimeNanos());
+    }
+}
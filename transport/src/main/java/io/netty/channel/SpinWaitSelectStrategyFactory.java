@@ -0,0 +1,127 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel;
+
+import io.netty.util.IntSupplier;
+import io.netty.util.internal.LongCounter;
+import io.netty.util.internal.PlatformDependent;
+
+/**
+ * Factory of {@link SelectStrategy}s which let the IO loop spin for a while before it blocks in a select.
+ * <p>
+ * While an IO loop spins it polls for IO events without blocking and other threads can submit tasks to it without
+ * waking it up, which saves the system call of the wake-up and the latency of rescheduling the thread. When the loop
+ * had no tasks to run for the configured number of spins, it calls {@link Thread#yield()} between the polls for the
+ * configured number of yields, and then blocks in a select. A select returns right away if there are IO events, so
+ * a loop which is busy with IO only blocks once it is really idle. A loop that spins is never idle from the point of
+ * view of the operating system, so spinning is meant for loops which have a dedicated CPU core.
+ * <p>
+ * The counters of this factory are shared by all {@link SelectStrategy}s it created.
+ */
+public final class SpinWaitSelectStrategyFactory implements SelectStrategyFactory {
+
+    private final int spins;
+    private final int yields;
+    private final boolean busySpin;
+    private final LongCounter spinCount = PlatformDependent.newLongCounter();
+    private final LongCounter yieldCount = PlatformDependent.newLongCounter();
+    private final LongCounter parkCount = PlatformDependent.newLongCounter();
+
+    /**
+     * Creates a new factory whose {@link SelectStrategy}s never block, so the IO loops spin as long as they run.
+     */
+    public static SpinWaitSelectStrategyFactory busySpin() {
+        return new SpinWaitSelectStrategyFactory(0, 0, true);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param spins     the number of consecutive polls without tasks after which the IO loop starts to yield
+     * @param yields    the number of polls after which the IO loop blocks in a select once it started to yield
+     */
+    public SpinWaitSelectStrategyFactory(int spins, int yields) {
+        this(spins, yields, false);
+    }
+
+    private SpinWaitSelectStrategyFactory(int spins, int yields, boolean busySpin) {
+        if (spins < 0) {
+            throw new IllegalArgumentException("spins: " + spins + " (expected: >= 0)");
+        }
+        if (yields < 0) {
+            throw new IllegalArgumentException("yields: " + yields + " (expected: >= 0)");
+        }
+        this.spins = spins;
+        this.yields = yields;
+        this.busySpin = busySpin;
+    }
+
+    @Override
+    public SelectStrategy newSelectStrategy() {
+        return new SpinWaitSelectStrategy();
+    }
+
+    /**
+     * Returns the number of polls for which the IO loops spun.
+     */
+    public long numSpins() {
+        return spinCount.value();
+    }
+
+    /**
+     * Returns the number of polls before which the IO loops yielded.
+     */
+    public long numYields() {
+        return yieldCount.value();
+    }
+
+    /**
+     * Returns the number of times the IO loops stopped spinning and blocked in a select.
+     */
+    public long numParks() {
+        return parkCount.value();
+    }
+
+    private final class SpinWaitSelectStrategy implements SelectStrategy {
+        // Only accessed by the IO loop.
+        private int idlePolls;
+
+        @Override
+        public int calculateStrategy(IntSupplier selectSupplier, boolean hasTasks) {
+            if (hasTasks) {
+                idlePolls = 0;
+                return BUSY_WAIT;
+            }
+            if (busySpin) {
+                spinCount.increment();
+                return BUSY_WAIT;
+            }
+            int idlePolls = this.idlePolls;
+            if (idlePolls < spins) {
+                spinCount.increment();
+            } else if (idlePolls - spins < yields) {
+                yieldCount.increment();
+                Thread.yield();
+            } else {
+                this.idlePolls = 0;
+                parkCount.increment();
+                return SELECT;
+            }
+            this.idlePolls = idlePolls + 1;
+            return BUSY_WAIT;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel;
+
+import io.netty.util.internal.UnstableApi;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * WriteBudget bounds how much a channel may write each time its event loop flushes it.
+ * <p>
+ * Without a budget the transports call the underlying write operation up to
+ * {@link ChannelConfig#getWriteSpinCount()} times per message, no matter how many bytes each call writes. A channel
+ * which flushed many small messages can so keep the event loop busy for a long time, while a channel which flushed
+ * one large message gives up the event loop after a few writes.
+ * <p>
+ * With a budget the write spin count is not used. A flush writes until either the {@linkplain #maxBytes() bytes} or
+ * the {@linkplain #maxTimeNanos() time} of the budget is used up, the socket does not accept more data or all flushed
+ * messages were written. The budget is checked after every write operation, so one flush may exceed it by the bytes
+ * of the last write operation. A channel which used up its budget while the socket still accepted data is flushed
+ * again by its event loop in the next iteration, after all other channels which used up their budget before.
+ * <p>
+ * Currently only {@code NioSocketChannel} and the stream channels of the epoll transport support write budgets, all
+ * other channels ignore them.
+ */
+@UnstableApi
+public final class WriteBudget {
+
+    private final int maxBytes;
+    private final long maxTimeNanos;
+
+    /**
+     * Create a new instance which only bounds the number of bytes written per flush.
+     *
+     * @param maxBytes the maximal number of bytes to write per flush.
+     */
+    public WriteBudget(int maxBytes) {
+        this(maxBytes, 0, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param maxBytes the maximal number of bytes to write per flush.
+     * @param maxTime the maximal time to spend writing per flush, or {@code 0} to not bound the time.
+     * @param unit the {@link TimeUnit} of {@code maxTime}.
+     */
+    public WriteBudget(int maxBytes, long maxTime, TimeUnit unit) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("maxBytes: " + maxBytes + " (expected: > 0)");
+        }
+        if (maxTime < 0) {
+            throw new IllegalArgumentException("maxTime: " + maxTime + " (expected: >= 0)");
+        }
+        if (unit == null) {
+            throw new NullPointerException("unit");
+        }
+        this.maxBytes = maxBytes;
+        maxTimeNanos = unit.toNanos(maxTime);
+    }
+
+    /**
+     * Returns the maximal number of bytes to write per flush.
+     */
+    public int maxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Returns the maximal time in nanoseconds to spend writing per flush, or {@code 0} if the time is not bounded.
+     */
+    public long maxTimeNanos() {
+        return maxTimeNanos;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(64)
+            .append("WriteBudget(maxBytes: ")
+            .append(maxBytes)
+            .append(", maxTimeNanos: ")
+            .append(maxTimeNanos)
+            .append(")");
+        return builder.toString();
+    }
+}
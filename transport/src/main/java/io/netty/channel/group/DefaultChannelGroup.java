@@ -21,17 +21,23 @@ import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelId;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.EventLoop;
+import io.netty.channel.OutboundWriteTask;
 import io.netty.channel.ServerChannel;
 import io.netty.util.ReferenceCountUtil;
 import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.SingleThreadEventExecutor;
 import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.StringUtil;
 
 import java.util.AbstractSet;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -266,26 +272,55 @@ public class DefaultChannelGroup extends AbstractSet<Channel> implements Channel
         if (matcher == null) {
             throw new NullPointerException("matcher");
         }
+        return write0(message, matcher, voidPromise, false);
+    }
 
-        final ChannelGroupFuture future;
-        if (voidPromise) {
-            for (Channel c: nonServerChannels.values()) {
-                if (matcher.matches(c)) {
-                    c.write(safeDuplicate(message), c.voidPromise());
+    private ChannelGroupFuture write0(Object message, ChannelMatcher matcher, boolean voidPromise, boolean flush) {
+        Map<Channel, ChannelFuture> futures =
+                voidPromise ? null : new LinkedHashMap<Channel, ChannelFuture>(size());
+        // The writes to the channels of an event loop are submitted as one batch, so the event loop is woken up
+        // once per group write instead of once per channel.
+        Map<SingleThreadEventExecutor, List<OutboundWriteTask>> batches = null;
+        for (Channel c: nonServerChannels.values()) {
+            if (!matcher.matches(c)) {
+                continue;
+            }
+            ChannelPromise promise = voidPromise ? c.voidPromise() : c.newPromise();
+            if (futures != null) {
+                futures.put(c, promise);
+            }
+            Object msg = safeDuplicate(message);
+            EventLoop loop = c.isRegistered() ? c.eventLoop() : null;
+            if (loop instanceof SingleThreadEventExecutor && !loop.inEventLoop()) {
+                if (batches == null) {
+                    batches = new IdentityHashMap<SingleThreadEventExecutor, List<OutboundWriteTask>>();
+                }
+                List<OutboundWriteTask> batch = batches.get(loop);
+                if (batch == null) {
+                    batch = new ArrayList<OutboundWriteTask>();
+                    batches.put((SingleThreadEventExecutor) loop, batch);
                 }
+                batch.add(OutboundWriteTask.newInstance(c, msg, promise, flush));
+            } else if (flush) {
+                c.writeAndFlush(msg, promise);
+            } else {
+                c.write(msg, promise);
             }
-            future = voidFuture;
-        } else {
-            Map<Channel, ChannelFuture> futures = new LinkedHashMap<Channel, ChannelFuture>(size());
-            for (Channel c: nonServerChannels.values()) {
-                if (matcher.matches(c)) {
-                    futures.put(c, c.write(safeDuplicate(message)));
+        }
+        if (batches != null) {
+            for (Map.Entry<SingleThreadEventExecutor, List<OutboundWriteTask>> e: batches.entrySet()) {
+                List<OutboundWriteTask> batch = e.getValue();
+                try {
+                    e.getKey().executeAll(batch);
+                } catch (Throwable cause) {
+                    for (OutboundWriteTask task: batch) {
+                        task.fail(cause);
+                    }
                 }
             }
-            future = new DefaultChannelGroupFuture(this, futures, executor);
         }
         ReferenceCountUtil.release(message);
-        return future;
+        return voidPromise ? voidFuture : new DefaultChannelGroupFuture(this, futures, executor);
     }
 
     @Override
@@ -408,25 +443,7 @@ public class DefaultChannelGroup extends AbstractSet<Channel> implements Channel
             throw new NullPointerException("message");
         }
 
-        final ChannelGroupFuture future;
-        if (voidPromise) {
-            for (Channel c: nonServerChannels.values()) {
-                if (matcher.matches(c)) {
-                    c.writeAndFlush(safeDuplicate(message), c.voidPromise());
-                }
-            }
-            future = voidFuture;
-        } else {
-            Map<Channel, ChannelFuture> futures = new LinkedHashMap<Channel, ChannelFuture>(size());
-            for (Channel c: nonServerChannels.values()) {
-                if (matcher.matches(c)) {
-                    futures.put(c, c.writeAndFlush(safeDuplicate(message)));
-                }
-            }
-            future = new DefaultChannelGroupFuture(this, futures, executor);
-        }
-        ReferenceCountUtil.release(message);
-        return future;
+        return write0(message, matcher, voidPromise, true);
     }
 
     @Override
@@ -24,8 +24,10 @@ import io.netty.channel.ChannelMetadata;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.ChannelOutboundBuffer;
 import io.netty.channel.ChannelPipeline;
+import io.netty.channel.DefaultChannelConfig;
 import io.netty.channel.FileRegion;
 import io.netty.channel.RecvByteBufAllocator;
+import io.netty.channel.WriteBudget;
 import io.netty.channel.socket.ChannelInputShutdownEvent;
 import io.netty.util.internal.StringUtil;
 
@@ -44,6 +46,14 @@ public abstract class AbstractNioByteChannel extends AbstractNioChannel {
 
     private Runnable flushTask;
 
+    // The state of the current write round, see startWriteRound().
+    private int writeSpinCount;
+    private boolean writeBudgeted;
+    private boolean writeBudgetExhausted;
+    private boolean writeTimeBounded;
+    private long writeBytesLeft;
+    private long writeDeadline;
+
     /**
      * Create a new instance
      *
@@ -154,8 +164,16 @@ public abstract class AbstractNioByteChannel extends AbstractNioChannel {
 
     @Override
     protected void doWrite(ChannelOutboundBuffer in) throws Exception {
-        int writeSpinCount = -1;
+        startWriteRound();
+        doWriteInRound(in);
+    }
 
+    /**
+     * Writes the flushed {@link ByteBuf}s and {@link FileRegion}s of the given {@link ChannelOutboundBuffer} within
+     * the current write round, which must have been started via {@link #startWriteRound()} before.
+     */
+    protected final void doWriteInRound(ChannelOutboundBuffer in) throws Exception {
+        final int writeSpinCount = this.writeSpinCount;
         boolean setOpWrite = false;
         for (;;) {
             Object msg = in.current();
@@ -165,6 +183,10 @@ public abstract class AbstractNioByteChannel extends AbstractNioChannel {
                 // Directly return here so incompleteWrite(...) is not called.
                 return;
             }
+            if (writeBudgetExhausted) {
+                // Break the loop and so incompleteWrite(...) is called.
+                break;
+            }
 
             if (msg instanceof ByteBuf) {
                 ByteBuf buf = (ByteBuf) msg;
@@ -176,16 +198,14 @@ public abstract class AbstractNioByteChannel extends AbstractNioChannel {
 
                 boolean done = false;
                 long flushedAmount = 0;
-                if (writeSpinCount == -1) {
-                    writeSpinCount = config().getWriteSpinCount();
-                }
-                for (int i = writeSpinCount - 1; i >= 0; i --) {
+                for (int i = writeSpinCount - 1; i >= 0 && !writeBudgetExhausted; i --) {
                     int localFlushedAmount = doWriteBytes(buf);
                     if (localFlushedAmount == 0) {
                         setOpWrite = true;
                         break;
                     }
 
+                    consumeWriteBudget(localFlushedAmount);
                     flushedAmount += localFlushedAmount;
                     if (!buf.isReadable()) {
                         done = true;
@@ -207,17 +227,14 @@ public abstract class AbstractNioByteChannel extends AbstractNioChannel {
 
                 if (!done) {
                     long flushedAmount = 0;
-                    if (writeSpinCount == -1) {
-                        writeSpinCount = config().getWriteSpinCount();
-                    }
-
-                    for (int i = writeSpinCount - 1; i >= 0; i--) {
+                    for (int i = writeSpinCount - 1; i >= 0 && !writeBudgetExhausted; i--) {
                         long localFlushedAmount = doWriteFileRegion(region);
                         if (localFlushedAmount == 0) {
                             setOpWrite = true;
                             break;
                         }
 
+                        consumeWriteBudget(localFlushedAmount);
                         flushedAmount += localFlushedAmount;
                         if (region.transferred() >= region.count()) {
                             done = true;
@@ -261,10 +278,74 @@ public abstract class AbstractNioByteChannel extends AbstractNioChannel {
                 "unsupported message type: " + StringUtil.simpleClassName(msg) + EXPECTED_TYPES);
     }
 
+    /**
+     * Starts a new write round. If the {@link DefaultChannelConfig#getWriteBudget() WriteBudget} of the channel is
+     * set, the round ends once the budget is used up, otherwise each message is written with up to
+     * {@link ChannelConfig#getWriteSpinCount()} write operations.
+     */
+    protected final void startWriteRound() {
+        ChannelConfig config = config();
+        WriteBudget budget = config instanceof DefaultChannelConfig ?
+                ((DefaultChannelConfig) config).getWriteBudget() : null;
+        writeBudgetExhausted = false;
+        if (budget == null) {
+            writeBudgeted = false;
+            writeSpinCount = config.getWriteSpinCount();
+        } else {
+            writeBudgeted = true;
+            writeSpinCount = Integer.MAX_VALUE;
+            writeBytesLeft = budget.maxBytes();
+            long maxTimeNanos = budget.maxTimeNanos();
+            writeTimeBounded = maxTimeNanos > 0;
+            if (writeTimeBounded) {
+                writeDeadline = System.nanoTime() + maxTimeNanos;
+            }
+        }
+    }
+
+    /**
+     * Returns the maximal number of write operations per message in the current write round.
+     */
+    protected final int writeSpinCount() {
+        return writeSpinCount;
+    }
+
+    /**
+     * Returns the number of bytes which may still be written in the current write round, at most
+     * {@link Integer#MAX_VALUE}.
+     */
+    protected final int writeBytesLeft() {
+        return writeBudgeted ? (int) Math.min(writeBytesLeft, Integer.MAX_VALUE) : Integer.MAX_VALUE;
+    }
+
+    /**
+     * Accounts the given number of written bytes to the current write round.
+     */
+    protected final void consumeWriteBudget(long writtenBytes) {
+        if (writeBudgeted) {
+            writeBytesLeft -= writtenBytes;
+            if (writeBytesLeft <= 0 || writeTimeBounded && System.nanoTime() - writeDeadline >= 0) {
+                writeBudgetExhausted = true;
+            }
+        }
+    }
+
+    /**
+     * Returns {@code true} if the current write round used up the {@link WriteBudget} of the channel.
+     */
+    protected final boolean isWriteBudgetExhausted() {
+        return writeBudgetExhausted;
+    }
+
     protected final void incompleteWrite(boolean setOpWrite) {
         // Did not write completely.
         if (setOpWrite) {
             setOpWrite();
+        } else if (writeBudgetExhausted) {
+            // The channel may still be able to write, so flush it again once the other channels of the event loop
+            // had their turn.
+            clearOpWrite();
+            eventLoop().addBudgetedFlush(this);
         } else {
             // Schedule flush again later so other tasks can be picked up in the meantime
             Runnable flushTask = this.flushTask;
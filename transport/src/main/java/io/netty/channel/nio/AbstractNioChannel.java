@@ -58,6 +58,8 @@ public abstract class AbstractNioChannel extends AbstractChannel {
     protected final int readInterestOp;
     volatile SelectionKey selectionKey;
     boolean readPending;
+    // Set while the channel waits in the ring of its NioEventLoop to be flushed again after it used up its WriteBudget.
+    boolean budgetedFlushPending;
     private final Runnable clearReadPendingRunnable = new Runnable() {
         @Override
         public void run() {
@@ -369,6 +371,9 @@ public abstract class AbstractNioChannel extends AbstractChannel {
         }
 
         private boolean isFlushPending() {
+            if (budgetedFlushPending) {
+                return true;
+            }
             SelectionKey selectionKey = selectionKey();
             return selectionKey.isValid() && (selectionKey.interestOps() & SelectionKey.OP_WRITE) != 0;
         }
@@ -385,6 +390,7 @@ public abstract class AbstractNioChannel extends AbstractChannel {
         for (;;) {
             try {
                 selectionKey = javaChannel().register(eventLoop().selector, 0, this);
+                eventLoop().registered();
                 return;
             } catch (CancelledKeyException e) {
                 if (!selected) {
@@ -403,6 +409,8 @@ public abstract class AbstractNioChannel extends AbstractChannel {
 
     @Override
     protected void doDeregister() throws Exception {
+        // The ring of the NioEventLoop skips the channel once it is deregistered.
+        budgetedFlushPending = false;
         eventLoop().cancel(selectionKey());
     }
 
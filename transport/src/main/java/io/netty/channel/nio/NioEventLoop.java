@@ -37,6 +37,7 @@ import java.nio.channels.Selector;
 import java.nio.channels.spi.SelectorProvider;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
@@ -133,6 +134,11 @@ public final class NioEventLoop extends SingleThreadEventLoop {
     private volatile int ioRatio = 50;
     private int cancelledKeys;
     private boolean needsToSelectAgain;
+    // Only updated by the event loop thread, but read by any thread via registeredChannels().
+    private volatile int numChannels;
+
+    // The channels which used up their WriteBudget while they could still write, in the order they are flushed again.
+    private final ArrayDeque<AbstractNioChannel> budgetedFlushes = new ArrayDeque<AbstractNioChannel>();
 
     NioEventLoop(NioEventLoopGroup parent, Executor executor, SelectorProvider selectorProvider,
                  SelectStrategy strategy, RejectedExecutionHandler rejectedExecutionHandler) {
@@ -255,6 +261,16 @@ public final class NioEventLoop extends SingleThreadEventLoop {
         }
     }
 
+    /**
+     * Returns the number of {@link AbstractNioChannel}s which are registered to this event loop. Unlike the keys of
+     * the {@link Selector} this is safe to read from any thread, but it does not count the {@link SelectableChannel}s
+     * which were registered via {@link #register(SelectableChannel, int, NioTask)}.
+     */
+    @Override
+    public int registeredChannels() {
+        return numChannels;
+    }
+
     /**
      * Registers an arbitrary {@link SelectableChannel}, not necessarily created by Netty, to the {@link Selector}
      * of this event loop.  Once the specified {@link SelectableChannel} is registered, the specified {@code task} will
@@ -384,9 +400,15 @@ public final class NioEventLoop extends SingleThreadEventLoop {
     protected void run() {
         for (;;) {
             try {
-                switch (selectStrategy.calculateStrategy(selectNowSupplier, hasTasks())) {
+                switch (selectStrategy.calculateStrategy(selectNowSupplier, hasTasks() || hasBudgetedFlushes())) {
                     case SelectStrategy.CONTINUE:
                         continue;
+                    case SelectStrategy.BUSY_WAIT:
+                        // Mark the loop as awake so other threads do not call Selector.wakeup() while it spins. The
+                        // flag is reset before the next blocking select, which also checks for tasks again.
+                        wakenUp.set(true);
+                        selector.selectNow();
+                        break;
                     case SelectStrategy.SELECT:
                         select(wakenUp.getAndSet(false));
 
@@ -428,21 +450,29 @@ public final class NioEventLoop extends SingleThreadEventLoop {
                 cancelledKeys = 0;
                 needsToSelectAgain = false;
                 final int ioRatio = this.ioRatio;
-                if (ioRatio == 100) {
+                if (ioRatio == 100 && !isMetricCollected()) {
                     try {
                         processSelectedKeys();
+                        processBudgetedFlushes();
                     } finally {
                         // Ensure we always run tasks.
                         runAllTasks();
                     }
                 } else {
+                    final int readyKeys = selectedKeys != null ? selectedKeys.size() : selector.selectedKeys().size();
                     final long ioStartTime = System.nanoTime();
                     try {
                         processSelectedKeys();
+                        processBudgetedFlushes();
                     } finally {
                         // Ensure we always run tasks.
                         final long ioTime = System.nanoTime() - ioStartTime;
-                        runAllTasks(ioTime * (100 - ioRatio) / ioRatio);
+                        recordIo(readyKeys, ioTime);
+                        if (ioRatio == 100) {
+                            runAllTasks();
+                        } else {
+                            runAllTasks(ioTime * (100 - ioRatio) / ioRatio);
+                        }
                     }
                 }
             } catch (Throwable t) {
@@ -462,6 +492,37 @@ public final class NioEventLoop extends SingleThreadEventLoop {
         }
     }
 
+    /**
+     * Adds the given channel, which used up its {@link io.netty.channel.WriteBudget} while it could still write, to
+     * the ring of channels which are flushed again in the next iteration of the loop. The channel does not flush
+     * before then.
+     */
+    void addBudgetedFlush(AbstractNioChannel ch) {
+        assert inEventLoop();
+        if (!ch.budgetedFlushPending) {
+            ch.budgetedFlushPending = true;
+            budgetedFlushes.add(ch);
+        }
+    }
+
+    private boolean hasBudgetedFlushes() {
+        return !budgetedFlushes.isEmpty();
+    }
+
+    private void processBudgetedFlushes() {
+        // Only flush the channels which were added before, the channels which use up their budget again are added to
+        // the end of the ring and flushed in the next iteration, so all channels get their turn.
+        for (int i = budgetedFlushes.size(); i > 0; i --) {
+            AbstractNioChannel ch = budgetedFlushes.poll();
+            if (ch.eventLoop() != this || !ch.budgetedFlushPending) {
+                // The channel was deregistered in the meantime.
+                continue;
+            }
+            ch.budgetedFlushPending = false;
+            ch.unsafe().forceFlush();
+        }
+    }
+
     private static void handleLoopException(Throwable t) {
         logger.warn("Unexpected exception in the selector loop.", t);
 
@@ -491,7 +552,14 @@ public final class NioEventLoop extends SingleThreadEventLoop {
         }
     }
 
+    void registered() {
+        assert inEventLoop();
+        numChannels ++;
+    }
+
     void cancel(SelectionKey key) {
+        assert inEventLoop();
+        numChannels --;
         key.cancel();
         cancelledKeys ++;
         if (cancelledKeys >= CLEANUP_INTERVAL) {
@@ -703,6 +771,7 @@ public final class NioEventLoop extends SingleThreadEventLoop {
     protected void wakeup(boolean inEventLoop) {
         if (!inEventLoop && wakenUp.compareAndSet(false, true)) {
             selector.wakeup();
+            recordWakeup();
         }
     }
 
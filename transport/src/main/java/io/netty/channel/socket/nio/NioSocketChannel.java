@@ -381,6 +381,8 @@ public class NioSocketChannel extends AbstractNioByteChannel implements io.netty
 
     @Override
     protected void doWrite(ChannelOutboundBuffer in) throws Exception {
+        startWriteRound();
+        final int writeSpinCount = writeSpinCount();
         for (;;) {
             int size = in.size();
             if (size == 0) {
@@ -388,12 +390,16 @@ public class NioSocketChannel extends AbstractNioByteChannel implements io.netty
                 clearOpWrite();
                 break;
             }
+            if (isWriteBudgetExhausted()) {
+                incompleteWrite(false);
+                break;
+            }
             long writtenBytes = 0;
             boolean done = false;
             boolean setOpWrite = false;
 
-            // Ensure the pending writes are made of ByteBufs only.
-            ByteBuffer[] nioBuffers = in.nioBuffers();
+            // Ensure the pending writes are made of ByteBufs only, and do not gather more than the budget allows.
+            ByteBuffer[] nioBuffers = in.nioBuffers(writeBytesLeft());
             int nioBufferCnt = in.nioBufferCount();
             long expectedWrittenBytes = in.nioBufferSize();
             SocketChannel ch = javaChannel();
@@ -403,17 +409,18 @@ public class NioSocketChannel extends AbstractNioByteChannel implements io.netty
             switch (nioBufferCnt) {
                 case 0:
                     // We have something else beside ByteBuffers to write so fallback to normal writes.
-                    super.doWrite(in);
+                    doWriteInRound(in);
                     return;
                 case 1:
                     // Only one ByteBuf so use non-gathering write
                     ByteBuffer nioBuffer = nioBuffers[0];
-                    for (int i = config().getWriteSpinCount() - 1; i >= 0; i --) {
+                    for (int i = writeSpinCount - 1; i >= 0 && !isWriteBudgetExhausted(); i --) {
                         final int localWrittenBytes = ch.write(nioBuffer);
                         if (localWrittenBytes == 0) {
                             setOpWrite = true;
                             break;
                         }
+                        consumeWriteBudget(localWrittenBytes);
                         expectedWrittenBytes -= localWrittenBytes;
                         writtenBytes += localWrittenBytes;
                         if (expectedWrittenBytes == 0) {
@@ -423,12 +430,13 @@ public class NioSocketChannel extends AbstractNioByteChannel implements io.netty
                     }
                     break;
                 default:
-                    for (int i = config().getWriteSpinCount() - 1; i >= 0; i --) {
+                    for (int i = writeSpinCount - 1; i >= 0 && !isWriteBudgetExhausted(); i --) {
                         final long localWrittenBytes = ch.write(nioBuffers, 0, nioBufferCnt);
                         if (localWrittenBytes == 0) {
                             setOpWrite = true;
                             break;
                         }
+                        consumeWriteBudget(localWrittenBytes);
                         expectedWrittenBytes -= localWrittenBytes;
                         writtenBytes += localWrittenBytes;
                         if (expectedWrittenBytes == 0) {
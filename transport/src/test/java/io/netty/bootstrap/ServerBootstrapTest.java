@@ -16,24 +16,31 @@
 package io.netty.bootstrap;
 
 import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerAdapter;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoop;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.local.LocalAddress;
 import io.netty.channel.local.LocalChannel;
 import io.netty.channel.local.LocalEventLoopGroup;
 import io.netty.channel.local.LocalServerChannel;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.EventExecutorChooserFactory;
+import io.netty.util.concurrent.LoadAwareEventExecutorChooserFactory;
 import org.junit.Test;
 
 import java.util.UUID;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicReference;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 public class ServerBootstrapTest {
@@ -137,4 +144,83 @@ public class ServerBootstrapTest {
             group.shutdownGracefully();
         }
     }
+
+    @Test(timeout = 5000)
+    public void testChildEventLoopChooser() throws Exception {
+        final LocalAddress addr = new LocalAddress(UUID.randomUUID().toString());
+        final AtomicReference<EventExecutor[]> chooserExecutors = new AtomicReference<EventExecutor[]>();
+        final AtomicReference<EventLoop> childEventLoop = new AtomicReference<EventLoop>();
+        final CountDownLatch activeLatch = new CountDownLatch(1);
+
+        EventLoopGroup group = new DefaultEventLoopGroup(1);
+        EventLoopGroup childGroup = new DefaultEventLoopGroup(3);
+        Channel sch = null;
+        Channel cch = null;
+        try {
+            ServerBootstrap sb = new ServerBootstrap();
+            sb.channel(LocalServerChannel.class)
+                    .group(group, childGroup)
+                    .childEventLoopChooser(new EventExecutorChooserFactory() {
+                        @Override
+                        public EventExecutorChooser newChooser(final EventExecutor[] executors) {
+                            chooserExecutors.set(executors);
+                            return new EventExecutorChooser() {
+                                @Override
+                                public EventExecutor next() {
+                                    return executors[executors.length - 1];
+                                }
+                            };
+                        }
+                    })
+                    .childHandler(new ChannelInboundHandlerAdapter() {
+                        @Override
+                        public void channelActive(ChannelHandlerContext ctx) throws Exception {
+                            childEventLoop.set(ctx.channel().eventLoop());
+                            activeLatch.countDown();
+                            super.channelActive(ctx);
+                        }
+                    });
+
+            Bootstrap cb = new Bootstrap();
+            cb.group(group)
+                    .channel(LocalChannel.class)
+                    .handler(new ChannelInboundHandlerAdapter());
+
+            sch = sb.bind(addr).syncUninterruptibly().channel();
+            cch = cb.connect(addr).syncUninterruptibly().channel();
+
+            activeLatch.await();
+            EventExecutor[] executors = chooserExecutors.get();
+            assertEquals(3, executors.length);
+            assertSame(executors[2], childEventLoop.get());
+        } finally {
+            if (sch != null) {
+                sch.close().syncUninterruptibly();
+            }
+            if (cch != null) {
+                cch.close().syncUninterruptibly();
+            }
+            group.shutdownGracefully();
+            childGroup.shutdownGracefully();
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void testBindFailsIfChildEventLoopChooserRejectsChildGroup() throws Exception {
+        EventLoopGroup group = new DefaultEventLoopGroup(1);
+        EventLoopGroup childGroup = new DefaultEventLoopGroup(2);
+        try {
+            // The metrics of the child event loops are not collected, so the chooser can not be used.
+            ChannelFuture future = new ServerBootstrap().channel(LocalServerChannel.class)
+                    .group(group, childGroup)
+                    .childEventLoopChooser(new LoadAwareEventExecutorChooserFactory(
+                            LoadAwareEventExecutorChooserFactory.RECENT_BUSY_TIME))
+                    .childHandler(new ChannelInboundHandlerAdapter())
+                    .bind(new LocalAddress(UUID.randomUUID().toString())).await();
+            assertTrue(future.cause() instanceof IllegalStateException);
+        } finally {
+            group.shutdownGracefully();
+            childGroup.shutdownGracefully();
+        }
+    }
 }
@@ -19,6 +19,7 @@ import io.netty.buffer.ByteBuf;
 import io.netty.buffer.CompositeByteBuf;
 import io.netty.channel.embedded.EmbeddedChannel;
 import io.netty.util.CharsetUtil;
+import io.netty.util.concurrent.ImmediateEventExecutor;
 import org.junit.Test;
 
 import java.net.SocketAddress;
@@ -118,6 +119,60 @@ public class ChannelOutboundBufferTest {
         buf.release();
     }
 
+    @Test
+    public void testNioBuffersMaxBytes() {
+        TestChannel channel = new TestChannel();
+
+        ChannelOutboundBuffer buffer = new ChannelOutboundBuffer(channel);
+
+        ByteBuf buf = directBuffer().writeBytes("buf1".getBytes(CharsetUtil.US_ASCII));
+        for (int i = 0; i < 8; i++) {
+            buffer.addMessage(buf.copy(), buf.readableBytes(), channel.voidPromise());
+        }
+        buffer.addFlush();
+
+        // Stops before the buffer which would exceed the limit.
+        buffer.nioBuffers(10);
+        assertEquals(2, buffer.nioBufferCount());
+        assertEquals(8, buffer.nioBufferSize());
+
+        buffer.nioBuffers(12);
+        assertEquals(3, buffer.nioBufferCount());
+        assertEquals(12, buffer.nioBufferSize());
+
+        // The first buffer is always included.
+        buffer.nioBuffers(1);
+        assertEquals(1, buffer.nioBufferCount());
+        assertEquals(4, buffer.nioBufferSize());
+
+        buffer.nioBuffers();
+        assertEquals(8, buffer.nioBufferCount());
+        assertEquals(32, buffer.nioBufferSize());
+        release(buffer);
+        buf.release();
+    }
+
+    @Test
+    public void testRemoveDeferred() {
+        TestChannel channel = new TestChannel();
+        ChannelOutboundBuffer buffer = new ChannelOutboundBuffer(channel);
+        assertNull(buffer.removeDeferred());
+
+        ByteBuf buf = copiedBuffer("buf1", CharsetUtil.US_ASCII);
+        ChannelPromise promise = new DefaultChannelPromise(channel, ImmediateEventExecutor.INSTANCE);
+        buffer.addMessage(buf, buf.readableBytes(), promise);
+        buffer.addFlush();
+
+        assertSame(promise, buffer.removeDeferred());
+        assertNull(buffer.current());
+        assertEquals(0, buffer.totalPendingWriteBytes());
+        // The caller took over both the message and the promise.
+        assertEquals(1, buf.refCnt());
+        assertFalse(promise.isDone());
+        buf.release();
+        release(buffer);
+    }
+
     private static void release(ChannelOutboundBuffer buffer) {
         for (;;) {
             if (!buffer.remove()) {
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class OutboundWriteTaskTest {
+
+    @Test
+    public void testPendingOutboundBytesOfWrite() {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        ChannelOutboundBuffer buffer = channel.unsafe().outboundBuffer();
+        ByteBuf msg = Unpooled.buffer().writeZero(100);
+        ChannelPromise promise = channel.newPromise();
+
+        OutboundWriteTask task = OutboundWriteTask.newInstance(channel, msg, promise, false);
+        assertTrue(task instanceof SingleThreadEventLoop.NonWakeupRunnable);
+        assertEquals(100 + AbstractChannelHandlerContext.AbstractWriteTask.WRITE_TASK_OVERHEAD,
+                buffer.totalPendingWriteBytes());
+
+        task.run();
+        // Only the message itself is pending now, as it was not flushed yet.
+        EmbeddedChannel expected = new EmbeddedChannel();
+        expected.write(Unpooled.buffer().writeZero(100));
+        assertEquals(expected.unsafe().outboundBuffer().totalPendingWriteBytes(), buffer.totalPendingWriteBytes());
+        assertFalse(promise.isDone());
+        expected.finishAndReleaseAll();
+
+        channel.flush();
+        assertTrue(promise.isSuccess());
+        assertEquals(0, buffer.totalPendingWriteBytes());
+        ByteBuf written = channel.readOutbound();
+        written.release();
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void testWriteAndFlushWakesUpEventLoop() {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        ChannelPromise promise = channel.newPromise();
+
+        OutboundWriteTask task = OutboundWriteTask.newInstance(channel, Unpooled.buffer().writeZero(10), promise, true);
+        assertFalse(task instanceof SingleThreadEventLoop.NonWakeupRunnable);
+
+        task.run();
+        assertTrue(promise.isSuccess());
+        assertEquals(0, channel.unsafe().outboundBuffer().totalPendingWriteBytes());
+        ByteBuf written = channel.readOutbound();
+        written.release();
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void testFailReleasesMessageAndPendingOutboundBytes() {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        ByteBuf msg = Unpooled.buffer().writeZero(100);
+        ChannelPromise promise = channel.newPromise();
+
+        OutboundWriteTask task = OutboundWriteTask.newInstance(channel, msg, promise, false);
+        Exception cause = new Exception();
+        task.fail(cause);
+        assertEquals(0, msg.refCnt());
+        assertEquals(cause, promise.cause());
+        assertEquals(0, channel.unsafe().outboundBuffer().totalPendingWriteBytes());
+
+        // A task is either run or failed exactly once.
+        task.run();
+        assertFalse(channel.finish());
+    }
+}
@@ -15,16 +15,33 @@
  */
 package io.netty.channel.group;
 
+import io.netty.bootstrap.Bootstrap;
 import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandler.Sharable;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.DefaultEventLoopGroup;
 import io.netty.channel.EventLoopGroup;
+import io.netty.channel.local.LocalAddress;
+import io.netty.channel.local.LocalChannel;
+import io.netty.channel.local.LocalServerChannel;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.util.CharsetUtil;
+import io.netty.util.ReferenceCountUtil;
 import io.netty.util.concurrent.GlobalEventExecutor;
 import org.junit.Test;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
 public class DefaultChannnelGroupTest {
 
     // Test for #1183
@@ -57,4 +74,54 @@ public class DefaultChannnelGroupTest {
         bossGroup.terminationFuture().sync();
         workerGroup.terminationFuture().sync();
     }
+
+    @Test(timeout = 5000)
+    public void testWriteAndFlushToChannelsOfSeveralEventLoops() throws Exception {
+        EventLoopGroup group = new DefaultEventLoopGroup(2);
+        final ChannelGroup allChannels = new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
+        final CountDownLatch active = new CountDownLatch(8);
+        final CountDownLatch received = new CountDownLatch(16);
+        try {
+            @Sharable
+            class ActiveHandler extends ChannelInboundHandlerAdapter {
+                @Override
+                public void channelActive(ChannelHandlerContext ctx) {
+                    allChannels.add(ctx.channel());
+                    active.countDown();
+                }
+            }
+            LocalAddress address = new LocalAddress("testWriteAndFlushToChannelsOfSeveralEventLoops");
+            Channel server = new ServerBootstrap().group(group).channel(LocalServerChannel.class)
+                    .childHandler(new ActiveHandler()).bind(address).sync().channel();
+
+            @Sharable
+            class ReadHandler extends ChannelInboundHandlerAdapter {
+                @Override
+                public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                    assertEquals("hello", ((ByteBuf) msg).toString(CharsetUtil.US_ASCII));
+                    ReferenceCountUtil.release(msg);
+                    received.countDown();
+                }
+            }
+            Bootstrap bootstrap = new Bootstrap().group(group).channel(LocalChannel.class).handler(new ReadHandler());
+            ChannelGroup clients = new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
+            for (int i = 0; i < 8; i++) {
+                clients.add(bootstrap.connect(address).sync().channel());
+            }
+            active.await();
+
+            ByteBuf msg = Unpooled.copiedBuffer("hello", CharsetUtil.US_ASCII);
+            assertTrue(allChannels.writeAndFlush(msg.retain()).sync().isSuccess());
+            allChannels.write(msg, ChannelMatchers.all(), true);
+            allChannels.flush();
+            received.await();
+            assertEquals(0, msg.refCnt());
+
+            clients.close().sync();
+            allChannels.add(server);
+            allChannels.close().sync();
+        } finally {
+            group.shutdownGracefully(0, 0, TimeUnit.SECONDS).sync();
+        }
+    }
 }
@@ -15,10 +15,28 @@
  */
 package io.netty.channel.nio;
 
+import io.netty.bootstrap.ServerBootstrap;
 import io.netty.channel.AbstractEventLoopTest;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.EventLoop;
 import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SingleThreadEventLoopMetric;
+import io.netty.channel.SpinWaitSelectStrategyFactory;
 import io.netty.channel.socket.ServerSocketChannel;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.spi.SelectorProvider;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class NioEventLoopTest extends AbstractEventLoopTest {
 
@@ -31,4 +49,121 @@ public class NioEventLoopTest extends AbstractEventLoopTest {
     protected Class<? extends ServerSocketChannel> newChannel() {
         return NioServerSocketChannel.class;
     }
+
+    @Test(timeout = 5000)
+    public void testSpinWaitSelectStrategy() throws Exception {
+        SpinWaitSelectStrategyFactory factory = new SpinWaitSelectStrategyFactory(100, 10);
+        EventLoopGroup group = new NioEventLoopGroup(1, new DefaultThreadFactory("spinWait"),
+                SelectorProvider.provider(), factory);
+        try {
+            EventLoop loop = group.next();
+            final CountDownLatch latch = new CountDownLatch(100);
+            for (int i = 0; i < 100; i++) {
+                loop.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        latch.countDown();
+                    }
+                });
+            }
+            latch.await();
+
+            // A scheduled task must still be run once the loop stopped spinning and blocks in a select.
+            assertTrue(loop.schedule(new Runnable() {
+                @Override
+                public void run() {
+                }
+            }, 100, TimeUnit.MILLISECONDS).await(2, TimeUnit.SECONDS));
+            assertTrue(factory.numSpins() >= 100);
+            assertTrue(factory.numYields() >= 10);
+            assertTrue(factory.numParks() > 0);
+        } finally {
+            group.shutdownGracefully(0, 0, TimeUnit.SECONDS).syncUninterruptibly();
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void testBusySpinSelectStrategyNeverParks() throws Exception {
+        SpinWaitSelectStrategyFactory factory = SpinWaitSelectStrategyFactory.busySpin();
+        EventLoopGroup group = new NioEventLoopGroup(1, new DefaultThreadFactory("busySpin"),
+                SelectorProvider.provider(), factory);
+        try {
+            assertTrue(group.next().schedule(new Runnable() {
+                @Override
+                public void run() {
+                }
+            }, 50, TimeUnit.MILLISECONDS).await(2, TimeUnit.SECONDS));
+            assertTrue(factory.numSpins() > 0);
+            assertEquals(0, factory.numYields());
+            assertEquals(0, factory.numParks());
+        } finally {
+            group.shutdownGracefully(0, 0, TimeUnit.SECONDS).syncUninterruptibly();
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void testMetric() throws Exception {
+        EventLoopGroup group = new NioEventLoopGroup(1);
+        try {
+            NioEventLoop loop = (NioEventLoop) group.next();
+            SingleThreadEventLoopMetric metric = loop.metric();
+            Channel channel = new ServerBootstrap().group(group).channel(NioServerSocketChannel.class)
+                    .childHandler(new ChannelInboundHandlerAdapter())
+                    .bind(new InetSocketAddress("127.0.0.1", 0)).sync().channel();
+            Socket socket = new Socket();
+            try {
+                socket.connect(channel.localAddress());
+                while (metric.numReadyEvents() == 0) {
+                    Thread.sleep(10);
+                }
+            } finally {
+                socket.close();
+                channel.close().sync();
+            }
+
+            assertTrue(metric.numSelects() > 0);
+            assertTrue(metric.numWakeups() > 0);
+            assertTrue(metric.numTasks() > 0);
+            assertTrue(metric.numWaitedTasks() > 0);
+            assertTrue(metric.toString().contains("numReadyEvents: "));
+        } finally {
+            group.shutdownGracefully(0, 0, TimeUnit.SECONDS).syncUninterruptibly();
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void testRegisteredChannels() throws Exception {
+        EventLoopGroup group = new NioEventLoopGroup(1);
+        try {
+            NioEventLoop loop = (NioEventLoop) group.next();
+            assertEquals(0, loop.registeredChannels());
+            Channel channel = new NioServerSocketChannel();
+            loop.register(channel).syncUninterruptibly();
+            assertEquals(1, loop.registeredChannels());
+
+            // Keys which were not registered by a channel of Netty are not counted.
+            java.nio.channels.ServerSocketChannel selectable = SelectorProvider.provider().openServerSocketChannel();
+            try {
+                selectable.configureBlocking(false);
+                loop.register(selectable, SelectionKey.OP_ACCEPT, new NioTask<java.nio.channels.ServerSocketChannel>() {
+                    @Override
+                    public void channelReady(java.nio.channels.ServerSocketChannel ch, SelectionKey key) { }
+
+                    @Override
+                    public void channelUnregistered(java.nio.channels.ServerSocketChannel ch, Throwable cause) { }
+                });
+                assertEquals(1, loop.registeredChannels());
+            } finally {
+                selectable.close();
+            }
+
+            channel.close().syncUninterruptibly();
+            // The channel is deregistered after the close future was notified.
+            while (loop.registeredChannels() != 0) {
+                Thread.sleep(10);
+            }
+        } finally {
+            group.shutdownGracefully(0, 0, TimeUnit.SECONDS).syncUninterruptibly();
+        }
+    }
 }